@@ -0,0 +1,193 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.xml.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.sonar.api.SonarEdition;
+import org.sonar.api.SonarQubeSide;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.batch.rule.CheckFactory;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.batch.rule.internal.NewActiveRule;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.internal.SonarRuntimeImpl;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.Version;
+import org.sonar.check.Rule;
+import org.sonar.plugins.xml.Xml;
+import org.sonar.plugins.xml.XmlSensor;
+import org.sonar.plugins.xml.checks.CheckList;
+import org.sonar.plugins.xml.checks.XPathCheck;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+
+/**
+ * XML files of a directory, loaded in memory as input files, and everything needed to analyze them outside of a scanner.
+ * <p>
+ * By default, the projects of the ruling tests are used, located from the root of the repository or from this module. Another
+ * directory can be given through the {@value #SOURCES_PROPERTY} system property.
+ */
+public final class BenchmarkProject {
+
+  public static final String SOURCES_PROPERTY = "xml.benchmark.sources";
+
+  private static final String MODULE_KEY = "benchmark";
+
+  private final Path baseDir;
+  private final List<DefaultInputFile> inputFiles;
+
+  private BenchmarkProject(Path baseDir, List<DefaultInputFile> inputFiles) {
+    this.baseDir = baseDir;
+    this.inputFiles = inputFiles;
+  }
+
+  public static BenchmarkProject load() {
+    return load(sourcesDirectory());
+  }
+
+  public static Path sourcesDirectory() {
+    String sources = System.getProperty(SOURCES_PROPERTY);
+    if (sources != null) {
+      return Path.of(sources);
+    }
+    return Stream.of(Path.of("its/sources/projects"), Path.of("../its/sources/projects"))
+      .filter(Files::isDirectory)
+      .findFirst()
+      .orElseThrow(() -> new IllegalStateException("Unable to find the sources to analyze, set the '" + SOURCES_PROPERTY + "' system property"));
+  }
+
+  public static BenchmarkProject load(Path directory) {
+    return load(List.of(directory));
+  }
+
+  /**
+   * Files of several directories, each of them being the base directory of its own module. The first directory is the base
+   * directory of the project.
+   */
+  public static BenchmarkProject load(List<Path> directories) {
+    List<DefaultInputFile> inputFiles = new ArrayList<>();
+    for (int i = 0; i < directories.size(); i++) {
+      addFiles(inputFiles, i == 0 ? MODULE_KEY : (MODULE_KEY + i), directories.get(i).toAbsolutePath().normalize());
+    }
+    return new BenchmarkProject(directories.get(0).toAbsolutePath().normalize(), inputFiles);
+  }
+
+  private static void addFiles(List<DefaultInputFile> inputFiles, String moduleKey, Path moduleBaseDir) {
+    try (Stream<Path> paths = Files.walk(moduleBaseDir)) {
+      for (Path path : paths.filter(path -> path.toString().endsWith(".xml") && Files.isRegularFile(path)).sorted().toList()) {
+        inputFiles.add(TestInputFileBuilder.create(moduleKey, moduleBaseDir.relativize(path).toString())
+          .setModuleBaseDir(moduleBaseDir)
+          .setType(InputFile.Type.MAIN)
+          .setLanguage(Xml.KEY)
+          .setCharset(StandardCharsets.UTF_8)
+          .initMetadata(Files.readString(path, StandardCharsets.UTF_8))
+          .build());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public Path baseDir() {
+    return baseDir;
+  }
+
+  public List<DefaultInputFile> inputFiles() {
+    return inputFiles;
+  }
+
+  public long sizeInBytes() {
+    return inputFiles.stream().mapToLong(inputFile -> inputFile.file().length()).sum();
+  }
+
+  /**
+   * Files which can be parsed, as the ones which cannot are not given to the checks.
+   */
+  public List<XmlFile> parse() {
+    List<XmlFile> xmlFiles = new ArrayList<>();
+    for (InputFile inputFile : inputFiles) {
+      try {
+        xmlFiles.add(XmlFile.create(inputFile));
+      } catch (Exception e) {
+        // not well-formed files are not analyzed by the checks either
+      }
+    }
+    return xmlFiles;
+  }
+
+  public SensorContextTester newContext() {
+    SensorContextTester context = SensorContextTester.create(baseDir);
+    context.setRuntime(SonarRuntimeImpl.forSonarQube(Version.create(10, 7), SonarQubeSide.SCANNER, SonarEdition.COMMUNITY));
+    context.setActiveRules(allRules());
+    return context;
+  }
+
+  public XmlSensor newSensor() {
+    DefaultFileSystem fileSystem = new DefaultFileSystem(baseDir);
+    inputFiles.forEach(fileSystem::add);
+    return new XmlSensor(SonarRuntimeImpl.forSonarQube(Version.create(10, 7), SonarQubeSide.SCANNER, SonarEdition.COMMUNITY), fileSystem,
+      new CheckFactory(allRules()), noOpFileLinesContextFactory());
+  }
+
+  /**
+   * Every rule of the plugin, except the rule templates which have no default parameters.
+   */
+  public static ActiveRules allRules() {
+    ActiveRulesBuilder rules = new ActiveRulesBuilder();
+    for (Class<?> checkClass : CheckList.getCheckClasses()) {
+      if (checkClass != XPathCheck.class) {
+        rules.addRule(new NewActiveRule.Builder().setRuleKey(ruleKey(checkClass)).build());
+      }
+    }
+    return rules.build();
+  }
+
+  public static RuleKey ruleKey(Class<?> checkClass) {
+    return RuleKey.of(Xml.REPOSITORY_KEY, checkClass.getAnnotation(Rule.class).key());
+  }
+
+  public static FileLinesContextFactory noOpFileLinesContextFactory() {
+    return inputFile -> new FileLinesContext() {
+      @Override
+      public void setIntValue(String metricKey, int line, int value) {
+        // values are not kept
+      }
+
+      @Override
+      public void setStringValue(String metricKey, int line, String value) {
+        // values are not kept
+      }
+
+      @Override
+      public void save() {
+        // values are not kept
+      }
+    };
+  }
+}
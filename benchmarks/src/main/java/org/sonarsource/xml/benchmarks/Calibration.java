@@ -0,0 +1,79 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.xml.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A fixed workload, independent of the code of the analyzer, whose time tells how fast the machine running the benchmarks
+ * is. Dividing the times of a benchmark by the time of this loop makes them comparable between machines.
+ * <p>
+ * The workload mixes what the analysis mostly does: building and scanning strings, hashing and sorting. It is run several
+ * times after a warmup, and its fastest run is kept, as the slower ones are disturbed by the rest of the system.
+ */
+public final class Calibration {
+
+  private static final int WARMUP_RUNS = 5;
+  private static final int MEASURED_RUNS = 20;
+  private static final int ELEMENTS = 200_000;
+
+  /**
+   * Keeps the results of the workload, so that it is not optimized away.
+   */
+  private static volatile long sink;
+
+  private Calibration() {
+  }
+
+  public static double measureMillis() {
+    for (int i = 0; i < WARMUP_RUNS; i++) {
+      sink += workload();
+    }
+    long fastestNanos = Long.MAX_VALUE;
+    for (int i = 0; i < MEASURED_RUNS; i++) {
+      long start = System.nanoTime();
+      sink += workload();
+      fastestNanos = Math.min(fastestNanos, System.nanoTime() - start);
+    }
+    return fastestNanos / 1_000_000.0;
+  }
+
+  private static long workload() {
+    StringBuilder text = new StringBuilder();
+    Map<String, Integer> counts = new HashMap<>();
+    List<String> values = new ArrayList<>(ELEMENTS);
+    long checksum = 0;
+    for (int i = 0; i < ELEMENTS; i++) {
+      text.setLength(0);
+      text.append("<element id=\"").append(i).append("\" value=\"").append((i * 7919L) % 10_007).append("\">text</element>");
+      String element = text.toString();
+      for (int c = 0; c < element.length(); c++) {
+        if (element.charAt(c) == '"') {
+          checksum += c;
+        }
+      }
+      counts.merge(element.substring(element.indexOf("value"), element.indexOf('>')), 1, Integer::sum);
+      values.add(element);
+    }
+    Collections.sort(values);
+    return checksum + counts.size() + values.get(ELEMENTS / 2).length();
+  }
+}
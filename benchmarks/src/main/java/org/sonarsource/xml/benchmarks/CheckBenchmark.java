@@ -0,0 +1,98 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.xml.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.xml.checks.CheckList;
+import org.sonar.plugins.xml.checks.XPathCheck;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
+
+/**
+ * Execution of a single check on every parsed file of the benchmark project.
+ * <p>
+ * The tokens and the tree of the files are built by the first invocation, and then reused, as they are shared by all the
+ * checks of a file during the analysis.
+ * <p>
+ * The check is given by the simple name of its class. {@link XmlBenchmarks} runs this benchmark for every class of
+ * {@link CheckList}, unless a "check" parameter is given on the command line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class CheckBenchmark {
+
+  static final String CHECK_PARAMETER = "check";
+
+  /**
+   * Expression used to benchmark the XPath rule template, matching every element with attributes.
+   */
+  private static final String XPATH_EXPRESSION = "//*[@*]";
+
+  @Param({"IndentationCheck", "CommentedOutCodeCheck", "XPathCheck"})
+  public String check;
+
+  private BenchmarkProject project;
+  private List<XmlFile> xmlFiles;
+  private SonarXmlCheck checkInstance;
+  private RuleKey ruleKey;
+
+  @Setup
+  public void setUp() throws ReflectiveOperationException {
+    Class<?> checkClass = checkClass(check);
+    checkInstance = (SonarXmlCheck) checkClass.getConstructor().newInstance();
+    if (checkInstance instanceof XPathCheck xPathCheck) {
+      xPathCheck.setExpression(XPATH_EXPRESSION);
+    }
+    ruleKey = BenchmarkProject.ruleKey(checkClass);
+    project = BenchmarkProject.load();
+    xmlFiles = project.parse();
+  }
+
+  static Class<?> checkClass(String simpleName) {
+    return CheckList.getCheckClasses().stream()
+      .filter(checkClass -> checkClass.getSimpleName().equals(simpleName))
+      .findFirst()
+      .orElseThrow(() -> new IllegalArgumentException("Unknown check: " + simpleName));
+  }
+
+  @Benchmark
+  public SensorContextTester scanFiles() {
+    SensorContextTester context = project.newContext();
+    for (XmlFile xmlFile : xmlFiles) {
+      checkInstance.scanFile(context, ruleKey, xmlFile);
+    }
+    return context;
+  }
+}
@@ -0,0 +1,340 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.xml.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates XML files of the shapes which are rare in real-world projects but expensive to analyze: long flat lists,
+ * deep nesting, minified files, huge comments, many attributes and big text nodes, as well as Maven, Android and web
+ * application descriptors, so that the checks restricted to these files are executed too.
+ * <p>
+ * The size of each file is given by a scale, whose unit depends on its {@link Shape}. Files are generated from a seed:
+ * the same seed, shape and scale always produce the same bytes.
+ */
+public final class CorpusGenerator {
+
+  public static final long DEFAULT_SEED = 42L;
+
+  private static final String[] WORDS = {
+    "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel", "india", "juliet", "kilo", "lima", "mike",
+    "november", "oscar", "papa", "quebec", "romeo", "sierra", "tango", "uniform", "victor", "whiskey", "xray", "yankee", "zulu"};
+
+  private static final int BASE64_LINE_LENGTH = 76;
+
+  public enum Shape {
+    /** Elements of a single parent, one per line. Scale: number of elements. */
+    FLAT_LIST("flat-list.xml", 100_000),
+    /** Elements nested in each other, one per line. Scale: depth. */
+    DEEP_NESTING("deep-nesting.xml", 5_000),
+    /** Elements of a document without any line break. Scale: size in bytes. */
+    MINIFIED("minified.xml", 50 * 1024 * 1024),
+    /** Blocks of prose and commented-out elements. Scale: size of the comments in bytes. */
+    COMMENTS("comments.xml", 10 * 1024 * 1024),
+    /** A few elements with many attributes each. Scale: number of attributes per element. */
+    ATTRIBUTES("attributes.xml", 5_000),
+    /** A text node of base64-encoded data. Scale: size of the encoded data in bytes. */
+    BASE64_TEXT("base64-text.xml", 20 * 1024 * 1024),
+    /** A Maven project. Scale: number of dependencies. */
+    POM("pom.xml", 5_000),
+    /** An Android manifest. Scale: number of components. */
+    ANDROID_MANIFEST("AndroidManifest.xml", 5_000),
+    /** A web application descriptor. Scale: number of servlets. */
+    WEB_XML("web.xml", 5_000);
+
+    private final String fileName;
+    private final int defaultScale;
+
+    Shape(String fileName, int defaultScale) {
+      this.fileName = fileName;
+      this.defaultScale = defaultScale;
+    }
+
+    public String fileName() {
+      return fileName;
+    }
+
+    public int defaultScale() {
+      return defaultScale;
+    }
+
+    /**
+     * Scale relative to the default one, never smaller than 1.
+     */
+    public int scale(double factor) {
+      return (int) Math.max(1, Math.round(defaultScale * factor));
+    }
+  }
+
+  private final long seed;
+
+  public CorpusGenerator(long seed) {
+    this.seed = seed;
+  }
+
+  /**
+   * Writes every shape, at the given factor of its default scale, in its own sub-directory of the given directory, as
+   * some shapes share their file name with real descriptors.
+   */
+  public List<Path> writeAll(Path directory, double factor) {
+    List<Path> files = new ArrayList<>();
+    for (Shape shape : Shape.values()) {
+      files.add(write(directory.resolve(shape.name().toLowerCase(Locale.ROOT)), shape, shape.scale(factor)));
+    }
+    return files;
+  }
+
+  public Path write(Path directory, Shape shape, int scale) {
+    Path file = directory.resolve(shape.fileName());
+    try {
+      Files.createDirectories(directory);
+      try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+        generate(shape, scale, writer);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to generate " + file, e);
+    }
+    return file;
+  }
+
+  public void generate(Shape shape, int scale, Writer writer) throws IOException {
+    // the seed is combined with the shape, so that each file does not depend on the ones generated before it
+    Random random = new Random(seed * 31 + shape.ordinal());
+    Writer out = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+    out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    switch (shape) {
+      case FLAT_LIST -> flatList(out, random, scale);
+      case DEEP_NESTING -> deepNesting(out, random, scale);
+      case MINIFIED -> minified(out, random, scale);
+      case COMMENTS -> comments(out, random, scale);
+      case ATTRIBUTES -> attributes(out, random, scale);
+      case BASE64_TEXT -> base64Text(out, random, scale);
+      case POM -> pom(out, random, scale);
+      case ANDROID_MANIFEST -> androidManifest(out, random, scale);
+      case WEB_XML -> webXml(out, random, scale);
+    }
+    out.flush();
+  }
+
+  private static void flatList(Writer out, Random random, int elements) throws IOException {
+    out.write("<items>\n");
+    for (int i = 0; i < elements; i++) {
+      out.write("  <item id=\"" + i + "\" name=\"" + word(random) + "\">" + sentence(random, 4) + "</item>\n");
+    }
+    out.write("</items>\n");
+  }
+
+  private static void deepNesting(Writer out, Random random, int depth) throws IOException {
+    // not indented, as the size of the file would grow with the square of the depth
+    for (int i = 0; i < depth; i++) {
+      out.write("<level depth=\"" + i + "\" name=\"" + word(random) + "\">\n");
+    }
+    out.write(sentence(random, 8) + "\n");
+    for (int i = 0; i < depth; i++) {
+      out.write("</level>\n");
+    }
+  }
+
+  private static void minified(Writer out, Random random, int bytes) throws IOException {
+    out.write("<root>");
+    long written = 0;
+    for (int i = 0; written < bytes; i++) {
+      String element = "<entry key=\"" + word(random) + i + "\"><value type=\"" + word(random) + "\">" + sentence(random, 3)
+        + "</value><flag/></entry>";
+      out.write(element);
+      written += element.length();
+    }
+    out.write("</root>\n");
+  }
+
+  private static void comments(Writer out, Random random, int bytes) throws IOException {
+    out.write("<root>\n");
+    long written = 0;
+    while (written < bytes) {
+      StringBuilder block = new StringBuilder("  <!--\n");
+      for (int line = 0; line < 50; line++) {
+        if (random.nextBoolean()) {
+          block.append("    ").append(sentence(random, 10)).append('\n');
+        } else {
+          block.append("    <").append(word(random)).append(" value=\"").append(random.nextInt(1000)).append("\"/>\n");
+        }
+      }
+      block.append("  -->\n  <element/>\n");
+      out.write(block.toString());
+      written += block.length();
+    }
+    out.write("</root>\n");
+  }
+
+  private static void attributes(Writer out, Random random, int attributesPerElement) throws IOException {
+    out.write("<root>\n");
+    for (int element = 0; element < 10; element++) {
+      // a credential, for the security checks to raise issues
+      out.write(element == 0 ? "  <element password=\"" + word(random) + "\"" : "  <element");
+      for (int i = 0; i < attributesPerElement; i++) {
+        out.write(" " + word(random) + i + "=\"" + word(random) + "\"");
+      }
+      out.write("/>\n");
+    }
+    out.write("</root>\n");
+  }
+
+  private static void base64Text(Writer out, Random random, int bytes) throws IOException {
+    out.write("<attachment name=\"data.bin\" encoding=\"base64\">\n");
+    byte[] data = new byte[BASE64_LINE_LENGTH / 4 * 3];
+    Base64.Encoder encoder = Base64.getEncoder();
+    for (long written = 0; written < bytes; written += BASE64_LINE_LENGTH) {
+      random.nextBytes(data);
+      out.write(encoder.encodeToString(data));
+      out.write('\n');
+    }
+    out.write("</attachment>\n");
+  }
+
+  private static void pom(Writer out, Random random, int dependencies) throws IOException {
+    out.write("""
+      <project xmlns="http://maven.apache.org/POM/4.0.0">
+        <modelVersion>4.0.0</modelVersion>
+        <groupId>org.example.generated</groupId>
+        <artifactId>generated-project</artifactId>
+        <version>1.0-SNAPSHOT</version>
+        <name>${pom.name}</name>
+        <properties>
+          <db.password>secret</db.password>
+        </properties>
+        <dependencies>
+      """);
+    for (int i = 0; i < dependencies; i++) {
+      // a few system-scoped dependencies and badly named artifacts, for the Maven checks to raise issues
+      boolean system = random.nextInt(100) == 0;
+      out.write("    <dependency>\n"
+        + "      <groupId>org.example." + word(random) + "</groupId>\n"
+        + "      <artifactId>" + (random.nextInt(50) == 0 ? "Bad_Name" : word(random) + "-lib") + i + "</artifactId>\n"
+        + "      <version>" + random.nextInt(10) + "." + random.nextInt(10) + "</version>\n"
+        + (system ? "      <scope>system</scope>\n      <systemPath>/lib/dep" + i + ".jar</systemPath>\n" : "")
+        + "    </dependency>\n");
+    }
+    out.write("""
+        </dependencies>
+        <packaging>jar</packaging>
+      </project>
+      """);
+  }
+
+  private static void androidManifest(Writer out, Random random, int components) throws IOException {
+    out.write("""
+      <manifest xmlns:android="http://schemas.android.com/apk/res/android" package="org.example.generated">
+        <uses-permission android:name="android.permission.ACCESS_FINE_LOCATION"/>
+        <permission android:name="org.example.generated.PERMISSION" android:protectionLevel="normal"/>
+        <application android:allowBackup="true" android:debuggable="true" android:usesCleartextTraffic="true">
+      """);
+    String[] componentTypes = {"activity", "service", "receiver", "provider"};
+    for (int i = 0; i < components; i++) {
+      String component = componentTypes[random.nextInt(componentTypes.length)];
+      boolean exported = random.nextBoolean();
+      out.write("    <" + component + " android:name=\".Generated" + Character.toUpperCase(word(random).charAt(0)) + i + "\""
+        + " android:exported=\"" + exported + "\""
+        + ("provider".equals(component) ? " android:authorities=\"org.example.generated.provider" + i + "\"" : "")
+        + ">\n"
+        + "      <intent-filter>\n"
+        + "        <action android:name=\"org.example.generated.ACTION_" + word(random).toUpperCase(Locale.ROOT) + "\"/>\n"
+        + "      </intent-filter>\n"
+        + "    </" + component + ">\n");
+    }
+    out.write("""
+        </application>
+      </manifest>
+      """);
+  }
+
+  private static void webXml(Writer out, Random random, int servlets) throws IOException {
+    out.write("""
+      <web-app xmlns="http://xmlns.jcp.org/xml/ns/javaee" version="3.1">
+        <login-config>
+          <auth-method>BASIC</auth-method>
+        </login-config>
+        <session-config>
+          <cookie-config>
+            <http-only>false</http-only>
+          </cookie-config>
+        </session-config>
+      """);
+    for (int i = 0; i < servlets; i++) {
+      String name = word(random) + i;
+      out.write("  <servlet>\n"
+        + "    <servlet-name>" + name + "</servlet-name>\n"
+        + "    <servlet-class>org.example.generated." + Character.toUpperCase(name.charAt(0)) + name.substring(1) + "Servlet</servlet-class>\n"
+        + "    <init-param>\n"
+        + "      <param-name>" + (random.nextInt(20) == 0 ? "password" : word(random)) + "</param-name>\n"
+        + "      <param-value>" + word(random) + "</param-value>\n"
+        + "    </init-param>\n"
+        + "  </servlet>\n"
+        + "  <servlet-mapping>\n"
+        + "    <servlet-name>" + name + "</servlet-name>\n"
+        + "    <url-pattern>/" + name + "/*</url-pattern>\n"
+        + "  </servlet-mapping>\n");
+    }
+    out.write("""
+        <filter>
+          <filter-name>cors</filter-name>
+          <filter-class>org.apache.catalina.filters.CorsFilter</filter-class>
+          <init-param>
+            <param-name>cors.allowed.origins</param-name>
+            <param-value>*</param-value>
+          </init-param>
+        </filter>
+      </web-app>
+      """);
+  }
+
+  private static String word(Random random) {
+    return WORDS[random.nextInt(WORDS.length)];
+  }
+
+  private static String sentence(Random random, int words) {
+    StringBuilder sentence = new StringBuilder(word(random));
+    for (int i = 1; i < words; i++) {
+      sentence.append(' ').append(word(random));
+    }
+    return sentence.toString();
+  }
+
+  /**
+   * Writes the whole corpus: {@code CorpusGenerator <directory> [factor] [seed]}.
+   */
+  public static void main(String[] args) {
+    if (args.length == 0) {
+      throw new IllegalArgumentException("Usage: CorpusGenerator <directory> [factor] [seed]");
+    }
+    double factor = args.length > 1 ? Double.parseDouble(args[1]) : 1.0;
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+    for (Path file : new CorpusGenerator(seed).writeAll(Path.of(args[0]), factor)) {
+      System.out.println(file);
+    }
+  }
+}
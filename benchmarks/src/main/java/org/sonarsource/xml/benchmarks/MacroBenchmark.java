@@ -0,0 +1,296 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.xml.benchmarks;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.plugins.xml.XmlSensor;
+
+/**
+ * Runs the sensor, with every rule activated, on the ruling projects and on a generated corpus, without any SonarQube
+ * server. Times, memory and allocations are measured on each run, and their medians are written as a
+ * {@link MacroBenchmarkResult}, along with the time of the {@link Calibration} loop. These runs do not enable the profile
+ * report of the sensor, whose bookkeeping would be measured as well: the time of each phase and of each rule is taken
+ * from the report of a separate profiled run, following each measured one.
+ * <p>
+ * Runs are configured with system properties:
+ * <ul>
+ *   <li>{@value #RESULT_PROPERTY}: path of the result file, {@code target/macro-benchmark.json} by default</li>
+ *   <li>{@value #CORPUS_FACTOR_PROPERTY}: scale of the generated corpus, relative to its default scale, {@code 0.1} by
+ *   default, {@code 0} not to generate any file</li>
+ *   <li>{@value #THREADS_PROPERTY}: number of analysis threads, 1 by default</li>
+ *   <li>{@value #WARMUPS_PROPERTY} and {@value #ITERATIONS_PROPERTY}: number of runs which are discarded, 1 by default, and
+ *   measured, 3 by default</li>
+ * </ul>
+ */
+public final class MacroBenchmark {
+
+  public static final String RESULT_PROPERTY = "xml.benchmark.result";
+  public static final String CORPUS_FACTOR_PROPERTY = "xml.benchmark.corpusFactor";
+  public static final String THREADS_PROPERTY = "xml.benchmark.threads";
+  public static final String WARMUPS_PROPERTY = "xml.benchmark.warmups";
+  public static final String ITERATIONS_PROPERTY = "xml.benchmark.iterations";
+
+  /**
+   * Property of the sensor enabling its profile report.
+   */
+  private static final String PROFILE_REPORT_KEY = "sonar.xml.profile.report";
+
+  private static final String MILLIS_SUFFIX = "Millis";
+
+  private final BenchmarkProject project;
+  private final int threads;
+
+  public MacroBenchmark(BenchmarkProject project, int threads) {
+    this.project = project;
+    this.threads = threads;
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path resultPath = Path.of(System.getProperty(RESULT_PROPERTY, "target/macro-benchmark.json"));
+    double corpusFactor = Double.parseDouble(System.getProperty(CORPUS_FACTOR_PROPERTY, "0.1"));
+    int threads = Integer.getInteger(THREADS_PROPERTY, 1);
+    int warmups = Integer.getInteger(WARMUPS_PROPERTY, 1);
+    int iterations = Integer.getInteger(ITERATIONS_PROPERTY, 3);
+
+    Path corpus = Files.createTempDirectory("xml-corpus");
+    try {
+      MacroBenchmarkResult result = new MacroBenchmark(loadProject(corpus, corpusFactor), threads).run(warmups, iterations);
+      result.write(resultPath);
+      System.out.printf("Result written to %s%n", resultPath);
+    } finally {
+      delete(corpus);
+    }
+  }
+
+  /**
+   * The ruling projects, and the corpus generated in the given directory when the factor is positive.
+   */
+  public static BenchmarkProject loadProject(Path corpusDirectory, double corpusFactor) {
+    List<Path> directories = new ArrayList<>();
+    directories.add(BenchmarkProject.sourcesDirectory());
+    if (corpusFactor > 0) {
+      new CorpusGenerator(CorpusGenerator.DEFAULT_SEED).writeAll(corpusDirectory, corpusFactor);
+      directories.add(corpusDirectory);
+    }
+    return BenchmarkProject.load(directories);
+  }
+
+  /**
+   * Runs the sensor, and returns the median of each measure over the measured runs, along with the time of the calibration
+   * loop.
+   */
+  public MacroBenchmarkResult run(int warmups, int iterations) {
+    for (int i = 0; i < warmups; i++) {
+      print("Warmup " + (i + 1) + "/" + warmups, runOnce());
+    }
+    List<MacroBenchmarkResult> results = new ArrayList<>();
+    for (int i = 0; i < iterations; i++) {
+      MacroBenchmarkResult result = runOnce();
+      print("Iteration " + (i + 1) + "/" + iterations, result);
+      results.add(result);
+    }
+    MacroBenchmarkResult median = MacroBenchmarkResult.median(results).withCalibrationMillis(Calibration.measureMillis());
+    print("Median", median);
+    System.out.printf("Calibration: %.1f ms%n", median.calibrationMillis());
+    return median;
+  }
+
+  MacroBenchmarkResult runOnce() {
+    SensorContextTester context = newContext();
+    XmlSensor sensor = project.newSensor();
+
+    System.gc();
+    List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+      .filter(pool -> pool.getType() == MemoryType.HEAP)
+      .toList();
+    heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+    AllocationSampler allocations = AllocationSampler.start();
+    long start = System.nanoTime();
+
+    sensor.execute(context);
+
+    long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    long allocatedBytes = allocations.stop();
+    long peakHeapBytes = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+    JsonObject report = profile();
+    return new MacroBenchmarkResult(
+      System.getProperty("java.version"),
+      Runtime.getRuntime().availableProcessors(),
+      threads,
+      project.inputFiles().size(),
+      project.sizeInBytes(),
+      context.allIssues().size(),
+      wallMillis,
+      0,
+      phases(report),
+      rules(report),
+      peakHeapBytes,
+      allocatedBytes);
+  }
+
+  private SensorContextTester newContext() {
+    SensorContextTester context = project.newContext();
+    context.settings().setProperty(XmlSensor.ANALYSIS_THREADS_KEY, threads);
+    return context;
+  }
+
+  /**
+   * Runs the sensor with its profile report enabled, and returns this report.
+   */
+  private JsonObject profile() {
+    Path profile = null;
+    try {
+      profile = Files.createTempFile("xml-profile", ".json");
+      SensorContextTester context = newContext();
+      context.settings().setProperty(PROFILE_REPORT_KEY, profile.toString());
+      project.newSensor().execute(context);
+      return readJson(profile);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      if (profile != null) {
+        profile.toFile().delete();
+      }
+    }
+  }
+
+  private static Map<String, Long> phases(JsonObject report) {
+    Map<String, Long> phases = new LinkedHashMap<>();
+    for (Map.Entry<String, JsonElement> phase : report.getAsJsonObject("phases").entrySet()) {
+      String name = phase.getKey();
+      phases.put(name.endsWith(MILLIS_SUFFIX) ? name.substring(0, name.length() - MILLIS_SUFFIX.length()) : name, phase.getValue().getAsLong());
+    }
+    return phases;
+  }
+
+  private static Map<String, Long> rules(JsonObject report) {
+    Map<String, Long> rules = new TreeMap<>();
+    for (JsonElement rule : report.getAsJsonArray("rules")) {
+      JsonObject ruleObject = rule.getAsJsonObject();
+      rules.put(ruleObject.get("rule").getAsString(), ruleObject.get("totalMillis").getAsLong());
+    }
+    return rules;
+  }
+
+  private static JsonObject readJson(Path path) throws IOException {
+    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      return JsonParser.parseReader(reader).getAsJsonObject();
+    }
+  }
+
+  private static void print(String run, MacroBenchmarkResult result) {
+    System.out.printf("%s: %d files, %d ms, phases %s, peak heap %d MB, allocated %d MB, %d issues%n", run, result.files(),
+      result.wallMillis(), result.phases(), result.peakHeapBytes() / (1024 * 1024), result.allocatedBytes() / (1024 * 1024),
+      result.issues());
+  }
+
+  private static void delete(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /**
+   * Samples the bytes allocated by each thread of the JVM, so that the allocations of the analysis threads are counted
+   * although they terminate before the end of the analysis. Only the allocations made by a thread after its last sample
+   * are missed, which are negligible for pooled threads.
+   */
+  private static final class AllocationSampler implements Runnable {
+
+    private static final long PERIOD_MILLIS = 10;
+
+    private final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final Map<Long, Long> initialBytes = new HashMap<>();
+    private final Map<Long, Long> lastBytes = new HashMap<>();
+    private final Thread thread = new Thread(this, "xml-benchmark-allocations");
+    private volatile boolean running = true;
+
+    private AllocationSampler() {
+      thread.setDaemon(true);
+      sample(initialBytes);
+    }
+
+    static AllocationSampler start() {
+      AllocationSampler sampler = new AllocationSampler();
+      sampler.thread.start();
+      return sampler;
+    }
+
+    @Override
+    public void run() {
+      while (running) {
+        synchronized (this) {
+          sample(lastBytes);
+        }
+        try {
+          Thread.sleep(PERIOD_MILLIS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+
+    private void sample(Map<Long, Long> bytesByThread) {
+      long[] ids = threadBean.getAllThreadIds();
+      long[] bytes = threadBean.getThreadAllocatedBytes(ids);
+      for (int i = 0; i < ids.length; i++) {
+        if (bytes[i] >= 0 && ids[i] != thread.getId()) {
+          bytesByThread.put(ids[i], bytes[i]);
+        }
+      }
+    }
+
+    /**
+     * Stops sampling and returns the bytes allocated since the sampler was started.
+     */
+    long stop() {
+      running = false;
+      thread.interrupt();
+      synchronized (this) {
+        sample(lastBytes);
+        return lastBytes.entrySet().stream()
+          .mapToLong(thread -> thread.getValue() - initialBytes.getOrDefault(thread.getKey(), 0L))
+          .sum();
+      }
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.xml.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Result of a {@link MacroBenchmark} run, written as JSON so that runs can be compared by other tools.
+ *
+ * @param calibrationMillis time of the {@link Calibration} loop on the machine which produced the result
+ * @param phases wall time of each phase of the analysis, summed over all files, in milliseconds, by phase name
+ * @param rules wall time of each rule, summed over all files, in milliseconds, by rule key
+ * @param allocatedBytes bytes allocated by all threads during the analysis
+ */
+public record MacroBenchmarkResult(
+  String javaVersion,
+  int availableProcessors,
+  int threads,
+  int files,
+  long bytes,
+  int issues,
+  long wallMillis,
+  double calibrationMillis,
+  Map<String, Long> phases,
+  Map<String, Long> rules,
+  long peakHeapBytes,
+  long allocatedBytes) {
+
+  private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+  /**
+   * Median of each measure of the given runs, which are runs of the same benchmark.
+   */
+  public static MacroBenchmarkResult median(List<MacroBenchmarkResult> runs) {
+    MacroBenchmarkResult first = runs.get(0);
+    return new MacroBenchmarkResult(first.javaVersion, first.availableProcessors, first.threads, first.files, first.bytes, first.issues,
+      median(runs, MacroBenchmarkResult::wallMillis),
+      first.calibrationMillis,
+      medians(runs, MacroBenchmarkResult::phases),
+      medians(runs, MacroBenchmarkResult::rules),
+      median(runs, MacroBenchmarkResult::peakHeapBytes),
+      median(runs, MacroBenchmarkResult::allocatedBytes));
+  }
+
+  private static long median(List<MacroBenchmarkResult> runs, ToLongFunction<MacroBenchmarkResult> measure) {
+    long[] values = runs.stream().mapToLong(measure).sorted().toArray();
+    return values[values.length / 2];
+  }
+
+  private static Map<String, Long> medians(List<MacroBenchmarkResult> runs, Function<MacroBenchmarkResult, Map<String, Long>> measures) {
+    Map<String, Long> medians = new LinkedHashMap<>();
+    for (String key : measures.apply(runs.get(0)).keySet()) {
+      medians.put(key, median(runs, run -> measures.apply(run).getOrDefault(key, 0L)));
+    }
+    return medians;
+  }
+
+  public MacroBenchmarkResult withCalibrationMillis(double calibrationMillis) {
+    return new MacroBenchmarkResult(javaVersion, availableProcessors, threads, files, bytes, issues, wallMillis, calibrationMillis, phases, rules,
+      peakHeapBytes, allocatedBytes);
+  }
+
+  public void write(Path path) {
+    try {
+      Path parent = path.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+        GSON.toJson(this, writer);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to write " + path, e);
+    }
+  }
+
+  public static MacroBenchmarkResult read(Path path) {
+    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      return GSON.fromJson(reader, MacroBenchmarkResult.class);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to read " + path, e);
+    }
+  }
+}
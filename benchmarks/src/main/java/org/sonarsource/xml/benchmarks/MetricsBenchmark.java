@@ -0,0 +1,77 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.xml.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.plugins.xml.FileSnapshot;
+import org.sonar.plugins.xml.LineCounter;
+import org.sonar.plugins.xml.XmlHighlighting;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+
+/**
+ * Metrics and highlighting of every parsed file of the benchmark project. Each invocation saves its results in a new
+ * context, as results cannot be saved twice for the same file, and tokenizes the files again in a new snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MetricsBenchmark {
+
+  private BenchmarkProject project;
+  private List<XmlFile> xmlFiles;
+  private final FileLinesContextFactory fileLinesContextFactory = BenchmarkProject.noOpFileLinesContextFactory();
+
+  @Setup
+  public void setUp() {
+    project = BenchmarkProject.load();
+    xmlFiles = project.parse();
+  }
+
+  @Benchmark
+  public SensorContextTester lineCounter() {
+    SensorContextTester context = project.newContext();
+    for (XmlFile xmlFile : xmlFiles) {
+      LineCounter.analyse(context, fileLinesContextFactory, xmlFile.getInputFile(), FileSnapshot.of(xmlFile.getContents()));
+    }
+    return context;
+  }
+
+  @Benchmark
+  public SensorContextTester highlighting() {
+    SensorContextTester context = project.newContext();
+    for (XmlFile xmlFile : xmlFiles) {
+      XmlHighlighting.highlight(context, xmlFile.getInputFile(), FileSnapshot.of(xmlFile.getContents()));
+    }
+    return context;
+  }
+}
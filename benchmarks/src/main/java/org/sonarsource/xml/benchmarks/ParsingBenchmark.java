@@ -0,0 +1,74 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.xml.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+
+/**
+ * Parsing of every file of the benchmark project with {@link XmlFile#create}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParsingBenchmark {
+
+  private List<DefaultInputFile> inputFiles;
+
+  @Setup
+  public void setUp() {
+    inputFiles = BenchmarkProject.load().inputFiles();
+  }
+
+  @Benchmark
+  public void parse(Blackhole blackhole) {
+    for (DefaultInputFile inputFile : inputFiles) {
+      try {
+        blackhole.consume(XmlFile.create(inputFile));
+      } catch (Exception e) {
+        blackhole.consume(e);
+      }
+    }
+  }
+
+  @Benchmark
+  public void parseWithNamespaceUnawareDocument(Blackhole blackhole) {
+    for (DefaultInputFile inputFile : inputFiles) {
+      try {
+        blackhole.consume(XmlFile.create(inputFile).getNamespaceUnawareDocument());
+      } catch (Exception e) {
+        blackhole.consume(e);
+      }
+    }
+  }
+}
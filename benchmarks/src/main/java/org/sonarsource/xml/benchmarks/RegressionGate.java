@@ -0,0 +1,102 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.xml.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.sonar.plugins.xml.checks.CommentedOutCodeCheck;
+import org.sonar.plugins.xml.checks.IndentationCheck;
+import org.sonar.plugins.xml.checks.security.HardcodedCredentialsCheck;
+
+/**
+ * Compares a {@link MacroBenchmarkResult} with a baseline, and tells which measures regressed: the sensor as a whole, its
+ * phases, and the heaviest checks.
+ * <p>
+ * Times are divided by the time of the {@link Calibration} loop of the machine which produced them before being compared,
+ * so that a baseline recorded on one machine can be used on another one. A measure regresses when its normalized time
+ * grows by more than the tolerance, and by more than {@value #MIN_REGRESSION_MILLIS} ms, as the shortest measures are the
+ * noisiest.
+ */
+public final class RegressionGate {
+
+  public static final double DEFAULT_TOLERANCE = 0.25;
+
+  static final long MIN_REGRESSION_MILLIS = 50;
+
+  private static final List<Class<?>> TRACKED_CHECKS = List.of(HardcodedCredentialsCheck.class, CommentedOutCodeCheck.class, IndentationCheck.class);
+
+  private RegressionGate() {
+  }
+
+  /**
+   * A measure whose normalized time grew by {@code change}, 0.5 meaning 50% slower.
+   */
+  public record Regression(String measure, long baselineMillis, long currentMillis, double change) {
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT, "%s: %d ms -> %d ms, %+.0f%% once normalized", measure, baselineMillis, currentMillis, change * 100);
+    }
+  }
+
+  /**
+   * Times of the compared measures, by name, in milliseconds.
+   */
+  static Map<String, Long> measures(MacroBenchmarkResult result) {
+    Map<String, Long> measures = new LinkedHashMap<>();
+    measures.put("sensor", result.wallMillis());
+    measures.put("parse", result.phases().getOrDefault("parse", 0L));
+    measures.put("LineCounter", result.phases().getOrDefault("metrics", 0L));
+    measures.put("XmlHighlighting", result.phases().getOrDefault("highlighting", 0L));
+    measures.put("checks", result.phases().getOrDefault("checks", 0L));
+    for (Class<?> check : TRACKED_CHECKS) {
+      String ruleKey = BenchmarkProject.ruleKey(check).toString();
+      measures.put(check.getSimpleName() + " (" + ruleKey + ")", result.rules().getOrDefault(ruleKey, 0L));
+    }
+    return measures;
+  }
+
+  public static List<Regression> compare(MacroBenchmarkResult baseline, MacroBenchmarkResult current, double tolerance) {
+    if (baseline.calibrationMillis() <= 0 || current.calibrationMillis() <= 0) {
+      throw new IllegalArgumentException("Results can only be compared once calibrated");
+    }
+    Map<String, Long> baselineMeasures = measures(baseline);
+    List<Regression> regressions = new ArrayList<>();
+    for (Map.Entry<String, Long> measure : measures(current).entrySet()) {
+      long baselineMillis = baselineMeasures.get(measure.getKey());
+      long currentMillis = measure.getValue();
+      double baselineScore = baselineMillis / baseline.calibrationMillis();
+      double currentScore = currentMillis / current.calibrationMillis();
+      // the growth is expressed in the time of the current machine
+      double grownMillis = (currentScore - baselineScore) * current.calibrationMillis();
+      double change = baselineScore == 0 ? Double.POSITIVE_INFINITY : (currentScore / baselineScore - 1);
+      if (change > tolerance && grownMillis > MIN_REGRESSION_MILLIS) {
+        regressions.add(new Regression(measure.getKey(), baselineMillis, currentMillis, change));
+      }
+    }
+    return regressions;
+  }
+
+  public static String report(List<Regression> regressions, double tolerance) {
+    return String.format(Locale.ROOT, "%d measure(s) regressed by more than %.0f%%:%n", regressions.size(), tolerance * 100)
+      + regressions.stream().map(regression -> "  " + regression).collect(Collectors.joining(System.lineSeparator()));
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.xml.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.plugins.xml.XmlSensor;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+import org.sonarsource.xml.benchmarks.CorpusGenerator.Shape;
+
+/**
+ * Analysis of a single generated file, for each {@link Shape} and several fractions of its default scale, to chart how
+ * the analysis time, and the allocations reported by the GC profiler, grow with the size of the input.
+ * <p>
+ * Files are analyzed once per iteration, as the biggest ones take seconds to analyze.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScalabilityBenchmark {
+
+  @Param({"FLAT_LIST", "DEEP_NESTING", "MINIFIED", "COMMENTS", "ATTRIBUTES", "BASE64_TEXT", "POM", "ANDROID_MANIFEST", "WEB_XML"})
+  public Shape shape;
+
+  @Param({"0.01", "0.1", "1"})
+  public double factor;
+
+  private Path directory;
+  private BenchmarkProject project;
+  private XmlSensor sensor;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("xml-benchmark");
+    Path file = new CorpusGenerator(CorpusGenerator.DEFAULT_SEED).write(directory, shape, shape.scale(factor));
+    System.out.printf("%nGenerated %s, %d bytes%n", file.getFileName(), Files.size(file));
+    project = BenchmarkProject.load(directory);
+    sensor = project.newSensor();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  @Benchmark
+  public List<XmlFile> parse() {
+    return project.parse();
+  }
+
+  @Benchmark
+  public SensorContextTester sensor() {
+    SensorContextTester context = project.newContext();
+    sensor.execute(context);
+    return context;
+  }
+}
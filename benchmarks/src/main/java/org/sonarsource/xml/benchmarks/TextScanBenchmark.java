@@ -0,0 +1,90 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.xml.benchmarks;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.plugins.xml.LineIndex;
+import org.sonar.plugins.xml.TextScanner;
+import org.sonarsource.xml.benchmarks.CorpusGenerator.Shape;
+
+/**
+ * Scans of the lines and of the tabs of multi-megabytes generated files, with the scalar and the vectorized
+ * {@link TextScanner}. The forked JVM is given the module of the Vector API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class TextScanBenchmark {
+
+  @Param({"scalar", "vectorized"})
+  public String scanner;
+
+  @Param({"FLAT_LIST", "MINIFIED", "BASE64_TEXT"})
+  public Shape shape;
+
+  private TextScanner textScanner;
+  private String content;
+  private LineIndex tabIndentedLines;
+  private int tabIndentedLength;
+
+  @Setup
+  public void setUp() throws IOException {
+    textScanner = "vectorized".equals(scanner) ? TextScanner.vectorized() : TextScanner.scalar();
+    if (textScanner == null) {
+      throw new IllegalStateException("The Vector API is not available");
+    }
+    StringWriter writer = new StringWriter();
+    new CorpusGenerator(CorpusGenerator.DEFAULT_SEED).generate(shape, shape.scale(0.1), writer);
+    content = writer.toString();
+    String tabIndentedContent = content.replace("  ", "\t");
+    tabIndentedLines = LineIndex.of(tabIndentedContent, textScanner);
+    tabIndentedLength = tabIndentedContent.length();
+    System.out.printf("%nGenerated %s, %d characters, with %s scanner%n", shape.fileName(), content.length(), textScanner);
+  }
+
+  @Benchmark
+  public LineIndex lineIndex() {
+    return LineIndex.of(content, textScanner);
+  }
+
+  @Benchmark
+  public int tabRuns() {
+    int runs = 0;
+    int tab = tabIndentedLines.indexOf('\t', 0, tabIndentedLength);
+    while (tab < tabIndentedLength) {
+      runs++;
+      tab = tabIndentedLines.indexOf('\t', tabIndentedLines.indexOfOther('\t', tab, tabIndentedLength), tabIndentedLength);
+    }
+    return runs;
+  }
+}
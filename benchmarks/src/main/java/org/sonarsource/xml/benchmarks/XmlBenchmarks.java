@@ -0,0 +1,50 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.xml.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.plugins.xml.checks.CheckList;
+
+/**
+ * Entry point of the benchmarks jar, accepting the usual JMH command line options.
+ * <p>
+ * Unless other profilers are requested, the GC profiler is enabled, so that allocation rates are reported along with
+ * times. Unless a "check" parameter is given, {@link CheckBenchmark} is run for every check of the plugin.
+ */
+public final class XmlBenchmarks {
+
+  private XmlBenchmarks() {
+  }
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+    if (commandLine.getProfilers().isEmpty()) {
+      options.addProfiler(GCProfiler.class);
+    }
+    if (!commandLine.getParameter(CheckBenchmark.CHECK_PARAMETER).hasValue()) {
+      options.param(CheckBenchmark.CHECK_PARAMETER, CheckList.getCheckClasses().stream().map(Class::getSimpleName).toArray(String[]::new));
+    }
+    new Runner(options.build()).run();
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.xml.benchmarks;
+
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonarsource.xml.benchmarks.RegressionGate.Regression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fails when the analysis of the ruling projects and of the generated corpus is slower than the committed baseline, beyond
+ * the tolerance given by {@value #TOLERANCE_PROPERTY}. The baseline is recorded again when {@value #UPDATE_BASELINE_PROPERTY}
+ * is set.
+ */
+class PerformanceRegressionTest {
+
+  private static final String TOLERANCE_PROPERTY = "xml.benchmark.tolerance";
+  private static final String UPDATE_BASELINE_PROPERTY = "xml.benchmark.updateBaseline";
+
+  private static final Path BASELINE = Path.of("src/test/resources/baseline.json");
+  private static final Path RESULT = Path.of("target/macro-benchmark.json");
+  private static final double CORPUS_FACTOR = 0.1;
+  private static final int WARMUPS = 1;
+  private static final int ITERATIONS = 5;
+
+  @TempDir
+  Path corpus;
+
+  @Test
+  void analysis_should_not_be_slower_than_baseline() {
+    MacroBenchmarkResult current = new MacroBenchmark(MacroBenchmark.loadProject(corpus, CORPUS_FACTOR), 1).run(WARMUPS, ITERATIONS);
+    current.write(RESULT);
+    if (Boolean.getBoolean(UPDATE_BASELINE_PROPERTY)) {
+      current.write(BASELINE);
+      return;
+    }
+
+    double tolerance = Double.parseDouble(System.getProperty(TOLERANCE_PROPERTY, String.valueOf(RegressionGate.DEFAULT_TOLERANCE)));
+    List<Regression> regressions = RegressionGate.compare(MacroBenchmarkResult.read(BASELINE), current, tolerance);
+    assertThat(regressions).withFailMessage(() -> RegressionGate.report(regressions, tolerance)).isEmpty();
+  }
+}
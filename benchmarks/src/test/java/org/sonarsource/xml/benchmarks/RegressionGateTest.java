@@ -0,0 +1,92 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonarsource.xml.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.sonarsource.xml.benchmarks.RegressionGate.Regression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+class RegressionGateTest {
+
+  private static final double TOLERANCE = 0.25;
+
+  @Test
+  void should_not_report_identical_results() {
+    MacroBenchmarkResult baseline = result(10_000, 100, 2_000, 500);
+    assertThat(RegressionGate.compare(baseline, baseline, TOLERANCE)).isEmpty();
+  }
+
+  @Test
+  void should_report_regressed_phases_and_rules() {
+    MacroBenchmarkResult baseline = result(10_000, 100, 2_000, 500);
+    MacroBenchmarkResult current = result(14_000, 100, 2_100, 1_000);
+
+    List<Regression> regressions = RegressionGate.compare(baseline, current, TOLERANCE);
+
+    assertThat(regressions).extracting(Regression::measure).containsExactly("sensor", "CommentedOutCodeCheck (xml:S125)");
+    assertThat(regressions.get(0).change()).isCloseTo(0.4, offset(0.001));
+    assertThat(RegressionGate.report(regressions, TOLERANCE))
+      .startsWith("2 measure(s) regressed by more than 25%:")
+      .contains("sensor: 10000 ms -> 14000 ms, +40% once normalized")
+      .contains("CommentedOutCodeCheck (xml:S125): 500 ms -> 1000 ms, +100% once normalized");
+  }
+
+  @Test
+  void should_normalize_times_by_calibration() {
+    MacroBenchmarkResult baseline = result(10_000, 100, 2_000, 500);
+    // twice slower machine
+    MacroBenchmarkResult slowerMachine = result(20_000, 200, 4_000, 1_000);
+    assertThat(RegressionGate.compare(baseline, slowerMachine, TOLERANCE)).isEmpty();
+
+    // same times on a twice faster machine
+    MacroBenchmarkResult fasterMachine = result(10_000, 50, 2_000, 500);
+    assertThat(RegressionGate.compare(baseline, fasterMachine, TOLERANCE)).extracting(Regression::measure)
+      .containsExactly("sensor", "parse", "checks", "HardcodedCredentialsCheck (xml:S2068)", "CommentedOutCodeCheck (xml:S125)");
+  }
+
+  @Test
+  void should_ignore_short_measures() {
+    MacroBenchmarkResult baseline = result(10_000, 100, 2_000, 10);
+    MacroBenchmarkResult current = result(10_000, 100, 2_000, 50);
+    assertThat(RegressionGate.compare(baseline, current, TOLERANCE)).isEmpty();
+
+    MacroBenchmarkResult notMeasured = result(10_000, 100, 2_000, 0);
+    MacroBenchmarkResult measured = result(10_000, 100, 2_000, 500);
+    assertThat(RegressionGate.compare(notMeasured, measured, TOLERANCE)).extracting(Regression::measure)
+      .containsExactly("CommentedOutCodeCheck (xml:S125)");
+  }
+
+  @Test
+  void should_only_compare_calibrated_results() {
+    MacroBenchmarkResult baseline = result(10_000, 100, 2_000, 500);
+    MacroBenchmarkResult uncalibrated = result(10_000, 0, 2_000, 500);
+    assertThatThrownBy(() -> RegressionGate.compare(baseline, uncalibrated, TOLERANCE))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static MacroBenchmarkResult result(long wallMillis, double calibrationMillis, long parseMillis, long commentedOutCodeMillis) {
+    return new MacroBenchmarkResult("17", 4, 1, 100, 1_000_000, 10, wallMillis, calibrationMillis,
+      Map.of("parse", parseMillis, "metrics", 40L, "highlighting", 30L, "checks", 1_000L),
+      Map.of("xml:S125", commentedOutCodeMillis, "xml:S2068", 200L),
+      100_000_000, 1_000_000_000);
+  }
+}
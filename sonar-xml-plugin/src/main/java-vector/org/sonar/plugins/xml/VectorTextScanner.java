@@ -0,0 +1,81 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Compares as many characters at a time as the preferred vector size of the platform allows, 16 with AVX2 and 32 with
+ * AVX-512, the remaining characters being compared one by one.
+ * <p>
+ * This class is compiled separately, with the module of the Vector API, and only loaded by reflection: loading it fails
+ * when the module is not available, see {@link TextScanner#vectorized()}.
+ */
+final class VectorTextScanner extends TextScanner {
+
+  private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+  private static final short LINE_FEED = '\n';
+  private static final short CARRIAGE_RETURN = '\r';
+
+  @Override
+  public int indexOfLineBreak(char[] chars, int from, int to) {
+    int i = from;
+    int bound = from + SPECIES.loopBound(to - from);
+    for (; i < bound; i += SPECIES.length()) {
+      ShortVector vector = ShortVector.fromCharArray(SPECIES, chars, i);
+      VectorMask<Short> lineBreaks = vector.eq(LINE_FEED).or(vector.eq(CARRIAGE_RETURN));
+      if (lineBreaks.anyTrue()) {
+        return i + lineBreaks.firstTrue();
+      }
+    }
+    return ScalarTextScanner.INSTANCE.indexOfLineBreak(chars, i, to);
+  }
+
+  @Override
+  public int indexOf(char[] chars, char c, int from, int to) {
+    int i = from;
+    int bound = from + SPECIES.loopBound(to - from);
+    for (; i < bound; i += SPECIES.length()) {
+      VectorMask<Short> matches = ShortVector.fromCharArray(SPECIES, chars, i).eq((short) c);
+      if (matches.anyTrue()) {
+        return i + matches.firstTrue();
+      }
+    }
+    return ScalarTextScanner.INSTANCE.indexOf(chars, c, i, to);
+  }
+
+  @Override
+  public int indexOfOther(char[] chars, char c, int from, int to) {
+    int i = from;
+    int bound = from + SPECIES.loopBound(to - from);
+    for (; i < bound; i += SPECIES.length()) {
+      VectorMask<Short> others = ShortVector.fromCharArray(SPECIES, chars, i).compare(VectorOperators.NE, (short) c);
+      if (others.anyTrue()) {
+        return i + others.firstTrue();
+      }
+    }
+    return ScalarTextScanner.INSTANCE.indexOfOther(chars, c, i, to);
+  }
+
+  @Override
+  public String toString() {
+    return "vectorized, " + SPECIES.length() + " characters at a time";
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.rule.ActiveRule;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.plugins.xml.checks.security.android.AbstractAndroidManifestCheck;
+
+/**
+ * Stores the results of the analysis of each file in the sensor cache, to replay them on the next analysis when the file
+ * has not changed, without parsing it.
+ * <p>
+ * Each entry holds the hash of the file content and a fingerprint of the configuration which produced the results: the
+ * version of the plugin, the active rules and their parameters, and the properties changing the results of the rules.
+ * Entries which do not match are ignored.
+ */
+final class AnalysisCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisCache.class);
+
+  private static final String KEY_PREFIX = "xml:analysis:";
+  private static final int FORMAT_VERSION = 2;
+  /**
+   * Properties changing the results of a file, besides its rules: the streamed files are only checked by some rules.
+   */
+  private static final List<String> RESULT_PROPERTIES = List.of(
+    AbstractAndroidManifestCheck.MIN_SDK_VERSION_KEY,
+    XmlSensor.STREAMING_MIN_BYTES_KEY);
+  private static final String PLUGIN_PROPERTIES = "/org/sonar/plugins/xml/xml-plugin.properties";
+
+  private final SensorContext context;
+  private final String configurationFingerprint;
+  private int replayedFiles = 0;
+  private int storedFiles = 0;
+
+  AnalysisCache(SensorContext context, String configurationFingerprint) {
+    this.context = context;
+    this.configurationFingerprint = configurationFingerprint;
+  }
+
+  @CheckForNull
+  static AnalysisCache create(SensorContext context) {
+    if (!context.isCacheEnabled()) {
+      return null;
+    }
+    return new AnalysisCache(context, configurationFingerprint(pluginVersion(), context));
+  }
+
+  /**
+   * Replays the results stored by a previous analysis of the same content, with the same configuration.
+   *
+   * @return true if results have been replayed, false if the file has to be analyzed
+   */
+  boolean replay(InputFile inputFile, FileLinesContextFactory fileLinesContextFactory) {
+    String key = key(inputFile);
+    if (!context.previousCache().contains(key)) {
+      return false;
+    }
+    FileResults results;
+    try (DataInputStream in = new DataInputStream(context.previousCache().read(key))) {
+      if (in.readInt() != FORMAT_VERSION || !configurationFingerprint.equals(FileResults.readString(in)) || !inputFile.md5Hash().equals(FileResults.readString(in))) {
+        return false;
+      }
+      results = FileResults.read(in);
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Unable to read cached results of {}", inputFile, e);
+      return false;
+    }
+    results.replay(context, fileLinesContextFactory, inputFile);
+    context.nextCache().copyFromPrevious(key);
+    replayedFiles++;
+    return true;
+  }
+
+  /**
+   * Keeps the entry of a file which is not analyzed, for the next analysis.
+   */
+  void keep(InputFile inputFile) {
+    String key = key(inputFile);
+    if (context.previousCache().contains(key)) {
+      context.nextCache().copyFromPrevious(key);
+    }
+  }
+
+  void store(InputFile inputFile, FileResults results) {
+    if (!results.isReplayable()) {
+      return;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(FORMAT_VERSION);
+      FileResults.writeString(out, configurationFingerprint);
+      FileResults.writeString(out, inputFile.md5Hash());
+      results.write(out);
+    } catch (IOException e) {
+      LOG.debug("Unable to cache results of {}", inputFile, e);
+      return;
+    }
+    context.nextCache().write(key(inputFile), bytes.toByteArray());
+    storedFiles++;
+  }
+
+  void logStatistics() {
+    LOG.info("XML analysis cache: {} file(s) replayed from cache, {} file(s) stored in cache", replayedFiles, storedFiles);
+  }
+
+  int replayedFiles() {
+    return replayedFiles;
+  }
+
+  private static String key(InputFile inputFile) {
+    return KEY_PREFIX + inputFile.key();
+  }
+
+  static String configurationFingerprint(String pluginVersion, SensorContext context) {
+    StringBuilder configuration = new StringBuilder(pluginVersion);
+    context.activeRules().findByRepository(Xml.REPOSITORY_KEY).stream()
+      .sorted(Comparator.comparing(rule -> rule.ruleKey().toString()))
+      .forEach(rule -> appendRule(configuration, rule));
+    RESULT_PROPERTIES.forEach(key -> configuration.append('\n').append(key).append('=').append(context.config().get(key).orElse("")));
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(configuration.toString().getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+  private static void appendRule(StringBuilder configuration, ActiveRule rule) {
+    configuration.append('\n').append(rule.ruleKey()).append(new TreeMap<>(rule.params()));
+  }
+
+  static String pluginVersion() {
+    Properties properties = new Properties();
+    try (InputStream in = AnalysisCache.class.getResourceAsStream(PLUGIN_PROPERTIES)) {
+      if (in != null) {
+        properties.load(in);
+      }
+    } catch (IOException e) {
+      LOG.debug("Unable to read the plugin version", e);
+    }
+    return properties.getProperty("version", "unknown");
+  }
+}
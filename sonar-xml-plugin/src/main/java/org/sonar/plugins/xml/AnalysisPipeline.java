@@ -0,0 +1,271 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.config.Configuration;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+
+/**
+ * Analyzes files through a chain of stages: read, parse, metrics and highlighting, checks.
+ * <p>
+ * Each stage has its own threads and hands files over to the next stage through a bounded queue, so that a slow phase on
+ * one file does not prevent the other phases from progressing on the following files. Results are recorded in a
+ * {@link DeferredSensorContext} and saved by the sensor thread, in the order of the input files.
+ * <p>
+ * The time spent by each stage working, waiting for files and waiting for the next stage is logged at the end of the
+ * analysis, to identify the bottleneck.
+ */
+final class AnalysisPipeline {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisPipeline.class);
+
+  static final String PIPELINE_KEY = "sonar.xml.analysis.pipeline";
+  static final String STAGE_THREADS_KEY_PREFIX = "sonar.xml.analysis.pipeline.threads.";
+  static final String QUEUE_SIZE_KEY = "sonar.xml.analysis.pipeline.queueSize";
+
+  private static final int DEFAULT_QUEUE_SIZE = 4;
+
+  /**
+   * Phases of the analysis of a single file, as implemented by the sensor.
+   * The context given to each phase is the one of the analyzed file.
+   */
+  interface FileAnalysis {
+
+    DeferredSensorContext newFileContext();
+
+    XmlFile parse(InputFile inputFile) throws IOException;
+
+    void computeMetrics(DeferredSensorContext fileContext, XmlFile xmlFile);
+
+    void runChecks(DeferredSensorContext fileContext, XmlFile xmlFile);
+
+    void handleFailure(DeferredSensorContext fileContext, InputFile inputFile, Exception e);
+
+    /**
+     * Called from the sensor thread, in the order of the input files.
+     */
+    void saveResults(InputFile inputFile, DeferredSensorContext fileContext);
+  }
+
+  private final SensorContext context;
+  private final FileAnalysis fileAnalysis;
+  private final List<Stage> stages = new ArrayList<>();
+  private final int queueSize;
+
+  AnalysisPipeline(SensorContext context, FileAnalysis fileAnalysis, boolean computeMetrics, int defaultChecksThreads) {
+    this.context = context;
+    this.fileAnalysis = fileAnalysis;
+    Configuration config = context.config();
+    this.queueSize = Math.max(1, config.getInt(QUEUE_SIZE_KEY).orElse(DEFAULT_QUEUE_SIZE));
+
+    addStage(config, "read", 1, task -> FilePrefetcher.readAhead(task.inputFile));
+    addStage(config, "parse", 1, task -> task.xmlFile = fileAnalysis.parse(task.inputFile));
+    if (computeMetrics) {
+      addStage(config, "metrics", 1, task -> fileAnalysis.computeMetrics(task.context, task.xmlFile));
+    }
+    addStage(config, "checks", defaultChecksThreads, task -> fileAnalysis.runChecks(task.context, task.xmlFile));
+  }
+
+  static boolean isEnabled(Configuration config) {
+    return config.getBoolean(PIPELINE_KEY).orElse(false);
+  }
+
+  private void addStage(Configuration config, String name, int defaultThreads, StageWork work) {
+    int threads = Math.max(1, config.getInt(STAGE_THREADS_KEY_PREFIX + name).orElse(defaultThreads));
+    Stage stage = new Stage(name, threads, new ArrayBlockingQueue<>(queueSize), work);
+    if (!stages.isEmpty()) {
+      stages.get(stages.size() - 1).next = stage;
+    }
+    stages.add(stage);
+  }
+
+  /**
+   * @return true if the analysis has been cancelled
+   */
+  boolean analyze(List<InputFile> inputFiles, AnalysisProgressReport progressReport) {
+    int totalThreads = stages.stream().mapToInt(stage -> stage.threads).sum();
+    int maxPendingFiles = stages.size() * queueSize + totalThreads;
+    ExecutorService executor = Executors.newFixedThreadPool(totalThreads, new AnalysisThreadFactory("xml-pipeline"));
+    stages.forEach(stage -> {
+      for (int i = 0; i < stage.threads; i++) {
+        executor.execute(stage::processFiles);
+      }
+    });
+
+    Deque<FileTask> pendingFiles = new ArrayDeque<>();
+    int nextFile = 0;
+    try {
+      while (nextFile < inputFiles.size() || !pendingFiles.isEmpty()) {
+        while (nextFile < inputFiles.size() && pendingFiles.size() < maxPendingFiles) {
+          FileTask task = new FileTask(inputFiles.get(nextFile), fileAnalysis.newFileContext());
+          pendingFiles.add(task);
+          stages.get(0).accept(task);
+          nextFile++;
+        }
+        if (context.isCancelled()) {
+          return true;
+        }
+        FileTask task = pendingFiles.removeFirst();
+        await(task.done);
+        fileAnalysis.saveResults(task.inputFile, task.context);
+        progressReport.nextFile();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("XML analysis has been interrupted", e);
+    } finally {
+      executor.shutdownNow();
+      logStatistics();
+    }
+    return false;
+  }
+
+  private static void await(CompletableFuture<Void> done) throws InterruptedException {
+    try {
+      done.get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("XML analysis failed", e.getCause());
+    }
+  }
+
+  private void logStatistics() {
+    LOG.info("XML analysis pipeline statistics:");
+    stages.forEach(stage -> LOG.info("  {}", stage));
+    stages.stream()
+      .max(Comparator.comparingLong(Stage::busyNanosPerThread))
+      .ifPresent(stage -> LOG.info("XML analysis pipeline bottleneck: {} stage", stage.name));
+  }
+
+  @FunctionalInterface
+  private interface StageWork {
+    void process(FileTask task) throws Exception;
+  }
+
+  private static final class FileTask {
+    private final InputFile inputFile;
+    private final DeferredSensorContext context;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    @CheckForNull
+    private XmlFile xmlFile;
+    private boolean failed = false;
+
+    private FileTask(InputFile inputFile, DeferredSensorContext context) {
+      this.inputFile = inputFile;
+      this.context = context;
+    }
+  }
+
+  private final class Stage {
+    private final String name;
+    private final int threads;
+    private final BlockingQueue<FileTask> queue;
+    private final StageWork work;
+    @Nullable
+    private Stage next;
+
+    private final LongAdder processedFiles = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final LongAdder starvedNanos = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+
+    private Stage(String name, int threads, BlockingQueue<FileTask> queue, StageWork work) {
+      this.name = name;
+      this.threads = threads;
+      this.queue = queue;
+      this.work = work;
+    }
+
+    private void accept(FileTask task) throws InterruptedException {
+      queue.put(task);
+    }
+
+    private void processFiles() {
+      try {
+        while (!Thread.currentThread().isInterrupted()) {
+          long start = System.nanoTime();
+          FileTask task = queue.take();
+          long taken = System.nanoTime();
+          starvedNanos.add(taken - start);
+          process(task);
+          long processed = System.nanoTime();
+          busyNanos.add(processed - taken);
+          processedFiles.increment();
+          if (next == null || task.done.isDone()) {
+            task.xmlFile = null;
+            task.done.complete(null);
+          } else {
+            next.accept(task);
+            blockedNanos.add(System.nanoTime() - processed);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void process(FileTask task) {
+      if (task.failed) {
+        return;
+      }
+      try {
+        work.process(task);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        task.done.completeExceptionally(e);
+      } catch (Exception e) {
+        task.failed = true;
+        fileAnalysis.handleFailure(task.context, task.inputFile, e);
+      } catch (Error e) {
+        task.done.completeExceptionally(e);
+      }
+    }
+
+    private long busyNanosPerThread() {
+      return busyNanos.sum() / threads;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: %d thread(s), %d files, busy %d ms, waiting for files %d ms, waiting for next stage %d ms",
+        name, threads, processedFiles.sum(), millis(busyNanos), millis(starvedNanos), millis(blockedNanos));
+    }
+
+    private long millis(LongAdder nanos) {
+      return TimeUnit.NANOSECONDS.toMillis(nanos.sum());
+    }
+  }
+}
@@ -0,0 +1,299 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.rule.RuleKey;
+
+/**
+ * Records the wall time spent by each rule and by each phase of the analysis of each file, and reports it at the end of
+ * the analysis: a JSON report is written to the path given by {@link #REPORT_PATH_KEY}, and a summary is logged.
+ * <p>
+ * Profiling is disabled unless the report path is configured. When disabled, {@link #start()} does not read the clock
+ * and nothing is recorded. Recording is thread-safe, as files may be analyzed by several threads. Rules executed on files
+ * analyzed as streams visit the file together, their time is recorded in the {@link Phase#STREAM} phase of the file.
+ * When files are prefetched, the number of files whose analysis waited on I/O is reported as well.
+ */
+final class AnalysisProfiler {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisProfiler.class);
+
+  /**
+   * Path of the JSON profile report. Profiling is enabled when it is set.
+   */
+  static final String REPORT_PATH_KEY = "sonar.xml.profile.report";
+
+  /**
+   * Number of slowest files, and of slowest rules in the logged summary, which are reported.
+   */
+  static final int TOP_COUNT = 10;
+
+  static final AnalysisProfiler DISABLED = new AnalysisProfiler(null);
+
+  enum Phase {
+    PARSE,
+    METRICS,
+    HIGHLIGHTING,
+    CHECKS,
+    STREAM;
+
+    private String jsonName() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  @Nullable
+  private final Path reportPath;
+  private final Map<RuleKey, RuleProfile> ruleProfiles = new ConcurrentHashMap<>();
+  private final Map<InputFile, FileProfile> fileProfiles = new ConcurrentHashMap<>();
+  @Nullable
+  private volatile PrefetchProfile prefetchProfile;
+
+  private AnalysisProfiler(@Nullable Path reportPath) {
+    this.reportPath = reportPath;
+  }
+
+  static AnalysisProfiler create(Configuration config) {
+    return config.get(REPORT_PATH_KEY)
+      .map(path -> new AnalysisProfiler(Path.of(path)))
+      .orElse(DISABLED);
+  }
+
+  boolean isEnabled() {
+    return reportPath != null;
+  }
+
+  /**
+   * @return the start time to give to the record methods, or 0 when profiling is disabled
+   */
+  long start() {
+    return isEnabled() ? System.nanoTime() : 0L;
+  }
+
+  /**
+   * @return the time elapsed since the given start time, or 0 when profiling is disabled
+   */
+  long nanosSince(long start) {
+    return isEnabled() ? System.nanoTime() - start : 0L;
+  }
+
+  /**
+   * Records the time spent by a rule on a file, measured by the caller.
+   */
+  void recordRuleNanos(RuleKey ruleKey, InputFile inputFile, long nanos) {
+    if (isEnabled()) {
+      ruleProfiles.computeIfAbsent(ruleKey, key -> new RuleProfile()).add(nanos);
+      fileProfile(inputFile).add(Phase.CHECKS, nanos);
+    }
+  }
+
+  void recordPhase(Phase phase, InputFile inputFile, long start) {
+    if (isEnabled()) {
+      recordPhaseNanos(phase, inputFile, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Records the time spent in a phase on a file, measured by the caller.
+   */
+  void recordPhaseNanos(Phase phase, InputFile inputFile, long nanos) {
+    if (isEnabled()) {
+      fileProfile(inputFile).add(phase, nanos);
+    }
+  }
+
+  /**
+   * Records how often the analysis waited for a file to be read ahead by the {@link FilePrefetcher}.
+   */
+  void recordPrefetch(int files, int stalledFiles, long stalledNanos) {
+    if (isEnabled()) {
+      prefetchProfile = new PrefetchProfile(files, stalledFiles, stalledNanos);
+    }
+  }
+
+  private FileProfile fileProfile(InputFile inputFile) {
+    return fileProfiles.computeIfAbsent(inputFile, key -> new FileProfile());
+  }
+
+  /**
+   * Writes the report and logs its summary, when profiling is enabled.
+   */
+  void report() {
+    if (!isEnabled()) {
+      return;
+    }
+    List<Map.Entry<RuleKey, RuleProfile>> rules = ruleProfiles.entrySet().stream()
+      .sorted(Comparator.comparingLong((Map.Entry<RuleKey, RuleProfile> entry) -> entry.getValue().totalNanos).reversed()
+        .thenComparing(entry -> entry.getKey().toString()))
+      .toList();
+    List<Map.Entry<InputFile, FileProfile>> slowestFiles = fileProfiles.entrySet().stream()
+      .sorted(Comparator.comparingLong((Map.Entry<InputFile, FileProfile> entry) -> entry.getValue().totalNanos()).reversed()
+        .thenComparing(entry -> entry.getKey().toString()))
+      .limit(TOP_COUNT)
+      .toList();
+    Map<Phase, Long> phaseNanos = new EnumMap<>(Phase.class);
+    for (Phase phase : Phase.values()) {
+      phaseNanos.put(phase, fileProfiles.values().stream().mapToLong(file -> file.nanos(phase)).sum());
+    }
+
+    LOG.info("XML analysis profile of {} file(s): {}", fileProfiles.size(), phaseNanos.entrySet().stream()
+      .map(entry -> entry.getKey().jsonName() + " " + millis(entry.getValue()) + " ms")
+      .collect(Collectors.joining(", ")));
+    if (!rules.isEmpty()) {
+      LOG.info("Slowest XML rules: {}", rules.stream()
+        .limit(TOP_COUNT)
+        .map(entry -> entry.getKey().rule() + " " + millis(entry.getValue().totalNanos) + " ms")
+        .collect(Collectors.joining(", ")));
+    }
+    if (!slowestFiles.isEmpty()) {
+      Map.Entry<InputFile, FileProfile> slowestFile = slowestFiles.get(0);
+      LOG.info("Slowest XML file: {} {} ms", slowestFile.getKey(), millis(slowestFile.getValue().totalNanos()));
+    }
+
+    try {
+      writeReport(rules, slowestFiles, phaseNanos);
+      LOG.info("XML analysis profile written to {}", reportPath);
+    } catch (IOException e) {
+      LOG.warn("Unable to write XML analysis profile to {}", reportPath, e);
+    }
+  }
+
+  private void writeReport(List<Map.Entry<RuleKey, RuleProfile>> rules, List<Map.Entry<InputFile, FileProfile>> slowestFiles,
+    Map<Phase, Long> phaseNanos) throws IOException {
+    Path parent = reportPath.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    try (Writer writer = Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8)) {
+      writer.write("{\n  \"files\": " + fileProfiles.size() + ",\n  \"phases\": ");
+      writePhases(writer, phaseNanos);
+      writer.write(",\n  \"rules\": [");
+      for (int i = 0; i < rules.size(); i++) {
+        RuleProfile rule = rules.get(i).getValue();
+        writer.write(i == 0 ? "\n" : ",\n");
+        writer.write("    {\"rule\": " + quote(rules.get(i).getKey().toString())
+          + ", \"files\": " + rule.files
+          + ", \"totalMillis\": " + millis(rule.totalNanos)
+          + ", \"maxMillis\": " + millis(rule.maxNanos) + "}");
+      }
+      writer.write(rules.isEmpty() ? "],\n" : "\n  ],\n");
+      writer.write("  \"slowestFiles\": [");
+      for (int i = 0; i < slowestFiles.size(); i++) {
+        FileProfile file = slowestFiles.get(i).getValue();
+        writer.write(i == 0 ? "\n" : ",\n");
+        writer.write("    {\"file\": " + quote(slowestFiles.get(i).getKey().toString()) + ", \"totalMillis\": " + millis(file.totalNanos()) + ", \"phases\": ");
+        writePhases(writer, file.phaseNanos());
+        writer.write("}");
+      }
+      writer.write(slowestFiles.isEmpty() ? "]" : "\n  ]");
+      PrefetchProfile prefetch = prefetchProfile;
+      if (prefetch != null) {
+        writer.write(",\n  \"prefetch\": {\"files\": " + prefetch.files
+          + ", \"stalledFiles\": " + prefetch.stalledFiles
+          + ", \"stalledMillis\": " + millis(prefetch.stalledNanos) + "}");
+      }
+      writer.write("\n}\n");
+    }
+  }
+
+  private static void writePhases(Writer writer, Map<Phase, Long> phaseNanos) throws IOException {
+    writer.write(phaseNanos.entrySet().stream()
+      .map(entry -> quote(entry.getKey().jsonName() + "Millis") + ": " + millis(entry.getValue()))
+      .collect(Collectors.joining(", ", "{", "}")));
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  private static String quote(String value) {
+    StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        quoted.append('\\').append(c);
+      } else if (c < ' ') {
+        quoted.append(String.format("\\u%04x", (int) c));
+      } else {
+        quoted.append(c);
+      }
+    }
+    return quoted.append('"').toString();
+  }
+
+  private static final class RuleProfile {
+
+    private int files = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+
+    private synchronized void add(long nanos) {
+      files++;
+      totalNanos += nanos;
+      maxNanos = Math.max(maxNanos, nanos);
+    }
+  }
+
+  private record PrefetchProfile(int files, int stalledFiles, long stalledNanos) {
+  }
+
+  private static final class FileProfile {
+
+    private final long[] nanos = new long[Phase.values().length];
+
+    private synchronized void add(Phase phase, long phaseNanos) {
+      nanos[phase.ordinal()] += phaseNanos;
+    }
+
+    private synchronized long nanos(Phase phase) {
+      return nanos[phase.ordinal()];
+    }
+
+    private synchronized long totalNanos() {
+      long total = 0;
+      for (long phaseNanos : nanos) {
+        total += phaseNanos;
+      }
+      return total;
+    }
+
+    private synchronized Map<Phase, Long> phaseNanos() {
+      Map<Phase, Long> phaseNanos = new EnumMap<>(Phase.class);
+      for (Phase phase : Phase.values()) {
+        phaseNanos.put(phase, nanos[phase.ordinal()]);
+      }
+      return phaseNanos;
+    }
+  }
+}
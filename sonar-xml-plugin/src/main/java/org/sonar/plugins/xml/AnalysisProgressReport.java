@@ -0,0 +1,171 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Periodically logs the progress of the analysis: number of analyzed files, throughput in files and bytes per second,
+ * estimated remaining time and file currently waited for. A warning is logged at each period while the current file has
+ * been in progress for longer than a threshold.
+ * <p>
+ * Files are expected to be completed in the order in which they are given, which is the order in which the sensor saves
+ * their results. When files are analyzed concurrently, the current file is therefore the oldest one still in progress,
+ * and its elapsed time is counted from the completion of the previous file. File names are only rendered when logged.
+ */
+final class AnalysisProgressReport {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisProgressReport.class);
+
+  private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+  private final long periodMillis;
+  private final long slowFileNanos;
+  private final LongSupplier nanoClock;
+  private final Thread thread;
+
+  private List<InputFile> inputFiles = List.of();
+  private int analyzedFiles = 0;
+  private long analyzedBytes = 0;
+  private long startNanos;
+  private long currentFileStartNanos;
+  private boolean running = false;
+
+  AnalysisProgressReport(long periodMillis, long slowFileMillis) {
+    this(periodMillis, slowFileMillis, System::nanoTime);
+  }
+
+  // Visible for testing
+  AnalysisProgressReport(long periodMillis, long slowFileMillis, LongSupplier nanoClock) {
+    this.periodMillis = periodMillis;
+    this.slowFileNanos = TimeUnit.MILLISECONDS.toNanos(slowFileMillis);
+    this.nanoClock = nanoClock;
+    this.thread = new Thread(this::run, "Report about progress of XML Analyzer");
+    this.thread.setDaemon(true);
+  }
+
+  synchronized void start(List<InputFile> inputFiles) {
+    this.inputFiles = inputFiles;
+    LOG.info("{} source {} to be analyzed", inputFiles.size(), pluralizeFile(inputFiles.size()));
+    startNanos = nanoClock.getAsLong();
+    currentFileStartNanos = startNanos;
+    running = true;
+    thread.start();
+  }
+
+  /**
+   * Marks the current file as analyzed.
+   */
+  synchronized void nextFile() {
+    analyzedBytes += FilePrefetcher.size(inputFiles.get(analyzedFiles));
+    analyzedFiles++;
+    currentFileStartNanos = nanoClock.getAsLong();
+  }
+
+  void stop() {
+    synchronized (this) {
+      long elapsedNanos = nanoClock.getAsLong() - startNanos;
+      LOG.info("{}/{} source {} {} been analyzed, in {} ({})", analyzedFiles, inputFiles.size(), pluralizeFile(inputFiles.size()),
+        pluralizeHas(inputFiles.size()), duration(elapsedNanos), throughput(elapsedNanos));
+    }
+    terminate();
+  }
+
+  void cancel() {
+    terminate();
+  }
+
+  private void terminate() {
+    synchronized (this) {
+      running = false;
+      notifyAll();
+    }
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private synchronized void run() {
+    while (running) {
+      try {
+        wait(periodMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (running) {
+        report();
+      }
+    }
+  }
+
+  // Visible for testing
+  synchronized void report() {
+    long now = nanoClock.getAsLong();
+    if (analyzedFiles >= inputFiles.size()) {
+      LOG.info("{}/{} files analyzed", analyzedFiles, inputFiles.size());
+      return;
+    }
+    InputFile currentFile = inputFiles.get(analyzedFiles);
+    long elapsedNanos = now - startNanos;
+    LOG.info("{}/{} files analyzed, {}, ETA {}, current file: {}", analyzedFiles, inputFiles.size(), throughput(elapsedNanos),
+      eta(elapsedNanos), currentFile);
+    long currentFileNanos = now - currentFileStartNanos;
+    if (currentFileNanos > slowFileNanos) {
+      LOG.warn("Analysis of {} has been in progress for {}", currentFile, duration(currentFileNanos));
+    }
+  }
+
+  private String throughput(long elapsedNanos) {
+    double seconds = Math.max(elapsedNanos, 1L) / 1_000_000_000.0;
+    return String.format(Locale.ROOT, "%.1f files/s, %.1f MB/s", analyzedFiles / seconds, analyzedBytes / BYTES_PER_MB / seconds);
+  }
+
+  private String eta(long elapsedNanos) {
+    if (analyzedFiles == 0) {
+      return "unknown";
+    }
+    return duration(elapsedNanos / analyzedFiles * (inputFiles.size() - analyzedFiles));
+  }
+
+  static String duration(long nanos) {
+    long seconds = TimeUnit.NANOSECONDS.toSeconds(nanos);
+    if (seconds < 60) {
+      return seconds + "s";
+    }
+    if (seconds < 3600) {
+      return String.format(Locale.ROOT, "%dm %02ds", seconds / 60, seconds % 60);
+    }
+    return String.format(Locale.ROOT, "%dh %02dm %02ds", seconds / 3600, (seconds % 3600) / 60, seconds % 60);
+  }
+
+  private static String pluralizeFile(long count) {
+    return count == 1 ? "file" : "files";
+  }
+
+  private static String pluralizeHas(long count) {
+    return count == 1 ? "has" : "have";
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.rule.Checks;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.WildcardPattern;
+import org.sonar.plugins.xml.checks.AppliesTo;
+import org.sonar.plugins.xml.checks.Representation;
+import org.sonar.plugins.xml.checks.RequiresRepresentation;
+import org.sonar.plugins.xml.checks.StreamingXmlCheck;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
+import org.w3c.dom.Element;
+
+/**
+ * Resolves the checks which apply to a file, based on their {@link AppliesTo} declaration.
+ * <p>
+ * Each restricted check is indexed once, by its file names, its root elements, its root namespaces or, as a last resort,
+ * kept in the list of checks restricted by path patterns only. Resolving the checks of a file looks up its name, root
+ * element and root namespace in these indexes, and only matches the path of the file against the patterns of this last
+ * list. Checks are returned in the order in which they were given.
+ * <p>
+ * Before parsing a file, the dispatcher also tells which {@link Representation representations} of the file are needed by
+ * the checks which may apply to it, as declared by {@link RequiresRepresentation}. Checks restricted by root element or
+ * root namespace always need the namespace-aware document, to be resolved.
+ */
+final class CheckDispatcher {
+
+  private final List<DispatchedCheck> unrestrictedChecks = new ArrayList<>();
+  private final Map<String, List<DispatchedCheck>> checksByFileName = new HashMap<>();
+  private final Map<String, List<DispatchedCheck>> checksByRootElement = new HashMap<>();
+  private final Map<String, List<DispatchedCheck>> checksByRootNamespace = new HashMap<>();
+  private final List<DispatchedCheck> checksByPathPattern = new ArrayList<>();
+  private final Set<Representation> baseRepresentations = EnumSet.noneOf(Representation.class);
+
+  CheckDispatcher(List<DispatchedCheck> checks) {
+    for (int i = 0; i < checks.size(); i++) {
+      DispatchedCheck check = checks.get(i).withIndex(i);
+      if (check.fileNames != null) {
+        check.fileNames.forEach(fileName -> index(checksByFileName, fileName, check));
+      } else if (check.rootElements != null) {
+        check.rootElements.forEach(rootElement -> index(checksByRootElement, rootElement, check));
+        addRootRestrictedRepresentations(check);
+      } else if (check.rootNamespaces != null) {
+        check.rootNamespaces.forEach(rootNamespace -> index(checksByRootNamespace, rootNamespace, check));
+        addRootRestrictedRepresentations(check);
+      } else if (check.pathPatterns != null) {
+        checksByPathPattern.add(check);
+      } else {
+        unrestrictedChecks.add(check);
+        baseRepresentations.addAll(check.representations);
+      }
+    }
+  }
+
+  static CheckDispatcher create(Checks<Object> checks) {
+    return new CheckDispatcher(checks.all().stream()
+      .map(SonarXmlCheck.class::cast)
+      // checks.ruleKey(check) is never null because "check" is part of "checks.all()"
+      .map(check -> new DispatchedCheck(check, checks.ruleKey(check)))
+      .toList());
+  }
+
+  private void addRootRestrictedRepresentations(DispatchedCheck check) {
+    baseRepresentations.add(Representation.NAMESPACE_AWARE_DOM);
+    baseRepresentations.addAll(check.representations);
+  }
+
+  private static void index(Map<String, List<DispatchedCheck>> checksByKey, String key, DispatchedCheck check) {
+    checksByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(check);
+  }
+
+  /**
+   * Representations of the file needed by the checks which may apply to it, before knowing its root element.
+   */
+  Set<Representation> representationsFor(InputFile inputFile) {
+    FileProperties file = new FileProperties(inputFile.filename().toLowerCase(Locale.ROOT), absolutePath(inputFile), null, null);
+    Set<Representation> representations = EnumSet.noneOf(Representation.class);
+    representations.addAll(baseRepresentations);
+    addRepresentations(representations, checksByFileName.get(file.fileName), file);
+    addRepresentations(representations, checksByPathPattern, file);
+    return representations;
+  }
+
+  private static void addRepresentations(Set<Representation> representations, @Nullable List<DispatchedCheck> candidates, FileProperties file) {
+    if (candidates != null) {
+      candidates.stream()
+        // root restrictions are not known yet, the check may apply
+        .filter(check -> check.appliesTo(file) || check.rootElements != null || check.rootNamespaces != null)
+        .forEach(check -> representations.addAll(check.representations));
+    }
+  }
+
+  /**
+   * Checks which apply to the file and can analyze it as a stream. Checks restricted by root element or root namespace
+   * do not apply, as the file is not parsed into a document.
+   */
+  List<DispatchedCheck> streamingChecksFor(InputFile inputFile) {
+    List<DispatchedCheck> matchingChecks = checksWithoutDocumentFor(inputFile);
+    matchingChecks.removeIf(check -> !(check.check instanceof StreamingXmlCheck));
+    return matchingChecks;
+  }
+
+  /**
+   * Rules of the checks which apply to the file but are not executed when analyzing it as a stream, as they cannot.
+   */
+  List<RuleKey> nonStreamingRulesFor(InputFile inputFile) {
+    return checksWithoutDocumentFor(inputFile).stream()
+      .filter(check -> !(check.check instanceof StreamingXmlCheck))
+      .map(DispatchedCheck::ruleKey)
+      .toList();
+  }
+
+  /**
+   * Whether some checks which may apply to the file need its document. When they do not, the file can be analyzed by the
+   * {@link #streamingChecksFor(InputFile) streaming checks} from its content, see {@link StreamingXmlCheck#scanContent}.
+   */
+  boolean needsDocument(InputFile inputFile) {
+    Set<Representation> representations = representationsFor(inputFile);
+    return representations.contains(Representation.NAMESPACE_AWARE_DOM)
+      || representations.contains(Representation.NAMESPACE_UNAWARE_DOM)
+      || !nonStreamingRulesFor(inputFile).isEmpty();
+  }
+
+  private List<DispatchedCheck> checksWithoutDocumentFor(InputFile inputFile) {
+    FileProperties file = new FileProperties(inputFile.filename().toLowerCase(Locale.ROOT), absolutePath(inputFile), null, null);
+    List<DispatchedCheck> matchingChecks = new ArrayList<>(unrestrictedChecks);
+    addMatchingChecks(matchingChecks, checksByFileName.get(file.fileName), file);
+    addMatchingChecks(matchingChecks, checksByPathPattern, file);
+    matchingChecks.sort(Comparator.comparingInt(check -> check.index));
+    return matchingChecks;
+  }
+
+  /**
+   * Checks which apply to the file.
+   */
+  List<DispatchedCheck> checksFor(XmlFile xmlFile) {
+    Element rootElement = xmlFile.getDocument().getDocumentElement();
+    FileProperties file = new FileProperties(
+      xmlFile.getInputFile().filename().toLowerCase(Locale.ROOT),
+      absolutePath(xmlFile.getInputFile()),
+      localName(rootElement),
+      rootElement.getNamespaceURI());
+
+    List<DispatchedCheck> restrictedChecks = new ArrayList<>();
+    addMatchingChecks(restrictedChecks, checksByFileName.get(file.fileName), file);
+    addMatchingChecks(restrictedChecks, file.rootElement == null ? null : checksByRootElement.get(file.rootElement), file);
+    addMatchingChecks(restrictedChecks, file.rootNamespace == null ? null : checksByRootNamespace.get(file.rootNamespace), file);
+    addMatchingChecks(restrictedChecks, checksByPathPattern, file);
+    if (restrictedChecks.isEmpty()) {
+      return unrestrictedChecks;
+    }
+    restrictedChecks.addAll(unrestrictedChecks);
+    restrictedChecks.sort(Comparator.comparingInt(check -> check.index));
+    return restrictedChecks;
+  }
+
+  private static String localName(Element element) {
+    return element.getLocalName() != null ? element.getLocalName() : element.getNodeName();
+  }
+
+  private static void addMatchingChecks(List<DispatchedCheck> matchingChecks, @Nullable List<DispatchedCheck> candidates, FileProperties file) {
+    if (candidates != null) {
+      candidates.stream().filter(check -> check.appliesTo(file)).forEach(matchingChecks::add);
+    }
+  }
+
+  /**
+   * Absolute path of the file, with forward slashes, from its URI.
+   */
+  private static String absolutePath(InputFile inputFile) {
+    return inputFile.uri().getPath();
+  }
+
+  private record FileProperties(String fileName, String absolutePath, @Nullable String rootElement, @Nullable String rootNamespace) {
+  }
+
+  static final class DispatchedCheck {
+
+    private final SonarXmlCheck check;
+    private final RuleKey ruleKey;
+    private final int index;
+    @Nullable
+    private final Set<String> fileNames;
+    @Nullable
+    private final List<WildcardPattern> pathPatterns;
+    @Nullable
+    private final Set<String> rootElements;
+    @Nullable
+    private final Set<String> rootNamespaces;
+    private final Set<Representation> representations;
+
+    DispatchedCheck(SonarXmlCheck check, RuleKey ruleKey) {
+      this(check, ruleKey, 0);
+    }
+
+    private DispatchedCheck(SonarXmlCheck check, RuleKey ruleKey, int index) {
+      this.check = check;
+      this.ruleKey = ruleKey;
+      this.index = index;
+      AppliesTo appliesTo = check.getClass().getAnnotation(AppliesTo.class);
+      if (appliesTo == null) {
+        fileNames = null;
+        pathPatterns = null;
+        rootElements = null;
+        rootNamespaces = null;
+      } else {
+        fileNames = valuesOrNull(Arrays.stream(appliesTo.fileNames()).map(fileName -> fileName.toLowerCase(Locale.ROOT)).toList());
+        List<WildcardPattern> patterns = Arrays.stream(appliesTo.pathPatterns()).map(WildcardPattern::create).toList();
+        pathPatterns = patterns.isEmpty() ? null : patterns;
+        rootElements = valuesOrNull(Arrays.asList(appliesTo.rootElements()));
+        rootNamespaces = valuesOrNull(Arrays.asList(appliesTo.rootNamespaces()));
+      }
+      RequiresRepresentation requires = check.getClass().getAnnotation(RequiresRepresentation.class);
+      representations = EnumSet.noneOf(Representation.class);
+      if (requires == null) {
+        representations.add(Representation.NAMESPACE_AWARE_DOM);
+      } else {
+        representations.addAll(Arrays.asList(requires.value()));
+      }
+    }
+
+    @CheckForNull
+    private static Set<String> valuesOrNull(Collection<String> values) {
+      return values.isEmpty() ? null : values.stream().collect(Collectors.toUnmodifiableSet());
+    }
+
+    private DispatchedCheck withIndex(int index) {
+      return new DispatchedCheck(check, ruleKey, index);
+    }
+
+    SonarXmlCheck check() {
+      return check;
+    }
+
+    RuleKey ruleKey() {
+      return ruleKey;
+    }
+
+    Set<Representation> representations() {
+      return representations;
+    }
+
+    private boolean appliesTo(FileProperties file) {
+      return (fileNames == null || fileNames.contains(file.fileName))
+        && (rootElements == null || (file.rootElement != null && rootElements.contains(file.rootElement)))
+        && (rootNamespaces == null || (file.rootNamespace != null && rootNamespaces.contains(file.rootNamespace)))
+        && (pathPatterns == null || pathPatterns.stream().anyMatch(pattern -> pattern.match(file.absolutePath)));
+    }
+  }
+}
@@ -0,0 +1,623 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.SonarRuntime;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputComponent;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.InputModule;
+import org.sonar.api.batch.fs.TextPointer;
+import org.sonar.api.batch.fs.TextRange;
+import org.sonar.api.batch.measure.Metric;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.batch.rule.Severity;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.cache.ReadCache;
+import org.sonar.api.batch.sensor.cache.WriteCache;
+import org.sonar.api.batch.sensor.code.NewSignificantCode;
+import org.sonar.api.batch.sensor.coverage.NewCoverage;
+import org.sonar.api.batch.sensor.cpd.NewCpdTokens;
+import org.sonar.api.batch.sensor.error.NewAnalysisError;
+import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.api.batch.sensor.issue.NewExternalIssue;
+import org.sonar.api.batch.sensor.issue.NewIssue;
+import org.sonar.api.batch.sensor.issue.NewIssueLocation;
+import org.sonar.api.batch.sensor.issue.NewMessageFormatting;
+import org.sonar.api.batch.sensor.issue.fix.NewQuickFix;
+import org.sonar.api.batch.sensor.measure.NewMeasure;
+import org.sonar.api.batch.sensor.rule.NewAdHocRule;
+import org.sonar.api.batch.sensor.symbol.NewSymbolTable;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.config.Settings;
+import org.sonar.api.issue.impact.SoftwareQuality;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.scanner.fs.InputProject;
+import org.sonar.api.utils.Version;
+
+/**
+ * Sensor context used when a file is analyzed outside of the sensor thread.
+ * Issues, measures, highlighting and analysis errors are built against the wrapped context, but their
+ * {@code save()} is postponed until {@link #flush()} is called, so that results of concurrently analyzed files
+ * can be stored in a deterministic order, from a single thread.
+ * <p>
+ * When requested, saved results are also recorded as {@link FileResults}, to be written to the analysis cache.
+ * <p>
+ * The other methods are delegated to the wrapped context, including the deprecated ones, which are still part of
+ * {@link SensorContext}.
+ */
+final class DeferredSensorContext implements SensorContext {
+
+  private final SensorContext delegate;
+  private final Deque<Runnable> pendingSaves = new ArrayDeque<>();
+  @Nullable
+  private final FileResults results;
+
+  DeferredSensorContext(SensorContext delegate) {
+    this(delegate, false);
+  }
+
+  DeferredSensorContext(SensorContext delegate, boolean recordResults) {
+    this.delegate = delegate;
+    this.results = recordResults ? new FileResults() : null;
+  }
+
+  /**
+   * @return the results saved so far, or null if results are not recorded
+   */
+  @CheckForNull
+  FileResults results() {
+    return results;
+  }
+
+  /**
+   * Saves everything that has been recorded so far, in recording order.
+   */
+  void flush() {
+    pendingSaves.forEach(Runnable::run);
+    pendingSaves.clear();
+  }
+
+  /**
+   * Saves the given number of results, among the first recorded ones which are not saved yet.
+   */
+  void flush(int count) {
+    for (int i = 0; i < count; i++) {
+      pendingSaves.removeFirst().run();
+    }
+  }
+
+  /**
+   * @return the number of results recorded so far and not saved yet
+   */
+  int pending() {
+    return pendingSaves.size();
+  }
+
+  /**
+   * Drops everything that has been recorded so far. Results of the file are not cached anymore.
+   */
+  void discard() {
+    pendingSaves.clear();
+    markNotReplayable();
+  }
+
+  FileLinesContextFactory deferring(FileLinesContextFactory fileLinesContextFactory) {
+    return inputFile -> new DeferredFileLinesContext(fileLinesContextFactory.createFor(inputFile));
+  }
+
+  private void defer(Runnable save) {
+    pendingSaves.add(save);
+  }
+
+  private void markNotReplayable() {
+    if (results != null) {
+      results.markNotReplayable();
+    }
+  }
+
+  @Override
+  public <G extends Serializable> NewMeasure<G> newMeasure() {
+    return new DeferredMeasure<>(delegate.newMeasure());
+  }
+
+  @Override
+  public NewIssue newIssue() {
+    return new DeferredIssue(delegate.newIssue());
+  }
+
+  @Override
+  public NewHighlighting newHighlighting() {
+    return new DeferredHighlighting(delegate.newHighlighting());
+  }
+
+  @Override
+  public NewAnalysisError newAnalysisError() {
+    return new DeferredAnalysisError(delegate.newAnalysisError());
+  }
+
+  @SuppressWarnings("deprecation")
+  @Override
+  public Settings settings() {
+    return delegate.settings();
+  }
+
+  @Override
+  public Configuration config() {
+    return delegate.config();
+  }
+
+  @Override
+  public boolean canSkipUnchangedFiles() {
+    return delegate.canSkipUnchangedFiles();
+  }
+
+  @Override
+  public FileSystem fileSystem() {
+    return delegate.fileSystem();
+  }
+
+  @Override
+  public ActiveRules activeRules() {
+    return delegate.activeRules();
+  }
+
+  @SuppressWarnings("deprecation")
+  @Override
+  public InputModule module() {
+    return delegate.module();
+  }
+
+  @Override
+  public InputProject project() {
+    return delegate.project();
+  }
+
+  @SuppressWarnings("deprecation")
+  @Override
+  public Version getSonarQubeVersion() {
+    return delegate.getSonarQubeVersion();
+  }
+
+  @Override
+  public SonarRuntime runtime() {
+    return delegate.runtime();
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return delegate.isCancelled();
+  }
+
+  @Override
+  public NewExternalIssue newExternalIssue() {
+    return delegate.newExternalIssue();
+  }
+
+  @Override
+  public NewAdHocRule newAdHocRule() {
+    return delegate.newAdHocRule();
+  }
+
+  @Override
+  public NewSymbolTable newSymbolTable() {
+    return delegate.newSymbolTable();
+  }
+
+  @Override
+  public NewCoverage newCoverage() {
+    return delegate.newCoverage();
+  }
+
+  @Override
+  public NewCpdTokens newCpdTokens() {
+    return delegate.newCpdTokens();
+  }
+
+  @Override
+  public NewSignificantCode newSignificantCode() {
+    return delegate.newSignificantCode();
+  }
+
+  @Override
+  public void addContextProperty(String key, String value) {
+    delegate.addContextProperty(key, value);
+  }
+
+  @Override
+  public void markForPublishing(InputFile inputFile) {
+    delegate.markForPublishing(inputFile);
+  }
+
+  @Override
+  public void markAsUnchanged(InputFile inputFile) {
+    delegate.markAsUnchanged(inputFile);
+  }
+
+  @Override
+  public WriteCache nextCache() {
+    return delegate.nextCache();
+  }
+
+  @Override
+  public ReadCache previousCache() {
+    return delegate.previousCache();
+  }
+
+  @Override
+  public boolean isCacheEnabled() {
+    return delegate.isCacheEnabled();
+  }
+
+  @Override
+  public void addTelemetryProperty(String key, String value) {
+    delegate.addTelemetryProperty(key, value);
+  }
+
+  private final class DeferredMeasure<G extends Serializable> implements NewMeasure<G> {
+
+    private final NewMeasure<G> measure;
+    @Nullable
+    private String metricKey;
+    @Nullable
+    private G value;
+
+    private DeferredMeasure(NewMeasure<G> measure) {
+      this.measure = measure;
+    }
+
+    @Override
+    public NewMeasure<G> on(InputComponent component) {
+      measure.on(component);
+      return this;
+    }
+
+    @Override
+    public NewMeasure<G> forMetric(Metric<G> metric) {
+      measure.forMetric(metric);
+      metricKey = metric.key();
+      return this;
+    }
+
+    @Override
+    public NewMeasure<G> withValue(G value) {
+      measure.withValue(value);
+      this.value = value;
+      return this;
+    }
+
+    @Override
+    public void save() {
+      if (results != null) {
+        results.addMeasure(metricKey, value);
+      }
+      defer(measure::save);
+    }
+  }
+
+  private final class DeferredIssue implements NewIssue {
+
+    private final NewIssue issue;
+    @Nullable
+    private RuleKey ruleKey;
+    @Nullable
+    private FileResults.Location primaryLocation;
+    private final List<FileResults.Location> secondaryLocations = new ArrayList<>();
+
+    private DeferredIssue(NewIssue issue) {
+      this.issue = issue;
+    }
+
+    @Override
+    public NewIssue forRule(RuleKey ruleKey) {
+      issue.forRule(ruleKey);
+      this.ruleKey = ruleKey;
+      return this;
+    }
+
+    @Override
+    public NewIssue gap(@Nullable Double gap) {
+      issue.gap(gap);
+      markNotReplayable();
+      return this;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public NewIssue overrideSeverity(@Nullable Severity severity) {
+      issue.overrideSeverity(severity);
+      markNotReplayable();
+      return this;
+    }
+
+    @Override
+    public NewIssue overrideImpact(SoftwareQuality softwareQuality, org.sonar.api.issue.impact.Severity severity) {
+      issue.overrideImpact(softwareQuality, severity);
+      markNotReplayable();
+      return this;
+    }
+
+    @Override
+    public NewIssue at(NewIssueLocation primaryLocation) {
+      issue.at(unwrap(primaryLocation));
+      this.primaryLocation = recorded(primaryLocation);
+      return this;
+    }
+
+    @Override
+    public NewIssue addLocation(NewIssueLocation secondaryLocation) {
+      issue.addLocation(unwrap(secondaryLocation));
+      secondaryLocations.add(recorded(secondaryLocation));
+      return this;
+    }
+
+    @Override
+    public NewIssue setQuickFixAvailable(boolean quickFixAvailable) {
+      issue.setQuickFixAvailable(quickFixAvailable);
+      markNotReplayable();
+      return this;
+    }
+
+    @Override
+    public NewIssue addFlow(Iterable<NewIssueLocation> flowLocations) {
+      issue.addFlow(unwrap(flowLocations));
+      markNotReplayable();
+      return this;
+    }
+
+    @Override
+    public NewIssue addFlow(Iterable<NewIssueLocation> flowLocations, FlowType flowType, @Nullable String flowDescription) {
+      issue.addFlow(unwrap(flowLocations), flowType, flowDescription);
+      markNotReplayable();
+      return this;
+    }
+
+    @Override
+    public NewIssueLocation newLocation() {
+      NewIssueLocation location = issue.newLocation();
+      return results == null ? location : new RecordingIssueLocation(location);
+    }
+
+    @Override
+    public NewQuickFix newQuickFix() {
+      return issue.newQuickFix();
+    }
+
+    @Override
+    public NewIssue addQuickFix(NewQuickFix newQuickFix) {
+      issue.addQuickFix(newQuickFix);
+      markNotReplayable();
+      return this;
+    }
+
+    @Override
+    public NewIssue setRuleDescriptionContextKey(@Nullable String ruleDescriptionContextKey) {
+      issue.setRuleDescriptionContextKey(ruleDescriptionContextKey);
+      return this;
+    }
+
+    @Override
+    public NewIssue setCodeVariants(@Nullable Iterable<String> codeVariants) {
+      issue.setCodeVariants(codeVariants);
+      markNotReplayable();
+      return this;
+    }
+
+    @Override
+    public void save() {
+      if (results != null) {
+        results.addIssue(ruleKey, primaryLocation, secondaryLocations);
+      }
+      defer(issue::save);
+    }
+  }
+
+  private static NewIssueLocation unwrap(NewIssueLocation location) {
+    return location instanceof RecordingIssueLocation recordingLocation ? recordingLocation.location : location;
+  }
+
+  private static List<NewIssueLocation> unwrap(Iterable<NewIssueLocation> locations) {
+    List<NewIssueLocation> unwrapped = new ArrayList<>();
+    locations.forEach(location -> unwrapped.add(unwrap(location)));
+    return unwrapped;
+  }
+
+  @CheckForNull
+  private FileResults.Location recorded(NewIssueLocation location) {
+    if (location instanceof RecordingIssueLocation recordingLocation) {
+      return recordingLocation.recorded();
+    }
+    markNotReplayable();
+    return null;
+  }
+
+  private final class RecordingIssueLocation implements NewIssueLocation {
+
+    private final NewIssueLocation location;
+    @Nullable
+    private TextRange range;
+    @Nullable
+    private String message;
+
+    private RecordingIssueLocation(NewIssueLocation location) {
+      this.location = location;
+    }
+
+    private FileResults.Location recorded() {
+      return new FileResults.Location(range == null ? null : FileResults.Range.of(range), message);
+    }
+
+    @Override
+    public NewIssueLocation on(InputComponent component) {
+      location.on(component);
+      return this;
+    }
+
+    @Override
+    public NewIssueLocation at(TextRange range) {
+      location.at(range);
+      this.range = range;
+      return this;
+    }
+
+    @Override
+    public NewIssueLocation message(String message) {
+      location.message(message);
+      this.message = message;
+      return this;
+    }
+
+    @Override
+    public NewIssueLocation message(String message, List<NewMessageFormatting> newMessageFormatting) {
+      location.message(message, newMessageFormatting);
+      markNotReplayable();
+      return this;
+    }
+
+    @Override
+    public NewMessageFormatting newMessageFormatting() {
+      return location.newMessageFormatting();
+    }
+  }
+
+  private final class DeferredHighlighting implements NewHighlighting {
+
+    private final NewHighlighting highlighting;
+    private final List<FileResults.HighlightedRange> ranges = new ArrayList<>();
+
+    private DeferredHighlighting(NewHighlighting highlighting) {
+      this.highlighting = highlighting;
+    }
+
+    @Override
+    public NewHighlighting onFile(InputFile inputFile) {
+      highlighting.onFile(inputFile);
+      return this;
+    }
+
+    @Override
+    public NewHighlighting highlight(TextRange range, TypeOfText typeOfText) {
+      highlighting.highlight(range, typeOfText);
+      if (results != null) {
+        ranges.add(new FileResults.HighlightedRange(FileResults.Range.of(range), typeOfText));
+      }
+      return this;
+    }
+
+    @Override
+    public NewHighlighting highlight(int startLine, int startLineOffset, int endLine, int endLineOffset, TypeOfText typeOfText) {
+      highlighting.highlight(startLine, startLineOffset, endLine, endLineOffset, typeOfText);
+      if (results != null) {
+        ranges.add(new FileResults.HighlightedRange(new FileResults.Range(startLine, startLineOffset, endLine, endLineOffset), typeOfText));
+      }
+      return this;
+    }
+
+    @Override
+    public void save() {
+      if (results != null) {
+        results.addHighlighting(ranges);
+      }
+      defer(highlighting::save);
+    }
+  }
+
+  private final class DeferredAnalysisError implements NewAnalysisError {
+
+    private final NewAnalysisError analysisError;
+    @Nullable
+    private String message;
+    @Nullable
+    private TextPointer location;
+
+    private DeferredAnalysisError(NewAnalysisError analysisError) {
+      this.analysisError = analysisError;
+    }
+
+    @Override
+    public NewAnalysisError onFile(InputFile inputFile) {
+      analysisError.onFile(inputFile);
+      return this;
+    }
+
+    @Override
+    public NewAnalysisError message(String message) {
+      analysisError.message(message);
+      this.message = message;
+      return this;
+    }
+
+    @Override
+    public NewAnalysisError at(TextPointer location) {
+      analysisError.at(location);
+      this.location = location;
+      return this;
+    }
+
+    @Override
+    public void save() {
+      if (results != null) {
+        results.addAnalysisError(message, location);
+      }
+      defer(analysisError::save);
+    }
+  }
+
+  private final class DeferredFileLinesContext implements FileLinesContext {
+
+    private final FileLinesContext fileLinesContext;
+    private final List<FileResults.LineValue> values = new ArrayList<>();
+
+    private DeferredFileLinesContext(FileLinesContext fileLinesContext) {
+      this.fileLinesContext = fileLinesContext;
+    }
+
+    @Override
+    public void setIntValue(String metricKey, int line, int value) {
+      fileLinesContext.setIntValue(metricKey, line, value);
+      if (results != null) {
+        values.add(new FileResults.LineValue(metricKey, line, value));
+      }
+    }
+
+    @Override
+    public void setStringValue(String metricKey, int line, String value) {
+      fileLinesContext.setStringValue(metricKey, line, value);
+      if (results != null) {
+        values.add(new FileResults.LineValue(metricKey, line, value));
+      }
+    }
+
+    @Override
+    public void save() {
+      if (results != null) {
+        results.addLinesData(values);
+      }
+      defer(fileLinesContext::save);
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Reads the bytes of the files which are about to be analyzed, ahead of the analysis loop, so that reading them again
+ * through {@link InputFile#contents()} is served by the operating system cache instead of waiting on the disk or the network.
+ * <p>
+ * The bytes read ahead are discarded, the analysis still reads each file itself. At most {@code maxFilesAhead} files, and
+ * at most {@code maxBytesAhead} bytes, are read ahead of the file being analyzed: they bound the I/O in flight, not the
+ * heap, which never holds the files read ahead. Reads are done on virtual threads when the runtime provides them.
+ * <p>
+ * The number of files whose analysis had to wait on I/O is logged, and published in the report of the
+ * {@link AnalysisProfiler} when profiling is enabled.
+ */
+final class FilePrefetcher implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FilePrefetcher.class);
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final List<InputFile> inputFiles;
+  private final int maxFilesAhead;
+  private final long maxBytesAhead;
+  private final ExecutorService executor;
+  private final CompletableFuture<?>[] reads;
+  private final long[] sizes;
+
+  private int nextFileToRead = 0;
+  private int consumedFiles = 0;
+  private long bytesAhead = 0;
+
+  private int stalledFiles = 0;
+  private long stalledNanos = 0;
+
+  FilePrefetcher(List<InputFile> inputFiles, int maxFilesAhead, long maxBytesAhead) {
+    this.inputFiles = inputFiles;
+    this.maxFilesAhead = maxFilesAhead;
+    this.maxBytesAhead = maxBytesAhead;
+    this.executor = createExecutor();
+    this.reads = new CompletableFuture<?>[inputFiles.size()];
+    this.sizes = new long[inputFiles.size()];
+    scheduleReads();
+  }
+
+  /**
+   * Blocks until the file at the given index has been read ahead, then lets the prefetcher move forward.
+   * Must be called once for each file, before analyzing it.
+   */
+  void awaitFile(int index) {
+    CompletableFuture<?> read;
+    synchronized (this) {
+      read = reads[index];
+    }
+    if (read != null && !read.isDone()) {
+      long start = System.nanoTime();
+      join(read);
+      synchronized (this) {
+        stalledFiles++;
+        stalledNanos += System.nanoTime() - start;
+      }
+    }
+    synchronized (this) {
+      reads[index] = null;
+      bytesAhead -= sizes[index];
+      consumedFiles++;
+    }
+    scheduleReads();
+  }
+
+  synchronized int stalledFiles() {
+    return stalledFiles;
+  }
+
+  synchronized long stalledMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(stalledNanos);
+  }
+
+  void report(AnalysisProfiler profiler) {
+    synchronized (this) {
+      profiler.recordPrefetch(inputFiles.size(), stalledFiles, stalledNanos);
+    }
+    LOG.info("XML files prefetch: analysis waited on I/O for {}/{} files, {} ms in total", stalledFiles(), inputFiles.size(), stalledMillis());
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  private synchronized void scheduleReads() {
+    while (nextFileToRead < inputFiles.size() && nextFileToRead - consumedFiles < maxFilesAhead) {
+      int index = nextFileToRead;
+      InputFile inputFile = inputFiles.get(index);
+      long size = size(inputFile);
+      // always allow one read ahead, so that files bigger than the budget are prefetched as well
+      if (bytesAhead > 0 && bytesAhead + size > maxBytesAhead) {
+        return;
+      }
+      sizes[index] = size;
+      bytesAhead += size;
+      reads[index] = CompletableFuture.runAsync(() -> readAhead(inputFile), executor);
+      nextFileToRead++;
+    }
+  }
+
+  static long size(InputFile inputFile) {
+    try {
+      return Files.size(Path.of(inputFile.uri()));
+    } catch (IOException | RuntimeException e) {
+      return 0L;
+    }
+  }
+
+  /**
+   * Reads the whole file, without keeping its bytes.
+   */
+  static void readAhead(InputFile inputFile) {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try (InputStream inputStream = inputFile.inputStream()) {
+      while (inputStream.read(buffer) != -1) {
+        // bytes are discarded, only the read matters
+      }
+    } catch (IOException e) {
+      // the failure will be reported when the file is analyzed
+      LOG.debug("Unable to prefetch {}", inputFile, e);
+    }
+  }
+
+  private static void join(CompletableFuture<?> read) {
+    try {
+      read.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      // the failure will be reported when the file is analyzed
+    }
+  }
+
+  /**
+   * Virtual threads are only available from Java 21, while the plugin still supports Java 17 runtimes.
+   */
+  private static ExecutorService createExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "xml-prefetch");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+}
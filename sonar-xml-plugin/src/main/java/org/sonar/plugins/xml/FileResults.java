@@ -0,0 +1,375 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.TextPointer;
+import org.sonar.api.batch.fs.TextRange;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.error.NewAnalysisError;
+import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.api.batch.sensor.issue.NewIssue;
+import org.sonar.api.batch.sensor.issue.NewIssueLocation;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.rule.RuleKey;
+
+/**
+ * Results of the analysis of a single file, in the order in which they have been saved: issues, measures, highlighting,
+ * lines data and analysis errors. They can be written to the analysis cache and replayed on a later analysis, without
+ * parsing the file again.
+ * <p>
+ * Results using features which cannot be replayed (flows, quick fixes, severity overrides...) make the whole file
+ * not replayable.
+ */
+final class FileResults {
+
+  private static final byte ISSUE = 1;
+  private static final byte MEASURE = 2;
+  private static final byte HIGHLIGHTING = 3;
+  private static final byte LINES_DATA = 4;
+  private static final byte ANALYSIS_ERROR = 5;
+
+  private final List<Result> results = new ArrayList<>();
+  private boolean replayable = true;
+
+  void addIssue(@Nullable RuleKey ruleKey, @Nullable Location primaryLocation, List<Location> secondaryLocations) {
+    if (ruleKey == null || primaryLocation == null) {
+      markNotReplayable();
+      return;
+    }
+    results.add(new Issue(ruleKey.toString(), primaryLocation, List.copyOf(secondaryLocations)));
+  }
+
+  void addMeasure(@Nullable String metricKey, @Nullable Serializable value) {
+    if (metricKey == null || !(value instanceof Integer intValue)) {
+      markNotReplayable();
+      return;
+    }
+    results.add(new Measure(metricKey, intValue));
+  }
+
+  void addHighlighting(List<HighlightedRange> ranges) {
+    results.add(new Highlighting(List.copyOf(ranges)));
+  }
+
+  void addLinesData(List<LineValue> values) {
+    results.add(new LinesData(List.copyOf(values)));
+  }
+
+  void addAnalysisError(@Nullable String message, @Nullable TextPointer location) {
+    results.add(new AnalysisError(message, location == null ? null : new Range(location.line(), location.lineOffset(), location.line(), location.lineOffset())));
+  }
+
+  void markNotReplayable() {
+    replayable = false;
+  }
+
+  boolean isReplayable() {
+    return replayable;
+  }
+
+  int size() {
+    return results.size();
+  }
+
+  /**
+   * Saves the results again, on the given file.
+   */
+  void replay(SensorContext context, FileLinesContextFactory fileLinesContextFactory, InputFile inputFile) {
+    results.forEach(result -> result.replay(context, fileLinesContextFactory, inputFile));
+  }
+
+  void write(DataOutputStream out) throws IOException {
+    out.writeInt(results.size());
+    for (Result result : results) {
+      result.write(out);
+    }
+  }
+
+  static FileResults read(DataInputStream in) throws IOException {
+    FileResults fileResults = new FileResults();
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      byte type = in.readByte();
+      fileResults.results.add(switch (type) {
+        case ISSUE -> Issue.read(in);
+        case MEASURE -> new Measure(readString(in), in.readInt());
+        case HIGHLIGHTING -> Highlighting.read(in);
+        case LINES_DATA -> LinesData.read(in);
+        case ANALYSIS_ERROR -> new AnalysisError(readNullableString(in), in.readBoolean() ? Range.read(in) : null);
+        default -> throw new IOException("Unknown result type: " + type);
+      });
+    }
+    return fileResults;
+  }
+
+  /**
+   * Strings are written as their length and UTF-8 bytes, as {@link DataOutputStream#writeUTF(String)} is limited to 64KB.
+   */
+  static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeNullableString(DataOutputStream out, @Nullable String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      writeString(out, value);
+    }
+  }
+
+  @Nullable
+  private static String readNullableString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? readString(in) : null;
+  }
+
+  private interface Result {
+
+    void replay(SensorContext context, FileLinesContextFactory fileLinesContextFactory, InputFile inputFile);
+
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  record Range(int startLine, int startLineOffset, int endLine, int endLineOffset) {
+
+    static Range of(TextRange textRange) {
+      return new Range(textRange.start().line(), textRange.start().lineOffset(), textRange.end().line(), textRange.end().lineOffset());
+    }
+
+    private TextRange on(InputFile inputFile) {
+      return inputFile.newRange(startLine, startLineOffset, endLine, endLineOffset);
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      out.writeInt(startLine);
+      out.writeInt(startLineOffset);
+      out.writeInt(endLine);
+      out.writeInt(endLineOffset);
+    }
+
+    private static Range read(DataInputStream in) throws IOException {
+      return new Range(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+    }
+  }
+
+  /**
+   * Location of an issue, on the analyzed file. Without range, the location is the whole file.
+   */
+  record Location(@Nullable Range range, @Nullable String message) {
+
+    private NewIssueLocation on(NewIssue issue, InputFile inputFile) {
+      NewIssueLocation location = issue.newLocation().on(inputFile);
+      if (range != null) {
+        location.at(range.on(inputFile));
+      }
+      if (message != null) {
+        location.message(message);
+      }
+      return location;
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      out.writeBoolean(range != null);
+      if (range != null) {
+        range.write(out);
+      }
+      writeNullableString(out, message);
+    }
+
+    private static Location read(DataInputStream in) throws IOException {
+      Range range = in.readBoolean() ? Range.read(in) : null;
+      return new Location(range, readNullableString(in));
+    }
+  }
+
+  record HighlightedRange(Range range, TypeOfText type) {
+  }
+
+  record LineValue(String metricKey, int line, Serializable value) {
+  }
+
+  private record Issue(String ruleKey, Location primaryLocation, List<Location> secondaryLocations) implements Result {
+
+    @Override
+    public void replay(SensorContext context, FileLinesContextFactory fileLinesContextFactory, InputFile inputFile) {
+      NewIssue issue = context.newIssue();
+      issue.forRule(RuleKey.parse(ruleKey)).at(primaryLocation.on(issue, inputFile));
+      secondaryLocations.forEach(secondaryLocation -> issue.addLocation(secondaryLocation.on(issue, inputFile)));
+      issue.save();
+    }
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+      out.writeByte(ISSUE);
+      writeString(out, ruleKey);
+      primaryLocation.write(out);
+      out.writeInt(secondaryLocations.size());
+      for (Location secondaryLocation : secondaryLocations) {
+        secondaryLocation.write(out);
+      }
+    }
+
+    private static Issue read(DataInputStream in) throws IOException {
+      String ruleKey = readString(in);
+      Location primaryLocation = Location.read(in);
+      int size = in.readInt();
+      List<Location> secondaryLocations = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        secondaryLocations.add(Location.read(in));
+      }
+      return new Issue(ruleKey, primaryLocation, secondaryLocations);
+    }
+  }
+
+  private record Measure(String metricKey, int value) implements Result {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replay(SensorContext context, FileLinesContextFactory fileLinesContextFactory, InputFile inputFile) {
+      context.<Integer>newMeasure()
+        .withValue(value)
+        .forMetric((Metric<Integer>) CoreMetrics.getMetric(metricKey))
+        .on(inputFile)
+        .save();
+    }
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+      out.writeByte(MEASURE);
+      writeString(out, metricKey);
+      out.writeInt(value);
+    }
+  }
+
+  private record Highlighting(List<HighlightedRange> ranges) implements Result {
+
+    @Override
+    public void replay(SensorContext context, FileLinesContextFactory fileLinesContextFactory, InputFile inputFile) {
+      NewHighlighting highlighting = context.newHighlighting().onFile(inputFile);
+      ranges.forEach(highlightedRange -> highlighting.highlight(highlightedRange.range().on(inputFile), highlightedRange.type()));
+      highlighting.save();
+    }
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+      out.writeByte(HIGHLIGHTING);
+      out.writeInt(ranges.size());
+      for (HighlightedRange highlightedRange : ranges) {
+        highlightedRange.range().write(out);
+        writeString(out, highlightedRange.type().name());
+      }
+    }
+
+    private static Highlighting read(DataInputStream in) throws IOException {
+      int size = in.readInt();
+      List<HighlightedRange> ranges = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        ranges.add(new HighlightedRange(Range.read(in), TypeOfText.valueOf(readString(in))));
+      }
+      return new Highlighting(ranges);
+    }
+  }
+
+  private record LinesData(List<LineValue> values) implements Result {
+
+    @Override
+    public void replay(SensorContext context, FileLinesContextFactory fileLinesContextFactory, InputFile inputFile) {
+      FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(inputFile);
+      for (LineValue lineValue : values) {
+        if (lineValue.value() instanceof Integer intValue) {
+          fileLinesContext.setIntValue(lineValue.metricKey(), lineValue.line(), intValue);
+        } else {
+          fileLinesContext.setStringValue(lineValue.metricKey(), lineValue.line(), (String) lineValue.value());
+        }
+      }
+      fileLinesContext.save();
+    }
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+      out.writeByte(LINES_DATA);
+      out.writeInt(values.size());
+      for (LineValue lineValue : values) {
+        writeString(out, lineValue.metricKey());
+        out.writeInt(lineValue.line());
+        if (lineValue.value() instanceof Integer intValue) {
+          out.writeBoolean(true);
+          out.writeInt(intValue);
+        } else {
+          out.writeBoolean(false);
+          writeString(out, (String) lineValue.value());
+        }
+      }
+    }
+
+    private static LinesData read(DataInputStream in) throws IOException {
+      int size = in.readInt();
+      List<LineValue> values = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        String metricKey = readString(in);
+        int line = in.readInt();
+        Serializable value = in.readBoolean() ? Integer.valueOf(in.readInt()) : readString(in);
+        values.add(new LineValue(metricKey, line, value));
+      }
+      return new LinesData(values);
+    }
+  }
+
+  private record AnalysisError(@Nullable String message, @Nullable Range location) implements Result {
+
+    @Override
+    public void replay(SensorContext context, FileLinesContextFactory fileLinesContextFactory, InputFile inputFile) {
+      NewAnalysisError analysisError = context.newAnalysisError().onFile(inputFile);
+      if (message != null) {
+        analysisError.message(message);
+      }
+      if (location != null) {
+        analysisError.at(inputFile.newPointer(location.startLine(), location.startLineOffset()));
+      }
+      analysisError.save();
+    }
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+      out.writeByte(ANALYSIS_ERROR);
+      writeNullableString(out, message);
+      out.writeBoolean(location != null);
+      if (location != null) {
+        location.write(out);
+      }
+    }
+  }
+}
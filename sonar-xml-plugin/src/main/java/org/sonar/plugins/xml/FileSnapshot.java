@@ -0,0 +1,90 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+
+/**
+ * Read-only views of the content of a file, each of them built on first use and then shared by all the users of the file:
+ * highlighting, metrics and checks, whatever the threads they run on.
+ * <p>
+ * The snapshot of an {@link XmlFile} is the same for the whole analysis of the file, and is not retained by the plugin
+ * once the file is no longer used. The documents of the file are not part of it: Xerces documents update internal state,
+ * such as the caches of their node lists, even when they are only read. The {@link LineIndex}, {@link XmlTokens} and
+ * {@link XmlTree} of the content are never modified once built, and are safely published by the lock of the snapshot.
+ */
+public final class FileSnapshot {
+
+  /**
+   * Snapshots of the files being analyzed. The snapshot of a file does not reference it, so that it is dropped with the file.
+   */
+  private static final Map<XmlFile, FileSnapshot> SNAPSHOTS = Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final String content;
+  private LineIndex lines;
+  private XmlTokens tokens;
+  private XmlTree tree;
+
+  private FileSnapshot(String content) {
+    this.content = content;
+  }
+
+  /**
+   * @return the snapshot of the given file, shared by all its users
+   */
+  public static FileSnapshot of(XmlFile file) {
+    return SNAPSHOTS.computeIfAbsent(file, f -> new FileSnapshot(f.getContents()));
+  }
+
+  /**
+   * @return a snapshot of the given content, for the files which are analyzed without being parsed
+   */
+  public static FileSnapshot of(String content) {
+    return new FileSnapshot(content);
+  }
+
+  public String content() {
+    return content;
+  }
+
+  public synchronized LineIndex lines() {
+    if (lines == null) {
+      lines = LineIndex.of(content);
+    }
+    return lines;
+  }
+
+  /**
+   * The lines of the content are indexed along with its tokens, as the locations of the tokens are computed from them.
+   */
+  public synchronized XmlTokens tokens() {
+    if (tokens == null) {
+      tokens = XmlTokens.of(lines());
+    }
+    return tokens;
+  }
+
+  public synchronized XmlTree tree() {
+    if (tree == null) {
+      tree = XmlTree.of(tokens());
+    }
+    return tree;
+  }
+}
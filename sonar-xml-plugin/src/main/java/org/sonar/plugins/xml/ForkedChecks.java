@@ -0,0 +1,172 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.xml.checks.AnalysisDeadline;
+import org.sonar.plugins.xml.checks.Representation;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
+
+/**
+ * Checks of a file which run on a fork-join pool, concurrently to the checks of the file which need its document.
+ * <p>
+ * Only the checks which need no document are forked: they share the {@link FileSnapshot read-only snapshot} of the file,
+ * and can split their own traversal of the file on the same pool, see {@link ParallelTraversal}.
+ * Results of all the checks are recorded, and saved in the order of the checks once they all completed, so that they
+ * are identical to the ones of the checks running one after the other. Checks are stateful, but each of them is still
+ * used by a single thread at a time, as forked checks are always awaited before the checks of another file can run.
+ */
+final class ForkedChecks implements AutoCloseable {
+
+  private static final Set<Representation> SNAPSHOT_REPRESENTATIONS = EnumSet.of(Representation.TEXT, Representation.TOKENS, Representation.TREE);
+
+  private final SensorContext context;
+  private final List<ForkJoinTask<DeferredSensorContext>> tasks;
+  /**
+   * Results of the checks running on the calling thread, or null if they are saved as soon as they are reported.
+   */
+  @Nullable
+  private final DeferredSensorContext documentResults;
+  /**
+   * Number of results recorded by the checks running on the calling thread, once each of them has scanned the file.
+   */
+  private final int[] documentResultsEnds;
+
+  private ForkedChecks(SensorContext context, List<ForkJoinTask<DeferredSensorContext>> tasks, @Nullable DeferredSensorContext documentResults) {
+    this.context = context;
+    this.tasks = tasks;
+    this.documentResults = documentResults;
+    this.documentResultsEnds = new int[tasks.size()];
+  }
+
+  /**
+   * No check is forked: all of them run on the calling thread, and save their results as soon as they are reported.
+   */
+  static ForkedChecks none(SensorContext context, int checkCount) {
+    return new ForkedChecks(context, Collections.nCopies(checkCount, null), null);
+  }
+
+  /**
+   * Submits the checks which need no document of the file to the given pool.
+   *
+   * @param scanNanos receives the time spent by each forked check scanning the file, once the check completed
+   */
+  @SuppressWarnings("try")
+  static ForkedChecks fork(ForkJoinPool pool, SensorContext context, List<CheckDispatcher.DispatchedCheck> checks, XmlFile xmlFile,
+    CheckRunner runner, long[] scanNanos) {
+    if (checks.stream().noneMatch(ForkedChecks::canFork)) {
+      return none(context, checks.size());
+    }
+
+    AnalysisDeadline deadline = AnalysisDeadline.ofCurrentThread();
+    List<ForkJoinTask<DeferredSensorContext>> tasks = new ArrayList<>(checks.size());
+    for (int i = 0; i < checks.size(); i++) {
+      CheckDispatcher.DispatchedCheck check = checks.get(i);
+      if (!canFork(check)) {
+        tasks.add(null);
+        continue;
+      }
+      int checkIndex = i;
+      tasks.add(pool.submit(() -> {
+        DeferredSensorContext results = new DeferredSensorContext(context);
+        try (AnalysisDeadline.Scope deadlineScope = deadline.share();
+          ParallelTraversal.Scope traversalScope = ParallelTraversal.enter(pool)) {
+          scanNanos[checkIndex] = runner.run(results, check.check(), check.ruleKey(), xmlFile);
+        }
+        return results;
+      }));
+    }
+    return new ForkedChecks(context, tasks, new DeferredSensorContext(context));
+  }
+
+  private static boolean canFork(CheckDispatcher.DispatchedCheck check) {
+    return !check.representations().isEmpty() && SNAPSHOT_REPRESENTATIONS.containsAll(check.representations());
+  }
+
+  boolean isForked(int checkIndex) {
+    return tasks.get(checkIndex) != null;
+  }
+
+  /**
+   * Context to which the checks running on the calling thread report, during their scan of the file and during the walk
+   * of its document.
+   */
+  SensorContext documentContext() {
+    return documentResults == null ? context : documentResults;
+  }
+
+  /**
+   * Marks the end of the scan of the file by the given check, running on the calling thread.
+   */
+  void scanned(int checkIndex) {
+    if (documentResults != null) {
+      documentResultsEnds[checkIndex] = documentResults.pending();
+    }
+  }
+
+  /**
+   * Awaits the forked checks, and saves the results of all the checks: the ones reported while scanning the file, in the
+   * order of the checks, followed by the ones reported during the walk of the document.
+   *
+   * @throws AnalysisDeadline.ExceededException if a forked check exhausted the time budget of the file
+   */
+  void saveResults() {
+    if (documentResults == null) {
+      return;
+    }
+    int savedDocumentResults = 0;
+    for (int i = 0; i < tasks.size(); i++) {
+      ForkJoinTask<DeferredSensorContext> task = tasks.get(i);
+      if (task != null) {
+        task.join().flush();
+      } else {
+        documentResults.flush(documentResultsEnds[i] - savedDocumentResults);
+        savedDocumentResults = documentResultsEnds[i];
+      }
+    }
+    documentResults.flush();
+  }
+
+  /**
+   * Awaits the forked checks, even when the analysis of the file failed, so that their instances can check another file.
+   */
+  @Override
+  public void close() {
+    tasks.stream()
+      .filter(Objects::nonNull)
+      .forEach(ForkJoinTask::quietlyJoin);
+  }
+
+  @FunctionalInterface
+  interface CheckRunner {
+    /**
+     * @return the time spent scanning the file
+     */
+    long run(SensorContext context, SonarXmlCheck check, RuleKey ruleKey, XmlFile xmlFile);
+  }
+}
@@ -17,8 +17,18 @@
 package org.sonar.plugins.xml;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.InputFile;
@@ -28,17 +38,25 @@ import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.api.measures.Metric;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
-import org.sonarsource.analyzer.commons.xml.XmlTextRange;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-
-import static org.sonar.plugins.xml.Utils.splitLines;
 
+/**
+ * Counts the lines of code and the comment lines of a file from its {@link XmlTokens tokens}.
+ * <p>
+ * Lines of code are the lines of the XML declaration, of the document type declaration, of the tags, and the lines of
+ * the text of the elements which are not blank. Comment lines are the lines of the comments which are not blank once
+ * their delimiters are removed. As when the file is parsed, the characters before its XML declaration are ignored, and
+ * so are the references to the entities which are not expanded by the parser, such as external entities.
+ * <p>
+ * The tokens of large files are counted by several tasks, whose lines are then merged, see {@link ParallelTraversal}.
+ */
 public final class LineCounter {
 
   private static final Logger LOG = LoggerFactory.getLogger(LineCounter.class);
 
+  private static final Set<String> PREDEFINED_ENTITIES = Set.of("lt", "gt", "amp", "apos", "quot");
+
+  private static final Pattern INTERNAL_ENTITY_DECLARATION = Pattern.compile("<!ENTITY\\s++([^\\s%][^\\s]*+)\\s++[\"']");
+
   private LineCounter() {
   }
 
@@ -51,72 +69,197 @@ public final class LineCounter {
   }
 
   public static void analyse(SensorContext context, FileLinesContextFactory fileLinesContextFactory, XmlFile xmlFile) {
-    LOG.debug("Count lines in {}", xmlFile.getInputFile().uri());
-
-    Set<Integer> linesOfCode = new HashSet<>();
-    Set<Integer> commentLines = new HashSet<>();
-
-    Document document = xmlFile.getDocument();
-    visitNode(document, linesOfCode, commentLines);
-
-    xmlFile.getPrologElement().ifPresent(prologElement ->
-      addLinesRange(
-        linesOfCode,
-        prologElement.getPrologStartLocation().getStartLine(),
-        prologElement.getPrologEndLocation().getEndLine()));
+    analyse(context, fileLinesContextFactory, xmlFile.getInputFile(), FileSnapshot.of(xmlFile));
+  }
 
-    FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(xmlFile.getInputFile());
-    linesOfCode.forEach(lineOfCode -> fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, lineOfCode, 1));
-    fileLinesContext.save();
+  public static void analyse(SensorContext context, FileLinesContextFactory fileLinesContextFactory, InputFile inputFile, FileSnapshot snapshot) {
+    LOG.debug("Count lines in {}", inputFile.uri());
+    XmlTokens tokens = snapshot.tokens();
+    LineIndex lines = snapshot.lines();
+    Set<String> expandedEntities = expandedEntities(tokens);
+    List<Supplier<Lines>> tasks = new ArrayList<>();
+    forEachRange(tokens, (start, end, depth) -> tasks.add(() -> new Lines().count(tokens, lines, expandedEntities, start, end, depth)));
+    Lines counted = new Lines();
+    ParallelTraversal.invokeAll(tasks).forEach(counted::merge);
+    save(context, fileLinesContextFactory, inputFile, counted.linesOfCode.stream(), counted.linesOfCode.cardinality(),
+      counted.commentLines.cardinality());
+  }
 
-    saveMeasure(context, xmlFile.getInputFile(), CoreMetrics.COMMENT_LINES, commentLines.size());
-    saveMeasure(context, xmlFile.getInputFile(), CoreMetrics.NCLOC, linesOfCode.size());
+  /**
+   * @return the general entities whose references are expanded by the parser: the predefined ones and the internal ones,
+   * declared in the internal subset of the document type declaration. Without such declaration, references to other
+   * entities make the file malformed, and null is returned.
+   */
+  @CheckForNull
+  private static Set<String> expandedEntities(XmlTokens tokens) {
+    for (int i = tokens.documentStart(); i < tokens.size(); i++) {
+      XmlTokenType type = tokens.type(i);
+      if (type == XmlTokenType.DOCTYPE) {
+        Set<String> entities = new HashSet<>(PREDEFINED_ENTITIES);
+        Matcher matcher = INTERNAL_ENTITY_DECLARATION.matcher(tokens.content()).region(tokens.start(i), tokens.end(i));
+        while (matcher.find()) {
+          entities.add(matcher.group(1));
+        }
+        return entities;
+      }
+      if (type == XmlTokenType.START_TAG) {
+        return null;
+      }
+    }
+    return null;
+  }
 
+  /**
+   * Same as {@link LineIndex#forEachNotEmptyLine(CharSequence, int, int, int, IntConsumer)}, the references to the
+   * entities which are not expanded being empty, as they are dropped from the document.
+   */
+  private static void forEachNotEmptyLine(String content, int from, int to, int firstLine, Set<String> expandedEntities, IntConsumer action) {
+    int line = firstLine;
+    boolean empty = true;
+    for (int i = from; i < to; i++) {
+      char c = content.charAt(i);
+      if (c == '\n' || c == '\r') {
+        if (!empty) {
+          action.accept(line);
+        }
+        if (c == '\r' && i + 1 < to && content.charAt(i + 1) == '\n') {
+          i++;
+        }
+        line++;
+        empty = true;
+      } else if (c == '&') {
+        int referenceEnd = content.indexOf(';', i);
+        if (referenceEnd != -1 && referenceEnd < to && content.charAt(i + 1) != '#'
+          && !expandedEntities.contains(content.substring(i + 1, referenceEnd))) {
+          i = referenceEnd;
+        } else {
+          empty = false;
+        }
+      } else if (c > ' ') {
+        empty = false;
+      }
+    }
+    if (!empty) {
+      action.accept(line);
+    }
   }
 
-  private static void visitNode(Node node, Set<Integer> linesOfCode, Set<Integer> commentLines) {
-    XmlTextRange range = XmlFile.nodeLocation(node);
-
-    switch (node.getNodeType()) {
-      case Node.ELEMENT_NODE:
-        // this will count attribute lines as well tag itself
-        addLinesRange(linesOfCode, XmlFile.startLocation((Element) node));
-        addLinesRange(linesOfCode, XmlFile.endLocation((Element) node));
-        break;
-      case Node.COMMENT_NODE:
-        addNotEmptyLines(commentLines, node.getTextContent(), range);
-        break;
-      case Node.TEXT_NODE, Node.CDATA_SECTION_NODE:
-        addNotEmptyLines(linesOfCode, node.getTextContent(), range);
-        break;
-      case Node.DOCUMENT_TYPE_NODE:
-        addLinesRange(linesOfCode, range);
-        break;
-      default:
-        break;
+  /**
+   * Splits the tokens of the document into ranges of consecutive tokens which can be counted independently, when the
+   * traversal of the file is {@link ParallelTraversal split}. Ranges never start in the middle of a tag.
+   */
+  private static void forEachRange(XmlTokens tokens, TokenRangeConsumer action) {
+    int rangeStart = tokens.documentStart();
+    if (!ParallelTraversal.isEnabled() || tokens.size() - rangeStart < 2 * ParallelTraversal.MIN_TASK_SIZE) {
+      action.accept(rangeStart, tokens.size(), 0);
+      return;
+    }
+    int rangeDepth = 0;
+    int depth = 0;
+    for (int i = rangeStart; i < tokens.size(); i++) {
+      if (i - rangeStart >= ParallelTraversal.MIN_TASK_SIZE) {
+        action.accept(rangeStart, i, rangeDepth);
+        rangeStart = i;
+        rangeDepth = depth;
+      }
+      XmlTokenType type = tokens.type(i);
+      if (type == XmlTokenType.PROLOG_START || type == XmlTokenType.START_TAG) {
+        int tagEnd = tokens.tagEnd(i);
+        if (type == XmlTokenType.START_TAG && tokens.type(tagEnd) == XmlTokenType.TAG_END) {
+          depth++;
+        }
+        i = tagEnd;
+      } else if (type == XmlTokenType.END_TAG) {
+        depth = Math.max(0, depth - 1);
+      }
     }
+    action.accept(rangeStart, tokens.size(), rangeDepth);
+  }
 
-    XmlFile.children(node).forEach(child -> visitNode(child, linesOfCode, commentLines));
+  @FunctionalInterface
+  private interface TokenRangeConsumer {
+    void accept(int start, int end, int depth);
   }
 
-  private static void addNotEmptyLines(Set<Integer> set, String text, XmlTextRange fullTextRange) {
-    int lineNumber = fullTextRange.getStartLine();
-    for (String line : splitLines(text)) {
-      if (!line.trim().isEmpty()) {
-        set.add(lineNumber);
+  /**
+   * Lines of code and comment lines of a range of tokens.
+   */
+  private static final class Lines {
+
+    private final BitSet linesOfCode = new BitSet();
+    private final BitSet commentLines = new BitSet();
+
+    /**
+     * @param expandedEntities entities whose references are expanded by the parser, null when all references are
+     * @param firstDepth number of elements enclosing the first token
+     */
+    private Lines count(XmlTokens tokens, LineIndex lines, @Nullable Set<String> expandedEntities, int from, int to, int firstDepth) {
+      String content = tokens.content();
+      // number of elements enclosing the current token, whose text is only code inside the root element
+      int depth = firstDepth;
+      int i = from;
+      while (i < to) {
+        int start = tokens.start(i);
+        switch (tokens.type(i)) {
+          case PROLOG_START, START_TAG:
+            int tagEnd = tokens.tagEnd(i);
+            if (tokens.type(i) == XmlTokenType.START_TAG && tokens.type(tagEnd) == XmlTokenType.TAG_END) {
+              depth++;
+            }
+            addLinesRange(linesOfCode, lines, start, tokens.end(tagEnd));
+            i = tagEnd;
+            break;
+          case END_TAG:
+            depth = Math.max(0, depth - 1);
+            addLinesRange(linesOfCode, lines, start, tokens.end(i));
+            break;
+          case DOCTYPE:
+            addLinesRange(linesOfCode, lines, start, tokens.end(i));
+            break;
+          case COMMENT:
+            LineIndex.forEachNotEmptyLine(content, tokens.commentValueStart(i), tokens.commentValueEnd(i), lines.lineOf(start), commentLines::set);
+            break;
+          case TEXT:
+            if (depth > 0) {
+              addTextLines(tokens, lines, expandedEntities, i);
+            }
+            break;
+          default:
+            break;
+        }
+        i++;
       }
-      lineNumber++;
+      return this;
     }
-  }
 
-  private static void addLinesRange(Set<Integer> set, int start, int end) {
-    for (int line = start; line <= end; line++) {
-      set.add(line);
+    private void addTextLines(XmlTokens tokens, LineIndex lines, @Nullable Set<String> expandedEntities, int index) {
+      int start = tokens.start(index);
+      // the content of a CDATA section has no entity references
+      if (expandedEntities == null || (index > 0 && tokens.type(index - 1) == XmlTokenType.CDATA_START)) {
+        LineIndex.forEachNotEmptyLine(tokens.content(), start, tokens.end(index), lines.lineOf(start), linesOfCode::set);
+      } else {
+        forEachNotEmptyLine(tokens.content(), start, tokens.end(index), lines.lineOf(start), expandedEntities, linesOfCode::set);
+      }
+    }
+
+    private void merge(Lines other) {
+      linesOfCode.or(other.linesOfCode);
+      commentLines.or(other.commentLines);
     }
   }
 
-  private static void addLinesRange(Set<Integer> set, XmlTextRange range) {
-    addLinesRange(set, range.getStartLine(), range.getEndLine());
+  private static void addLinesRange(BitSet lines, LineIndex lineIndex, int startOffset, int endOffset) {
+    lines.set(lineIndex.lineOf(startOffset), lineIndex.lineOf(endOffset) + 1);
+  }
+
+  static void save(SensorContext context, FileLinesContextFactory fileLinesContextFactory, InputFile inputFile, IntStream linesOfCode,
+    int linesOfCodeCount, int commentLinesCount) {
+    FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(inputFile);
+    linesOfCode.forEach(lineOfCode -> fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, lineOfCode, 1));
+    fileLinesContext.save();
+
+    saveMeasure(context, inputFile, CoreMetrics.COMMENT_LINES, commentLinesCount);
+    saveMeasure(context, inputFile, CoreMetrics.NCLOC, linesOfCodeCount);
   }
 
 }
@@ -0,0 +1,268 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import javax.annotation.Nullable;
+
+/**
+ * Lines of the content of a file, computed in a single scan of its characters, so that the checks and metrics working
+ * on lines do not split the content into strings.
+ * <p>
+ * Lines are numbered from 1 and end at "\r\n", "\n" or "\r", as when splitting the content with
+ * {@code (\r)?\n|\r}. Offsets are indexes in the content, and line terminators are not part of the lines. Blank
+ * characters are the ones matched by {@code \s} in regular expressions.
+ * <p>
+ * The index of a file is built once and shared by all its users through its {@link FileSnapshot}. The characters of the
+ * content are only copied into an array when they are searched with the Vector API, see {@link TextScanner#best()}.
+ */
+public final class LineIndex {
+
+  private final String content;
+  @Nullable
+  private final char[] chars;
+  private final TextScanner scanner;
+  private int lineCount = 0;
+  private int[] lineStarts;
+  private int[] lineEnds;
+  private int[] trimmedEnds;
+  private int[] firstNonBlanks;
+
+  private LineIndex(String content, TextScanner scanner) {
+    this.content = content;
+    this.chars = scanner == TextScanner.scalar() ? null : content.toCharArray();
+    this.scanner = scanner;
+    int capacity = content.length() / 32 + 1;
+    lineStarts = new int[capacity];
+    lineEnds = new int[capacity];
+    trimmedEnds = new int[capacity];
+    firstNonBlanks = new int[capacity];
+    scan();
+  }
+
+  public static LineIndex of(String content) {
+    return new LineIndex(content, TextScanner.best());
+  }
+
+  /**
+   * Index built with the given scanner instead of the best one.
+   */
+  public static LineIndex of(String content, TextScanner scanner) {
+    return new LineIndex(content, scanner);
+  }
+
+  /**
+   * Line breaks are searched by the scanner, only the blank characters at the edges of the lines are then compared one
+   * by one.
+   */
+  private void scan() {
+    int length = content.length();
+    int lineStart = 0;
+    while (true) {
+      int lineEnd = indexOfLineBreak(lineStart, length);
+      int firstNonBlank = lineStart;
+      while (firstNonBlank < lineEnd && isBlank(content.charAt(firstNonBlank))) {
+        firstNonBlank++;
+      }
+      int trimmedEnd = lineEnd;
+      while (trimmedEnd > firstNonBlank && isBlank(content.charAt(trimmedEnd - 1))) {
+        trimmedEnd--;
+      }
+      addLine(lineStart, lineEnd, firstNonBlank, trimmedEnd);
+      if (lineEnd == length) {
+        return;
+      }
+      lineStart = lineEnd + 1;
+      if (content.charAt(lineEnd) == '\r' && lineStart < length && content.charAt(lineStart) == '\n') {
+        lineStart++;
+      }
+    }
+  }
+
+  private int indexOfLineBreak(int from, int to) {
+    return chars == null ? ScalarTextScanner.indexOfLineBreak(content, from, to) : scanner.indexOfLineBreak(chars, from, to);
+  }
+
+  private void addLine(int start, int end, int firstNonBlank, int trimmedEnd) {
+    if (lineCount == lineStarts.length) {
+      int capacity = lineCount * 2;
+      lineStarts = Arrays.copyOf(lineStarts, capacity);
+      lineEnds = Arrays.copyOf(lineEnds, capacity);
+      trimmedEnds = Arrays.copyOf(trimmedEnds, capacity);
+      firstNonBlanks = Arrays.copyOf(firstNonBlanks, capacity);
+    }
+    lineStarts[lineCount] = start;
+    lineEnds[lineCount] = end;
+    boolean blank = firstNonBlank == end;
+    firstNonBlanks[lineCount] = firstNonBlank;
+    trimmedEnds[lineCount] = blank ? start : trimmedEnd;
+    lineCount++;
+  }
+
+  /**
+   * Same characters as "\\s" in regular expressions, line terminators aside.
+   */
+  private static boolean isBlank(char c) {
+    return c == ' ' || c == '\t' || c == '\u000B' || c == '\f';
+  }
+
+  public String content() {
+    return content;
+  }
+
+  public int lineCount() {
+    return lineCount;
+  }
+
+  public int lineStart(int line) {
+    return lineStarts[line - 1];
+  }
+
+  /**
+   * @return the offset of the line terminator of the line, or the length of the content for the last line
+   */
+  public int lineEnd(int line) {
+    return lineEnds[line - 1];
+  }
+
+  public int lineLength(int line) {
+    return lineEnds[line - 1] - lineStarts[line - 1];
+  }
+
+  /**
+   * @return the offset following the last non-blank character of the line, or its start when it is blank
+   */
+  public int trimmedEnd(int line) {
+    return trimmedEnds[line - 1];
+  }
+
+  /**
+   * @return the offset of the first non-blank character of the line, or its end when it is blank
+   */
+  public int firstNonBlank(int line) {
+    return firstNonBlanks[line - 1];
+  }
+
+  public boolean isBlank(int line) {
+    return firstNonBlanks[line - 1] == lineEnds[line - 1];
+  }
+
+  /**
+   * @return the number of the line containing the given offset, the line terminators being part of the line they end
+   */
+  public int lineOf(int offset) {
+    int index = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+    return index >= 0 ? (index + 1) : -(index + 1);
+  }
+
+  /**
+   * @return the offset of the first occurrence of the character in {@code [from, to)}, or {@code to}
+   */
+  public int indexOf(char c, int from, int to) {
+    return chars == null ? ScalarTextScanner.indexOf(content, c, from, to) : scanner.indexOf(chars, c, from, to);
+  }
+
+  /**
+   * @return the offset of the first character which is not the given one in {@code [from, to)}, or {@code to}
+   */
+  public int indexOfOther(char c, int from, int to) {
+    return chars == null ? ScalarTextScanner.indexOfOther(content, c, from, to) : scanner.indexOfOther(chars, c, from, to);
+  }
+
+  /**
+   * @return a view of the text of the lines, to be {@link LineText#moveTo(int) moved} to each of them
+   */
+  public LineText newLineText() {
+    return new LineText();
+  }
+
+  /**
+   * Calls the given action with the number of each line of the text which is not empty once trimmed, as by
+   * {@link String#trim()}, the first line having the given number.
+   */
+  public static void forEachNotEmptyLine(CharSequence text, int firstLine, IntConsumer action) {
+    forEachNotEmptyLine(text, 0, text.length(), firstLine, action);
+  }
+
+  /**
+   * Same as {@link #forEachNotEmptyLine(CharSequence, int, IntConsumer)} on the characters of the text in {@code [from, to)}.
+   */
+  public static void forEachNotEmptyLine(CharSequence text, int from, int to, int firstLine, IntConsumer action) {
+    int line = firstLine;
+    boolean empty = true;
+    for (int i = from; i < to; i++) {
+      char c = text.charAt(i);
+      if (c == '\n' || c == '\r') {
+        if (!empty) {
+          action.accept(line);
+        }
+        if (c == '\r' && i + 1 < to && text.charAt(i + 1) == '\n') {
+          i++;
+        }
+        line++;
+        empty = true;
+      } else if (c > ' ') {
+        empty = false;
+      }
+    }
+    if (!empty) {
+      action.accept(line);
+    }
+  }
+
+  /**
+   * Reusable view of the text of a line of the content, which does not copy it.
+   */
+  public final class LineText implements CharSequence {
+
+    private int start;
+    private int end;
+
+    private LineText() {
+    }
+
+    /**
+     * Makes this view show the text of the given line, without its terminator.
+     */
+    public LineText moveTo(int line) {
+      start = lineStart(line);
+      end = lineEnd(line);
+      return this;
+    }
+
+    @Override
+    public int length() {
+      return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return content.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int subStart, int subEnd) {
+      return content.subSequence(start + subStart, start + subEnd);
+    }
+
+    @Override
+    public String toString() {
+      return content.substring(start, end);
+    }
+  }
+}
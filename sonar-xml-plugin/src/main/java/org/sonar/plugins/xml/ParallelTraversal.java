@@ -0,0 +1,162 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.plugins.xml.checks.AnalysisDeadline;
+
+/**
+ * Splits the traversal of a large file into fork-join tasks, each of them working on consecutive subtrees of its
+ * {@link XmlTree tree}, or on consecutive tokens of its {@link XmlTokens tokens}.
+ * <p>
+ * Tasks run on the pool {@link #enter(ForkJoinPool) entered} by the analysis of the file, and share its deadline. Without
+ * pool, the traversal is not split. Results of the tasks are returned in the order of the subtrees or of the tokens they
+ * worked on, so that merging them gives the same result whatever the number of threads running them.
+ */
+public final class ParallelTraversal {
+
+  /**
+   * Minimum number of nodes or tokens handled by a task.
+   */
+  public static final int MIN_TASK_SIZE = 16_384;
+
+  private static final ThreadLocal<ForkJoinPool> POOL = new ThreadLocal<>();
+
+  private ParallelTraversal() {
+  }
+
+  /**
+   * Makes the given pool the one running the tasks split by the current thread, until the returned scope is closed. A null
+   * pool disables splitting.
+   */
+  public static Scope enter(@Nullable ForkJoinPool pool) {
+    ForkJoinPool previous = POOL.get();
+    POOL.set(pool);
+    return () -> POOL.set(previous);
+  }
+
+  /**
+   * @return whether traversals split by the current thread run concurrently
+   */
+  public static boolean isEnabled() {
+    return POOL.get() != null;
+  }
+
+  /**
+   * @return whether the children of the given node are numerous enough to be split into several tasks
+   */
+  public static boolean isWorthSplitting(XmlTree tree, int node) {
+    return isEnabled() && tree.subtreeEnd(node) - node >= 2 * MIN_TASK_SIZE;
+  }
+
+  /**
+   * Splits the children of the given node into ranges of consecutive children, for work which is local to subtrees. A range
+   * only starts at a child accepted by the given predicate, once the previous range has at least {@link #MIN_TASK_SIZE}
+   * nodes.
+   *
+   * @param task computes the result of the nodes from its first given node, a child of the node, to its second one,
+   *             excluded, which follows the last descendant of the last child of the range
+   * @return the results of the ranges, in document order, or null when the children are not split, so that the caller
+   * goes on with its own traversal of the children
+   */
+  @CheckForNull
+  public static <R> List<R> mapChildren(XmlTree tree, int node, IntPredicate canStartRange, RangeTask<R> task) {
+    if (!isWorthSplitting(tree, node)) {
+      return null;
+    }
+    List<Supplier<R>> tasks = new ArrayList<>();
+    int rangeStart = tree.firstChild(node);
+    for (int child = tree.nextSibling(rangeStart); child != -1; child = tree.nextSibling(child)) {
+      if (child - rangeStart >= MIN_TASK_SIZE && canStartRange.test(child)) {
+        tasks.add(supplier(task, rangeStart, child));
+        rangeStart = child;
+      }
+    }
+    if (tasks.isEmpty()) {
+      return null;
+    }
+    tasks.add(supplier(task, rangeStart, tree.subtreeEnd(node)));
+    return invokeAll(tasks);
+  }
+
+  /**
+   * Splits all the nodes of the tree into ranges of consecutive nodes, in document order, for work which is local to each
+   * node.
+   *
+   * @param task computes the result of the nodes from its first given node to its second one, excluded
+   * @return the results of the ranges, in document order
+   */
+  public static <R> List<R> mapNodes(XmlTree tree, RangeTask<R> task) {
+    if (!isEnabled() || tree.size() < 2 * MIN_TASK_SIZE) {
+      return List.of(task.apply(0, tree.size()));
+    }
+    List<Supplier<R>> tasks = new ArrayList<>();
+    for (int start = 0; start < tree.size(); start += MIN_TASK_SIZE) {
+      tasks.add(supplier(task, start, Math.min(start + MIN_TASK_SIZE, tree.size())));
+    }
+    return invokeAll(tasks);
+  }
+
+  private static <R> Supplier<R> supplier(RangeTask<R> task, int start, int end) {
+    return () -> task.apply(start, end);
+  }
+
+  /**
+   * Runs the given tasks on the entered pool, or one after the other on the current thread without pool.
+   *
+   * @return the results of the tasks, in the order of the tasks
+   */
+  @SuppressWarnings("try")
+  public static <R> List<R> invokeAll(List<Supplier<R>> tasks) {
+    ForkJoinPool pool = POOL.get();
+    if (pool == null || tasks.size() < 2) {
+      return tasks.stream().map(Supplier::get).toList();
+    }
+    AnalysisDeadline deadline = AnalysisDeadline.ofCurrentThread();
+    List<ForkJoinTask<R>> forkedTasks = tasks.stream()
+      .map(task -> ForkJoinTask.adapt(() -> {
+        try (Scope poolScope = enter(pool); AnalysisDeadline.Scope deadlineScope = deadline.share()) {
+          return task.get();
+        }
+      }))
+      .toList();
+    if (ForkJoinTask.getPool() == pool) {
+      ForkJoinTask.invokeAll(forkedTasks);
+    } else {
+      pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(forkedTasks)));
+    }
+    return forkedTasks.stream().map(ForkJoinTask::join).toList();
+  }
+
+  @FunctionalInterface
+  public interface RangeTask<R> {
+    R apply(int start, int end);
+  }
+
+  @FunctionalInterface
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
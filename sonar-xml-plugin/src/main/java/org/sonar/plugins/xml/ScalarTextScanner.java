@@ -0,0 +1,92 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+final class ScalarTextScanner extends TextScanner {
+
+  static final ScalarTextScanner INSTANCE = new ScalarTextScanner();
+
+  private ScalarTextScanner() {
+  }
+
+  @Override
+  public int indexOfLineBreak(char[] chars, int from, int to) {
+    for (int i = from; i < to; i++) {
+      char c = chars[i];
+      if (c == '\n' || c == '\r') {
+        return i;
+      }
+    }
+    return to;
+  }
+
+  @Override
+  public int indexOf(char[] chars, char c, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (chars[i] == c) {
+        return i;
+      }
+    }
+    return to;
+  }
+
+  @Override
+  public int indexOfOther(char[] chars, char c, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (chars[i] != c) {
+        return i;
+      }
+    }
+    return to;
+  }
+
+  /**
+   * Same as {@link #indexOfLineBreak(char[], int, int)} on the characters of a string, which are then not copied.
+   */
+  static int indexOfLineBreak(String text, int from, int to) {
+    for (int i = from; i < to; i++) {
+      char c = text.charAt(i);
+      if (c == '\n' || c == '\r') {
+        return i;
+      }
+    }
+    return to;
+  }
+
+  static int indexOf(String text, char c, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (text.charAt(i) == c) {
+        return i;
+      }
+    }
+    return to;
+  }
+
+  static int indexOfOther(String text, char c, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (text.charAt(i) != c) {
+        return i;
+      }
+    }
+    return to;
+  }
+
+  @Override
+  public String toString() {
+    return "scalar";
+  }
+}
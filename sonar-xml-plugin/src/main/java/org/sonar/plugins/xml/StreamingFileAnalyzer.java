@@ -0,0 +1,388 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.io.BufferedReader;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import org.codehaus.stax2.LocationInfo;
+import org.codehaus.stax2.XMLStreamReader2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.TextRange;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.issue.NewIssue;
+import org.sonar.api.batch.sensor.issue.NewIssueLocation;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.xml.checks.StreamingXmlCheck;
+import org.sonar.plugins.xml.checks.StreamingXmlCheck.IssueReporter;
+import org.sonarsource.analyzer.commons.xml.ParseException;
+import org.sonarsource.analyzer.commons.xml.SafeStaxParserFactory;
+import org.sonarsource.analyzer.commons.xml.XmlTextRange;
+
+/**
+ * Analyzes a file with {@link StreamingXmlCheck streaming checks}, in a single pass over its content and without building
+ * its document, so that memory does not grow with the size of the file.
+ * <p>
+ * The characters read from the file are split into lines for the text channel, while the StAX reader consumes them for
+ * the event channel. As done by the DOM parser, characters located before the XML declaration are skipped for the StAX
+ * reader; the declaration is only looked for in the first characters of the file.
+ */
+final class StreamingFileAnalyzer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StreamingFileAnalyzer.class);
+
+  private static final char BOM = '\uFEFF';
+  private static final String XML_DECLARATION_START = "<?xml";
+  private static final String XML_DECLARATION_END = "?>";
+  /**
+   * Number of characters in which the XML declaration is looked for.
+   */
+  private static final int HEAD_SIZE = 64 * 1024;
+
+  private final List<Visitor> visitors = new ArrayList<>();
+  private final InputFile inputFile;
+
+  private StreamingFileAnalyzer(InputFile inputFile) {
+    this.inputFile = inputFile;
+  }
+
+  /**
+   * @throws ParseException when the file is not well-formed
+   */
+  static void analyze(SensorContext context, InputFile inputFile, List<CheckDispatcher.DispatchedCheck> checks,
+    @Nullable StreamingLineCounter lineCounter) throws IOException {
+    StreamingFileAnalyzer analyzer = new StreamingFileAnalyzer(inputFile);
+    for (CheckDispatcher.DispatchedCheck check : checks) {
+      analyzer.add((StreamingXmlCheck) check.check(), check.ruleKey(), issueReporter(context, inputFile, check.ruleKey()));
+    }
+    if (lineCounter != null) {
+      analyzer.add(lineCounter, null, (range, message, secondaryLocations) -> {
+        // no issue
+      });
+    }
+    try {
+      analyzer.analyze();
+    } catch (XMLStreamException e) {
+      throw new ParseException(e);
+    }
+  }
+
+  private void add(StreamingXmlCheck check, @Nullable RuleKey ruleKey, IssueReporter reporter) {
+    Visitor visitor = new Visitor(check, ruleKey);
+    visitors.add(visitor);
+    visitor.startStream(reporter);
+  }
+
+  private void analyze() throws IOException, XMLStreamException {
+    try (PushbackReader reader = new PushbackReader(new InputStreamReader(inputFile.inputStream(), inputFile.charset()))) {
+      int firstCharacter = reader.read();
+      if (firstCharacter != -1 && firstCharacter != BOM) {
+        reader.unread(firstCharacter);
+      }
+      LineSplittingReader lines = new LineSplittingReader(reader);
+      BufferedReader content = new BufferedReader(lines, HEAD_SIZE);
+      XmlTextRange declaration = skipToXmlDeclaration(content);
+      int startLine = declaration == null ? 1 : declaration.getStartLine();
+      int startColumn = declaration == null ? 0 : declaration.getStartColumn();
+
+      XMLStreamReader2 xmlReader = (XMLStreamReader2) SafeStaxParserFactory.createXMLInputFactory().createXMLStreamReader(content);
+      try {
+        if (declaration != null) {
+          visitEvent(xmlReader, declaration);
+        }
+        XmlTextRange emptyElementStart = null;
+        while (xmlReader.hasNext()) {
+          int event = xmlReader.next();
+          if (event == XMLStreamConstants.END_DOCUMENT) {
+            break;
+          }
+          XmlTextRange range;
+          if (event == XMLStreamConstants.END_ELEMENT && emptyElementStart != null) {
+            range = emptyElementStart;
+            emptyElementStart = null;
+          } else {
+            range = range(xmlReader.getLocationInfo(), startLine, startColumn);
+            if (event == XMLStreamConstants.START_ELEMENT && xmlReader.isEmptyElement()) {
+              emptyElementStart = range;
+            }
+          }
+          visitEvent(xmlReader, range);
+        }
+      } finally {
+        xmlReader.close();
+      }
+      // the reader may stop before the end of the file, which is still visited as text
+      while (content.skip(HEAD_SIZE) > 0) {
+        // characters are consumed by the line splitter
+      }
+      lines.finish();
+    }
+    visitors.forEach(Visitor::endStream);
+  }
+
+  private void visitEvent(XMLStreamReader2 xmlReader, XmlTextRange range) {
+    for (Visitor visitor : visitors) {
+      visitor.visitEvent(xmlReader, range);
+    }
+  }
+
+  /**
+   * When the head of the file contains the XML declaration, skips the characters located before it.
+   *
+   * @return the location of the XML declaration, if any
+   */
+  @CheckForNull
+  private static XmlTextRange skipToXmlDeclaration(BufferedReader content) throws IOException {
+    content.mark(HEAD_SIZE);
+    char[] head = new char[HEAD_SIZE];
+    int length = 0;
+    int read;
+    while (length < HEAD_SIZE && (read = content.read(head, length, HEAD_SIZE - length)) != -1) {
+      length += read;
+    }
+    content.reset();
+    String headText = new String(head, 0, length);
+    int start = headText.indexOf(XML_DECLARATION_START);
+    if (start == -1) {
+      return null;
+    }
+    int end = headText.indexOf(XML_DECLARATION_END, start);
+    end = end == -1 ? (start + XML_DECLARATION_START.length()) : (end + XML_DECLARATION_END.length());
+    content.skip(start);
+    int[] startPosition = position(headText, 0, start, 1, 0);
+    int[] endPosition = position(headText, start, end, startPosition[0], startPosition[1]);
+    return new XmlTextRange(startPosition[0], startPosition[1], endPosition[0], endPosition[1]);
+  }
+
+  /**
+   * Line and column reached after the given characters, from the given line and column.
+   */
+  private static int[] position(String text, int start, int end, int startLine, int startColumn) {
+    int line = startLine;
+    int column = startColumn;
+    for (int i = start; i < end; i++) {
+      char c = text.charAt(i);
+      if (c == '\n' && i > 0 && text.charAt(i - 1) == '\r') {
+        continue;
+      }
+      if (c == '\n' || c == '\r') {
+        line++;
+        column = 0;
+      } else {
+        column++;
+      }
+    }
+    return new int[] {line, column};
+  }
+
+  /**
+   * Locations of the reader are relative to the start of its input, and their columns start at 1.
+   */
+  private static XmlTextRange range(LocationInfo locationInfo, int startLine, int startColumn) throws XMLStreamException {
+    Location start = locationInfo.getStartLocation();
+    Location end = locationInfo.getEndLocation();
+    return new XmlTextRange(line(start, startLine), column(start, startColumn), line(end, startLine), column(end, startColumn));
+  }
+
+  private static int line(Location location, int startLine) {
+    return startLine + location.getLineNumber() - 1;
+  }
+
+  private static int column(Location location, int startColumn) {
+    return (location.getLineNumber() == 1 ? startColumn : 0) + location.getColumnNumber() - 1;
+  }
+
+  static IssueReporter issueReporter(SensorContext context, InputFile inputFile, RuleKey ruleKey) {
+    return (range, message, secondaryLocations) -> {
+      NewIssue issue = context.newIssue();
+      issue.forRule(ruleKey).at(location(issue, inputFile, range, message));
+      secondaryLocations.forEach(secondaryLocation -> issue.addLocation(location(issue, inputFile, secondaryLocation.range(), secondaryLocation.message())));
+      issue.save();
+    };
+  }
+
+  private static NewIssueLocation location(NewIssue issue, InputFile inputFile, XmlTextRange range, @Nullable String message) {
+    TextRange textRange = inputFile.newRange(range.getStartLine(), range.getStartColumn(), range.getEndLine(), range.getEndColumn());
+    NewIssueLocation location = issue.newLocation().on(inputFile).at(textRange);
+    if (message != null) {
+      location.message(message);
+    }
+    return location;
+  }
+
+  /**
+   * Isolates the failures of each check: a failing check is not visited anymore, while the others go on.
+   */
+  private final class Visitor {
+
+    private final StreamingXmlCheck check;
+    @Nullable
+    private final RuleKey ruleKey;
+    private boolean failed = false;
+
+    private Visitor(StreamingXmlCheck check, @Nullable RuleKey ruleKey) {
+      this.check = check;
+      this.ruleKey = ruleKey;
+    }
+
+    private void startStream(IssueReporter reporter) {
+      try {
+        check.startStream(reporter);
+      } catch (RuntimeException e) {
+        fail(e);
+      }
+    }
+
+    private void visitText(int line, int column, CharSequence text) {
+      if (!failed) {
+        try {
+          check.visitText(line, column, text);
+        } catch (RuntimeException e) {
+          fail(e);
+        }
+      }
+    }
+
+    private void visitEndOfLine(int line, int length) {
+      if (!failed) {
+        try {
+          check.visitEndOfLine(line, length);
+        } catch (RuntimeException e) {
+          fail(e);
+        }
+      }
+    }
+
+    private void visitEvent(XMLStreamReader2 reader, XmlTextRange range) {
+      if (!failed) {
+        try {
+          check.visitEvent(reader, range);
+        } catch (RuntimeException e) {
+          fail(e);
+        }
+      }
+    }
+
+    private void endStream() {
+      if (!failed) {
+        try {
+          check.endStream();
+        } catch (RuntimeException e) {
+          fail(e);
+        }
+      }
+    }
+
+    private void fail(RuntimeException e) {
+      failed = true;
+      if (ruleKey == null) {
+        throw e;
+      }
+      LOG.error("Unable to execute rule {} on {}", ruleKey, inputFile.uri(), e);
+    }
+  }
+
+  /**
+   * Splits the characters read through it into lines, visited by the text channel of the checks.
+   */
+  private final class LineSplittingReader extends FilterReader {
+
+    private int line = 1;
+    private int column = 0;
+    private boolean previousIsCarriageReturn = false;
+
+    private LineSplittingReader(Reader in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      char[] buffer = new char[1];
+      return read(buffer, 0, 1) == -1 ? -1 : buffer[0];
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+      int read = super.read(buffer, offset, length);
+      if (read > 0) {
+        split(buffer, offset, offset + read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      char[] buffer = new char[(int) Math.min(n, 8192)];
+      int read = read(buffer, 0, buffer.length);
+      return Math.max(read, 0);
+    }
+
+    private void split(char[] buffer, int start, int end) {
+      int textStart = start;
+      for (int i = start; i < end; i++) {
+        char c = buffer[i];
+        if (c == '\n' || c == '\r') {
+          visitText(buffer, textStart, i);
+          if (c == '\r' || !previousIsCarriageReturn) {
+            endLine();
+          }
+          textStart = i + 1;
+        }
+        previousIsCarriageReturn = c == '\r';
+      }
+      visitText(buffer, textStart, end);
+    }
+
+    private void visitText(char[] buffer, int start, int end) {
+      if (start < end) {
+        CharSequence text = CharBuffer.wrap(buffer, start, end - start);
+        for (Visitor visitor : visitors) {
+          visitor.visitText(line, column, text);
+        }
+        column += end - start;
+      }
+    }
+
+    private void endLine() {
+      for (Visitor visitor : visitors) {
+        visitor.visitEndOfLine(line, column);
+      }
+      line++;
+      column = 0;
+    }
+
+    /**
+     * Ends the last line of the file, which has no line terminator.
+     */
+    private void finish() {
+      endLine();
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.util.BitSet;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.plugins.xml.checks.StreamingXmlCheck;
+import org.sonarsource.analyzer.commons.xml.XmlTextRange;
+
+/**
+ * Counts the lines of code and the comment lines of a streamed file, the same way {@link LineCounter} does from its tokens.
+ */
+final class StreamingLineCounter implements StreamingXmlCheck {
+
+  private final BitSet linesOfCode = new BitSet();
+  private final BitSet commentLines = new BitSet();
+
+  @Override
+  public void startStream(IssueReporter reporter) {
+    linesOfCode.clear();
+    commentLines.clear();
+  }
+
+  @Override
+  public void visitEvent(XMLStreamReader reader, XmlTextRange range) {
+    switch (reader.getEventType()) {
+      case XMLStreamConstants.START_DOCUMENT, XMLStreamConstants.START_ELEMENT, XMLStreamConstants.END_ELEMENT, XMLStreamConstants.DTD:
+        linesOfCode.set(range.getStartLine(), range.getEndLine() + 1);
+        break;
+      case XMLStreamConstants.COMMENT:
+        addNotEmptyLines(commentLines, reader, range.getStartLine());
+        break;
+      case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA:
+        addNotEmptyLines(linesOfCode, reader, range.getStartLine());
+        break;
+      default:
+        break;
+    }
+  }
+
+  private static void addNotEmptyLines(BitSet lines, XMLStreamReader reader, int startLine) {
+    char[] text = reader.getTextCharacters();
+    int end = reader.getTextStart() + reader.getTextLength();
+    int line = startLine;
+    boolean previousIsCarriageReturn = false;
+    for (int i = reader.getTextStart(); i < end; i++) {
+      char c = text[i];
+      if (c == '\n') {
+        if (!previousIsCarriageReturn) {
+          line++;
+        }
+      } else if (c == '\r') {
+        line++;
+      } else if (c > ' ') {
+        // same as String.trim()
+        lines.set(line);
+      }
+      previousIsCarriageReturn = c == '\r';
+    }
+  }
+
+  void save(SensorContext context, FileLinesContextFactory fileLinesContextFactory, InputFile inputFile) {
+    LineCounter.save(context, fileLinesContextFactory, inputFile, linesOfCode.stream(), linesOfCode.cardinality(), commentLines.cardinality());
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Searches of characters in the content of a file, which dominate the analysis of the lines of big files.
+ * <p>
+ * Two implementations are available: a scalar loop, and one comparing many characters at a time with the Vector API.
+ * The Vector API is still an incubating module of the JDK, only available when the JVM of the scanner is started with
+ * {@code --add-modules jdk.incubator.vector}: the {@link #best()} implementation falls back to the scalar loop otherwise.
+ * The vectorized implementation is compiled separately from the rest of the plugin, from {@code src/main/java-vector},
+ * only with the {@code vector} Maven profile, and loaded by reflection: it is not available in the default build.
+ * <p>
+ * Searches are done in the range of indexes {@code [from, to)} of the given characters, and return {@code to} when no
+ * character is found.
+ */
+public abstract class TextScanner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TextScanner.class);
+
+  static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+  private static final String VECTOR_SCANNER_CLASS = "org.sonar.plugins.xml.VectorTextScanner";
+
+  TextScanner() {
+    // only implemented by this package
+  }
+
+  /**
+   * @return the index of the first '\n' or '\r'
+   */
+  public abstract int indexOfLineBreak(char[] chars, int from, int to);
+
+  public abstract int indexOf(char[] chars, char c, int from, int to);
+
+  /**
+   * @return the index of the first character which is not the given one
+   */
+  public abstract int indexOfOther(char[] chars, char c, int from, int to);
+
+  public static TextScanner scalar() {
+    return ScalarTextScanner.INSTANCE;
+  }
+
+  /**
+   * @return the implementation based on the Vector API, or null when the module of the Vector API is not available
+   */
+  @CheckForNull
+  public static TextScanner vectorized() {
+    if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+      return null;
+    }
+    try {
+      return Class.forName(VECTOR_SCANNER_CLASS).asSubclass(TextScanner.class).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      LOG.debug("The Vector API cannot be used to scan XML files: {}", e.toString());
+      return null;
+    }
+  }
+
+  /**
+   * @return the vectorized implementation when it is available, the scalar one otherwise
+   */
+  public static TextScanner best() {
+    return Best.INSTANCE;
+  }
+
+  private static final class Best {
+
+    private static final TextScanner INSTANCE = create();
+
+    private static TextScanner create() {
+      TextScanner vectorized = vectorized();
+      if (vectorized != null) {
+        LOG.debug("XML files are scanned with the Vector API, {}", vectorized);
+        return vectorized;
+      }
+      return scalar();
+    }
+  }
+}
@@ -25,10 +25,6 @@ public class Utils {
     // utility class, forbidden constructor
   }
 
-  public static String[] splitLines(String text) {
-    return text.split("(\r)?\n|\r", -1);
-  }
-
   /**
    * Check if element is self closing: &lt;foo ... /&gt;
    *
@@ -45,6 +45,12 @@ public class Xml extends AbstractLanguage {
   public static final String SONAR_WAY_PROFILE_NAME = "Sonar way";
   public static final String SONAR_WAY_PATH = "org/sonar/l10n/xml/rules/xml/Sonar_way_profile.json";
 
+  /**
+   * Names of the .NET application configuration files, as declared by the checks applying to them.
+   */
+  public static final String WEB_CONFIG = "web.config";
+  public static final String MACHINE_CONFIG = "machine.config";
+
   private Configuration configuration;
 
   /**
@@ -85,7 +91,7 @@ public class Xml extends AbstractLanguage {
 
   public static boolean isDotNetApplicationConfig(InputFile inputFile) {
     String filename = inputFile.filename();
-    return "web.config".equalsIgnoreCase(filename) || "machine.config".equalsIgnoreCase(filename);
+    return WEB_CONFIG.equalsIgnoreCase(filename) || MACHINE_CONFIG.equalsIgnoreCase(filename);
   }
 
 }
@@ -0,0 +1,46 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.io.IOException;
+import java.util.Set;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.plugins.xml.checks.Representation;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+
+/**
+ * Creates the {@link XmlFile} of an input file, building the representations which are needed upfront.
+ * <p>
+ * {@link XmlFile#create(InputFile)}, the only public way to create a file, always parses it into its namespace-aware
+ * document. The namespace-unaware document is otherwise parsed on first access: it is built here when needed, so that
+ * checks running concurrently on the file do not build it lazily.
+ * <p>
+ * Files whose checks do not need a document are not created at all in SonarLint, see {@link CheckDispatcher#needsDocument}.
+ */
+final class XmlFileFactory {
+
+  private XmlFileFactory() {
+  }
+
+  static XmlFile create(InputFile inputFile, Set<Representation> representations) throws IOException {
+    XmlFile xmlFile = XmlFile.create(inputFile);
+    if (representations.contains(Representation.NAMESPACE_UNAWARE_DOM)) {
+      xmlFile.getNamespaceUnawareDocument();
+    }
+    return xmlFile;
+  }
+}
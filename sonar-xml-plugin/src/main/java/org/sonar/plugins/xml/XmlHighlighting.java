@@ -16,120 +16,127 @@
  */
 package org.sonar.plugins.xml;
 
-import java.util.ArrayList;
-import java.util.List;
+import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
 import org.sonar.api.batch.sensor.highlighting.TypeOfText;
-import org.sonarsource.analyzer.commons.xml.PrologElement;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
-import org.sonarsource.analyzer.commons.xml.XmlTextRange;
-import org.w3c.dom.Attr;
-import org.w3c.dom.CDATASection;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import static org.sonar.plugins.xml.Utils.isSelfClosing;
 
+/**
+ * Highlighting of a file computed from the {@link XmlTokens tokens} of its text, so that it neither needs the document of
+ * the file nor the file to be well-formed.
+ * <p>
+ * The name of an attribute is highlighted up to its "=", and the end of a tag from the end of the preceding name or
+ * attribute value, as when the highlighting was computed from the locations of the nodes of the document.
+ */
 public class XmlHighlighting {
 
-  private final XmlFile xmlFile;
-  private NewHighlighting highlighting;
-
-  private XmlHighlighting(XmlFile xmlFile) {
-    this.xmlFile = xmlFile;
+  private final NewHighlighting highlighting;
+  private final LineIndex lines;
+  /**
+   * Offset of the first character of the first line, which follows the byte order mark, if any.
+   */
+  private final int contentStart;
+  private int line = 1;
+  /**
+   * End of the name of the current tag or of the last value of its attributes.
+   */
+  private int lastEnd = 0;
+  /**
+   * Start of the name of the last attribute, when it is not followed by "=" yet.
+   */
+  private int attributeNameStart = -1;
+  private int attributeNameEnd = -1;
+
+  private XmlHighlighting(NewHighlighting highlighting, LineIndex lines) {
+    this.highlighting = highlighting;
+    this.lines = lines;
+    String content = lines.content();
+    this.contentStart = !content.isEmpty() && content.charAt(0) == XmlLexer.BOM ? 1 : 0;
   }
 
   public static void highlight(SensorContext context, XmlFile xmlFile) {
-    new XmlHighlighting(xmlFile).highlight(context);
+    highlight(context, xmlFile.getInputFile(), FileSnapshot.of(xmlFile));
   }
 
-  private void highlight(SensorContext context) {
-    highlighting = context.newHighlighting().onFile(xmlFile.getInputFile());
-    xmlFile.getPrologElement().ifPresent(this::highlightProlog);
-    children(xmlFile.getDocument()).forEach(this::highlightNode);
+  public static void highlight(SensorContext context, InputFile inputFile, FileSnapshot snapshot) {
+    NewHighlighting highlighting = context.newHighlighting().onFile(inputFile);
+    XmlHighlighting xmlHighlighting = new XmlHighlighting(highlighting, snapshot.lines());
+    XmlTokens tokens = snapshot.tokens();
+    for (int i = 0; i < tokens.size(); i++) {
+      xmlHighlighting.highlight(tokens.type(i), tokens.start(i), tokens.end(i));
+    }
+    xmlHighlighting.endAttributeName();
     highlighting.save();
   }
 
-  private void highlightNode(Node node) {
-    switch (node.getNodeType()) {
-      case Node.ELEMENT_NODE:
-        highlightElementNode(node);
+  private void highlight(XmlTokenType type, int start, int end) {
+    if (type != XmlTokenType.EQUALS) {
+      endAttributeName();
+    }
+    switch (type) {
+      case PROLOG_START, START_TAG:
+        addHighlighting(start, end, TypeOfText.KEYWORD);
+        lastEnd = end;
+        break;
+      case ATTRIBUTE_NAME:
+        attributeNameStart = start;
+        attributeNameEnd = end;
+        lastEnd = end;
         break;
-      case Node.CDATA_SECTION_NODE:
-        addHighlighting(XmlFile.startLocation((CDATASection) node), TypeOfText.KEYWORD);
-        addHighlighting(XmlFile.endLocation((CDATASection) node), TypeOfText.KEYWORD);
+      case EQUALS:
+        if (attributeNameStart >= 0) {
+          addHighlighting(attributeNameStart, start, TypeOfText.CONSTANT);
+          attributeNameStart = -1;
+        }
         break;
-      case Node.COMMENT_NODE, Node.DOCUMENT_TYPE_NODE:
-        addHighlighting(XmlFile.nodeLocation(node), TypeOfText.STRUCTURED_COMMENT);
+      case ATTRIBUTE_VALUE:
+        addHighlighting(start, end, TypeOfText.STRING);
+        lastEnd = end;
+        break;
+      case TAG_END, EMPTY_TAG_END:
+        // '>' and '/>', with the blanks preceding them
+        addHighlighting(lastEnd, end, TypeOfText.KEYWORD);
+        break;
+      case PROLOG_END, END_TAG, CDATA_START, CDATA_END:
+        addHighlighting(start, end, TypeOfText.KEYWORD);
+        break;
+      case COMMENT, DOCTYPE:
+        addHighlighting(start, end, TypeOfText.STRUCTURED_COMMENT);
         break;
       default:
         break;
     }
   }
 
-  private void highlightElementNode(Node node) {
-    XmlTextRange nameLocation = XmlFile.nameLocation((Element) node);
-    XmlTextRange startLocation = XmlFile.startLocation((Element) node);
-    XmlTextRange endLocation = XmlFile.endLocation((Element) node);
-
-    // <foo
-    addHighlighting(new XmlTextRange(startLocation, nameLocation), TypeOfText.KEYWORD);
-
-    NamedNodeMap attributes = node.getAttributes();
-    XmlTextRange lastLocation = nameLocation;
-    for (int i = 0; i < attributes.getLength(); i++) {
-      Attr attribute = (Attr) attributes.item(i);
-      addHighlighting(XmlFile.attributeNameLocation(attribute), TypeOfText.CONSTANT);
-      XmlTextRange valueLocation = XmlFile.attributeValueLocation(attribute);
-      addHighlighting(valueLocation, TypeOfText.STRING);
-      lastLocation = valueLocation;
-    }
-
-    // self-closing element <foo ... />
-    if (isSelfClosing((Element) node)) {
-      XmlTextRange textRange = new XmlTextRange(lastLocation.getEndLine(), lastLocation.getEndColumn(), endLocation.getEndLine(), endLocation.getEndColumn());
-      // '/>'
-      addHighlighting(textRange, TypeOfText.KEYWORD);
-    } else {
-      // simple element <foo> </foo>
-      XmlTextRange textRange = new XmlTextRange(lastLocation.getEndLine(), lastLocation.getEndColumn(), startLocation.getEndLine(), startLocation.getEndColumn());
-      // '>'
-      addHighlighting(textRange, TypeOfText.KEYWORD);
-      children(node).forEach(this::highlightNode);
-      // '</foo>'
-      addHighlighting(endLocation, TypeOfText.KEYWORD);
+  /**
+   * An attribute without value is highlighted up to the end of its name.
+   */
+  private void endAttributeName() {
+    if (attributeNameStart >= 0) {
+      addHighlighting(attributeNameStart, attributeNameEnd, TypeOfText.CONSTANT);
+      attributeNameStart = -1;
     }
   }
 
-  private static List<Node> children(Node node) {
-    NodeList childNodes = node.getChildNodes();
-    List<Node> result = new ArrayList<>();
-    for (int i = 0; i < childNodes.getLength(); i++) {
-      result.add(childNodes.item(i));
-    }
-
-    return result;
+  /**
+   * Offsets are highlighted in increasing order, so that their lines are found by moving forward in the lines.
+   */
+  private void addHighlighting(int start, int end, TypeOfText typeOfText) {
+    int startLine = lineOf(start);
+    int startColumn = start - lineStart(startLine);
+    int endLine = lineOf(end);
+    highlighting.highlight(startLine, startColumn, endLine, end - lineStart(endLine), typeOfText);
   }
 
-  private void highlightProlog(PrologElement prologElement) {
-    addHighlighting(prologElement.getPrologStartLocation(), TypeOfText.KEYWORD);
-
-    prologElement.getAttributes().forEach(prologAttribute -> {
-      addHighlighting(prologAttribute.getNameLocation(), TypeOfText.CONSTANT);
-      addHighlighting(prologAttribute.getValueLocation(), TypeOfText.STRING);
-    });
-
-    addHighlighting(prologElement.getPrologEndLocation(), TypeOfText.KEYWORD);
+  private int lineOf(int offset) {
+    while (line < lines.lineCount() && lines.lineStart(line + 1) <= offset) {
+      line++;
+    }
+    return line;
   }
 
-  private void addHighlighting(XmlTextRange textRange, TypeOfText typeOfText) {
-    highlighting.highlight(
-      textRange.getStartLine(),
-      textRange.getStartColumn(),
-      textRange.getEndLine(),
-      textRange.getEndColumn(),
-      typeOfText);
+  private int lineStart(int lineNumber) {
+    return lineNumber == 1 ? contentStart : lines.lineStart(lineNumber);
   }
 }
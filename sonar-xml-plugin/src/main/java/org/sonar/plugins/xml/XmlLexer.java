@@ -0,0 +1,308 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+/**
+ * Hand-written tokenizer of the text of an XML file, which scans it once and does not need it to be well-formed.
+ * <p>
+ * Tokens are reported with their offsets in the text, in order, and cover all of its markup: characters which cannot be
+ * part of a token, such as the blanks between attributes, are skipped. Unterminated comments, CDATA sections, processing
+ * instructions and attribute values extend to the end of the text, while an unterminated tag ends at the next "&lt;".
+ * A "&lt;" which does not start any markup is part of the text.
+ */
+public final class XmlLexer {
+
+  static final char BOM = '\uFEFF';
+  private static final String PROLOG_START = "<?xml";
+  private static final String COMMENT_START = "<!--";
+  private static final String COMMENT_END = "-->";
+  private static final String CDATA_START = "<![CDATA[";
+  private static final String CDATA_END = "]]>";
+  private static final String DOCTYPE_START = "<!DOCTYPE";
+  private static final String PROCESSING_INSTRUCTION_END = "?>";
+
+  private final String content;
+  private final int length;
+  private final TokenHandler handler;
+  private int position;
+
+  private XmlLexer(String content, TokenHandler handler) {
+    this.content = content;
+    this.length = content.length();
+    this.handler = handler;
+  }
+
+  /**
+   * Reports the tokens of the given text to the handler. A leading byte order mark is not part of any token.
+   */
+  public static void tokenize(String content, TokenHandler handler) {
+    new XmlLexer(content, handler).tokenize();
+  }
+
+  private void tokenize() {
+    position = !content.isEmpty() && content.charAt(0) == BOM ? 1 : 0;
+    int textStart = position;
+    while (position < length) {
+      int markupStart = content.indexOf('<', position);
+      if (markupStart < 0) {
+        break;
+      }
+      if (isMarkupStart(markupStart)) {
+        emit(XmlTokenType.TEXT, textStart, markupStart);
+        position = markupStart;
+        markup();
+        textStart = position;
+      } else {
+        position = markupStart + 1;
+      }
+    }
+    emit(XmlTokenType.TEXT, textStart, length);
+  }
+
+  private boolean isMarkupStart(int offset) {
+    if (offset + 1 == length) {
+      return false;
+    }
+    char c = content.charAt(offset + 1);
+    switch (c) {
+      case '?':
+        return true;
+      case '!':
+        return content.startsWith(COMMENT_START, offset) || content.startsWith(CDATA_START, offset) || content.startsWith(DOCTYPE_START, offset);
+      case '/':
+        return offset + 2 < length && isNameStart(content.charAt(offset + 2));
+      default:
+        return isNameStart(c);
+    }
+  }
+
+  private void markup() {
+    char c = content.charAt(position + 1);
+    if (c == '?') {
+      processingInstruction();
+    } else if (c == '/') {
+      endTag();
+    } else if (c != '!') {
+      startTag();
+    } else if (content.startsWith(COMMENT_START, position)) {
+      comment();
+    } else if (content.startsWith(CDATA_START, position)) {
+      cdata();
+    } else {
+      doctype();
+    }
+  }
+
+  private void processingInstruction() {
+    int start = position;
+    if (content.startsWith(PROLOG_START, start) && (start + PROLOG_START.length() == length || isPrologNameEnd(content.charAt(start + PROLOG_START.length())))) {
+      position = start + PROLOG_START.length();
+      emit(XmlTokenType.PROLOG_START, start, position);
+      tagContent(true);
+      return;
+    }
+    position = endOf(PROCESSING_INSTRUCTION_END, start + 2);
+    emit(XmlTokenType.PROCESSING_INSTRUCTION, start, position);
+  }
+
+  private static boolean isPrologNameEnd(char c) {
+    return isWhitespace(c) || c == '?';
+  }
+
+  private void startTag() {
+    int start = position;
+    position = nameEnd(start + 1);
+    emit(XmlTokenType.START_TAG, start, position);
+    tagContent(false);
+  }
+
+  /**
+   * Attributes of a start tag or of the XML declaration, followed by the end of the tag. Unexpected characters are skipped.
+   */
+  private void tagContent(boolean prolog) {
+    while (true) {
+      attributes();
+      if (position == length) {
+        return;
+      }
+      char c = content.charAt(position);
+      if (c == '<') {
+        return;
+      }
+      if (prolog && content.startsWith(PROCESSING_INSTRUCTION_END, position)) {
+        emitAndSkip(XmlTokenType.PROLOG_END, PROCESSING_INSTRUCTION_END.length());
+        return;
+      }
+      if (!prolog && c == '>') {
+        emitAndSkip(XmlTokenType.TAG_END, 1);
+        return;
+      }
+      if (!prolog && c == '/' && position + 1 < length && content.charAt(position + 1) == '>') {
+        emitAndSkip(XmlTokenType.EMPTY_TAG_END, 2);
+        return;
+      }
+      position++;
+    }
+  }
+
+  private void attributes() {
+    while (true) {
+      skipWhitespaces();
+      if (position == length || !isNameChar(content.charAt(position))) {
+        return;
+      }
+      int nameStart = position;
+      position = nameEnd(nameStart);
+      emit(XmlTokenType.ATTRIBUTE_NAME, nameStart, position);
+      skipWhitespaces();
+      if (position < length && content.charAt(position) == '=') {
+        emitAndSkip(XmlTokenType.EQUALS, 1);
+        skipWhitespaces();
+        if (position < length && isQuote(content.charAt(position))) {
+          int valueStart = position;
+          int closingQuote = content.indexOf(content.charAt(valueStart), valueStart + 1);
+          position = closingQuote < 0 ? length : (closingQuote + 1);
+          emit(XmlTokenType.ATTRIBUTE_VALUE, valueStart, position);
+        }
+      }
+    }
+  }
+
+  private void endTag() {
+    int start = position;
+    int end = start + 2;
+    while (end < length && content.charAt(end) != '>' && content.charAt(end) != '<') {
+      end++;
+    }
+    position = end < length && content.charAt(end) == '>' ? (end + 1) : end;
+    emit(XmlTokenType.END_TAG, start, position);
+  }
+
+  private void comment() {
+    int start = position;
+    position = endOf(COMMENT_END, start + COMMENT_START.length());
+    emit(XmlTokenType.COMMENT, start, position);
+  }
+
+  private void cdata() {
+    int start = position;
+    int contentStart = start + CDATA_START.length();
+    emit(XmlTokenType.CDATA_START, start, contentStart);
+    int contentEnd = content.indexOf(CDATA_END, contentStart);
+    if (contentEnd < 0) {
+      emit(XmlTokenType.TEXT, contentStart, length);
+      position = length;
+      return;
+    }
+    emit(XmlTokenType.TEXT, contentStart, contentEnd);
+    position = contentEnd + CDATA_END.length();
+    emit(XmlTokenType.CDATA_END, contentEnd, position);
+  }
+
+  /**
+   * The declaration ends at the first "&gt;" outside of its internal subset, of quoted strings and of comments.
+   */
+  private void doctype() {
+    int start = position;
+    int offset = start + DOCTYPE_START.length();
+    int subsetDepth = 0;
+    while (offset < length) {
+      char c = content.charAt(offset);
+      if (c == '>' && subsetDepth == 0) {
+        offset++;
+        break;
+      }
+      if (isQuote(c)) {
+        int closingQuote = content.indexOf(c, offset + 1);
+        offset = closingQuote < 0 ? length : (closingQuote + 1);
+      } else if (c == '<' && content.startsWith(COMMENT_START, offset)) {
+        offset = endOf(COMMENT_END, offset + COMMENT_START.length());
+      } else {
+        if (c == '[') {
+          subsetDepth++;
+        } else if (c == ']' && subsetDepth > 0) {
+          subsetDepth--;
+        }
+        offset++;
+      }
+    }
+    position = offset;
+    emit(XmlTokenType.DOCTYPE, start, position);
+  }
+
+  /**
+   * @return the offset following the first occurrence of the delimiter from the given offset, or the end of the text
+   */
+  private int endOf(String delimiter, int from) {
+    int index = content.indexOf(delimiter, from);
+    return index < 0 ? length : (index + delimiter.length());
+  }
+
+  private int nameEnd(int from) {
+    int end = from;
+    while (end < length && isNameChar(content.charAt(end))) {
+      end++;
+    }
+    return end;
+  }
+
+  private void skipWhitespaces() {
+    while (position < length && isWhitespace(content.charAt(position))) {
+      position++;
+    }
+  }
+
+  private void emitAndSkip(XmlTokenType type, int tokenLength) {
+    int start = position;
+    position += tokenLength;
+    handler.token(type, start, position);
+  }
+
+  private void emit(XmlTokenType type, int start, int end) {
+    if (start < end) {
+      handler.token(type, start, end);
+    }
+  }
+
+  private static boolean isNameStart(char c) {
+    return Character.isLetter(c) || c == '_' || c == ':';
+  }
+
+  /**
+   * Names are not validated: they end at the first character which cannot follow them in a tag.
+   */
+  private static boolean isNameChar(char c) {
+    return !isWhitespace(c) && c != '<' && c != '>' && c != '/' && c != '?' && c != '=' && !isQuote(c);
+  }
+
+  private static boolean isQuote(char c) {
+    return c == '"' || c == '\'';
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\n' || c == '\t' || c == '\r';
+  }
+
+  @FunctionalInterface
+  public interface TokenHandler {
+    /**
+     * @param start offset of the first character of the token
+     * @param end offset following the last character of the token
+     */
+    void token(XmlTokenType type, int start, int end);
+  }
+}
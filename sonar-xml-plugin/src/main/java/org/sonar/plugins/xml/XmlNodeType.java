@@ -0,0 +1,51 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+/**
+ * Kinds of the nodes of an {@link XmlTree}.
+ */
+public enum XmlNodeType {
+  /**
+   * Whole content of the file, from its XML declaration if any.
+   */
+  DOCUMENT,
+  /**
+   * Document type declaration, internal subset included.
+   */
+  DOCTYPE,
+  /**
+   * Element, from the "&lt;" of its start tag to the "&gt;" of its end tag.
+   */
+  ELEMENT,
+  /**
+   * Characters of an element outside of markup.
+   */
+  TEXT,
+  /**
+   * CDATA section, from "&lt;![CDATA[" to "]]&gt;".
+   */
+  CDATA,
+  /**
+   * Comment, from "&lt;!--" to "--&gt;".
+   */
+  COMMENT,
+  /**
+   * Processing instruction other than the XML declaration, from "&lt;?" to "?&gt;".
+   */
+  PROCESSING_INSTRUCTION
+}
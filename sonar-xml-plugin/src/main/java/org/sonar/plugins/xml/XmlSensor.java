@@ -16,11 +16,27 @@
  */
 package org.sonar.plugins.xml;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.net.URI;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.SonarProduct;
@@ -36,11 +52,16 @@ import org.sonar.api.batch.sensor.SensorDescriptor;
 import org.sonar.api.batch.sensor.issue.NewIssue;
 import org.sonar.api.batch.sensor.issue.NewIssueLocation;
 import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.api.notifications.AnalysisWarnings;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.Version;
+import org.sonar.plugins.xml.checks.AnalysisDeadline;
 import org.sonar.plugins.xml.checks.CheckList;
+import org.sonar.plugins.xml.checks.DocumentVisitor;
+import org.sonar.plugins.xml.checks.DocumentWalker;
 import org.sonar.plugins.xml.checks.ParsingErrorCheck;
-import org.sonarsource.analyzer.commons.ProgressReport;
+import org.sonar.plugins.xml.checks.StreamingXmlCheck;
+import org.sonar.plugins.xml.checks.XPathCheck;
 import org.sonarsource.analyzer.commons.xml.ParseException;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
@@ -51,17 +72,91 @@ public class XmlSensor implements Sensor {
 
   private static final RuleKey PARSING_ERROR_RULE_KEY = RuleKey.of(Xml.REPOSITORY_KEY, ParsingErrorCheck.RULE_KEY);
 
+  /**
+   * Number of threads used to analyze files. Analysis is sequential unless a value greater than 1 is configured.
+   */
+  public static final String ANALYSIS_THREADS_KEY = "sonar.xml.analysis.threads";
+
+  /**
+   * Number of files which can be queued for each analysis thread, bounding the results kept in memory before being saved.
+   */
+  private static final int PENDING_FILES_PER_THREAD = 2;
+
+  /**
+   * Number of files read ahead of the analysis, to overlap I/O with parsing and checks. Disabled by default.
+   */
+  public static final String PREFETCH_FILES_KEY = "sonar.xml.prefetch.files";
+
+  /**
+   * Maximum number of bytes read ahead of the analysis.
+   */
+  public static final String PREFETCH_MAX_BYTES_KEY = "sonar.xml.prefetch.maxBytes";
+  private static final long DEFAULT_PREFETCH_MAX_BYTES = 64L * 1024 * 1024;
+
+  /**
+   * Size, in bytes, from which files are analyzed as streams instead of being parsed into documents, with the rules
+   * supporting it only. A negative value, the default, disables streaming.
+   */
+  public static final String STREAMING_MIN_BYTES_KEY = "sonar.xml.streaming.minBytes";
+  private static final long DEFAULT_STREAMING_MIN_BYTES = -1L;
+
+  /**
+   * Time budget, in milliseconds, of the analysis of each parsed file. The analysis of a file is abandoned when the rules
+   * polling it notice that the budget is exhausted. Disabled by default.
+   */
+  public static final String FILE_TIMEOUT_KEY = "sonar.xml.analysis.fileTimeoutMillis";
+
+  /**
+   * Time, in milliseconds, after which the progress report warns that a file is still in progress.
+   */
+  public static final String SLOW_FILE_WARNING_KEY = "sonar.xml.analysis.slowFileWarningMillis";
+  private static final long DEFAULT_SLOW_FILE_WARNING_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  /**
+   * Size, in bytes, from which the checks of a file which do not need its document run concurrently to the other ones, on
+   * a pool of threads sharing a read-only snapshot of the file. The metrics and the checks supporting it also split their
+   * traversal of such files into tasks run by the pool, see {@link ParallelTraversal}. A negative value, the default,
+   * disables it.
+   */
+  public static final String CONCURRENT_CHECKS_MIN_BYTES_KEY = "sonar.xml.concurrentChecks.minBytes";
+
+  /**
+   * Number of threads of the pool running the checks of large files concurrently. Defaults to the number of processors.
+   */
+  public static final String CONCURRENT_CHECKS_THREADS_KEY = "sonar.xml.concurrentChecks.threads";
+
+  private static final long PROGRESS_REPORT_PERIOD_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+  private final CheckFactory checkFactory;
   private final Checks<Object> checks;
+  private final CheckDispatcher checkDispatcher;
   private final boolean parsingErrorCheckEnabled;
   private final FileSystem fileSystem;
   private final FilePredicate mainFilesPredicate;
   private final SonarRuntime sonarRuntime;
   private final FileLinesContextFactory fileLinesContextFactory;
+  @Nullable
+  private final AnalysisWarnings analysisWarnings;
+  private AnalysisProfiler profiler = AnalysisProfiler.DISABLED;
+  private long fileTimeoutMillis = 0;
+  private final Queue<InputFile> timedOutFiles = new ConcurrentLinkedQueue<>();
+  private final Set<RuleKey> retiredRules = ConcurrentHashMap.newKeySet();
+  @Nullable
+  private ForkJoinPool checksPool = null;
+  private long concurrentChecksMinBytes = -1;
 
   public XmlSensor(SonarRuntime sonarRuntime, FileSystem fileSystem, CheckFactory checkFactory, FileLinesContextFactory fileLinesContextFactory) {
+    this(sonarRuntime, fileSystem, checkFactory, fileLinesContextFactory, null);
+  }
+
+  public XmlSensor(SonarRuntime sonarRuntime, FileSystem fileSystem, CheckFactory checkFactory, FileLinesContextFactory fileLinesContextFactory,
+    @Nullable AnalysisWarnings analysisWarnings) {
     this.sonarRuntime = sonarRuntime;
+    this.analysisWarnings = analysisWarnings;
     this.fileLinesContextFactory = fileLinesContextFactory;
-    this.checks = checkFactory.create(Xml.REPOSITORY_KEY).addAnnotatedChecks(CheckList.getCheckClasses());
+    this.checkFactory = checkFactory;
+    this.checks = createChecks();
+    this.checkDispatcher = CheckDispatcher.create(checks);
     this.parsingErrorCheckEnabled = this.checks.of(PARSING_ERROR_RULE_KEY) != null;
     this.fileSystem = fileSystem;
     this.mainFilesPredicate = fileSystem.predicates()
@@ -71,6 +166,10 @@ public class XmlSensor implements Sensor {
         fileSystem.predicates().doesNotMatchPathPattern("**/*.cls-meta.xml"));
   }
 
+  private Checks<Object> createChecks() {
+    return checkFactory.create(Xml.REPOSITORY_KEY).addAnnotatedChecks(CheckList.getCheckClasses());
+  }
+
   @Override
   public void execute(SensorContext context) {
     List<InputFile> inputFiles = new ArrayList<>();
@@ -81,19 +180,56 @@ public class XmlSensor implements Sensor {
     }
 
     boolean isSonarLintContext = context.runtime().getProduct() == SonarProduct.SONARLINT;
+    profiler = AnalysisProfiler.create(context.config());
+    fileTimeoutMillis = context.config().getLong(FILE_TIMEOUT_KEY).orElse(0L);
+    concurrentChecksMinBytes = context.config().getLong(CONCURRENT_CHECKS_MIN_BYTES_KEY).orElse(-1L);
 
-    ProgressReport progressReport = new ProgressReport("Report about progress of XML Analyzer", TimeUnit.SECONDS.toMillis(10));
-    progressReport.start(inputFiles.stream().map(InputFile::toString).toList());
+    AnalysisCache cache = AnalysisCache.create(context);
+    if (context.canSkipUnchangedFiles()) {
+      skipUnchangedFiles(inputFiles, cache);
+    }
+    if (cache != null) {
+      inputFiles.removeIf(inputFile -> cache.replay(inputFile, fileLinesContextFactory));
+    }
+    List<InputFile> streamedFiles = removeStreamedFiles(context, inputFiles);
+    List<InputFile> filesWithoutDocument = isSonarLintContext ? removeFilesWithoutDocument(inputFiles) : List.of();
+    if (inputFiles.isEmpty() && streamedFiles.isEmpty() && filesWithoutDocument.isEmpty()) {
+      if (cache != null) {
+        cache.logStatistics();
+      }
+      return;
+    }
+
+    AnalysisProgressReport progressReport = new AnalysisProgressReport(PROGRESS_REPORT_PERIOD_MILLIS,
+      context.config().getLong(SLOW_FILE_WARNING_KEY).orElse(DEFAULT_SLOW_FILE_WARNING_MILLIS));
+    List<InputFile> analyzedFiles = new ArrayList<>(inputFiles);
+    analyzedFiles.addAll(streamedFiles);
+    analyzedFiles.addAll(filesWithoutDocument);
+    progressReport.start(analyzedFiles);
+
+    int threads = context.config().getInt(ANALYSIS_THREADS_KEY).orElse(1);
+    FilePrefetcher prefetcher = null;
+    checksPool = createChecksPool(context);
 
     boolean cancelled = false;
     try {
-      for (InputFile inputFile : inputFiles) {
-        if (context.isCancelled()) {
-          cancelled = true;
-          break;
-        }
-        scanFile(context, inputFile, isSonarLintContext);
-        progressReport.nextFile();
+      if (inputFiles.isEmpty()) {
+        cancelled = false;
+      } else if (AnalysisPipeline.isEnabled(context.config())) {
+        cancelled = new AnalysisPipeline(context, new PipelinedFileAnalysis(context, cache, isSonarLintContext), !isSonarLintContext, threads)
+          .analyze(inputFiles, progressReport);
+      } else {
+        // the pipeline reads files in its own stage, only the other analyses are fed by the prefetcher
+        prefetcher = createPrefetcher(context, inputFiles);
+        cancelled = threads > 1 && inputFiles.size() > 1
+          ? analyzeInParallel(context, inputFiles, isSonarLintContext, threads, prefetcher, cache, progressReport)
+          : analyzeSequentially(context, inputFiles, isSonarLintContext, prefetcher, cache, progressReport);
+      }
+      if (!cancelled) {
+        cancelled = analyzeStreams(context, streamedFiles, isSonarLintContext, cache, progressReport);
+      }
+      if (!cancelled) {
+        cancelled = analyzeWithoutDocument(context, filesWithoutDocument, cache, progressReport);
       }
     } finally {
       if (!cancelled) {
@@ -101,46 +237,539 @@ public class XmlSensor implements Sensor {
       } else {
         progressReport.cancel();
       }
+      if (prefetcher != null) {
+        prefetcher.close();
+        prefetcher.report(profiler);
+      }
+      if (checksPool != null) {
+        checksPool.shutdownNow();
+        checksPool = null;
+      }
+      if (cache != null) {
+        cache.logStatistics();
+      }
+      profiler.report();
+      reportTimedOutFiles();
+      reportRetiredRules();
+    }
+  }
+
+  /**
+   * Only changed and added files are analyzed. Cache entries of unchanged files are kept for the next analysis.
+   */
+  private static void skipUnchangedFiles(List<InputFile> inputFiles, @Nullable AnalysisCache cache) {
+    int filesCount = inputFiles.size();
+    inputFiles.removeIf(inputFile -> {
+      if (inputFile.status() != InputFile.Status.SAME) {
+        return false;
+      }
+      if (cache != null) {
+        cache.keep(inputFile);
+      }
+      return true;
+    });
+    LOG.info("Skipping {} unchanged XML file(s) out of {}", filesCount - inputFiles.size(), filesCount);
+  }
+
+  /**
+   * Removes the files which are large enough to be analyzed as streams from the given files.
+   */
+  private static List<InputFile> removeStreamedFiles(SensorContext context, List<InputFile> inputFiles) {
+    long minBytes = context.config().getLong(STREAMING_MIN_BYTES_KEY).orElse(DEFAULT_STREAMING_MIN_BYTES);
+    if (minBytes < 0) {
+      return List.of();
+    }
+    List<InputFile> streamedFiles = new ArrayList<>();
+    inputFiles.removeIf(inputFile -> {
+      if (FilePrefetcher.size(inputFile) < minBytes) {
+        return false;
+      }
+      streamedFiles.add(inputFile);
+      return true;
+    });
+    if (!streamedFiles.isEmpty()) {
+      LOG.info("Analyzing {} XML file(s) of at least {} bytes as streams: only the rules supporting it are executed on them, "
+        + "and they are not highlighted", streamedFiles.size(), minBytes);
+    }
+    return streamedFiles;
+  }
+
+  /**
+   * Removes the files whose checks do not need their document from the given files. In SonarLint, where no metrics are
+   * computed, such files are never parsed: their checks analyze their content, even when it is not well-formed.
+   */
+  private List<InputFile> removeFilesWithoutDocument(List<InputFile> inputFiles) {
+    List<InputFile> filesWithoutDocument = new ArrayList<>();
+    inputFiles.removeIf(inputFile -> {
+      if (checkDispatcher.needsDocument(inputFile)) {
+        return false;
+      }
+      filesWithoutDocument.add(inputFile);
+      return true;
+    });
+    return filesWithoutDocument;
+  }
+
+  @CheckForNull
+  private static FilePrefetcher createPrefetcher(SensorContext context, List<InputFile> inputFiles) {
+    int filesAhead = context.config().getInt(PREFETCH_FILES_KEY).orElse(0);
+    if (filesAhead <= 0) {
+      return null;
+    }
+    long maxBytesAhead = context.config().getLong(PREFETCH_MAX_BYTES_KEY).orElse(DEFAULT_PREFETCH_MAX_BYTES);
+    return new FilePrefetcher(inputFiles, filesAhead, maxBytesAhead);
+  }
+
+  @CheckForNull
+  private ForkJoinPool createChecksPool(SensorContext context) {
+    if (concurrentChecksMinBytes < 0) {
+      return null;
+    }
+    int threads = context.config().getInt(CONCURRENT_CHECKS_THREADS_KEY).orElse(Runtime.getRuntime().availableProcessors());
+    return new ForkJoinPool(Math.max(1, threads), pool -> {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName("xml-checks-" + thread.getPoolIndex());
+      return thread;
+    }, null, false);
+  }
+
+  /**
+   * @return the pool analyzing the given file concurrently, or null if the file is analyzed by the current thread only
+   */
+  @CheckForNull
+  private ForkJoinPool largeFilePool(InputFile inputFile) {
+    ForkJoinPool pool = checksPool;
+    return pool == null || FilePrefetcher.size(inputFile) < concurrentChecksMinBytes ? null : pool;
+  }
+
+  private static void awaitPrefetch(@Nullable FilePrefetcher prefetcher, int index) {
+    if (prefetcher != null) {
+      prefetcher.awaitFile(index);
+    }
+  }
+
+  private boolean analyzeSequentially(SensorContext context, List<InputFile> inputFiles, boolean isSonarLintContext,
+    @Nullable FilePrefetcher prefetcher, @Nullable AnalysisCache cache, AnalysisProgressReport progressReport) {
+    for (int i = 0; i < inputFiles.size(); i++) {
+      if (context.isCancelled()) {
+        return true;
+      }
+      awaitPrefetch(prefetcher, i);
+      InputFile inputFile = inputFiles.get(i);
+      if (cache == null && fileTimeoutMillis <= 0) {
+        scanFile(context, checkDispatcher, fileLinesContextFactory, inputFile, isSonarLintContext);
+      } else {
+        DeferredSensorContext fileContext = new DeferredSensorContext(context, true);
+        scanFile(fileContext, checkDispatcher, fileContext.deferring(fileLinesContextFactory), inputFile, isSonarLintContext);
+        saveResults(inputFile, fileContext, cache);
+      }
+      progressReport.nextFile();
     }
+    return false;
   }
 
-  private void scanFile(SensorContext context, InputFile inputFile, boolean isSonarLintContext) {
+  private boolean analyzeStreams(SensorContext context, List<InputFile> streamedFiles, boolean isSonarLintContext,
+    @Nullable AnalysisCache cache, AnalysisProgressReport progressReport) {
+    for (InputFile inputFile : streamedFiles) {
+      if (context.isCancelled()) {
+        return true;
+      }
+      DeferredSensorContext fileContext = new DeferredSensorContext(context, cache != null);
+      List<RuleKey> nonStreamingRules = checkDispatcher.nonStreamingRulesFor(inputFile);
+      if (!nonStreamingRules.isEmpty()) {
+        LOG.info("Rules not supporting streaming are not executed on {}: {}", inputFile, nonStreamingRules);
+      }
+      long start = profiler.start();
+      try {
+        StreamingLineCounter lineCounter = isSonarLintContext ? null : new StreamingLineCounter();
+        StreamingFileAnalyzer.analyze(fileContext, inputFile, checkDispatcher.streamingChecksFor(inputFile), lineCounter);
+        if (lineCounter != null) {
+          lineCounter.save(fileContext, fileContext.deferring(fileLinesContextFactory), inputFile);
+        }
+      } catch (Exception e) {
+        // as for parsed files, no result is kept when the file cannot be analyzed
+        fileContext = new DeferredSensorContext(context, cache != null);
+        handleFailure(e, fileContext, inputFile);
+      }
+      profiler.recordPhase(AnalysisProfiler.Phase.STREAM, inputFile, start);
+      saveResults(inputFile, fileContext, cache);
+      progressReport.nextFile();
+    }
+    return false;
+  }
+
+  private boolean analyzeWithoutDocument(SensorContext context, List<InputFile> inputFiles, @Nullable AnalysisCache cache,
+    AnalysisProgressReport progressReport) {
+    for (InputFile inputFile : inputFiles) {
+      if (context.isCancelled()) {
+        return true;
+      }
+      DeferredSensorContext fileContext = new DeferredSensorContext(context, cache != null);
+      scanContent(fileContext, inputFile);
+      saveResults(inputFile, fileContext, cache);
+      progressReport.nextFile();
+    }
+    return false;
+  }
+
+  /**
+   * Runs the streaming checks of the file on its content, which is not parsed. As when they visit its document, the
+   * failures of the checks are isolated.
+   */
+  @SuppressWarnings("try")
+  private void scanContent(SensorContext context, InputFile inputFile) {
+    try (AnalysisDeadline.Scope scope = newDeadline().enter()) {
+      FileSnapshot snapshot = FileSnapshot.of(inputFile.contents());
+      for (CheckDispatcher.DispatchedCheck check : checkDispatcher.streamingChecksFor(inputFile)) {
+        long start = profiler.start();
+        try {
+          ((StreamingXmlCheck) check.check()).scanContent(snapshot, StreamingFileAnalyzer.issueReporter(context, inputFile, check.ruleKey()));
+          AnalysisDeadline.checkpoint();
+        } catch (AnalysisDeadline.ExceededException e) {
+          throw e.whileExecuting(check.ruleKey().toString());
+        } catch (Exception e) {
+          logFailingRule(check.ruleKey(), inputFile.uri(), e);
+        }
+        profiler.recordRuleNanos(check.ruleKey(), inputFile, profiler.nanosSince(start));
+      }
+    } catch (Exception e) {
+      handleFailure(e, context, inputFile);
+    }
+  }
+
+  /**
+   * Files are parsed and checked on a bounded pool of worker threads, each of them owning its own instances of the checks,
+   * as checks are stateful. Results are saved by the sensor thread, in the order of the input files, so that they are
+   * identical to the ones of a sequential analysis.
+   */
+  private boolean analyzeInParallel(SensorContext context, List<InputFile> inputFiles, boolean isSonarLintContext, int threads,
+    @Nullable FilePrefetcher prefetcher, @Nullable AnalysisCache cache, AnalysisProgressReport progressReport) {
+    LOG.debug("Analyzing {} files using {} threads", inputFiles.size(), threads);
+    ThreadLocal<CheckDispatcher> workerChecks = ThreadLocal.withInitial(() -> CheckDispatcher.create(createChecks()));
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new AnalysisThreadFactory("xml-analysis"));
+    Deque<PendingFile> pendingFiles = new ArrayDeque<>();
+    int nextFile = 0;
     try {
-      XmlFile xmlFile = XmlFile.create(inputFile);
+      while (nextFile < inputFiles.size() || !pendingFiles.isEmpty()) {
+        while (nextFile < inputFiles.size() && pendingFiles.size() < threads * PENDING_FILES_PER_THREAD) {
+          awaitPrefetch(prefetcher, nextFile);
+          InputFile inputFile = inputFiles.get(nextFile);
+          nextFile++;
+          pendingFiles.add(new PendingFile(inputFile, executor.submit(() -> {
+            DeferredSensorContext fileContext = new DeferredSensorContext(context, cache != null);
+            scanFile(fileContext, workerChecks.get(), fileContext.deferring(fileLinesContextFactory), inputFile, isSonarLintContext);
+            return fileContext;
+          })));
+        }
+        if (context.isCancelled()) {
+          pendingFiles.forEach(pendingFile -> pendingFile.result().cancel(true));
+          return true;
+        }
+        PendingFile pendingFile = pendingFiles.removeFirst();
+        saveResults(pendingFile.inputFile(), awaitResult(pendingFile.result()), cache);
+        progressReport.nextFile();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return false;
+  }
+
+  private record PendingFile(InputFile inputFile, Future<DeferredSensorContext> result) {
+  }
+
+  private static void saveResults(InputFile inputFile, DeferredSensorContext fileContext, @Nullable AnalysisCache cache) {
+    fileContext.flush();
+    FileResults results = fileContext.results();
+    if (cache != null && results != null) {
+      cache.store(inputFile, results);
+    }
+  }
+
+  private static DeferredSensorContext awaitResult(Future<DeferredSensorContext> pendingFile) {
+    try {
+      return pendingFile.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("XML analysis has been interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("XML analysis failed", e.getCause());
+    }
+  }
+
+  @SuppressWarnings("try")
+  private void scanFile(SensorContext context, CheckDispatcher checks, FileLinesContextFactory fileLinesContextFactory, InputFile inputFile,
+    boolean isSonarLintContext) {
+    try (AnalysisDeadline.Scope scope = newDeadline().enter()) {
+      XmlFile xmlFile = parse(inputFile);
       if (!isSonarLintContext) {
-        LineCounter.analyse(context, fileLinesContextFactory, xmlFile);
-        XmlHighlighting.highlight(context, xmlFile);
+        computeMetrics(context, fileLinesContextFactory, xmlFile);
       }
-      runChecks(context, xmlFile);
+      runChecks(context, checks, xmlFile, newWalker(xmlFile));
     } catch (Exception e) {
-      if (e instanceof ParseException && Xml.isConfigFile(inputFile)) {
-        // it's not mandatory for a "*.config" file to have an XML format.
-        return;
+      handleFailure(e, context, inputFile);
+      if (!isSonarLintContext) {
+        highlightUnparsedFile(e, context, inputFile);
       }
-      processParseException(e, context, inputFile);
     }
   }
 
-  private void runChecks(SensorContext context, XmlFile newXmlFile) {
-    checks.all().stream()
-      .map(SonarXmlCheck.class::cast)
-      // checks.ruleKey(check) is never null because "check" is part of "checks.all()"
-      .forEach(check -> runCheck(context, check, checks.ruleKey(check), newXmlFile));
+  /**
+   * Parses the file into the representations needed by its checks. The metrics and the highlighting only need its tokens,
+   * and are only saved for well-formed files, which parsing the file into its document, always done, validates.
+   */
+  private XmlFile parse(InputFile inputFile) throws IOException {
+    long start = profiler.start();
+    try {
+      return XmlFileFactory.create(inputFile, checkDispatcher.representationsFor(inputFile));
+    } finally {
+      profiler.recordPhase(AnalysisProfiler.Phase.PARSE, inputFile, start);
+    }
   }
 
+  /**
+   * The document of a file is walked once for all the checks visiting it. Only the failures of the checks are isolated:
+   * they are logged, and the failing check is not called anymore on the file.
+   */
+  private DocumentWalker newWalker(XmlFile xmlFile) {
+    return new DocumentWalker(xmlFile.getDocument(), profiler.isEnabled())
+      .onFailure((visitor, e) -> {
+        if (!(visitor instanceof SonarXmlCheck check)) {
+          throw e;
+        }
+        if (e instanceof AnalysisDeadline.ExceededException exceeded) {
+          throw exceeded.whileExecuting(check.ruleKey().toString());
+        }
+        logFailingRule(check.ruleKey(), xmlFile.getInputFile().uri(), e);
+      });
+  }
+
+  /**
+   * The metrics and the highlighting are computed from the tokens of the file, without walking its document.
+   */
+  @SuppressWarnings("try")
+  private void computeMetrics(SensorContext context, FileLinesContextFactory fileLinesContextFactory, XmlFile xmlFile) {
+    FileSnapshot snapshot = FileSnapshot.of(xmlFile);
+    highlight(context, xmlFile.getInputFile(), snapshot);
+    long start = profiler.start();
+    try (ParallelTraversal.Scope scope = ParallelTraversal.enter(largeFilePool(xmlFile.getInputFile()))) {
+      LineCounter.analyse(context, fileLinesContextFactory, xmlFile.getInputFile(), snapshot);
+    }
+    profiler.recordPhase(AnalysisProfiler.Phase.METRICS, xmlFile.getInputFile(), start);
+  }
+
+  private void highlight(SensorContext context, InputFile inputFile, FileSnapshot snapshot) {
+    long start = profiler.start();
+    XmlHighlighting.highlight(context, inputFile, snapshot);
+    profiler.recordPhase(AnalysisProfiler.Phase.HIGHLIGHTING, inputFile, start);
+  }
+
+  /**
+   * Files which are not well-formed are still highlighted, as their highlighting does not need their document. Config
+   * files are not, as they are not required to be XML files.
+   */
+  private void highlightUnparsedFile(Exception e, SensorContext context, InputFile inputFile) {
+    if (!(e instanceof ParseException) || Xml.isConfigFile(inputFile)) {
+      return;
+    }
+    try {
+      highlight(context, inputFile, FileSnapshot.of(inputFile.contents()));
+    } catch (IOException | RuntimeException highlightingFailure) {
+      LOG.debug("Unable to highlight file {}: {}", inputFile.uri(), highlightingFailure.getMessage());
+    }
+  }
+
+  private AnalysisDeadline newDeadline() {
+    return fileTimeoutMillis > 0 ? AnalysisDeadline.ofMillis(fileTimeoutMillis) : AnalysisDeadline.none();
+  }
+
+  private void handleFailure(Exception e, SensorContext context, InputFile inputFile) {
+    if (e instanceof AnalysisDeadline.ExceededException) {
+      abandon(e, context, inputFile);
+      return;
+    }
+    if (e instanceof ParseException && Xml.isConfigFile(inputFile)) {
+      // it's not mandatory for a "*.config" file to have an XML format.
+      return;
+    }
+    processParseException(e, context, inputFile);
+  }
+
+  /**
+   * Results of a file whose analysis exceeded its time budget are dropped, as they may be partial. Files which are not
+   * analyzed with a deferred context always have an infinite budget.
+   */
+  private void abandon(Exception e, SensorContext context, InputFile inputFile) {
+    if (context instanceof DeferredSensorContext fileContext) {
+      fileContext.discard();
+    }
+    timedOutFiles.add(inputFile);
+    LOG.warn("Abandoning analysis of {}: {}", inputFile, e.getMessage());
+  }
+
+  private void reportTimedOutFiles() {
+    if (timedOutFiles.isEmpty()) {
+      return;
+    }
+    String warning = String.format("The analysis of %d XML file(s) has been abandoned, as it exceeded the time budget of %d ms set by \"%s\". "
+      + "See the analysis logs for the affected files and rules.", timedOutFiles.size(), fileTimeoutMillis, FILE_TIMEOUT_KEY);
+    LOG.warn(warning);
+    if (analysisWarnings != null) {
+      analysisWarnings.addUnique(warning);
+    }
+    timedOutFiles.clear();
+  }
+
+  /**
+   * Rules which cannot poll the deadline, such as custom XPath rules, stop running once they exceed the time budget of a
+   * file: the files analyzed next, which depend on the order of the analysis, have no issue of these rules.
+   */
+  private void reportRetiredRules() {
+    if (retiredRules.isEmpty()) {
+      return;
+    }
+    String warning = String.format("The XPath rule(s) %s exceeded the time budget of %d ms set by \"%s\", and have not been executed on the "
+      + "files analyzed afterwards. See the analysis logs for the affected files.", retiredRules.stream().map(RuleKey::toString).sorted().toList(),
+      fileTimeoutMillis, FILE_TIMEOUT_KEY);
+    LOG.warn(warning);
+    if (analysisWarnings != null) {
+      analysisWarnings.addUnique(warning);
+    }
+    retiredRules.clear();
+  }
+
+  /**
+   * Checks visiting the document register their visitors to the given walker while they scan the file, and are then
+   * called during the single walk of the document. On large files, the checks which do not need the document run
+   * concurrently, see {@link ForkedChecks}.
+   */
+  @SuppressWarnings("try")
+  private void runChecks(SensorContext context, CheckDispatcher checks, XmlFile newXmlFile, DocumentWalker walker) {
+    AnalysisDeadline.checkpoint();
+    List<CheckDispatcher.DispatchedCheck> fileChecks = checks.checksFor(newXmlFile);
+    long[] scanNanos = new long[fileChecks.size()];
+    try (ParallelTraversal.Scope traversalScope = ParallelTraversal.enter(largeFilePool(newXmlFile.getInputFile()));
+      ForkedChecks forkedChecks = forkChecks(context, fileChecks, newXmlFile, scanNanos)) {
+      SensorContext documentContext = forkedChecks.documentContext();
+      try (DocumentWalker.Scope scope = walker.collect()) {
+        for (int i = 0; i < fileChecks.size(); i++) {
+          if (!forkedChecks.isForked(i)) {
+            CheckDispatcher.DispatchedCheck check = fileChecks.get(i);
+            scanNanos[i] = runCheck(documentContext, check.check(), check.ruleKey(), newXmlFile);
+            forkedChecks.scanned(i);
+          }
+        }
+      }
+      walker.walk();
+      forkedChecks.saveResults();
+    }
+
+    for (int i = 0; i < fileChecks.size(); i++) {
+      CheckDispatcher.DispatchedCheck check = fileChecks.get(i);
+      long walkNanos = check.check() instanceof DocumentVisitor visitor ? walker.nanos(visitor) : 0L;
+      profiler.recordRuleNanos(check.ruleKey(), newXmlFile.getInputFile(), scanNanos[i] + walkNanos);
+    }
+  }
+
+  private ForkedChecks forkChecks(SensorContext context, List<CheckDispatcher.DispatchedCheck> fileChecks, XmlFile xmlFile, long[] scanNanos) {
+    ForkJoinPool pool = largeFilePool(xmlFile.getInputFile());
+    if (pool == null) {
+      return ForkedChecks.none(context, fileChecks.size());
+    }
+    return ForkedChecks.fork(pool, context, fileChecks, xmlFile, this::runCheck, scanNanos);
+  }
+
+  /**
+   * @return the time spent scanning the file, when profiling is enabled
+   */
   // Visible for testing
-  void runCheck(SensorContext context, SonarXmlCheck check, RuleKey ruleKey, XmlFile newXmlFile) {
+  long runCheck(SensorContext context, SonarXmlCheck check, RuleKey ruleKey, XmlFile newXmlFile) {
+    long start = profiler.start();
     try {
       check.scanFile(context, ruleKey, newXmlFile);
+      // rules which do not poll the deadline are abandoned as soon as they complete
+      AnalysisDeadline.checkpoint();
+    } catch (AnalysisDeadline.ExceededException e) {
+      if (check instanceof XPathCheck xPathCheck && xPathCheck.isRetired()) {
+        retiredRules.add(ruleKey);
+      }
+      throw e.whileExecuting(ruleKey.toString());
     } catch (Exception e) {
       logFailingRule(ruleKey, newXmlFile.getInputFile().uri(), e);
     }
+    return profiler.nanosSince(start);
   }
 
   private static void logFailingRule(RuleKey rule, URI fileLocation, Exception e) {
     LOG.error("Unable to execute rule {} on {}", rule, fileLocation, e);
   }
 
+  private class PipelinedFileAnalysis implements AnalysisPipeline.FileAnalysis {
+
+    private final ThreadLocal<CheckDispatcher> stageChecks = ThreadLocal.withInitial(() -> CheckDispatcher.create(createChecks()));
+    /**
+     * Deadlines of the files in the pipeline, entered by each stage working on the file.
+     */
+    private final Map<InputFile, AnalysisDeadline> deadlines = new ConcurrentHashMap<>();
+    private final SensorContext context;
+    @Nullable
+    private final AnalysisCache cache;
+    private final boolean isSonarLintContext;
+
+    private PipelinedFileAnalysis(SensorContext context, @Nullable AnalysisCache cache, boolean isSonarLintContext) {
+      this.context = context;
+      this.cache = cache;
+      this.isSonarLintContext = isSonarLintContext;
+    }
+
+    @Override
+    public DeferredSensorContext newFileContext() {
+      return new DeferredSensorContext(context, cache != null);
+    }
+
+    @Override
+    @SuppressWarnings("try")
+    public XmlFile parse(InputFile inputFile) throws IOException {
+      try (AnalysisDeadline.Scope scope = deadline(inputFile).enter()) {
+        return XmlSensor.this.parse(inputFile);
+      }
+    }
+
+    @Override
+    @SuppressWarnings("try")
+    public void computeMetrics(DeferredSensorContext fileContext, XmlFile xmlFile) {
+      try (AnalysisDeadline.Scope scope = deadline(xmlFile.getInputFile()).enter()) {
+        XmlSensor.this.computeMetrics(fileContext, fileContext.deferring(fileLinesContextFactory), xmlFile);
+      }
+    }
+
+    @Override
+    @SuppressWarnings("try")
+    public void runChecks(DeferredSensorContext fileContext, XmlFile xmlFile) {
+      try (AnalysisDeadline.Scope scope = deadline(xmlFile.getInputFile()).enter()) {
+        XmlSensor.this.runChecks(fileContext, stageChecks.get(), xmlFile, newWalker(xmlFile));
+      }
+    }
+
+    private AnalysisDeadline deadline(InputFile inputFile) {
+      return deadlines.computeIfAbsent(inputFile, key -> newDeadline());
+    }
+
+    @Override
+    public void handleFailure(DeferredSensorContext fileContext, InputFile inputFile, Exception e) {
+      XmlSensor.this.handleFailure(e, fileContext, inputFile);
+      if (!isSonarLintContext) {
+        highlightUnparsedFile(e, fileContext, inputFile);
+      }
+    }
+
+    @Override
+    public void saveResults(InputFile inputFile, DeferredSensorContext fileContext) {
+      deadlines.remove(inputFile);
+      XmlSensor.saveResults(inputFile, fileContext, cache);
+    }
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName();
@@ -0,0 +1,83 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+/**
+ * Kinds of the tokens produced by the {@link XmlLexer}.
+ */
+public enum XmlTokenType {
+  /**
+   * "&lt;?xml" of the XML declaration.
+   */
+  PROLOG_START,
+  /**
+   * "?&gt;" of the XML declaration.
+   */
+  PROLOG_END,
+  /**
+   * Processing instruction other than the XML declaration, from "&lt;?" to "?&gt;".
+   */
+  PROCESSING_INSTRUCTION,
+  /**
+   * Document type declaration, internal subset included.
+   */
+  DOCTYPE,
+  /**
+   * Comment, from "&lt;!--" to "--&gt;".
+   */
+  COMMENT,
+  /**
+   * "&lt;![CDATA[" of a CDATA section.
+   */
+  CDATA_START,
+  /**
+   * "]]&gt;" of a CDATA section.
+   */
+  CDATA_END,
+  /**
+   * "&lt;" of a start tag, followed by the name of the element.
+   */
+  START_TAG,
+  /**
+   * "&gt;" of a start tag.
+   */
+  TAG_END,
+  /**
+   * "/&gt;" of an empty element tag.
+   */
+  EMPTY_TAG_END,
+  /**
+   * End tag, from "&lt;/" to "&gt;".
+   */
+  END_TAG,
+  /**
+   * Name of an attribute, of a tag or of the XML declaration.
+   */
+  ATTRIBUTE_NAME,
+  /**
+   * "=" between the name of an attribute and its value.
+   */
+  EQUALS,
+  /**
+   * Value of an attribute, quotes included.
+   */
+  ATTRIBUTE_VALUE,
+  /**
+   * Characters outside of markup, or content of a CDATA section.
+   */
+  TEXT
+}
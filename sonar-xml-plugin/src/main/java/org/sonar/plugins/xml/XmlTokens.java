@@ -0,0 +1,199 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.util.Arrays;
+import org.sonarsource.analyzer.commons.xml.XmlTextRange;
+
+/**
+ * Tokens of the content of a file, produced by the {@link XmlLexer} in a single scan of its characters, so that the
+ * highlighting, the metrics and the checks working on the lexical structure of a file do not need its document.
+ * <p>
+ * Tokens are numbered from 0, in the order of the content. Their types and their offsets are kept in arrays of
+ * primitives, which take a dozen bytes per token.
+ * <p>
+ * As for {@link LineIndex}, the tokens of a file are built once and shared by all its users through its
+ * {@link FileSnapshot}. They keep the line index of their content, from which their locations are computed.
+ */
+public final class XmlTokens {
+
+  private static final XmlTokenType[] TYPES = XmlTokenType.values();
+  private static final int COMMENT_START_LENGTH = "<!--".length();
+  private static final String COMMENT_END = "-->";
+
+  private final String content;
+  private final LineIndex lines;
+  private int size = 0;
+  private byte[] types;
+  /**
+   * Start and end offsets of each token, one after the other.
+   */
+  private int[] offsets;
+
+  private XmlTokens(LineIndex lines) {
+    this.content = lines.content();
+    this.lines = lines;
+    int capacity = content.length() / 16 + 16;
+    types = new byte[capacity];
+    offsets = new int[capacity * 2];
+    XmlLexer.tokenize(content, this::add);
+  }
+
+  public static XmlTokens of(String content) {
+    return of(LineIndex.of(content));
+  }
+
+  static XmlTokens of(LineIndex lines) {
+    return new XmlTokens(lines);
+  }
+
+  private void add(XmlTokenType type, int start, int end) {
+    if (size == types.length) {
+      types = Arrays.copyOf(types, size * 2);
+      offsets = Arrays.copyOf(offsets, size * 4);
+    }
+    types[size] = (byte) type.ordinal();
+    offsets[2 * size] = start;
+    offsets[2 * size + 1] = end;
+    size++;
+  }
+
+  public String content() {
+    return content;
+  }
+
+  LineIndex lines() {
+    return lines;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public XmlTokenType type(int index) {
+    return TYPES[types[index]];
+  }
+
+  public int start(int index) {
+    return offsets[2 * index];
+  }
+
+  public int end(int index) {
+    return offsets[2 * index + 1];
+  }
+
+  /**
+   * @return the index of the first token of the document, which is its XML declaration if any: the characters before
+   * it are ignored when the file is parsed
+   */
+  public int documentStart() {
+    int prologStart = indexOf(XmlTokenType.PROLOG_START, 0);
+    return prologStart == -1 ? 0 : prologStart;
+  }
+
+  /**
+   * @return the index of the first token of the given type from the given index, or -1
+   */
+  public int indexOf(XmlTokenType type, int from) {
+    byte ordinal = (byte) type.ordinal();
+    for (int index = from; index < size; index++) {
+      if (types[index] == ordinal) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the index of the last token of the tag starting at the given index, which ends it or, when the tag is not
+   * terminated, is its last attribute token
+   */
+  public int tagEnd(int tagStart) {
+    int index = tagStart + 1;
+    while (index < size) {
+      switch (type(index)) {
+        case ATTRIBUTE_NAME, EQUALS, ATTRIBUTE_VALUE:
+          index++;
+          break;
+        case TAG_END, EMPTY_TAG_END, PROLOG_END:
+          return index;
+        default:
+          return index - 1;
+      }
+    }
+    return index - 1;
+  }
+
+  public String text(int index) {
+    return content.substring(start(index), end(index));
+  }
+
+  /**
+   * @return the offset following the "&lt;!--" of the comment at the given index
+   */
+  public int commentValueStart(int index) {
+    return start(index) + COMMENT_START_LENGTH;
+  }
+
+  /**
+   * @return the offset of the "--&gt;" of the comment at the given index, or its end when it is not terminated
+   */
+  public int commentValueEnd(int index) {
+    int end = end(index);
+    boolean terminated = end - COMMENT_END.length() >= commentValueStart(index) && content.startsWith(COMMENT_END, end - COMMENT_END.length());
+    return terminated ? (end - COMMENT_END.length()) : end;
+  }
+
+  /**
+   * @return the text of the comment at the given index, without its delimiters
+   */
+  public String commentValue(int index) {
+    return content.substring(commentValueStart(index), commentValueEnd(index));
+  }
+
+  public XmlTextRange textRange(int index) {
+    return textRange(start(index), end(index));
+  }
+
+  /**
+   * @return the location of the given offsets, whose columns do not count the byte order mark of the content, if any
+   */
+  public XmlTextRange textRange(int startOffset, int endOffset) {
+    return textRange(lines, startOffset, endOffset);
+  }
+
+  static XmlTextRange textRange(LineIndex lines, int startOffset, int endOffset) {
+    int startLine = lines.lineOf(startOffset);
+    int endLine = lines.lineOf(endOffset);
+    return new XmlTextRange(startLine, startOffset - lineStart(lines, startLine), endLine, endOffset - lineStart(lines, endLine));
+  }
+
+  /**
+   * @return the offset of the given column of the given line, which does not count the byte order mark of the content
+   */
+  static int offset(LineIndex lines, int line, int column) {
+    return lineStart(lines, line) + column;
+  }
+
+  private static int lineStart(LineIndex lines, int line) {
+    String content = lines.content();
+    if (line == 1 && !content.isEmpty() && content.charAt(0) == XmlLexer.BOM) {
+      return 1;
+    }
+    return lines.lineStart(line);
+  }
+}
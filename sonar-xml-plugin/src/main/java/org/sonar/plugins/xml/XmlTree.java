@@ -0,0 +1,675 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonarsource.analyzer.commons.xml.XmlTextRange;
+
+/**
+ * Read-only tree of the content of a file, built from its {@link XmlTokens tokens} without parsing it into a document.
+ * <p>
+ * Nodes are numbered in document order from the {@link #DOCUMENT document}, so that the descendants of a node are the
+ * nodes following it up to the end of its {@link #subtreeEnd(int) subtree}. Their types, links and offsets are kept in
+ * arrays of primitives, about 40 bytes per node, and their parent, children and siblings are found in constant time.
+ * Attributes are numbered the same way, in the order of their elements. Missing nodes and attributes are -1.
+ * <p>
+ * Names are the qualified names of the content, as in the namespace-unaware document, and are shared by all the nodes
+ * and attributes having them. Values are the ones of the document: line terminators are normalized, predefined entities
+ * and character references are replaced, and the whitespaces of attribute values are normalized. Other entity
+ * references are kept as they are.
+ * <p>
+ * The tree is built even when the content is not well-formed: unterminated elements end with their parent, and end tags
+ * which do not match an enclosing element are ignored. As when the file is parsed, the characters before its XML
+ * declaration are ignored.
+ * <p>
+ * A tree is never modified once built, so that it can be read by several threads. As for {@link XmlTokens}, the tree of
+ * a file is built once and shared by all its checks through its {@link FileSnapshot}. The tree keeps the line index of
+ * its content.
+ */
+public final class XmlTree {
+
+  public static final int DOCUMENT = 0;
+
+  private static final XmlNodeType[] TYPES = XmlNodeType.values();
+  private static final int MAX_REFERENCE_LENGTH = 32;
+
+  private final String content;
+  private final LineIndex lines;
+  private final int size;
+  private final byte[] types;
+  private final int[] parents;
+  private final int[] previousSiblings;
+  private final int[] lastChildren;
+  private final int[] subtreeEnds;
+  private final int[] names;
+  /**
+   * Start, value start, value end and end offsets of each node, one after the other. The value of an element is its
+   * content between its tags, the one of a comment or a CDATA section is between its delimiters, and the one of the
+   * other nodes is the whole node.
+   */
+  private final int[] offsets;
+  /**
+   * Index of the first attribute of each node, followed by the number of attributes.
+   */
+  private final int[] firstAttributes;
+  private final int[] attributeNames;
+  /**
+   * Name start, value start and value end offsets of each attribute, one after the other, the value including its quotes.
+   */
+  private final int[] attributeOffsets;
+  private final String[] nameTable;
+
+  private XmlTree(Builder builder) {
+    content = builder.content;
+    lines = builder.tokens.lines();
+    size = builder.size;
+    types = Arrays.copyOf(builder.types, size);
+    parents = Arrays.copyOf(builder.parents, size);
+    previousSiblings = Arrays.copyOf(builder.previousSiblings, size);
+    lastChildren = Arrays.copyOf(builder.lastChildren, size);
+    subtreeEnds = Arrays.copyOf(builder.subtreeEnds, size);
+    names = Arrays.copyOf(builder.names, size);
+    offsets = Arrays.copyOf(builder.offsets, size * 4);
+    firstAttributes = Arrays.copyOf(builder.firstAttributes, size + 1);
+    firstAttributes[size] = builder.attributeCount;
+    attributeNames = Arrays.copyOf(builder.attributeNames, builder.attributeCount);
+    attributeOffsets = Arrays.copyOf(builder.attributeOffsets, builder.attributeCount * 3);
+    nameTable = builder.nameTable.toArray(new String[0]);
+  }
+
+  public static XmlTree of(String content) {
+    return of(XmlTokens.of(content));
+  }
+
+  static XmlTree of(XmlTokens tokens) {
+    return new Builder(tokens).build();
+  }
+
+  public String content() {
+    return content;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public XmlNodeType type(int node) {
+    return TYPES[types[node]];
+  }
+
+  /**
+   * @return the document element, or -1 when there is none
+   */
+  public int root() {
+    for (int child = firstChild(DOCUMENT); child != -1; child = nextSibling(child)) {
+      if (types[child] == XmlNodeType.ELEMENT.ordinal()) {
+        return child;
+      }
+    }
+    return -1;
+  }
+
+  public int parent(int node) {
+    return parents[node];
+  }
+
+  public int firstChild(int node) {
+    return node + 1 < subtreeEnds[node] ? (node + 1) : -1;
+  }
+
+  public int lastChild(int node) {
+    return lastChildren[node];
+  }
+
+  public int nextSibling(int node) {
+    int parent = parents[node];
+    int next = subtreeEnds[node];
+    return parent != -1 && next < subtreeEnds[parent] ? next : -1;
+  }
+
+  public int previousSibling(int node) {
+    return previousSiblings[node];
+  }
+
+  /**
+   * @return the index following the last descendant of the node
+   */
+  public int subtreeEnd(int node) {
+    return subtreeEnds[node];
+  }
+
+  /**
+   * @return the name of the element, or null for the other nodes
+   */
+  @CheckForNull
+  public String name(int node) {
+    int name = names[node];
+    return name == -1 ? null : nameTable[name];
+  }
+
+  /**
+   * @return the name of the element without its prefix, or null for the other nodes
+   */
+  @CheckForNull
+  public String localName(int node) {
+    String name = name(node);
+    return name == null ? null : name.substring(name.indexOf(':') + 1);
+  }
+
+  /**
+   * @return the text of the node, which is the text content of its descendants for a document or an element, and the
+   * value between its delimiters for a comment or a CDATA section
+   */
+  public String text(int node) {
+    int valueStart = offsets[4 * node + 1];
+    int valueEnd = offsets[4 * node + 2];
+    return switch (type(node)) {
+      case DOCUMENT, ELEMENT -> textContent(node);
+      case TEXT -> value(valueStart, valueEnd, true, false);
+      default -> value(valueStart, valueEnd, false, false);
+    };
+  }
+
+  private String textContent(int node) {
+    StringBuilder text = new StringBuilder();
+    for (int descendant = node + 1; descendant < subtreeEnds[node]; descendant++) {
+      XmlNodeType type = type(descendant);
+      if (type == XmlNodeType.TEXT || type == XmlNodeType.CDATA) {
+        text.append(text(descendant));
+      }
+    }
+    return text.toString();
+  }
+
+  public int firstAttribute(int node) {
+    return firstAttributes[node];
+  }
+
+  /**
+   * @return the index following the last attribute of the node
+   */
+  public int attributesEnd(int node) {
+    return firstAttributes[node + 1];
+  }
+
+  /**
+   * @return the first attribute of the node with the given name, or -1
+   */
+  public int attribute(int node, String name) {
+    for (int attribute = firstAttributes[node]; attribute < firstAttributes[node + 1]; attribute++) {
+      if (nameTable[attributeNames[attribute]].equals(name)) {
+        return attribute;
+      }
+    }
+    return -1;
+  }
+
+  public String attributeName(int attribute) {
+    return nameTable[attributeNames[attribute]];
+  }
+
+  public String attributeValue(int attribute) {
+    int valueStart = attributeOffsets[3 * attribute + 1];
+    int valueEnd = attributeOffsets[3 * attribute + 2];
+    if (valueEnd - valueStart >= 2 && isQuote(content.charAt(valueStart)) && content.charAt(valueEnd - 1) == content.charAt(valueStart)) {
+      return value(valueStart + 1, valueEnd - 1, true, true);
+    }
+    return value(valueStart, valueEnd, true, true);
+  }
+
+  private static boolean isQuote(char c) {
+    return c == '"' || c == '\'';
+  }
+
+  /**
+   * @return the location of the whole node
+   */
+  public XmlTextRange nodeLocation(int node) {
+    return textRange(offsets[4 * node], offsets[4 * node + 3]);
+  }
+
+  /**
+   * @return the location of the start tag of an element, or of the whole node for the other nodes
+   */
+  public XmlTextRange startLocation(int node) {
+    if (types[node] != XmlNodeType.ELEMENT.ordinal()) {
+      return nodeLocation(node);
+    }
+    return textRange(offsets[4 * node], offsets[4 * node + 1]);
+  }
+
+  /**
+   * @return the location of the end tag of an element, which is its start tag when it has no end tag, or of the whole
+   * node for the other nodes
+   */
+  public XmlTextRange endLocation(int node) {
+    if (types[node] != XmlNodeType.ELEMENT.ordinal() || offsets[4 * node + 2] == offsets[4 * node + 3]) {
+      return startLocation(node);
+    }
+    return textRange(offsets[4 * node + 2], offsets[4 * node + 3]);
+  }
+
+  /**
+   * @return whether the element has no end tag
+   */
+  public boolean isSelfClosing(int element) {
+    return offsets[4 * element + 2] == offsets[4 * element + 3];
+  }
+
+  /**
+   * @return the location of the name of the element
+   */
+  public XmlTextRange nameLocation(int element) {
+    int nameStart = offsets[4 * element] + 1;
+    return textRange(nameStart, nameStart + nameTable[names[element]].length());
+  }
+
+  /**
+   * @return the location of the whole attribute, from its name to its value
+   */
+  public XmlTextRange attributeLocation(int attribute) {
+    return textRange(attributeOffsets[3 * attribute], attributeOffsets[3 * attribute + 2]);
+  }
+
+  public XmlTextRange attributeNameLocation(int attribute) {
+    int nameStart = attributeOffsets[3 * attribute];
+    return textRange(nameStart, nameStart + attributeName(attribute).length());
+  }
+
+  /**
+   * @return the location of the value of the attribute, quotes included
+   */
+  public XmlTextRange attributeValueLocation(int attribute) {
+    return textRange(attributeOffsets[3 * attribute + 1], attributeOffsets[3 * attribute + 2]);
+  }
+
+  /**
+   * Finds the element whose start tag has the given location, such as the element of a document located by
+   * {@link org.sonarsource.analyzer.commons.xml.XmlFile#startLocation(org.w3c.dom.Element)}.
+   *
+   * @return the element whose start tag starts where the given location starts, or -1
+   */
+  public int elementAt(XmlTextRange startLocation) {
+    if (startLocation.getStartLine() > lines.lineCount()) {
+      return -1;
+    }
+    int offset = XmlTokens.offset(lines, startLocation.getStartLine(), startLocation.getStartColumn());
+    // nodes following the document start one after the other
+    int low = 1;
+    int high = size - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int start = offsets[4 * middle];
+      if (start < offset) {
+        low = middle + 1;
+      } else if (start > offset) {
+        high = middle - 1;
+      } else {
+        return types[middle] == XmlNodeType.ELEMENT.ordinal() ? middle : -1;
+      }
+    }
+    return -1;
+  }
+
+  private XmlTextRange textRange(int startOffset, int endOffset) {
+    return XmlTokens.textRange(lines, startOffset, endOffset);
+  }
+
+  /**
+   * @return the value of the given characters, with normalized line terminators, and replaced references when
+   * required
+   */
+  private String value(int start, int end, boolean references, boolean attribute) {
+    int special = start;
+    while (special < end && !isSpecial(content.charAt(special), references, attribute)) {
+      special++;
+    }
+    if (special == end) {
+      return content.substring(start, end);
+    }
+    StringBuilder value = new StringBuilder(end - start).append(content, start, special);
+    int index = special;
+    while (index < end) {
+      char c = content.charAt(index);
+      if (c == '\r') {
+        value.append(attribute ? ' ' : '\n');
+        if (index + 1 < end && content.charAt(index + 1) == '\n') {
+          index++;
+        }
+      } else if (attribute && (c == '\n' || c == '\t')) {
+        value.append(' ');
+      } else if (references && c == '&') {
+        index = appendReference(value, index, end) - 1;
+      } else {
+        value.append(c);
+      }
+      index++;
+    }
+    return value.toString();
+  }
+
+  private static boolean isSpecial(char c, boolean references, boolean attribute) {
+    return c == '\r' || (references && c == '&') || (attribute && (c == '\n' || c == '\t'));
+  }
+
+  /**
+   * @return the offset following the reference starting at the given offset, which is appended as it is when it is not
+   * a predefined entity or a character reference
+   */
+  private int appendReference(StringBuilder value, int ampersand, int end) {
+    int semicolon = ampersand + 1;
+    int limit = Math.min(end, ampersand + MAX_REFERENCE_LENGTH);
+    while (semicolon < limit && isReferenceNameChar(content.charAt(semicolon))) {
+      semicolon++;
+    }
+    if (semicolon == limit || content.charAt(semicolon) != ';') {
+      value.append('&');
+      return ampersand + 1;
+    }
+    String name = content.substring(ampersand + 1, semicolon);
+    switch (name) {
+      case "lt" -> value.append('<');
+      case "gt" -> value.append('>');
+      case "amp" -> value.append('&');
+      case "apos" -> value.append('\'');
+      case "quot" -> value.append('"');
+      default -> {
+        int codePoint = codePoint(name);
+        if (codePoint == -1) {
+          value.append(content, ampersand, semicolon + 1);
+        } else {
+          value.appendCodePoint(codePoint);
+        }
+      }
+    }
+    return semicolon + 1;
+  }
+
+  private static boolean isReferenceNameChar(char c) {
+    return c != ';' && c != '&' && c != '<' && !Character.isWhitespace(c);
+  }
+
+  /**
+   * @return the code point of the character reference with the given name, or -1 when it is not one
+   */
+  private static int codePoint(String name) {
+    if (name.length() < 2 || name.charAt(0) != '#') {
+      return -1;
+    }
+    try {
+      int codePoint = name.charAt(1) == 'x' ? Integer.parseInt(name.substring(2), 16) : Integer.parseInt(name.substring(1));
+      return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Builds a tree from the tokens of a content, the nodes being added in document order.
+   */
+  private static final class Builder {
+
+    private final XmlTokens tokens;
+    private final String content;
+    private final Map<String, Integer> nameIndexes = new HashMap<>();
+    private final List<String> nameTable = new ArrayList<>();
+    private int size = 0;
+    private byte[] types;
+    private int[] parents;
+    private int[] previousSiblings;
+    private int[] lastChildren;
+    private int[] subtreeEnds;
+    private int[] names;
+    private int[] offsets;
+    private int[] firstAttributes;
+    private int attributeCount = 0;
+    private int[] attributeNames = new int[16];
+    private int[] attributeOffsets = new int[48];
+    /**
+     * Document and elements enclosing the next node, the document being at depth 0.
+     */
+    private int[] openNodes = new int[16];
+    private int depth = 0;
+
+    private Builder(XmlTokens tokens) {
+      this.tokens = tokens;
+      this.content = tokens.content();
+      int capacity = tokens.size() / 2 + 16;
+      types = new byte[capacity];
+      parents = new int[capacity];
+      previousSiblings = new int[capacity];
+      lastChildren = new int[capacity];
+      subtreeEnds = new int[capacity];
+      names = new int[capacity];
+      offsets = new int[capacity * 4];
+      firstAttributes = new int[capacity];
+    }
+
+    private XmlTree build() {
+      int index = tokens.documentStart();
+      int documentStart = index < tokens.size() ? tokens.start(index) : 0;
+      addNode(XmlNodeType.DOCUMENT, -1, documentStart);
+      while (index < tokens.size()) {
+        int start = tokens.start(index);
+        int end = tokens.end(index);
+        switch (tokens.type(index)) {
+          case PROLOG_START:
+            index = tokens.tagEnd(index);
+            break;
+          case DOCTYPE:
+            addLeaf(XmlNodeType.DOCTYPE, start, start, end, end);
+            break;
+          case PROCESSING_INSTRUCTION:
+            addLeaf(XmlNodeType.PROCESSING_INSTRUCTION, start, start, end, end);
+            break;
+          case COMMENT:
+            addLeaf(XmlNodeType.COMMENT, start, tokens.commentValueStart(index), tokens.commentValueEnd(index), end);
+            break;
+          case CDATA_START:
+            index = addCdata(index);
+            break;
+          case TEXT:
+            // as in the document, there is no text outside of the document element
+            if (depth > 0) {
+              addLeaf(XmlNodeType.TEXT, start, start, end, end);
+            }
+            break;
+          case START_TAG:
+            index = addElement(index);
+            break;
+          case END_TAG:
+            closeElement(index);
+            break;
+          default:
+            // stray delimiters of malformed content
+            break;
+        }
+        index++;
+      }
+      while (depth > 0) {
+        close(openNodes[depth], content.length(), content.length());
+        depth--;
+      }
+      close(DOCUMENT, content.length(), content.length());
+      return new XmlTree(this);
+    }
+
+    private int addNode(XmlNodeType type, int name, int start) {
+      if (size == types.length) {
+        int capacity = size * 2;
+        types = Arrays.copyOf(types, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        previousSiblings = Arrays.copyOf(previousSiblings, capacity);
+        lastChildren = Arrays.copyOf(lastChildren, capacity);
+        subtreeEnds = Arrays.copyOf(subtreeEnds, capacity);
+        names = Arrays.copyOf(names, capacity);
+        offsets = Arrays.copyOf(offsets, capacity * 4);
+        firstAttributes = Arrays.copyOf(firstAttributes, capacity);
+      }
+      int node = size;
+      size++;
+      types[node] = (byte) type.ordinal();
+      names[node] = name;
+      offsets[4 * node] = start;
+      lastChildren[node] = -1;
+      subtreeEnds[node] = size;
+      firstAttributes[node] = attributeCount;
+      if (node == DOCUMENT) {
+        parents[node] = -1;
+        previousSiblings[node] = -1;
+      } else {
+        int parent = openNodes[depth];
+        parents[node] = parent;
+        previousSiblings[node] = lastChildren[parent];
+        lastChildren[parent] = node;
+      }
+      return node;
+    }
+
+    private void addLeaf(XmlNodeType type, int start, int valueStart, int valueEnd, int end) {
+      int node = addNode(type, -1, start);
+      offsets[4 * node + 1] = valueStart;
+      offsets[4 * node + 2] = valueEnd;
+      offsets[4 * node + 3] = end;
+    }
+
+    /**
+     * @return the index of the last token of the CDATA section starting at the given index
+     */
+    private int addCdata(int cdataStart) {
+      int last = cdataStart;
+      int valueStart = tokens.end(cdataStart);
+      int valueEnd = valueStart;
+      if (last + 1 < tokens.size() && tokens.type(last + 1) == XmlTokenType.TEXT) {
+        last++;
+        valueEnd = tokens.end(last);
+      }
+      if (last + 1 < tokens.size() && tokens.type(last + 1) == XmlTokenType.CDATA_END) {
+        last++;
+      }
+      addLeaf(XmlNodeType.CDATA, tokens.start(cdataStart), valueStart, valueEnd, tokens.end(last));
+      return last;
+    }
+
+    /**
+     * @return the index of the last token of the start tag starting at the given index
+     */
+    private int addElement(int startTag) {
+      int start = tokens.start(startTag);
+      int element = addNode(XmlNodeType.ELEMENT, nameIndex(content.substring(start + 1, tokens.end(startTag))), start);
+      int tagEnd = tokens.tagEnd(startTag);
+      int index = startTag + 1;
+      while (index <= tagEnd) {
+        if (tokens.type(index) == XmlTokenType.ATTRIBUTE_NAME) {
+          index = addAttribute(index, tagEnd);
+        }
+        index++;
+      }
+      int end = tokens.end(tagEnd);
+      offsets[4 * element + 1] = end;
+      if (tokens.type(tagEnd) == XmlTokenType.EMPTY_TAG_END) {
+        offsets[4 * element + 2] = end;
+        offsets[4 * element + 3] = end;
+      } else {
+        depth++;
+        if (depth == openNodes.length) {
+          openNodes = Arrays.copyOf(openNodes, depth * 2);
+        }
+        openNodes[depth] = element;
+      }
+      return tagEnd;
+    }
+
+    /**
+     * @return the index of the last token of the attribute whose name is at the given index, which is its name when it
+     * has no value
+     */
+    private int addAttribute(int attributeName, int tagEnd) {
+      if (attributeCount == attributeNames.length) {
+        attributeNames = Arrays.copyOf(attributeNames, attributeCount * 2);
+        attributeOffsets = Arrays.copyOf(attributeOffsets, attributeCount * 6);
+      }
+      int last = attributeName;
+      int valueStart = tokens.end(attributeName);
+      int valueEnd = valueStart;
+      if (attributeName + 2 <= tagEnd && tokens.type(attributeName + 1) == XmlTokenType.EQUALS
+        && tokens.type(attributeName + 2) == XmlTokenType.ATTRIBUTE_VALUE) {
+        last = attributeName + 2;
+        valueStart = tokens.start(last);
+        valueEnd = tokens.end(last);
+      }
+      attributeNames[attributeCount] = nameIndex(tokens.text(attributeName));
+      attributeOffsets[3 * attributeCount] = tokens.start(attributeName);
+      attributeOffsets[3 * attributeCount + 1] = valueStart;
+      attributeOffsets[3 * attributeCount + 2] = valueEnd;
+      attributeCount++;
+      return last;
+    }
+
+    /**
+     * Closes the enclosing element with the name of the given end tag, and the unterminated elements it encloses.
+     */
+    private void closeElement(int endTag) {
+      String name = endTagName(endTag);
+      int matchingDepth = depth;
+      while (matchingDepth > 0 && !nameTable.get(names[openNodes[matchingDepth]]).equals(name)) {
+        matchingDepth--;
+      }
+      if (matchingDepth == 0) {
+        return;
+      }
+      int start = tokens.start(endTag);
+      while (depth > matchingDepth) {
+        close(openNodes[depth], start, start);
+        depth--;
+      }
+      close(openNodes[depth], start, tokens.end(endTag));
+      depth--;
+    }
+
+    private String endTagName(int endTag) {
+      int nameStart = tokens.start(endTag) + "</".length();
+      int nameEnd = nameStart;
+      int end = tokens.end(endTag);
+      while (nameEnd < end && content.charAt(nameEnd) != '>' && !Character.isWhitespace(content.charAt(nameEnd))) {
+        nameEnd++;
+      }
+      return content.substring(nameStart, nameEnd);
+    }
+
+    private void close(int node, int valueEnd, int end) {
+      if (node == DOCUMENT) {
+        offsets[1] = offsets[0];
+      }
+      offsets[4 * node + 2] = valueEnd;
+      offsets[4 * node + 3] = end;
+      subtreeEnds[node] = size;
+    }
+
+    private int nameIndex(String name) {
+      return nameIndexes.computeIfAbsent(name, key -> {
+        nameTable.add(key);
+        return nameTable.size() - 1;
+      });
+    }
+  }
+}
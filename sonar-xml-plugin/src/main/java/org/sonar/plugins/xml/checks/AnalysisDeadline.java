@@ -0,0 +1,220 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml.checks;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.CheckForNull;
+
+/**
+ * Time budget of the analysis of a file, which checks poll through {@link #checkpoint()} during long walks of the document.
+ * <p>
+ * The budget is only consumed while the analysis of the file is {@link #enter() entered} on a thread, so that the time
+ * spent waiting between the phases of a pipelined analysis is not accounted. When it is exhausted, polling throws an
+ * {@link ExceededException}, which makes the sensor abandon the file.
+ * <p>
+ * Computations which cannot poll, such as the evaluation of an XPath expression by the JDK, are run through
+ * {@link #call(Computation)}, on a bounded pool of threads, only when the file has a budget: they are then abandoned when
+ * the budget is exhausted, but keep running in the background until they complete. Callers must not share the state of
+ * an abandoned computation with other computations, and should stop submitting the ones which exhausted the budget. The
+ * time a computation waits for a thread of the pool is accounted, as abandoned computations may keep all of them busy
+ * for good.
+ */
+public final class AnalysisDeadline {
+
+  private static final ThreadLocal<AnalysisDeadline> CURRENT = new ThreadLocal<>();
+
+  private static final AnalysisDeadline NONE = new AnalysisDeadline(Long.MAX_VALUE);
+
+  // Visible for testing
+  static final int UNINTERRUPTIBLE_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+  private static final ExecutorService UNINTERRUPTIBLE_EXECUTOR = createUninterruptibleExecutor();
+
+  private final long budgetNanos;
+  // read by the threads the deadline is shared with
+  private volatile long consumedNanos = 0;
+  private volatile long enteredAt = 0;
+
+  private AnalysisDeadline(long budgetNanos) {
+    this.budgetNanos = budgetNanos;
+  }
+
+  public static AnalysisDeadline ofMillis(long budgetMillis) {
+    return new AnalysisDeadline(TimeUnit.MILLISECONDS.toNanos(budgetMillis));
+  }
+
+  /**
+   * Deadline which is never reached, and costs nothing to enter.
+   */
+  public static AnalysisDeadline none() {
+    return NONE;
+  }
+
+  /**
+   * Makes this deadline the one polled by the current thread, until the returned scope is closed.
+   */
+  public Scope enter() {
+    if (this == NONE) {
+      return () -> {
+        // nothing to restore
+      };
+    }
+    AnalysisDeadline previous = CURRENT.get();
+    CURRENT.set(this);
+    enteredAt = System.nanoTime();
+    return () -> {
+      consumedNanos += System.nanoTime() - enteredAt;
+      CURRENT.set(previous);
+    };
+  }
+
+  /**
+   * Makes this deadline, entered by another thread awaiting the computations of the current thread, the one polled by
+   * the current thread until the returned scope is closed. The time spent is only accounted by the entering thread.
+   */
+  public Scope share() {
+    if (this == NONE) {
+      return () -> {
+        // nothing to restore
+      };
+    }
+    AnalysisDeadline previous = CURRENT.get();
+    CURRENT.set(this);
+    return () -> CURRENT.set(previous);
+  }
+
+  /**
+   * @return the deadline polled by the current thread, to be {@link #share() shared} with the threads it hands work to
+   */
+  public static AnalysisDeadline ofCurrentThread() {
+    AnalysisDeadline deadline = CURRENT.get();
+    return deadline == null ? NONE : deadline;
+  }
+
+  public long budgetMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(budgetNanos);
+  }
+
+  private long remainingNanos() {
+    return budgetNanos - consumedNanos - (System.nanoTime() - enteredAt);
+  }
+
+  /**
+   * @throws ExceededException if the analysis of the file being analyzed by the current thread has exhausted its budget
+   */
+  public static void checkpoint() {
+    AnalysisDeadline deadline = CURRENT.get();
+    if (deadline != null && deadline.remainingNanos() <= 0) {
+      throw new ExceededException(deadline);
+    }
+  }
+
+  /**
+   * Runs a computation which does not poll the deadline, and waits for it at most until the deadline of the current thread.
+   * The time spent waiting for a thread of the pool to start the computation is accounted.
+   *
+   * @throws ExceededException if the deadline is reached before the computation completes
+   */
+  public static <T, E extends Exception> T call(Computation<T, E> computation) throws E {
+    AnalysisDeadline deadline = current();
+    if (deadline == null) {
+      return computation.compute();
+    }
+    checkpoint();
+    Future<T> result = UNINTERRUPTIBLE_EXECUTOR.submit(computation::compute);
+    try {
+      return result.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      result.cancel(true);
+      throw new ExceededException(deadline);
+    } catch (InterruptedException e) {
+      result.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("XML analysis has been interrupted", e);
+    } catch (ExecutionException e) {
+      throw AnalysisDeadline.<E>rethrow(e.getCause());
+    }
+  }
+
+  private static ExecutorService createUninterruptibleExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(UNINTERRUPTIBLE_THREADS, UNINTERRUPTIBLE_THREADS, 1, TimeUnit.MINUTES,
+      new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "xml-uninterruptible");
+        thread.setDaemon(true);
+        return thread;
+      });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E extends Exception> E rethrow(Throwable cause) throws E {
+    if (cause instanceof RuntimeException runtimeException) {
+      throw runtimeException;
+    }
+    if (cause instanceof Error error) {
+      throw error;
+    }
+    // only the exceptions declared by the computation can be thrown
+    throw (E) cause;
+  }
+
+  @CheckForNull
+  private static AnalysisDeadline current() {
+    return CURRENT.get();
+  }
+
+  @FunctionalInterface
+  public interface Computation<T, E extends Exception> {
+    T compute() throws E;
+  }
+
+  @FunctionalInterface
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  public static final class ExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long budgetMillis;
+
+    private ExceededException(AnalysisDeadline deadline) {
+      this(deadline.budgetMillis(), "Analysis exceeded its time budget of " + deadline.budgetMillis() + " ms");
+    }
+
+    private ExceededException(long budgetMillis, String message) {
+      super(message);
+      this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * @return the same failure, attributed to the rule which was executing when the budget was exhausted
+     */
+    public ExceededException whileExecuting(String rule) {
+      return new ExceededException(budgetMillis, getMessage() + ", while executing rule " + rule);
+    }
+  }
+}
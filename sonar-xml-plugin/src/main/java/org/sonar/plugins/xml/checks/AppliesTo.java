@@ -0,0 +1,59 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml.checks;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the files a check applies to, so that the sensor does not run it on other files.
+ * <p>
+ * Each non-empty attribute restricts the files: a file must match one of the values of every non-empty attribute.
+ * A check without this annotation applies to all files.
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface AppliesTo {
+
+  /**
+   * File names, compared ignoring case.
+   */
+  String[] fileNames() default {};
+
+  /**
+   * Wildcard patterns, matched against the absolute path of the file.
+   *
+   * @see org.sonar.api.utils.WildcardPattern
+   */
+  String[] pathPatterns() default {};
+
+  /**
+   * Local names of the root element of the document.
+   */
+  String[] rootElements() default {};
+
+  /**
+   * Namespace URIs of the root element of the document.
+   */
+  String[] rootNamespaces() default {};
+}
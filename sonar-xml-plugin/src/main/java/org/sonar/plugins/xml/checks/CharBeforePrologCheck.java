@@ -17,24 +17,60 @@
 package org.sonar.plugins.xml.checks;
 
 import java.util.Collections;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 import org.sonar.check.Rule;
+import org.sonar.plugins.xml.FileSnapshot;
+import org.sonar.plugins.xml.XmlTokenType;
+import org.sonar.plugins.xml.XmlTokens;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.XmlTextRange;
 import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
 
 @Rule(key = CharBeforePrologCheck.RULE_KEY)
-public class CharBeforePrologCheck extends SonarXmlCheck {
+@RequiresRepresentation(Representation.TOKENS)
+public class CharBeforePrologCheck extends SonarXmlCheck implements StreamingXmlCheck {
 
   public static final String RULE_KEY = "S1778";
+  private static final String MESSAGE = "Remove all characters located before \"<?xml\".";
+  private static final int XML_DECLARATION_START_LENGTH = "<?xml".length();
+
+  private IssueReporter reporter;
 
   @Override
   public void scanFile(XmlFile file) {
-    file.getPrologElement().ifPresent(prologElement -> {
-      XmlTextRange prologStartLocation = prologElement.getPrologStartLocation();
-      if (prologStartLocation.getStartLine() != 1 || prologStartLocation.getStartColumn() != 0) {
-        reportIssue(prologStartLocation, "Remove all characters located before \"<?xml\".", Collections.emptyList());
+    scanContent(FileSnapshot.of(file), IssueReporter.of(this));
+  }
+
+  @Override
+  public void scanContent(FileSnapshot snapshot, IssueReporter reporter) {
+    startStream(reporter);
+    XmlTokens tokens = snapshot.tokens();
+    int prologStart = tokens.indexOf(XmlTokenType.PROLOG_START, 0);
+    if (prologStart != -1) {
+      XmlTextRange prologStartLocation = tokens.textRange(prologStart);
+      if (isNotAtStartOfFile(prologStartLocation)) {
+        reporter.reportIssue(prologStartLocation, MESSAGE, Collections.emptyList());
       }
-    });
+    }
+  }
+
+  @Override
+  public void startStream(IssueReporter reporter) {
+    this.reporter = reporter;
+  }
+
+  @Override
+  public void visitEvent(XMLStreamReader reader, XmlTextRange range) {
+    if (reader.getEventType() == XMLStreamConstants.START_DOCUMENT && isNotAtStartOfFile(range)) {
+      XmlTextRange prologStartLocation = new XmlTextRange(range.getStartLine(), range.getStartColumn(),
+        range.getStartLine(), range.getStartColumn() + XML_DECLARATION_START_LENGTH);
+      reporter.reportIssue(prologStartLocation, MESSAGE, Collections.emptyList());
+    }
+  }
+
+  private static boolean isNotAtStartOfFile(XmlTextRange range) {
+    return range.getStartLine() != 1 || range.getStartColumn() != 0;
   }
 
 }
@@ -16,16 +16,26 @@
  */
 package org.sonar.plugins.xml.checks;
 
+import java.util.Collections;
 import java.util.Locale;
-import javax.xml.xpath.XPathExpression;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import org.sonar.plugins.xml.FileSnapshot;
+import org.sonar.plugins.xml.XmlTokenType;
+import org.sonar.plugins.xml.XmlTokens;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
-import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
+import org.sonarsource.analyzer.commons.xml.XmlTextRange;
+import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
 
-public abstract class CommentContainsPatternChecker extends SimpleXPathBasedCheck {
+/**
+ * Reports the comments containing a pattern, found among the tokens of the file.
+ */
+@RequiresRepresentation(Representation.TOKENS)
+public abstract class CommentContainsPatternChecker extends SonarXmlCheck implements StreamingXmlCheck {
 
   private final String pattern;
   private final String message;
-  private final XPathExpression xPathExpression = getXPathExpression("//comment()");
+  private IssueReporter reporter;
 
   protected CommentContainsPatternChecker(String pattern, String message) {
     this.pattern = pattern.toLowerCase(Locale.ENGLISH);
@@ -34,7 +44,35 @@ public abstract class CommentContainsPatternChecker extends SimpleXPathBasedChec
 
   @Override
   public final void scanFile(XmlFile file) {
-    checkIfCommentContainsPattern(file);
+    scanContent(FileSnapshot.of(file), IssueReporter.of(this));
+  }
+
+  @Override
+  public final void scanContent(FileSnapshot snapshot, IssueReporter reporter) {
+    startStream(reporter);
+    XmlTokens tokens = snapshot.tokens();
+    for (int i = tokens.indexOf(XmlTokenType.COMMENT, tokens.documentStart()); i != -1; i = tokens.indexOf(XmlTokenType.COMMENT, i + 1)) {
+      if (containsPattern(tokens.commentValue(i))) {
+        reporter.reportIssue(tokens.textRange(i), message, Collections.emptyList());
+      }
+    }
+  }
+
+  @Override
+  public void startStream(IssueReporter reporter) {
+    this.reporter = reporter;
+  }
+
+  @Override
+  public void visitEvent(XMLStreamReader reader, XmlTextRange range) {
+    if (reader.getEventType() == XMLStreamConstants.COMMENT && containsPattern(reader.getText())) {
+      reporter.reportIssue(range, message, Collections.emptyList());
+    }
+  }
+
+  private boolean containsPattern(String comment) {
+    String lowerCaseComment = comment.toLowerCase(Locale.ENGLISH);
+    return lowerCaseComment.contains(pattern) && !isLetterAround(lowerCaseComment, pattern);
   }
 
   private static boolean isLetterAround(String line, String pattern) {
@@ -46,13 +84,4 @@ public abstract class CommentContainsPatternChecker extends SimpleXPathBasedChec
 
     return pre || post;
   }
-
-  private void checkIfCommentContainsPattern(XmlFile file) {
-    evaluateAsList(xPathExpression, file.getDocument()).forEach(node -> {
-      String comment = node.getNodeValue().toLowerCase(Locale.ENGLISH);
-      if (comment.contains(pattern) && !isLetterAround(comment, pattern)) {
-        reportIssue(node, message);
-      }
-    });
-  }
 }
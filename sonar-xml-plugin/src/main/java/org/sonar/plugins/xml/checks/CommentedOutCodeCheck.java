@@ -19,92 +19,100 @@ package org.sonar.plugins.xml.checks;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
-import javax.xml.xpath.XPathExpression;
 import org.sonar.check.Rule;
+import org.sonar.plugins.xml.FileSnapshot;
+import org.sonar.plugins.xml.XmlTokenType;
+import org.sonar.plugins.xml.XmlTokens;
 import org.sonarsource.analyzer.commons.xml.SafeDomParserFactory;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
-import org.sonarsource.analyzer.commons.xml.XmlTextRange;
-import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
-import org.w3c.dom.Node;
+import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
 import org.xml.sax.SAXException;
 
+/**
+ * Reports the blocks of comments which are XML code. The blocks are found among the tokens of the file: they are made of
+ * the comments separated only by whitespaces.
+ */
 @Rule(key = CommentedOutCodeCheck.RULE_KEY)
-public class CommentedOutCodeCheck extends SimpleXPathBasedCheck {
+@RequiresRepresentation(Representation.TOKENS)
+public class CommentedOutCodeCheck extends SonarXmlCheck {
 
   public static final String RULE_KEY = "S125";
 
-  private final XPathExpression commentsExpression = getXPathExpression("//comment()");
-
-  private final Set<Node> visitedNodes = new HashSet<>();
-
   @Override
   public void scanFile(XmlFile file) {
     Charset charset = file.getInputFile().charset();
-
-    for (Node comment : getComments(file)) {
-      if (visitedNodes.contains(comment)) {
-        // already reported in previous issue
-        continue;
+    XmlTokens tokens = FileSnapshot.of(file).tokens();
+    int comment = tokens.indexOf(XmlTokenType.COMMENT, tokens.documentStart());
+    while (comment != -1) {
+      int lastChecked = comment;
+      if (tokens.commentValue(comment).trim().startsWith("<")) {
+        // the other comments of the block are not checked again
+        lastChecked = blockEnd(tokens, comment);
+        checkCommentBlock(tokens, comment, lastChecked, charset);
       }
-      List<Node> siblingComments = getNextCommentSiblings(comment);
-      checkCommentBlock(siblingComments, charset);
-      visitedNodes.addAll(siblingComments);
+      comment = tokens.indexOf(XmlTokenType.COMMENT, lastChecked + 1);
     }
-    // clear for next XML file
-    visitedNodes.clear();
   }
 
-  private void checkCommentBlock(List<Node> comments, Charset charset) {
-    int numberComments = comments.size();
-    for (int i = 0; i < numberComments; i++) {
-      // considering all the combinations, starting from the biggest list possible and reducing from the top then
-      List<Node> commentsGroup = comments.subList(i, numberComments);
-      if (isParseableXml(commentsGroup, charset)) {
-        XmlTextRange start = XmlFile.nodeLocation(commentsGroup.get(0));
-        XmlTextRange end = XmlFile.nodeLocation(commentsGroup.get(commentsGroup.size() - 1));
-        reportIssue(new XmlTextRange(start, end), "Remove this commented out code.", Collections.emptyList());
+  /**
+   * @return the index of the last comment of the block starting with the comment at the given index
+   */
+  private static int blockEnd(XmlTokens tokens, int firstComment) {
+    int lastComment = firstComment;
+    for (int i = firstComment + 1; i < tokens.size(); i++) {
+      XmlTokenType type = tokens.type(i);
+      if (type == XmlTokenType.COMMENT) {
+        lastComment = i;
+      } else if (type != XmlTokenType.TEXT || !isBlank(tokens, i)) {
+        // any other token ends the block
         break;
       }
     }
+    return lastComment;
   }
 
-  private List<Node> getComments(XmlFile file) {
-    return evaluateAsList(commentsExpression, file.getDocument()).stream()
-      .filter(comment -> comment.getTextContent().trim().startsWith("<"))
-      .collect(Collectors.toList());
+  private static boolean isBlank(XmlTokens tokens, int index) {
+    String content = tokens.content();
+    for (int offset = tokens.start(index); offset < tokens.end(index); offset++) {
+      // same as String#trim()
+      if (content.charAt(offset) > ' ') {
+        return false;
+      }
+    }
+    return true;
   }
 
-  private static List<Node> getNextCommentSiblings(Node comment) {
-    List<Node> results = new ArrayList<>();
-    Node current = comment;
-    while (current != null) {
-      short nodeType = current.getNodeType();
-      if (nodeType == Node.COMMENT_NODE) {
-        results.add(current);
-      } else if (nodeType != Node.TEXT_NODE || !isEmpty(current)) {
-        // any other type discard collecting siblings
-        break;
+  private void checkCommentBlock(XmlTokens tokens, int firstComment, int lastComment, Charset charset) {
+    int i = firstComment;
+    while (true) {
+      AnalysisDeadline.checkpoint();
+      // considering all the combinations, starting from the biggest list possible and reducing from the top then
+      if (isParseableXml(commentsAsSingleString(tokens, i, lastComment), charset)) {
+        reportIssue(tokens.textRange(tokens.start(i), tokens.end(lastComment)), "Remove this commented out code.", Collections.emptyList());
+        return;
+      }
+      if (i == lastComment) {
+        return;
       }
-      current = current.getNextSibling();
+      i = tokens.indexOf(XmlTokenType.COMMENT, i + 1);
     }
-    return results;
   }
 
-  private static boolean isEmpty(Node current) {
-    return current.getTextContent().trim().isEmpty();
+  private static String commentsAsSingleString(XmlTokens tokens, int firstComment, int lastComment) {
+    StringBuilder comments = new StringBuilder();
+    for (int i = firstComment; i <= lastComment; i++) {
+      if (tokens.type(i) == XmlTokenType.COMMENT) {
+        if (comments.length() > 0) {
+          comments.append('\n');
+        }
+        comments.append(tokens.content(), tokens.commentValueStart(i), tokens.commentValueEnd(i));
+      }
+    }
+    return comments.toString();
   }
 
-  private static boolean isParseableXml(List<Node> siblingComments, Charset charset) {
-    String commentsAsSingleString = siblingComments.stream()
-      .map(Node::getTextContent)
-      .collect(Collectors.joining("\n"));
-
+  private static boolean isParseableXml(String commentsAsSingleString, Charset charset) {
     try (ByteArrayInputStream stream = new ByteArrayInputStream(commentsAsSingleString.getBytes(charset))) {
       SafeDomParserFactory.createDocumentBuilder(false).parse(stream);
     } catch (IOException | SAXException e) {
@@ -0,0 +1,63 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml.checks;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * Callbacks of a {@link DocumentWalker}, which walks the document of a file once for all its visitors.
+ * <p>
+ * A visitor is only called for the types of nodes it declares through {@link #visitedNodeTypes()}: on entering a node,
+ * before its children, and on leaving it, after them. Visitors must not modify the document.
+ */
+public interface DocumentVisitor {
+
+  /**
+   * Mask of {@link #visitedNodeTypes()} which visits all the nodes.
+   */
+  int ALL_NODE_TYPES = -1;
+
+  /**
+   * @return the mask of the visited DOM node types, as built by {@link #nodeTypes(short...)}
+   */
+  int visitedNodeTypes();
+
+  default void startDocument(Document document) {
+    // nothing to do by default
+  }
+
+  default void enterNode(Node node) {
+    // nothing to do by default
+  }
+
+  default void leaveNode(Node node) {
+    // nothing to do by default
+  }
+
+  default void endDocument(Document document) {
+    // nothing to do by default
+  }
+
+  static int nodeTypes(short... nodeTypes) {
+    int mask = 0;
+    for (short nodeType : nodeTypes) {
+      mask |= 1 << nodeType;
+    }
+    return mask;
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml.checks;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * Walks a document once, dispatching its nodes to all the {@link DocumentVisitor visitors} interested in their types.
+ * <p>
+ * The walk is iterative and does not allocate: children are reached through {@link Node#getFirstChild()} and
+ * {@link Node#getNextSibling()}, so that the depth of the document is not bounded by the stack. The
+ * {@link AnalysisDeadline deadline} of the current thread is polled once per node.
+ * <p>
+ * Checks register their visitors through {@link #visit(Document, DocumentVisitor)}. When the sensor is
+ * {@link #collect() collecting} visitors for the same document, they are walked later, together with the ones of the
+ * other checks, the metrics and the highlighting. Otherwise, for example when a check is executed on its own, the
+ * document is walked immediately for this visitor only.
+ * <p>
+ * A visitor which throws an exception is given to the {@link FailureHandler} and is not called anymore during the walk.
+ * By default, the exception is rethrown and ends the walk.
+ */
+public final class DocumentWalker {
+
+  private static final ThreadLocal<DocumentWalker> COLLECTING = new ThreadLocal<>();
+
+  /**
+   * DOM node types go from {@link Node#ELEMENT_NODE} to {@link Node#NOTATION_NODE}.
+   */
+  private static final int NODE_TYPES = Node.NOTATION_NODE + 1;
+
+  private static final FailureHandler RETHROW = (visitor, e) -> {
+    throw e;
+  };
+
+  @Nullable
+  private final Document document;
+  private final boolean timed;
+  private final List<DocumentVisitor> visitors = new ArrayList<>();
+  private FailureHandler failureHandler = RETHROW;
+  private boolean[] failed = new boolean[0];
+  private long[] nanos = new long[0];
+  private int lastVisitor = -1;
+
+  public DocumentWalker(@Nullable Document document) {
+    this(document, false);
+  }
+
+  /**
+   * @param timed whether the time spent in each visitor is measured, see {@link #nanos(DocumentVisitor)}
+   */
+  public DocumentWalker(@Nullable Document document, boolean timed) {
+    this.document = document;
+    this.timed = timed;
+  }
+
+  /**
+   * Registers a visitor to the walker collecting visitors on the current thread, if any and if it walks the same document.
+   * Otherwise, walks the document for this visitor only.
+   */
+  public static void visit(@Nullable Document document, DocumentVisitor visitor) {
+    DocumentWalker collecting = COLLECTING.get();
+    if (collecting != null && collecting.document == document) {
+      collecting.add(visitor);
+      return;
+    }
+    DocumentWalker walker = new DocumentWalker(document);
+    walker.add(visitor);
+    walker.walk();
+  }
+
+  public DocumentWalker add(DocumentVisitor visitor) {
+    visitors.add(visitor);
+    return this;
+  }
+
+  public DocumentWalker onFailure(FailureHandler failureHandler) {
+    this.failureHandler = failureHandler;
+    return this;
+  }
+
+  /**
+   * Makes this walker the one collecting the visitors given to {@link #visit(Document, DocumentVisitor)} on the current
+   * thread, until the returned scope is closed.
+   */
+  public Scope collect() {
+    DocumentWalker previous = COLLECTING.get();
+    COLLECTING.set(this);
+    return () -> COLLECTING.set(previous);
+  }
+
+  /**
+   * Walks the document for all the registered visitors. Nothing is walked when the file has no such document.
+   */
+  public void walk() {
+    if (document == null || visitors.isEmpty()) {
+      return;
+    }
+    int[][] visitorsByNodeType = visitorsByNodeType();
+    failed = new boolean[visitors.size()];
+    nanos = new long[visitors.size()];
+    lastVisitor = -1;
+
+    for (int i = 0; i < visitors.size(); i++) {
+      dispatch(i, Event.START, document);
+    }
+    Node node = document.getFirstChild();
+    while (node != null) {
+      dispatch(visitorsByNodeType[node.getNodeType()], Event.ENTER, node);
+      Node child = node.getFirstChild();
+      if (child != null) {
+        node = child;
+        continue;
+      }
+      node = leave(visitorsByNodeType, node);
+    }
+    for (int i = 0; i < visitors.size(); i++) {
+      dispatch(i, Event.END, document);
+    }
+  }
+
+  /**
+   * Leaves the given node and its ancestors, until one of them has a next sibling.
+   *
+   * @return the next node to enter, or null at the end of the document
+   */
+  @Nullable
+  private Node leave(int[][] visitorsByNodeType, Node leafNode) {
+    Node node = leafNode;
+    while (node != document) {
+      dispatch(visitorsByNodeType[node.getNodeType()], Event.LEAVE, node);
+      Node sibling = node.getNextSibling();
+      if (sibling != null) {
+        return sibling;
+      }
+      node = node.getParentNode();
+    }
+    return null;
+  }
+
+  private int[][] visitorsByNodeType() {
+    int[][] visitorsByNodeType = new int[NODE_TYPES][];
+    int[] indexes = new int[visitors.size()];
+    for (int nodeType = 0; nodeType < NODE_TYPES; nodeType++) {
+      int count = 0;
+      for (int i = 0; i < visitors.size(); i++) {
+        if ((visitors.get(i).visitedNodeTypes() & (1 << nodeType)) != 0) {
+          indexes[count] = i;
+          count++;
+        }
+      }
+      int[] nodeTypeIndexes = new int[count];
+      System.arraycopy(indexes, 0, nodeTypeIndexes, 0, count);
+      visitorsByNodeType[nodeType] = nodeTypeIndexes;
+    }
+    return visitorsByNodeType;
+  }
+
+  private void dispatch(int[] visitorIndexes, Event event, Node node) {
+    for (int visitorIndex : visitorIndexes) {
+      dispatch(visitorIndex, event, node);
+    }
+    try {
+      AnalysisDeadline.checkpoint();
+    } catch (AnalysisDeadline.ExceededException e) {
+      // the budget is attributed to the last visitor which has been called
+      if (lastVisitor < 0) {
+        throw e;
+      }
+      failureHandler.handle(visitors.get(lastVisitor), e);
+    }
+  }
+
+  private void dispatch(int visitorIndex, Event event, Node node) {
+    if (failed[visitorIndex]) {
+      return;
+    }
+    DocumentVisitor visitor = visitors.get(visitorIndex);
+    lastVisitor = visitorIndex;
+    long start = timed ? System.nanoTime() : 0L;
+    try {
+      switch (event) {
+        case START -> visitor.startDocument((Document) node);
+        case ENTER -> visitor.enterNode(node);
+        case LEAVE -> visitor.leaveNode(node);
+        case END -> visitor.endDocument((Document) node);
+      }
+    } catch (RuntimeException e) {
+      failed[visitorIndex] = true;
+      failureHandler.handle(visitor, e);
+    } finally {
+      if (timed) {
+        nanos[visitorIndex] += System.nanoTime() - start;
+      }
+    }
+  }
+
+  /**
+   * @return the time spent in the given visitor during the last walk, or 0 if this walker is not timed
+   */
+  public long nanos(DocumentVisitor visitor) {
+    for (int i = 0; i < nanos.length; i++) {
+      if (visitors.get(i) == visitor) {
+        return nanos[i];
+      }
+    }
+    return 0L;
+  }
+
+  private enum Event {
+    START, ENTER, LEAVE, END
+  }
+
+  @FunctionalInterface
+  public interface FailureHandler {
+    /**
+     * Called when a visitor throws an exception, which ends the walk if it is rethrown.
+     */
+    void handle(DocumentVisitor visitor, RuntimeException e);
+  }
+
+  @FunctionalInterface
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
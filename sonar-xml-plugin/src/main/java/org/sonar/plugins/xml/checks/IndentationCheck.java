@@ -16,23 +16,29 @@
  */
 package org.sonar.plugins.xml.checks;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import javax.annotation.Nullable;
+import java.util.List;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
+import org.sonar.plugins.xml.ParallelTraversal;
 import org.sonar.plugins.xml.Xml;
+import org.sonar.plugins.xml.XmlNodeType;
+import org.sonar.plugins.xml.XmlTree;
 import org.sonarsource.analyzer.commons.annotations.DeprecatedRuleKey;
-import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.XmlTextRange;
-import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-
-import static org.sonar.plugins.xml.Utils.isSelfClosing;
 
+/**
+ * Elements are checked in document order, with an explicit stack of the elements enclosing the current one, which also
+ * tells whether they are inside lines of text, so that the depth of the document bounds neither the call stack nor the
+ * work done per element. On large files, the children of the elements having many of them are checked by several tasks,
+ * each task starting after a line break, so that it does not depend on the issues reported on the previous lines: see
+ * {@link ParallelTraversal}.
+ */
 @Rule(key = "S1120")
 @DeprecatedRuleKey(ruleKey = "IndentCheck", repositoryKey = Xml.REPOSITORY_KEY)
-public class IndentationCheck extends SonarXmlCheck {
+public class IndentationCheck extends XmlTreeCheck {
 
   private static final String MESSAGE = "Make this line start after %d spaces to indent the code consistently.";
 
@@ -51,8 +57,14 @@ public class IndentationCheck extends SonarXmlCheck {
   private int tabSize = 2;
 
   @Override
-  public void scanFile(XmlFile file) {
-    validateIndent(file.getDocument());
+  public void scanTree(XmlTree tree) {
+    int firstNode = tree.firstChild(XmlTree.DOCUMENT);
+    if (firstNode == -1) {
+      return;
+    }
+    for (Issue issue : check(tree, firstNode, tree.size(), 0)) {
+      reportIssue(issue.location(), String.format(MESSAGE, issue.expectedIndent()), Collections.emptyList());
+    }
   }
 
   public void setIndentSize(int indentSize) {
@@ -63,75 +75,105 @@ public class IndentationCheck extends SonarXmlCheck {
     this.tabSize = tabSize;
   }
 
-  private boolean validateIndent(Node node) {
-    if (node.getNodeType() == Node.ELEMENT_NODE && checkIndentation((Element) node)) {
-      return true;
-    }
-
-    boolean issueOnLine = false;
-
-    for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
-      switch (child.getNodeType()) {
-        case Node.ELEMENT_NODE:
-          if (!issueOnLine) {
-            issueOnLine = validateIndent(child);
-          }
-          break;
-        case Node.TEXT_NODE:
-          if (child.getTextContent().contains("\n")) {
-            issueOnLine = false;
-          }
-          break;
-        case Node.COMMENT_NODE:
-        default:
-          break;
+  /**
+   * Checks the nodes of the given range, which starts with a node at the given depth and ends with the last descendant of
+   * one of its following siblings.
+   *
+   * @return the issues of the range, in document order
+   */
+  private List<Issue> check(XmlTree tree, int start, int end, int startDepth) {
+    List<Issue> issues = new ArrayList<>();
+    // elements enclosing the current node, inside the range
+    int[] openElements = new int[16];
+    int openCount = 0;
+    // whether the element at each depth is inside lines of text, computed from the one of its parent
+    boolean[] insideText = new boolean[16];
+    boolean rangeInsideText = isInsideText(tree, tree.parent(start));
+    // whether an issue has been reported on the current line, among the children of the element at each depth: the
+    // following elements of the line are then not checked
+    boolean[] issueOnLine = new boolean[16];
+    int node = start;
+    while (true) {
+      while (openCount > 0 && node >= tree.subtreeEnd(openElements[openCount - 1])) {
+        openCount--;
+        // check indentation of closing tag
+        checkClosingTag(tree, openElements[openCount], openCount == 0 ? rangeInsideText : insideText[openCount - 1], issues);
+      }
+      if (node >= end) {
+        return issues;
+      }
+      XmlNodeType type = tree.type(node);
+      if (type == XmlNodeType.TEXT) {
+        if (isLineBreak(tree, node)) {
+          issueOnLine[openCount] = false;
+        }
+        node++;
+      } else if (type != XmlNodeType.ELEMENT || issueOnLine[openCount]) {
+        node = tree.subtreeEnd(node);
+      } else if (checkIndentation(tree, node, startDepth + openCount, openCount == 0 ? rangeInsideText : insideText[openCount - 1], issues)) {
+        // if reporting on start node, don't report on rest of the block
+        issueOnLine[openCount] = true;
+        node = tree.subtreeEnd(node);
+      } else {
+        if (openCount + 1 == openElements.length) {
+          openElements = Arrays.copyOf(openElements, openElements.length * 2);
+          issueOnLine = Arrays.copyOf(issueOnLine, issueOnLine.length * 2);
+          insideText = Arrays.copyOf(insideText, insideText.length * 2);
+        }
+        openElements[openCount] = node;
+        insideText[openCount] = hasSingleChild(tree, node)
+          && (isNonEmptyTextNode(tree, tree.previousSibling(node)) || (openCount == 0 ? rangeInsideText : insideText[openCount - 1]));
+        openCount++;
+        issueOnLine[openCount] = false;
+        node = checkChildren(tree, node, startDepth + openCount, issues);
       }
     }
+  }
 
-    // Check indentation of closing tag
-    if (node.getNodeType() == Node.ELEMENT_NODE) {
-      checkClosingTag((Element) node);
+  /**
+   * Checks the children of the given element by several tasks, when they are numerous enough.
+   *
+   * @return the next node to check: the first child when the children are not split, the node following the last
+   * descendant of the element otherwise
+   */
+  private int checkChildren(XmlTree tree, int element, int childrenDepth, List<Issue> issues) {
+    List<List<Issue>> rangeIssues = ParallelTraversal.mapChildren(tree, element,
+      child -> isLineBreak(tree, tree.previousSibling(child)),
+      (start, end) -> check(tree, start, end, childrenDepth));
+    if (rangeIssues == null) {
+      return element + 1;
     }
+    rangeIssues.forEach(issues::addAll);
+    return tree.subtreeEnd(element);
+  }
 
-    return false;
+  private static boolean isLineBreak(XmlTree tree, int node) {
+    return node != -1 && tree.type(node) == XmlNodeType.TEXT && tree.text(node).indexOf('\n') != -1;
   }
 
-  private boolean checkIndentation(Element element) {
-    if (!needToCheckIndentation(element)) {
+  private boolean checkIndentation(XmlTree tree, int element, int depth, boolean parentInsideText, List<Issue> issues) {
+    if (!needToCheckIndentation(tree, element, parentInsideText)) {
       return false;
     }
 
-    int expectedIndent = depth(element) * indentSize;
-    if (expectedIndent != startIndent(element.getPreviousSibling())) {
-      reportIssue(XmlFile.startLocation(element), expectedIndent);
-      // if reporting on start node, don't report on rest of the block
+    int expectedIndent = depth * indentSize;
+    if (expectedIndent != startIndent(tree, tree.previousSibling(element))) {
+      issues.add(new Issue(tree.startLocation(element), expectedIndent));
       return true;
     }
     return false;
   }
 
-  private void reportIssue(XmlTextRange textRange, int expectedIndent) {
-    reportIssue(textRange, String.format(MESSAGE, expectedIndent), Collections.emptyList());
-  }
-
-  private static int depth(Node node) {
-    int depth = 0;
-    for (Node parent = node.getParentNode(); parent.getParentNode() != null; parent = parent.getParentNode()) {
-      depth++;
-    }
-    return depth;
-  }
-
-  private int startIndent(Node node) {
+  private int startIndent(XmlTree tree, int node) {
     int indent = 0;
-    for (Node sibling = node; sibling != null; sibling = sibling.getPreviousSibling()) {
-      short nodeType = sibling.getNodeType();
+    for (int sibling = node; sibling != -1; sibling = tree.previousSibling(sibling)) {
+      XmlNodeType nodeType = tree.type(sibling);
 
-      if (nodeType == Node.COMMENT_NODE || nodeType == Node.ELEMENT_NODE) {
+      if (nodeType == XmlNodeType.COMMENT || nodeType == XmlNodeType.ELEMENT) {
         return indent;
 
-      } else if (nodeType == Node.TEXT_NODE) {
-        String text = sibling.getTextContent();
+      } else if (nodeType == XmlNodeType.TEXT) {
+        String text = tree.text(sibling);
         for (int i = text.length() - 1; i >= 0; i--) {
           char c = text.charAt(i);
           switch (c) {
@@ -155,55 +197,73 @@ public class IndentationCheck extends SonarXmlCheck {
     return indent;
   }
 
-  private void checkClosingTag(Element element) {
-    if (isSelfClosing(element)) {
+  private void checkClosingTag(XmlTree tree, int element, boolean parentInsideText, List<Issue> issues) {
+    if (tree.isSelfClosing(element)) {
       return;
     }
-    XmlTextRange startLocation = XmlFile.startLocation(element);
-    XmlTextRange endLocation = XmlFile.endLocation(element);
+    XmlTextRange startLocation = tree.startLocation(element);
+    XmlTextRange endLocation = tree.endLocation(element);
     if (startLocation.getEndLine() != endLocation.getStartLine()) {
-      if (!needToCheckIndentation(element)) {
+      if (!needToCheckIndentation(tree, element, parentInsideText)) {
         return;
       }
-      int startIndent = startIndent(element.getPreviousSibling());
-      int endIndent = startIndent(element.getLastChild());
+      int startIndent = startIndent(tree, tree.previousSibling(element));
+      int endIndent = startIndent(tree, tree.lastChild(element));
       if (startIndent != endIndent) {
-        reportIssue(endLocation, startIndent);
+        issues.add(new Issue(endLocation, startIndent));
       }
     }
   }
 
-  private static boolean needToCheckIndentation(Element element) {
+  private static boolean needToCheckIndentation(XmlTree tree, int element, boolean parentInsideText) {
     // When tag is inside lines of text we do not check indentation
 
-    if (element.getChildNodes().getLength() > 1) {
+    if (hasSeveralChildren(tree, element)) {
       return true;
     }
 
-    Node previous = element.getPreviousSibling();
-    if (isNonEmptyTextNode(previous)) {
+    if (isNonEmptyTextNode(tree, tree.previousSibling(element))) {
       return false;
     }
 
-    Node next = element.getNextSibling();
-    if (isNonEmptyTextNode(next)) {
+    if (isNonEmptyTextNode(tree, tree.nextSibling(element))) {
       return false;
     }
 
     // Current tag can be encapsulated in another tag which is inside lines of text
-    for (Node parent = element.getParentNode(); parent != null && parent.getChildNodes().getLength() == 1; parent = parent.getParentNode()) {
-      short parentType = parent.getNodeType();
-      if (parentType == Node.ELEMENT_NODE && isNonEmptyTextNode(parent.getPreviousSibling())) {
-        return false;
+    return !parentInsideText;
+  }
+
+  /**
+   * Whether the given node is, through a chain of single children, inside an element preceded by text on its line. Only
+   * called once per range: the elements of the range get it from their parent.
+   */
+  private static boolean isInsideText(XmlTree tree, int node) {
+    for (int parent = node; parent != -1 && hasSingleChild(tree, parent); parent = tree.parent(parent)) {
+      if (tree.type(parent) == XmlNodeType.ELEMENT && isNonEmptyTextNode(tree, tree.previousSibling(parent))) {
+        return true;
       }
     }
-    return true;
+    return false;
+  }
+
+  private static boolean hasSeveralChildren(XmlTree tree, int node) {
+    int firstChild = tree.firstChild(node);
+    return firstChild != -1 && tree.nextSibling(firstChild) != -1;
+  }
+
+  private static boolean hasSingleChild(XmlTree tree, int node) {
+    int firstChild = tree.firstChild(node);
+    return firstChild != -1 && tree.nextSibling(firstChild) == -1;
+  }
+
+  private static boolean isNonEmptyTextNode(XmlTree tree, int node) {
+    return node != -1
+      && tree.type(node) == XmlNodeType.TEXT
+      && !tree.text(node).trim().isEmpty();
   }
 
-  private static boolean isNonEmptyTextNode(@Nullable Node node) {
-    return node != null
-      && node.getNodeType() == Node.TEXT_NODE
-      && !node.getTextContent().trim().isEmpty();
+  private record Issue(XmlTextRange location, int expectedIndent) {
   }
 
 }
@@ -17,10 +17,10 @@
 package org.sonar.plugins.xml.checks;
 
 import java.util.Collections;
-import java.util.regex.Pattern;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
-import org.sonar.plugins.xml.Utils;
+import org.sonar.plugins.xml.FileSnapshot;
+import org.sonar.plugins.xml.LineIndex;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.XmlTextRange;
 import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
@@ -29,7 +29,8 @@ import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
  * RSPEC-103
  */
 @Rule(key = LineLengthCheck.RULE_KEY)
-public class LineLengthCheck extends SonarXmlCheck {
+@RequiresRepresentation(Representation.TEXT)
+public class LineLengthCheck extends SonarXmlCheck implements StreamingXmlCheck {
 
   public static final String RULE_KEY = "S103";
   private static final int DEFAULT_LENGTH = 120;
@@ -41,7 +42,8 @@ public class LineLengthCheck extends SonarXmlCheck {
     type = "INTEGER")
   private int maximumLineLength = DEFAULT_LENGTH;
 
-  private static final Pattern RTRIM = Pattern.compile("\\s+$");
+  private IssueReporter reporter;
+  private int trimmedLength;
 
   public void setMaximumLineLength(int maximumLineLength) {
     this.maximumLineLength = maximumLineLength;
@@ -49,21 +51,50 @@ public class LineLengthCheck extends SonarXmlCheck {
 
   @Override
   public void scanFile(XmlFile file) {
-    int lineNumber = 1;
-    for (String line : Utils.splitLines(file.getContents())) {
-      String trimLine = trimEndOfLine(line);
-      int length = trimLine.length();
-      if (length > maximumLineLength) {
-        XmlTextRange textRange = new XmlTextRange(lineNumber, 0, lineNumber, trimLine.length());
-        reportIssue(textRange,
-          String.format("Split this %d characters long line (which is greater than %d authorized).", length, maximumLineLength),
-          Collections.emptyList());
+    scanContent(FileSnapshot.of(file), IssueReporter.of(this));
+  }
+
+  @Override
+  public void scanContent(FileSnapshot snapshot, IssueReporter reporter) {
+    startStream(reporter);
+    LineIndex lines = snapshot.lines();
+    for (int line = 1; line <= lines.lineCount(); line++) {
+      trimmedLength = lines.trimmedEnd(line) - lines.lineStart(line);
+      visitEndOfLine(line, lines.lineLength(line));
+    }
+  }
+
+  @Override
+  public void startStream(IssueReporter reporter) {
+    this.reporter = reporter;
+    trimmedLength = 0;
+  }
+
+  @Override
+  public void visitText(int line, int column, CharSequence text) {
+    for (int i = text.length() - 1; i >= 0; i--) {
+      if (!isTrailingWhitespace(text.charAt(i))) {
+        trimmedLength = column + i + 1;
+        return;
       }
-      lineNumber++;
     }
   }
 
-  private static String trimEndOfLine(String line) {
-    return RTRIM.matcher(line).replaceAll("");
+  @Override
+  public void visitEndOfLine(int line, int length) {
+    if (trimmedLength > maximumLineLength) {
+      XmlTextRange textRange = new XmlTextRange(line, 0, line, trimmedLength);
+      reporter.reportIssue(textRange,
+        String.format("Split this %d characters long line (which is greater than %d authorized).", trimmedLength, maximumLineLength),
+        Collections.emptyList());
+    }
+    trimmedLength = 0;
+  }
+
+  /**
+   * Same characters as "\\s" in regular expressions.
+   */
+  private static boolean isTrailingWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
   }
 }
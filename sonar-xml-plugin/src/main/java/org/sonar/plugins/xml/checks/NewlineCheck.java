@@ -16,121 +16,144 @@
  */
 package org.sonar.plugins.xml.checks;
 
+import java.util.ArrayDeque;
 import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
-import javax.annotation.Nullable;
+import java.util.Deque;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 import org.sonar.check.Rule;
+import org.sonar.plugins.xml.FileSnapshot;
 import org.sonar.plugins.xml.Xml;
+import org.sonar.plugins.xml.XmlTokenType;
+import org.sonar.plugins.xml.XmlTokens;
 import org.sonarsource.analyzer.commons.annotations.DeprecatedRuleKey;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.XmlTextRange;
 import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
 
+/**
+ * Checks the lines of the tags, found among the tokens of the file, the same way as when the file is streamed.
+ */
 @Rule(key = "S2321")
 @DeprecatedRuleKey(ruleKey = "NewlineCheck", repositoryKey = Xml.REPOSITORY_KEY)
-public class NewlineCheck extends SonarXmlCheck {
+@RequiresRepresentation(Representation.TOKENS)
+public class NewlineCheck extends SonarXmlCheck implements StreamingXmlCheck {
 
   private static final String MESSAGE_START = "Put this element on a separate line.";
   private static final String MESSAGE_END = "Add a newline after this tag.";
 
+  private IssueReporter reporter;
+  private final Deque<OpenElement> openElements = new ArrayDeque<>();
+
   @Override
   public void scanFile(XmlFile file) {
-    visitNode(file.getDocument());
+    scanContent(FileSnapshot.of(file), IssueReporter.of(this));
   }
 
-  private void visitNode(Node node) {
-    List<Node> children = XmlFile.children(node);
-
-    if (node.getNodeType() == Node.ELEMENT_NODE) {
-      Element currentElement = (Element) node;
-      checkChildrenLine(children, currentElement);
-      checkNextSiblingLine(currentElement);
+  @Override
+  public void scanContent(FileSnapshot snapshot, IssueReporter reporter) {
+    startStream(reporter);
+    XmlTokens tokens = snapshot.tokens();
+    int i = tokens.documentStart();
+    while (i < tokens.size()) {
+      XmlTokenType type = tokens.type(i);
+      if (type == XmlTokenType.START_TAG) {
+        int tagEnd = tokens.tagEnd(i);
+        XmlTextRange range = tokens.textRange(tokens.start(i), tokens.end(tagEnd));
+        startElement(range);
+        if (tokens.type(tagEnd) == XmlTokenType.EMPTY_TAG_END) {
+          // the end of an empty element is its start tag
+          endElement(range);
+        }
+        i = tagEnd;
+      } else if (type == XmlTokenType.END_TAG && !openElements.isEmpty()) {
+        endElement(tokens.textRange(i));
+      }
+      i++;
     }
-
-    children.forEach(this::visitNode);
   }
 
-  private void checkChildrenLine(List<Node> children, Element currentElement) {
-    getOutermostChildElements(children).ifPresent(outermostChildElements -> {
-      XmlTextRange start = XmlFile.startLocation(currentElement);
-      XmlTextRange end = XmlFile.endLocation(currentElement);
-
-      XmlTextRange firstChildElementStart = XmlFile.startLocation(outermostChildElements.first);
-      XmlTextRange lastChildElementEnd = XmlFile.endLocation(outermostChildElements.last);
-
-      boolean firstChildBadlyFormatted = firstChildElementStart.getStartLine() == start.getEndLine();
-      boolean lastChildBadlyFormatted = lastChildElementEnd.getEndLine() == end.getStartLine();
-
-      boolean singleChildElement = outermostChildElements.last.equals(outermostChildElements.first);
-      boolean singleLineChildElement = firstChildElementStart.getStartLine() == lastChildElementEnd.getEndLine();
-      if (singleChildElement && singleLineChildElement && firstChildBadlyFormatted && lastChildBadlyFormatted) {
-        // report once on the entire child element
-        reportIssue(outermostChildElements.first, MESSAGE_START);
-      } else {
-        if (firstChildBadlyFormatted) {
-          reportIssue(firstChildElementStart, MESSAGE_START, Collections.emptyList());
-        }
+  @Override
+  public void startStream(IssueReporter reporter) {
+    this.reporter = reporter;
+    openElements.clear();
+  }
 
-        if (lastChildBadlyFormatted) {
-          reportIssue(lastChildElementEnd, MESSAGE_END, Collections.emptyList());
-        }
-      }
-    });
+  @Override
+  public void visitEvent(XMLStreamReader reader, XmlTextRange range) {
+    if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+      startElement(range);
+    } else if (reader.getEventType() == XMLStreamConstants.END_ELEMENT) {
+      endElement(range);
+    }
   }
 
-  private void checkNextSiblingLine(Element node) {
-    XmlTextRange end = XmlFile.endLocation(node);
-    Element nextSiblingElement = getNextSiblingElement(node);
-    if (nextSiblingElement != null) {
-      XmlTextRange nextSiblingElementStart = XmlFile.startLocation(nextSiblingElement);
-      if (nextSiblingElementStart.getStartLine() == end.getEndLine()) {
-        reportIssue(nextSiblingElementStart, MESSAGE_START, Collections.emptyList());
-      }
+  private void startElement(XmlTextRange start) {
+    OpenElement parent = openElements.peek();
+    if (parent != null) {
+      parent.addChildElement(start);
     }
+    openElements.push(new OpenElement(start));
   }
 
-  @Nullable
-  private static Element getNextSiblingElement(Node node) {
-    Node nextSibling = node.getNextSibling();
-    if (nextSibling == null) {
-      return null;
+  private void endElement(XmlTextRange end) {
+    OpenElement element = openElements.pop();
+    if (element.childElements > 0) {
+      checkChildrenLine(element, end);
     }
-    if (nextSibling.getNodeType() == Node.ELEMENT_NODE) {
-      return (Element) nextSibling;
+    OpenElement parent = openElements.peek();
+    if (parent != null) {
+      parent.closeChildElement(element, end);
     }
-
-    return getNextSiblingElement(nextSibling);
   }
 
-  private static Optional<OutermostChildElements> getOutermostChildElements(List<Node> children) {
-    Element firstChildElement = null;
-    Element lastChildElement = null;
-
-    for (Node child : children) {
-      if (child.getNodeType() == Node.ELEMENT_NODE) {
-        if (firstChildElement == null) {
-          firstChildElement = (Element) child;
-        }
-        lastChildElement = (Element) child;
+  private void checkChildrenLine(OpenElement element, XmlTextRange end) {
+    boolean firstChildBadlyFormatted = element.firstChildElementStart.getStartLine() == element.start.getEndLine();
+    boolean lastChildBadlyFormatted = element.lastChildElementEnd.getEndLine() == end.getStartLine();
+
+    boolean singleChildElement = element.childElements == 1;
+    boolean singleLineChildElement = element.firstChildElementStart.getStartLine() == element.lastChildElementEnd.getEndLine();
+    if (singleChildElement && singleLineChildElement && firstChildBadlyFormatted && lastChildBadlyFormatted) {
+      reporter.reportIssue(element.firstChildElement, MESSAGE_START, Collections.emptyList());
+    } else {
+      if (firstChildBadlyFormatted) {
+        reporter.reportIssue(element.firstChildElementStart, MESSAGE_START, Collections.emptyList());
+      }
+      if (lastChildBadlyFormatted) {
+        reporter.reportIssue(element.lastChildElementEnd, MESSAGE_END, Collections.emptyList());
       }
     }
+  }
 
-    if (firstChildElement != null) {
-      return Optional.of(new OutermostChildElements(firstChildElement, lastChildElement));
+  /**
+   * Element being streamed, with the locations of its child elements seen so far.
+   */
+  private final class OpenElement {
+    private final XmlTextRange start;
+    private int childElements = 0;
+    private XmlTextRange firstChildElementStart;
+    private XmlTextRange firstChildElement;
+    private XmlTextRange lastChildElementEnd;
+
+    private OpenElement(XmlTextRange start) {
+      this.start = start;
     }
-    return Optional.empty();
-  }
 
-  private static class OutermostChildElements {
-    Element first = null;
-    Element last = null;
+    private void addChildElement(XmlTextRange childStart) {
+      if (lastChildElementEnd != null && childStart.getStartLine() == lastChildElementEnd.getEndLine()) {
+        reporter.reportIssue(childStart, MESSAGE_START, Collections.emptyList());
+      }
+      if (childElements == 0) {
+        firstChildElementStart = childStart;
+      }
+      childElements++;
+    }
 
-    OutermostChildElements(Element first, Element last) {
-      this.first = first;
-      this.last = last;
+    private void closeChildElement(OpenElement child, XmlTextRange childEnd) {
+      if (childElements == 1) {
+        firstChildElement = new XmlTextRange(child.start, childEnd);
+      }
+      lastChildElementEnd = childEnd;
     }
   }
 
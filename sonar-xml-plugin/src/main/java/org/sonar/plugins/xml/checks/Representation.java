@@ -0,0 +1,50 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml.checks;
+
+/**
+ * Views of a file which checks can work on.
+ */
+public enum Representation {
+
+  /**
+   * Raw content of the file, from {@link org.sonarsource.analyzer.commons.xml.XmlFile#getContents()}.
+   */
+  TEXT,
+
+  /**
+   * Tokens of the content of the file, from {@link org.sonar.plugins.xml.FileSnapshot#tokens()}, which do not require its
+   * document.
+   */
+  TOKENS,
+
+  /**
+   * Tree of the content of the file, from {@link org.sonar.plugins.xml.FileSnapshot#tree()}, which does not require its
+   * document.
+   */
+  TREE,
+
+  /**
+   * Document from {@link org.sonarsource.analyzer.commons.xml.XmlFile#getNamespaceUnawareDocument()}.
+   */
+  NAMESPACE_UNAWARE_DOM,
+
+  /**
+   * Document from {@link org.sonarsource.analyzer.commons.xml.XmlFile#getDocument()}, also providing the prolog element.
+   */
+  NAMESPACE_AWARE_DOM
+}
@@ -0,0 +1,108 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml.checks;
+
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLStreamReader;
+import org.sonar.plugins.xml.FileSnapshot;
+import org.sonar.plugins.xml.LineIndex;
+import org.sonarsource.analyzer.commons.xml.XmlTextRange;
+import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
+
+/**
+ * Check which can analyze a file in a single pass over its content, without building its document, so that files which
+ * are too large to be parsed into a DOM can still be analyzed with bounded memory.
+ * <p>
+ * A file is visited both as lines of text and as StAX events, the two channels not being synchronized with each other.
+ * Character sequences and readers given to the visitor methods are only valid during the call.
+ * <p>
+ * As these checks only need the text or the tokens of a file, they can also analyze its whole content at once, without
+ * parsing it: they then report their issues on files which are not well-formed as well.
+ */
+public interface StreamingXmlCheck {
+
+  /**
+   * Analyzes the whole content of a file, without its document, reporting the issues to the given reporter. By default,
+   * only the lines of the content are visited: checks visiting events have to find them in the tokens of the content.
+   */
+  default void scanContent(FileSnapshot snapshot, IssueReporter reporter) {
+    startStream(reporter);
+    visitLines(this, snapshot.lines());
+    endStream();
+  }
+
+  /**
+   * Called before visiting a file, the check has to forget about the previously visited file.
+   */
+  void startStream(IssueReporter reporter);
+
+  /**
+   * Text of a line, without line terminator, starting at the given column. A long line may be visited in several
+   * consecutive parts.
+   */
+  default void visitText(int line, int column, CharSequence text) {
+  }
+
+  /**
+   * Called at the end of each line, including the last one of the file.
+   */
+  default void visitEndOfLine(int line, int length) {
+  }
+
+  /**
+   * Current event of the reader, with its location in the file. The {@code START_DOCUMENT} event is only visited when the
+   * file has an XML declaration, with the location of this declaration. The {@code END_ELEMENT} event of an empty element
+   * has the location of its {@code START_ELEMENT} event.
+   */
+  default void visitEvent(XMLStreamReader reader, XmlTextRange range) {
+  }
+
+  /**
+   * Called after visiting the whole file.
+   */
+  default void endStream() {
+  }
+
+  /**
+   * Visits the given lines, as they would be visited when streaming the file.
+   */
+  static void visitLines(StreamingXmlCheck check, LineIndex lines) {
+    LineIndex.LineText lineText = lines.newLineText();
+    for (int line = 1; line <= lines.lineCount(); line++) {
+      check.visitText(line, 0, lineText.moveTo(line));
+      check.visitEndOfLine(line, lines.lineLength(line));
+    }
+  }
+
+  interface IssueReporter {
+
+    void reportIssue(XmlTextRange range, String message, List<SecondaryLocation> secondaryLocations);
+
+    /**
+     * Reports the issues through the given check, when the file is analyzed from its document.
+     */
+    static IssueReporter of(SonarXmlCheck check) {
+      return (range, message, secondaryLocations) -> check.reportIssue(range, message, secondaryLocations.stream()
+        .map(secondaryLocation -> new SonarXmlCheck.Secondary(secondaryLocation.range(), secondaryLocation.message()))
+        .toList());
+    }
+  }
+
+  record SecondaryLocation(XmlTextRange range, @Nullable String message) {
+  }
+}
@@ -18,10 +18,9 @@ package org.sonar.plugins.xml.checks;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.sonar.check.Rule;
-import org.sonar.plugins.xml.Utils;
+import org.sonar.plugins.xml.FileSnapshot;
+import org.sonar.plugins.xml.LineIndex;
 import org.sonar.plugins.xml.Xml;
 import org.sonarsource.analyzer.commons.annotations.DeprecatedRuleKey;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
@@ -33,45 +32,95 @@ import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
  */
 @Rule(key = TabCharacterCheck.RULE_KEY)
 @DeprecatedRuleKey(ruleKey = "IllegalTabCheck", repositoryKey = Xml.REPOSITORY_KEY)
-public class TabCharacterCheck extends SonarXmlCheck {
+@RequiresRepresentation(Representation.TEXT)
+public class TabCharacterCheck extends SonarXmlCheck implements StreamingXmlCheck {
 
   public static final String RULE_KEY = "S105";
-  private static final Pattern TABS_REGEX = Pattern.compile("\t++");
   private static final int MAX_REPORTED_LOCATION = 21;
 
+  private IssueReporter reporter;
+  private final List<XmlTextRange> firstTabLocations = new ArrayList<>();
+  private int extraTabsCount;
+  private int tabsStartColumn;
+
   @Override
   public void scanFile(XmlFile file) {
-    String content = file.getContents();
+    scanContent(FileSnapshot.of(file), IssueReporter.of(this));
+  }
+
+  @Override
+  public void scanContent(FileSnapshot snapshot, IssueReporter reporter) {
+    String content = snapshot.content();
     if (content.indexOf('\t') == -1) {
       return;
     }
-    String[] lines = Utils.splitLines(content);
-    List<XmlTextRange> firstTabLocations = new ArrayList<>();
-    int extraTabsCount = 0;
-    for (int lineNumber = 1; lineNumber <= lines.length; lineNumber++) {
-      String line = lines[lineNumber - 1];
-      Matcher tabsMatcher = TABS_REGEX.matcher(line);
-      while (tabsMatcher.find()) {
-        if (firstTabLocations.size() < MAX_REPORTED_LOCATION) {
-          firstTabLocations.add(new XmlTextRange(lineNumber, tabsMatcher.start(), lineNumber, tabsMatcher.end()));
-        } else {
-          extraTabsCount += tabsMatcher.end() - tabsMatcher.start();
+    startStream(reporter);
+    LineIndex lines = snapshot.lines();
+    int length = content.length();
+    int tab = lines.indexOf('\t', 0, length);
+    while (tab < length) {
+      int line = lines.lineOf(tab);
+      int lineStart = lines.lineStart(line);
+      // runs of tabs never span several lines
+      int tabsEnd = lines.indexOfOther('\t', tab, length);
+      tabsStartColumn = tab - lineStart;
+      addTabs(line, tabsEnd - lineStart);
+      tab = lines.indexOf('\t', tabsEnd, length);
+    }
+    endStream();
+  }
+
+  @Override
+  public void startStream(IssueReporter reporter) {
+    this.reporter = reporter;
+    firstTabLocations.clear();
+    extraTabsCount = 0;
+    tabsStartColumn = -1;
+  }
+
+  @Override
+  public void visitText(int line, int column, CharSequence text) {
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) == '\t') {
+        if (tabsStartColumn == -1) {
+          tabsStartColumn = column + i;
         }
+      } else if (tabsStartColumn != -1) {
+        addTabs(line, column + i);
       }
     }
-    reportIssue(firstTabLocations, extraTabsCount);
   }
 
-  private void reportIssue(List<XmlTextRange> firstTabLocations, int extraTabsCount) {
+  @Override
+  public void visitEndOfLine(int line, int length) {
+    if (tabsStartColumn != -1) {
+      addTabs(line, length);
+    }
+  }
+
+  private void addTabs(int line, int endColumn) {
+    if (firstTabLocations.size() < MAX_REPORTED_LOCATION) {
+      firstTabLocations.add(new XmlTextRange(line, tabsStartColumn, line, endColumn));
+    } else {
+      extraTabsCount += endColumn - tabsStartColumn;
+    }
+    tabsStartColumn = -1;
+  }
+
+  @Override
+  public void endStream() {
+    if (firstTabLocations.isEmpty()) {
+      return;
+    }
     XmlTextRange primaryLocation = firstTabLocations.get(0);
-    List<Secondary> secondaries = new ArrayList<>();
+    List<SecondaryLocation> secondaries = new ArrayList<>();
     for (int i = 1; i < firstTabLocations.size(); i++) {
       XmlTextRange range = firstTabLocations.get(i);
       boolean limitReached = (i == MAX_REPORTED_LOCATION - 1);
-      secondaries.add(new Secondary(range, "tab character(s)" +
+      secondaries.add(new SecondaryLocation(range, "tab character(s)" +
         (limitReached && extraTabsCount > 0 ? (" (and " + extraTabsCount + " more in this file)") : "")));
     }
-    reportIssue(primaryLocation, "Replace all tab characters in this file by sequences of white-spaces.", secondaries);
+    reporter.reportIssue(primaryLocation, "Replace all tab characters in this file by sequences of white-spaces.", secondaries);
   }
 
 }
@@ -20,6 +20,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import javax.annotation.CheckForNull;
 import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
@@ -62,24 +63,28 @@ public class XPathCheck extends SonarXmlCheck {
   @CheckForNull
   private Boolean requiresNamespace = null;
 
+  /**
+   * Whether an evaluation of the expression exceeded the time budget of the analysis of a file, and may still be running.
+   */
+  private boolean retired = false;
+
   @Override
   public void scanFile(XmlFile file) {
-    if (!isFileIncluded(file)) {
+    if (retired || !isFileIncluded(file)) {
       return;
     }
 
-    XPathExpression xPathExpression = getXPathExpression(file);
-
     Document document = requiresNamespace() ? file.getNamespaceAwareDocument() : file.getNamespaceUnawareDocument();
     try {
-      NodeList nodes = (NodeList) xPathExpression.evaluate(document, XPathConstants.NODESET);
+      NodeList nodes = (NodeList) evaluate(file, document, XPathConstants.NODESET);
       for (int i = 0; i < nodes.getLength(); i++) {
+        AnalysisDeadline.checkpoint();
         reportIssue(nodes.item(i), getMessage());
       }
 
     } catch (XPathExpressionException nodeSetException) {
       try {
-        Boolean result = (Boolean) xPathExpression.evaluate(document, XPathConstants.BOOLEAN);
+        Boolean result = (Boolean) evaluate(file, document, XPathConstants.BOOLEAN);
         if (Boolean.TRUE.equals(result)) {
           reportIssueOnFile(getMessage(), Collections.emptyList());
         }
@@ -92,6 +97,30 @@ public class XPathCheck extends SonarXmlCheck {
     }
   }
 
+  /**
+   * Evaluates the expression with its own compiled instance, as the evaluation is abandoned when it exceeds the time budget
+   * of the analysis of the file, but keeps running in the background. The expression is then not evaluated on the
+   * following files.
+   */
+  private Object evaluate(XmlFile file, Document document, QName returnType) throws XPathExpressionException {
+    AnalysisDeadline.checkpoint();
+    try {
+      return AnalysisDeadline.call(() -> getXPathExpression(file).evaluate(document, returnType));
+    } catch (AnalysisDeadline.ExceededException e) {
+      retired = true;
+      LOG.warn("[{}] XPath expression '{}' exceeded the time budget of the analysis of {}, it is not evaluated on the following files",
+        ruleKey(), expression, inputFile());
+      throw e;
+    }
+  }
+
+  /**
+   * @return whether an evaluation of the expression exceeded the time budget, so that it is not evaluated anymore
+   */
+  public boolean isRetired() {
+    return retired;
+  }
+
   private boolean requiresNamespace() {
     if (requiresNamespace == null) {
       requiresNamespace = false;
@@ -0,0 +1,54 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml.checks;
+
+import java.util.Collections;
+import org.sonar.plugins.xml.FileSnapshot;
+import org.sonar.plugins.xml.XmlTree;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
+import org.w3c.dom.Element;
+
+/**
+ * Check working on the {@link XmlTree tree} of a file, which does not require its document.
+ * <p>
+ * Checks working on the document can move to the tree gradually: they can get the tree of their file with
+ * {@code FileSnapshot.of(file).tree()}, and find the node of an element of the document with
+ * {@link #treeElement(XmlTree, Element)}. A subclass still working on the document must declare the
+ * {@link RequiresRepresentation representation} it needs.
+ */
+@RequiresRepresentation(Representation.TREE)
+public abstract class XmlTreeCheck extends SonarXmlCheck {
+
+  @Override
+  public final void scanFile(XmlFile file) {
+    scanTree(FileSnapshot.of(file).tree());
+  }
+
+  public abstract void scanTree(XmlTree tree);
+
+  protected final void reportIssue(XmlTree tree, int node, String message) {
+    reportIssue(tree.nodeLocation(node), message, Collections.emptyList());
+  }
+
+  /**
+   * @return the node of the given element of the document of the file in its tree, or -1 when the tree does not have it
+   */
+  public static int treeElement(XmlTree tree, Element element) {
+    return tree.elementAt(XmlFile.startLocation(element));
+  }
+}
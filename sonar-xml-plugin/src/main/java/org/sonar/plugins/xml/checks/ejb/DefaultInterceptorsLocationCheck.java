@@ -18,12 +18,15 @@ package org.sonar.plugins.xml.checks.ejb;
 
 import javax.xml.xpath.XPathExpression;
 import org.sonar.check.Rule;
+import org.sonar.plugins.xml.checks.Representation;
+import org.sonar.plugins.xml.checks.RequiresRepresentation;
 import org.sonarsource.analyzer.commons.annotations.DeprecatedRuleKey;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
 
 @Rule(key = "S3281")
 @DeprecatedRuleKey(repositoryKey = "java", ruleKey = "S3281")
+@RequiresRepresentation(Representation.NAMESPACE_UNAWARE_DOM)
 public class DefaultInterceptorsLocationCheck extends SimpleXPathBasedCheck {
 
   private XPathExpression defaultInterceptorClassesExpression = getXPathExpression("ejb-jar/assembly-descriptor/interceptor-binding[ejb-name=\"*\"]/interceptor-class");
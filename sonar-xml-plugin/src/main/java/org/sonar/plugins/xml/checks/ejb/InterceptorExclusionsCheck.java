@@ -18,6 +18,8 @@ package org.sonar.plugins.xml.checks.ejb;
 
 import javax.xml.xpath.XPathExpression;
 import org.sonar.check.Rule;
+import org.sonar.plugins.xml.checks.Representation;
+import org.sonar.plugins.xml.checks.RequiresRepresentation;
 import org.sonarsource.analyzer.commons.annotations.DeprecatedRuleKey;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
@@ -25,6 +27,7 @@ import org.w3c.dom.Node;
 
 @Rule(key = "S3282")
 @DeprecatedRuleKey(repositoryKey = "java", ruleKey = "S3282")
+@RequiresRepresentation(Representation.NAMESPACE_UNAWARE_DOM)
 public class InterceptorExclusionsCheck extends SimpleXPathBasedCheck {
 
   private XPathExpression notDefaultInterceptorBindingsExpression = getXPathExpression("ejb-jar/assembly-descriptor/interceptor-binding[ejb-name!=\"*\"]");
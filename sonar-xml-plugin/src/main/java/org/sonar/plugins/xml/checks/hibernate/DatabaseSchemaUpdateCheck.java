@@ -18,6 +18,8 @@ package org.sonar.plugins.xml.checks.hibernate;
 
 import javax.xml.xpath.XPathExpression;
 import org.sonar.check.Rule;
+import org.sonar.plugins.xml.checks.Representation;
+import org.sonar.plugins.xml.checks.RequiresRepresentation;
 import org.sonarsource.analyzer.commons.annotations.DeprecatedRuleKey;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
@@ -26,6 +28,7 @@ import org.w3c.dom.NodeList;
 
 @Rule(key = "S3822")
 @DeprecatedRuleKey(repositoryKey = "java", ruleKey = "S3822")
+@RequiresRepresentation(Representation.NAMESPACE_UNAWARE_DOM)
 public class DatabaseSchemaUpdateCheck extends SimpleXPathBasedCheck {
 
   private XPathExpression hibernateHbm2ddlAutoProperty = getXPathExpression("//property[@name='hibernate.hbm2ddl.auto']");
@@ -18,8 +18,10 @@ package org.sonar.plugins.xml.checks.maven;
 
 import java.util.Collections;
 import java.util.Optional;
-import javax.xml.xpath.XPathExpression;
 import org.sonar.check.Rule;
+import org.sonar.plugins.xml.checks.AppliesTo;
+import org.sonar.plugins.xml.checks.DocumentVisitor;
+import org.sonar.plugins.xml.checks.DocumentWalker;
 import org.sonarsource.analyzer.commons.annotations.DeprecatedRuleKey;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
@@ -29,9 +31,8 @@ import org.w3c.dom.NodeList;
 
 @Rule(key = "S3422")
 @DeprecatedRuleKey(repositoryKey = "java", ruleKey = "S3422")
-public class DependencyWithSystemScopeCheck extends SimpleXPathBasedCheck {
-
-  private XPathExpression dependencyExpression = getXPathExpression("//dependencies/dependency");
+@AppliesTo(fileNames = "pom.xml")
+public class DependencyWithSystemScopeCheck extends SimpleXPathBasedCheck implements DocumentVisitor {
 
   @Override
   public void scanFile(XmlFile xmlFile) {
@@ -39,8 +40,19 @@ public class DependencyWithSystemScopeCheck extends SimpleXPathBasedCheck {
       return;
     }
 
-    evaluateAsList(dependencyExpression, xmlFile.getNamespaceUnawareDocument())
-      .forEach(dependency -> checkDependency((Element) dependency));
+    DocumentWalker.visit(xmlFile.getDocument(), this);
+  }
+
+  @Override
+  public int visitedNodeTypes() {
+    return DocumentVisitor.nodeTypes(Node.ELEMENT_NODE);
+  }
+
+  @Override
+  public void enterNode(Node node) {
+    if (MavenElements.isDependency(node)) {
+      checkDependency((Element) node);
+    }
   }
 
   private void checkDependency(Element dependency) {
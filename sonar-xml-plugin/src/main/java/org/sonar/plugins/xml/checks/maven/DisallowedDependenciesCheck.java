@@ -16,33 +16,37 @@
  */
 package org.sonar.plugins.xml.checks.maven;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.CheckForNull;
-import javax.xml.xpath.XPathExpression;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
+import org.sonar.plugins.xml.checks.AppliesTo;
+import org.sonar.plugins.xml.checks.DocumentVisitor;
+import org.sonar.plugins.xml.checks.DocumentWalker;
 import org.sonar.plugins.xml.checks.maven.helpers.MavenDependencyMatcher;
 import org.sonarsource.analyzer.commons.annotations.DeprecatedRuleKey;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
+import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
 @Rule(key = DisallowedDependenciesCheck.KEY)
 @DeprecatedRuleKey(repositoryKey = "java", ruleKey = DisallowedDependenciesCheck.KEY)
-public class DisallowedDependenciesCheck extends SimpleXPathBasedCheck {
+@AppliesTo(fileNames = "pom.xml")
+public class DisallowedDependenciesCheck extends SimpleXPathBasedCheck implements DocumentVisitor {
 
   private static final Logger LOG = LoggerFactory.getLogger(DisallowedDependenciesCheck.class);
 
   public static final String KEY = "S3417";
 
-  private final XPathExpression dependencyExpression = getXPathExpression("//dependencies/dependency");
-  private final XPathExpression propertiesExpression = getXPathExpression("//properties");
   private final Pattern propertyPlaceholderPattern = Pattern.compile("\\$\\{(?<property>[^}]++)}");
 
   @RuleProperty(
@@ -59,31 +63,57 @@ public class DisallowedDependenciesCheck extends SimpleXPathBasedCheck {
   @CheckForNull
   private MavenDependencyMatcher dependencyMatcher = null;
 
+  private final Map<String, String> propertiesMap = new HashMap<>();
+  private final List<Element> dependencies = new ArrayList<>();
+
   @Override
   public void scanFile(XmlFile xmlFile) {
-    if (!"pom.xml".equalsIgnoreCase(xmlFile.getInputFile().filename())) {
+    if (!"pom.xml".equalsIgnoreCase(xmlFile.getInputFile().filename()) || getMatcher() == null) {
       return;
     }
-    MavenDependencyMatcher matcher = getMatcher();
-    if (matcher == null) {
-      return;
-    }
-    Map<String, String> propertiesMap = new HashMap<>();
+    DocumentWalker.visit(xmlFile.getDocument(), this);
+  }
+
+  @Override
+  public int visitedNodeTypes() {
+    return DocumentVisitor.nodeTypes(Node.ELEMENT_NODE);
+  }
+
+  @Override
+  public void startDocument(Document document) {
+    // the analysis of the previous file may have been abandoned
+    propertiesMap.clear();
+    dependencies.clear();
+  }
 
-    evaluateAsList(propertiesExpression, xmlFile.getNamespaceUnawareDocument())
-            .forEach(properties -> XmlFile.children(properties).stream()
-                    .filter(node -> node.getNodeType() == Node.ELEMENT_NODE)
-                    .forEach(property -> propertiesMap.put(property.getNodeName(), property.getTextContent())));
+  @Override
+  public void enterNode(Node node) {
+    if ("properties".equals(node.getNodeName())) {
+      for (Node property = node.getFirstChild(); property != null; property = property.getNextSibling()) {
+        if (property.getNodeType() == Node.ELEMENT_NODE) {
+          propertiesMap.put(property.getNodeName(), property.getTextContent());
+        }
+      }
+    } else if (MavenElements.isDependency(node)) {
+      // versions are resolved once all the properties are known
+      dependencies.add((Element) node);
+    }
+  }
 
-    evaluateAsList(dependencyExpression, xmlFile.getNamespaceUnawareDocument()).forEach(dependency -> {
+  @Override
+  public void endDocument(Document document) {
+    MavenDependencyMatcher matcher = getMatcher();
+    for (Element dependency : dependencies) {
       String groupId = getChildElementText("groupId", dependency);
       String artifactId = getChildElementText("artifactId", dependency);
       String dependencyVersion = resolveDependencyVersion(propertiesMap, dependency);
 
-      if (matcher.matches(groupId, artifactId, dependencyVersion)) {
+      if (matcher != null && matcher.matches(groupId, artifactId, dependencyVersion)) {
         reportIssue(dependency, "Remove this forbidden dependency.");
       }
-    });
+    }
+    propertiesMap.clear();
+    dependencies.clear();
   }
 
   private String resolveDependencyVersion(Map<String, String> propertiesMap, Node dependency) {
@@ -97,7 +127,7 @@ public class DisallowedDependenciesCheck extends SimpleXPathBasedCheck {
   }
 
   private static String getChildElementText(String childElementName, Node parent) {
-    for (Node node : XmlFile.children(parent)) {
+    for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
       if (node.getNodeType() == Node.ELEMENT_NODE && ((Element) node).getTagName().equals(childElementName)) {
         return node.getTextContent();
       }
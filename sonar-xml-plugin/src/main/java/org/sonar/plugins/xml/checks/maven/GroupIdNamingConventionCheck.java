@@ -20,6 +20,9 @@ import java.util.regex.Pattern;
 import javax.xml.xpath.XPathExpression;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
+import org.sonar.plugins.xml.checks.AppliesTo;
+import org.sonar.plugins.xml.checks.Representation;
+import org.sonar.plugins.xml.checks.RequiresRepresentation;
 import org.sonarsource.analyzer.commons.annotations.DeprecatedRuleKey;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
@@ -28,6 +31,8 @@ import org.w3c.dom.NodeList;
 
 @Rule(key = GroupIdNamingConventionCheck.KEY)
 @DeprecatedRuleKey(repositoryKey = "java", ruleKey = GroupIdNamingConventionCheck.KEY)
+@AppliesTo(fileNames = "pom.xml")
+@RequiresRepresentation(Representation.NAMESPACE_UNAWARE_DOM)
 public class GroupIdNamingConventionCheck extends SimpleXPathBasedCheck {
 
   public static final String KEY = "S3419";
@@ -0,0 +1,41 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml.checks.maven;
+
+import org.w3c.dom.Node;
+
+/**
+ * Matching of the elements of a POM by their qualified names, as when matching an XPath expression without prefixes
+ * against the namespace-unaware document.
+ */
+final class MavenElements {
+
+  private MavenElements() {
+    // utility class, forbidden constructor
+  }
+
+  /**
+   * @return true for the elements matching {@code //dependencies/dependency}
+   */
+  static boolean isDependency(Node node) {
+    Node parent = node.getParentNode();
+    return node.getNodeType() == Node.ELEMENT_NODE
+      && "dependency".equals(node.getNodeName())
+      && parent != null
+      && "dependencies".equals(parent.getNodeName());
+  }
+}
@@ -20,20 +20,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
 import org.sonar.check.Rule;
+import org.sonar.plugins.xml.XmlTree;
+import org.sonar.plugins.xml.checks.AppliesTo;
+import org.sonar.plugins.xml.checks.XmlTreeCheck;
 import org.sonarsource.analyzer.commons.annotations.DeprecatedRuleKey;
-import org.sonarsource.analyzer.commons.xml.XmlFile;
-import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
 
 @Rule(key = "S3423")
 @DeprecatedRuleKey(repositoryKey = "java", ruleKey = "S3423")
-public class PomElementOrderCheck extends SonarXmlCheck {
-
-  private static final Comparator<Node> LINE_COMPARATOR = Comparator.comparingInt(n -> XmlFile.nodeLocation(n).getStartLine());
+@AppliesTo(fileNames = "pom.xml")
+public class PomElementOrderCheck extends XmlTreeCheck {
 
   private static final List<String> REQUIRED_ORDER = Arrays.asList(
     "modelVersion",
@@ -67,31 +64,32 @@ public class PomElementOrderCheck extends SonarXmlCheck {
     "profiles");
 
   @Override
-  public void scanFile(XmlFile xmlFile) {
-    if (!"pom.xml".equalsIgnoreCase(xmlFile.getInputFile().filename())) {
+  public void scanTree(XmlTree tree) {
+    int project = tree.root();
+    if (!"pom.xml".equalsIgnoreCase(inputFile().filename()) || project == -1) {
       return;
     }
 
-    checkPositions(xmlFile.getDocument().getDocumentElement());
+    checkPositions(tree, project);
   }
 
-  private static Optional<Element> getChildElementByName(String name, List<Node> children) {
-    return children.stream()
-      .filter(child -> child.getNodeType() == Node.ELEMENT_NODE)
-      .map(Element.class::cast)
-      .filter(element -> element.getTagName().equals(name))
-      .findFirst();
+  private static int getChildElementByName(XmlTree tree, int parent, String name) {
+    for (int child = tree.firstChild(parent); child != -1; child = tree.nextSibling(child)) {
+      if (name.equals(tree.name(child))) {
+        return child;
+      }
+    }
+    return -1;
   }
 
-  private void checkPositions(Element project) {
-    List<Node> children = XmlFile.children(project);
-    List<Node> expectedOrder = REQUIRED_ORDER.stream()
-      .map(elementName -> getChildElementByName(elementName, children))
-      .filter(Optional::isPresent)
-      .map(Optional::get)
+  private void checkPositions(XmlTree tree, int project) {
+    List<Integer> expectedOrder = REQUIRED_ORDER.stream()
+      .map(elementName -> getChildElementByName(tree, project, elementName))
+      .filter(element -> element != -1)
       .collect(Collectors.toList());
 
-    List<Node> observedOrder = expectedOrder.stream().sorted(LINE_COMPARATOR).collect(Collectors.toList());
+    Comparator<Integer> lineComparator = Comparator.comparingInt(element -> tree.nodeLocation(element).getStartLine());
+    List<Integer> observedOrder = expectedOrder.stream().sorted(lineComparator).collect(Collectors.toList());
 
     int lastWrongPosition = -1;
     int firstWrongPosition = -1;
@@ -112,11 +110,11 @@ public class PomElementOrderCheck extends SonarXmlCheck {
     List<Secondary> inconsistencies = new ArrayList<>();
     // only reports between first and last wrong position
     for (int index = firstWrongPosition; index <= lastWrongPosition; index++) {
-      inconsistencies.add(new Secondary(expectedOrder.get(index), "Expected position: " + (index + 1)));
+      inconsistencies.add(new Secondary(tree.nodeLocation(expectedOrder.get(index)), "Expected position: " + (index + 1)));
     }
 
     if (!inconsistencies.isEmpty()) {
-      reportIssue(XmlFile.startLocation(project),
+      reportIssue(tree.startLocation(project),
         "Reorder the elements of this pom to match the recommended order.", inconsistencies);
     }
   }
@@ -16,6 +16,7 @@
  */
 package org.sonar.plugins.xml.checks.security;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -30,21 +31,34 @@ import java.util.stream.Stream;
 import javax.xml.xpath.XPathExpression;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
+import org.sonar.plugins.xml.FileSnapshot;
+import org.sonar.plugins.xml.ParallelTraversal;
 import org.sonar.plugins.xml.Xml;
+import org.sonar.plugins.xml.XmlNodeType;
+import org.sonar.plugins.xml.XmlTree;
+import org.sonar.plugins.xml.checks.AppliesTo;
+import org.sonar.plugins.xml.checks.Representation;
+import org.sonar.plugins.xml.checks.RequiresRepresentation;
 import org.sonarsource.analyzer.commons.xml.XPathBuilder;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
+import org.sonarsource.analyzer.commons.xml.XmlTextRange;
 import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
-import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
+/**
+ * Applies to all files, so it is not restricted by {@link AppliesTo}. Only the .NET application configuration files are
+ * checked differently, by name, and the special cases of well-known files are only evaluated on files having their root
+ * element. The namespace-unaware document is not declared: it is only needed by these special cases, which build it on
+ * demand, as the check is never run concurrently with other checks of the file.
+ */
 @Rule(key = "S2068")
+@RequiresRepresentation({Representation.TREE, Representation.NAMESPACE_AWARE_DOM})
 public class HardcodedCredentialsCheck extends SimpleXPathBasedCheck {
 
   private static final String VALUE = "value";
   private static final Set<String> VALUE_ATTRIBUTE = Collections.singleton(VALUE);
 
-  private static final XPathExpression WEB_CONFIG_CREDENTIALS_PATH = XPathBuilder
+  private final XPathExpression webConfigCredentialsPath = XPathBuilder
     .forExpression("/configuration/system.web/authentication[@mode=\"Forms\"]/forms/credentials[@passwordFormat=\"Clear\"]/user/@password[string-length(.) > 0]").build();
 
   private static final Pattern VALID_CREDENTIAL_VALUES = Pattern.compile("[\\{$#]\\{");
@@ -77,71 +91,80 @@ public class HardcodedCredentialsCheck extends SimpleXPathBasedCheck {
   @Override
   public void scanFile(XmlFile file) {
     if (Xml.isDotNetApplicationConfig(file.getInputFile())) {
-      evaluateAsList(WEB_CONFIG_CREDENTIALS_PATH, file.getDocument()).stream()
+      evaluateAsList(webConfigCredentialsPath, file.getDocument()).stream()
         .filter(passwordAttrNode -> !isValidWebConfigCredential(passwordAttrNode.getNodeValue()))
         .forEach(this::reportIssue);
     } else {
-      checkElements(file.getDocument());
-      checkSpecialCases(file);
+      XmlTree tree = FileSnapshot.of(file).tree();
+      checkElements(tree);
+      checkSpecialCases(file, tree);
     }
   }
 
-  private void checkElements(Node element) {
-    checkNode(element);
-    checkAttributes(element, credentialWordsSet(), true);
-
-    NodeList children = element.getChildNodes();
-    for (int i = 0; i < children.getLength(); i++) {
-      checkElements(children.item(i));
-    }
+  /**
+   * Elements are checked independently of each other, by several tasks on large files: see {@link ParallelTraversal}.
+   */
+  private void checkElements(XmlTree tree) {
+    Set<String> words = credentialWordsSet();
+    List<List<Credential>> credentials = ParallelTraversal.mapNodes(tree, (start, end) -> {
+      List<Credential> found = new ArrayList<>();
+      for (int node = start; node < end; node++) {
+        if (tree.type(node) == XmlNodeType.ELEMENT) {
+          checkNode(tree, node, words, found);
+          checkAttributes(tree, node, words, words, true, found);
+        }
+      }
+      return found;
+    });
+    credentials.forEach(found -> found.forEach(credential -> reportIssue(credential.location(), String.format(ISSUE_MESSAGE, credential.name()),
+      Collections.emptyList())));
   }
 
-  private void checkNode(Node node) {
-    NodeList childNodes = node.getChildNodes();
-    if (childNodes.getLength() == 0) {
-      checkAttributes(node, VALUE_ATTRIBUTE, false);
+  private static void checkNode(XmlTree tree, int element, Set<String> credentialWords, List<Credential> found) {
+    int childNode = tree.firstChild(element);
+    if (childNode == -1) {
+      checkAttributes(tree, element, VALUE_ATTRIBUTE, credentialWords, false, found);
       return;
     }
-    if (childNodes.getLength() != 1) {
+    if (tree.nextSibling(childNode) != -1 || tree.type(childNode) != XmlNodeType.TEXT) {
       return;
     }
-    Node childNode = childNodes.item(0);
-    if (childNode.getNodeType() != Node.TEXT_NODE) {
-      return;
+    if (!isValidCredential(tree.text(childNode)) && isCredentialName(tree.name(element), credentialWords)) {
+      found.add(new Credential(tree.nodeLocation(element), tree.localName(element)));
     }
-    checkCredential(node, childNode.getTextContent());
   }
 
-  private void checkAttributes(Node node, Set<String> credentialWords, boolean reportOnAttribute) {
-    if (!node.hasAttributes()) {
+  /**
+   * As in documents, the attributes of an element are checked in the order of their names.
+   */
+  private static void checkAttributes(XmlTree tree, int element, Set<String> attributeNames, Set<String> credentialWords, boolean reportOnAttribute,
+    List<Credential> found) {
+    int credentialAttribute = -1;
+    for (int attribute = tree.firstAttribute(element); attribute < tree.attributesEnd(element); attribute++) {
+      if (isCredentialName(tree.attributeName(attribute), attributeNames)
+        && (credentialAttribute == -1 || tree.attributeName(attribute).compareTo(tree.attributeName(credentialAttribute)) < 0)) {
+        credentialAttribute = attribute;
+      }
+    }
+    if (credentialAttribute == -1 || isValidCredential(tree.attributeValue(credentialAttribute))) {
       return;
     }
-    NamedNodeMap attributes = node.getAttributes();
-    for (int i = 0; i < attributes.getLength(); i++) {
-      Node attribute = attributes.item(i);
-      if (isCredentialNode(attribute, credentialWords)) {
-        checkCredential(reportOnAttribute ? attribute : node, attribute.getTextContent());
-        break;
-      }
+    if (reportOnAttribute) {
+      found.add(new Credential(tree.attributeLocation(credentialAttribute), localName(tree.attributeName(credentialAttribute))));
+    } else if (isCredentialName(tree.name(element), credentialWords)) {
+      found.add(new Credential(tree.nodeLocation(element), tree.localName(element)));
     }
   }
 
-  private static boolean isCredentialNode(Node node, Set<String> credentialWords) {
-    String localName = node.getLocalName();
-    if (localName == null) {
-      return false;
-    }
-    return credentialWords.contains(localName.toLowerCase(Locale.ROOT)) &&
-      !"android:password".equalsIgnoreCase(node.getNodeName());
+  private static boolean isCredentialName(String name, Set<String> credentialWords) {
+    return credentialWords.contains(localName(name).toLowerCase(Locale.ROOT)) && !"android:password".equalsIgnoreCase(name);
   }
 
-  private void checkCredential(Node node, String candidate) {
-    if (isValidCredential(candidate)) {
-      return;
-    }
-    if (isCredentialNode(node, credentialWordsSet())) {
-      reportIssue(node);
-    }
+  private static String localName(String name) {
+    return name.substring(name.indexOf(':') + 1);
+  }
+
+  private record Credential(XmlTextRange location, String name) {
   }
 
   private static boolean isValidCredential(String candidate) {
@@ -152,8 +175,19 @@ public class HardcodedCredentialsCheck extends SimpleXPathBasedCheck {
     return isValidCredential(candidate) || VALID_WEB_CONFIG_CREDENTIAL_VALUES.matcher(candidate).matches();
   }
 
-  private void checkSpecialCases(XmlFile file) {
-    specialCases.forEach(specialCase -> specialCase.accept(file));
+  /**
+   * Special cases only apply to files having their root element, as checks declaring it through {@link AppliesTo}: the
+   * expressions of the other ones are not evaluated.
+   */
+  private void checkSpecialCases(XmlFile file, XmlTree tree) {
+    int root = tree.root();
+    if (root == -1) {
+      return;
+    }
+    String rootElement = tree.localName(root);
+    specialCases.stream()
+      .filter(specialCase -> specialCase.rootElement.equals(rootElement))
+      .forEach(specialCase -> specialCase.accept(file));
   }
 
   private void reportIssue(Node node) {
@@ -162,26 +196,29 @@ public class HardcodedCredentialsCheck extends SimpleXPathBasedCheck {
 
   private final List<SpecialCase> specialCases = Arrays.asList(
     // FileZilla3
-    new SpecialCase(
+    new SpecialCase("FileZilla3",
       "/FileZilla3/Servers/Server/Pass"
         + "|/FileZilla3/RecentServers/Server/Pass",
       HardcodedCredentialsCheck::getTextValueSafe,
       false),
     // Jenkins
-    new SpecialCase(
+    new SpecialCase("jenkins.plugins.publish_over_ssh.BapSshHostConfiguration",
       "/jenkins.plugins.publish_over_ssh.BapSshHostConfiguration/secretPassword"
         + "|/jenkins.plugins.publish_over_ssh.BapSshHostConfiguration/commonConfig/secretPassphrase"
         + "|/jenkins.plugins.publish_over_ssh.BapSshHostConfiguration/keyInfo/secretPassphrase",
       HardcodedCredentialsCheck::getTextValueSafe,
       false),
     // SonarQube
-    new SpecialCase(
-      "/SonarQubeAnalysisProperties/Property[@Name='sonar.login']"
-        + "|project/properties/sonar.login",
+    new SpecialCase("SonarQubeAnalysisProperties",
+      "/SonarQubeAnalysisProperties/Property[@Name='sonar.login']",
+      HardcodedCredentialsCheck::getTextValueSafe,
+      false),
+    new SpecialCase("project",
+      "project/properties/sonar.login",
       HardcodedCredentialsCheck::getTextValueSafe,
       false),
     // Spring Framework
-    new SpecialCase(
+    new SpecialCase("beans",
       "/beans/bean/property/list/bean["
         + "@class='org.springframework.social.facebook.connect.FacebookConnectionFactory'"
         + " or @class='org.springframework.social.github.connect.GitHubConnectionFactory'"
@@ -191,7 +228,7 @@ public class HardcodedCredentialsCheck extends SimpleXPathBasedCheck {
         + "]/constructor-arg[2]",
       node -> getAttributeSafe(node, VALUE),
       false),
-    new SpecialCase(
+    new SpecialCase("beans",
       XPathBuilder.forExpression("/b:beans/f:config"
         + "|/b:beans/gh:config"
         + "|/b:beans/gg:config"
@@ -207,7 +244,7 @@ public class HardcodedCredentialsCheck extends SimpleXPathBasedCheck {
       node -> getAttributeSafe(node, "app-secret"),
       true),
     // Teiid
-    new SpecialCase(
+    new SpecialCase("security-domain",
       "/security-domain/authentication/login-module/module-option["
         + "@name='consumer-key' "
         + "or @name='consumer-secret'"
@@ -226,19 +263,22 @@ public class HardcodedCredentialsCheck extends SimpleXPathBasedCheck {
   }
 
   private class SpecialCase implements Consumer<XmlFile> {
+    private final String rootElement;
     private final XPathExpression xpathExpression;
     private final Function<Node, Optional<Node>> credentialGetter;
     private final boolean usesNamespaces;
     private final boolean reportOnAttribute;
 
-    private SpecialCase(String xPathExpression, Function<Node, Optional<Node>> credentialGetter, boolean reportOnAttribute) {
+    private SpecialCase(String rootElement, String xPathExpression, Function<Node, Optional<Node>> credentialGetter, boolean reportOnAttribute) {
+      this.rootElement = rootElement;
       this.xpathExpression = getXPathExpression(xPathExpression);
       this.usesNamespaces = false;
       this.credentialGetter = credentialGetter;
       this.reportOnAttribute = reportOnAttribute;
     }
 
-    private SpecialCase(XPathExpression xPathExpression, Function<Node, Optional<Node>> credentialGetter, boolean reportOnAttribute) {
+    private SpecialCase(String rootElement, XPathExpression xPathExpression, Function<Node, Optional<Node>> credentialGetter, boolean reportOnAttribute) {
+      this.rootElement = rootElement;
       this.xpathExpression = xPathExpression;
       this.usesNamespaces = true;
       this.credentialGetter = credentialGetter;
@@ -16,12 +16,18 @@
  */
 package org.sonar.plugins.xml.checks.security.android;
 
+import org.sonar.plugins.xml.checks.AppliesTo;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
 
+@AppliesTo(fileNames = AbstractAndroidManifestCheck.ANDROID_MANIFEST_XML)
 public abstract class AbstractAndroidManifestCheck extends SimpleXPathBasedCheck {
 
-  private static final String ANDROID_MANIFEST_XML = "AndroidManifest.xml";
+  static final String ANDROID_MANIFEST_XML = "AndroidManifest.xml";
+  /**
+   * Minimum SDK version of the analyzed application, which changes the issues of some rules.
+   */
+  public static final String MIN_SDK_VERSION_KEY = "sonar.android.minsdkversion.min";
 
   @Override
   public final void scanFile(XmlFile file) {
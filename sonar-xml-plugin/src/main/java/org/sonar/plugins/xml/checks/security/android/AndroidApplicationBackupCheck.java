@@ -28,7 +28,6 @@ import org.w3c.dom.Node;
 @Rule(key = "S6358")
 public class AndroidApplicationBackupCheck extends AbstractAndroidManifestCheck {
 
-  private static final String ANDROID_MIN_SDK_VERSION = "sonar.android.minsdkversion.min";
   private static final String MESSAGE = "Make sure backup of application data is safe here.";
   private static final String BASE_XPATH_QUERY = "/manifest/application" +
     "[" +
@@ -42,12 +41,12 @@ public class AndroidApplicationBackupCheck extends AbstractAndroidManifestCheck
     );
   private static final String APPLICATION_BELOW_SDK_23_QUERY = String.format(BASE_XPATH_QUERY, "");
 
-  private static final XPathExpression X_PATH_APPLICATION_WITH_BACKUP = XPathBuilder
+  private final XPathExpression applicationWithBackupXPath = XPathBuilder
     .forExpression(APPLICATION_WITH_BACKUP_QUERY)
     .withNamespace("n", "http://schemas.android.com/apk/res/android")
     .build();
 
-  private static final XPathExpression X_PATH_APPLICATION_BELOW_SDK_23 = XPathBuilder
+  private final XPathExpression applicationBelowSdk23XPath = XPathBuilder
     .forExpression(APPLICATION_BELOW_SDK_23_QUERY)
     .withNamespace("n", "http://schemas.android.com/apk/res/android")
     .build();
@@ -55,11 +54,11 @@ public class AndroidApplicationBackupCheck extends AbstractAndroidManifestCheck
   @Override
   protected void scanAndroidManifest(XmlFile file) {
     List<Node> nodes;
-    Integer minSdkVersion = getContext().config().getInt(ANDROID_MIN_SDK_VERSION).orElse(null);
+    Integer minSdkVersion = getContext().config().getInt(MIN_SDK_VERSION_KEY).orElse(null);
     if(minSdkVersion != null && minSdkVersion < 23) {
-      nodes = evaluateAsList(X_PATH_APPLICATION_BELOW_SDK_23, file.getDocument());
+      nodes = evaluateAsList(applicationBelowSdk23XPath, file.getDocument());
     } else {
-      nodes = evaluateAsList(X_PATH_APPLICATION_WITH_BACKUP, file.getDocument());
+      nodes = evaluateAsList(applicationWithBackupXPath, file.getDocument());
     }
     nodes.forEach(node -> reportIssue(XmlFile.nameLocation((Element) node), MESSAGE, Collections.emptyList()));
   }
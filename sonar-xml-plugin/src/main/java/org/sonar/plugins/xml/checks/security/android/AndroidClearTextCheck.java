@@ -47,7 +47,7 @@ public class AndroidClearTextCheck extends AbstractAndroidManifestCheck {
   protected void scanAndroidManifest(XmlFile file) {
     Document document = file.getDocument();
     evaluateAsList(xPathClearTextTrue, document).forEach(node -> reportAtNameLocation(node, MESSAGE));
-    Integer minSdk = getContext().config().getInt("sonar.android.minsdkversion.min").orElse(27);
+    Integer minSdk = getContext().config().getInt(MIN_SDK_VERSION_KEY).orElse(27);
     // As of Android SDK 28, `usesCleartextTraffic` is implicitly set to false by default
     // See https://developer.android.com/guide/topics/manifest/application-element
     if (minSdk < 28) {
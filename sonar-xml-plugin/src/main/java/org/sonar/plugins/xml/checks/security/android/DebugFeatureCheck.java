@@ -19,6 +19,7 @@ package org.sonar.plugins.xml.checks.security.android;
 import javax.xml.xpath.XPathExpression;
 import org.sonar.check.Rule;
 import org.sonar.plugins.xml.Xml;
+import org.sonar.plugins.xml.checks.AppliesTo;
 import org.sonarsource.analyzer.commons.xml.XPathBuilder;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
@@ -26,6 +27,7 @@ import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
 import static org.sonar.plugins.xml.checks.security.android.AbstractAndroidManifestCheck.isAndroidManifestFile;
 
 @Rule(key = "S4507")
+@AppliesTo(fileNames = {AbstractAndroidManifestCheck.ANDROID_MANIFEST_XML, Xml.WEB_CONFIG, Xml.MACHINE_CONFIG})
 public class DebugFeatureCheck extends SimpleXPathBasedCheck {
 
   private static final String MESSAGE = "Make sure this debug feature is deactivated before delivering the code in production.";
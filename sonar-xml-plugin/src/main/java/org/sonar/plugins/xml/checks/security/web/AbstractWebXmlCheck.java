@@ -16,13 +16,15 @@
  */
 package org.sonar.plugins.xml.checks.security.web;
 
+import org.sonar.plugins.xml.checks.AppliesTo;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
 
+@AppliesTo(fileNames = AbstractWebXmlCheck.WEB_XML)
 public abstract class AbstractWebXmlCheck extends SimpleXPathBasedCheck {
 
   public static final String WEB_XML_ROOT = "web-app";
-  private static final String WEB_XML = "web.xml";
+  static final String WEB_XML = "web.xml";
 
   @Override
   public final void scanFile(XmlFile file) {
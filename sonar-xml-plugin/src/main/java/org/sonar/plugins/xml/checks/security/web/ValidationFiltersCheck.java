@@ -21,12 +21,15 @@ import java.util.Optional;
 import java.util.Set;
 import javax.xml.xpath.XPathExpression;
 import org.sonar.check.Rule;
+import org.sonar.plugins.xml.checks.Representation;
+import org.sonar.plugins.xml.checks.RequiresRepresentation;
 import org.sonarsource.analyzer.commons.annotations.DeprecatedRuleKey;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.w3c.dom.Node;
 
 @Rule(key = "S3355")
 @DeprecatedRuleKey(repositoryKey = "java", ruleKey = "S3355")
+@RequiresRepresentation(Representation.NAMESPACE_UNAWARE_DOM)
 public class ValidationFiltersCheck extends AbstractWebXmlCheck {
   private XPathExpression filterNamesFromFilterExpression = getXPathExpression(WEB_XML_ROOT + "/filter/filter-name");
   private XPathExpression filterNamesFromFilterMappingExpression = getXPathExpression(WEB_XML_ROOT + "/filter-mapping/filter-name");
@@ -19,6 +19,8 @@ package org.sonar.plugins.xml.checks.spring;
 import java.util.stream.IntStream;
 import javax.xml.xpath.XPathExpression;
 import org.sonar.check.Rule;
+import org.sonar.plugins.xml.checks.Representation;
+import org.sonar.plugins.xml.checks.RequiresRepresentation;
 import org.sonarsource.analyzer.commons.annotations.DeprecatedRuleKey;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
@@ -27,6 +29,7 @@ import org.w3c.dom.Node;
 
 @Rule(key = "S3439")
 @DeprecatedRuleKey(repositoryKey = "java", ruleKey = "S3439")
+@RequiresRepresentation(Representation.NAMESPACE_UNAWARE_DOM)
 public class DefaultMessageListenerContainerCheck extends SimpleXPathBasedCheck {
 
   private XPathExpression defaultMessageListenerContainerBeanExpression = getXPathExpression(
@@ -20,6 +20,8 @@ import java.util.stream.IntStream;
 
 import javax.xml.xpath.XPathExpression;
 import org.sonar.check.Rule;
+import org.sonar.plugins.xml.checks.Representation;
+import org.sonar.plugins.xml.checks.RequiresRepresentation;
 import org.sonarsource.analyzer.commons.annotations.DeprecatedRuleKey;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
@@ -29,6 +31,7 @@ import org.w3c.dom.Node;
 
 @Rule(key = "S3438")
 @DeprecatedRuleKey(repositoryKey = "java", ruleKey = "S3438")
+@RequiresRepresentation(Representation.NAMESPACE_UNAWARE_DOM)
 public class SingleConnectionFactoryCheck extends SimpleXPathBasedCheck {
 
   private XPathExpression singleConnectionFactoryBeansExpression = getXPathExpression("beans/bean[@class='org.springframework.jms.connection.SingleConnectionFactory']");
@@ -21,6 +21,8 @@ import java.util.stream.Collectors;
 import javax.xml.xpath.XPathExpression;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
+import org.sonar.plugins.xml.checks.Representation;
+import org.sonar.plugins.xml.checks.RequiresRepresentation;
 import org.sonarsource.analyzer.commons.annotations.DeprecatedRuleKey;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
@@ -28,6 +30,7 @@ import org.w3c.dom.Node;
 
 @Rule(key = "S3373")
 @DeprecatedRuleKey(repositoryKey = "java", ruleKey = "S3373")
+@RequiresRepresentation(Representation.NAMESPACE_UNAWARE_DOM)
 public class ActionNumberCheck extends SimpleXPathBasedCheck {
 
   private static final int DEFAULT_MAXIMUM_NUMBER_FORWARDS = 4;
@@ -23,6 +23,8 @@ import java.util.Map;
 import javax.annotation.CheckForNull;
 import javax.xml.xpath.XPathExpression;
 import org.sonar.check.Rule;
+import org.sonar.plugins.xml.checks.Representation;
+import org.sonar.plugins.xml.checks.RequiresRepresentation;
 import org.sonarsource.analyzer.commons.annotations.DeprecatedRuleKey;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SimpleXPathBasedCheck;
@@ -30,6 +32,7 @@ import org.w3c.dom.Node;
 
 @Rule(key = "S3374")
 @DeprecatedRuleKey(repositoryKey = "java", ruleKey = "S3374")
+@RequiresRepresentation(Representation.NAMESPACE_UNAWARE_DOM)
 public class FormNameDuplicationCheck extends SimpleXPathBasedCheck {
 
   private XPathExpression formsetsExpression = getXPathExpression("form-validation/formset");
@@ -0,0 +1,203 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.batch.rule.internal.NewActiveRule;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.xml.checks.security.android.AbstractAndroidManifestCheck;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnalysisCacheTest {
+
+  private static final RuleKey RULE_KEY = RuleKey.of(Xml.REPOSITORY_KEY, "S1234");
+
+  private SensorContextTester context;
+  private FileLinesContextFactory fileLinesContextFactory;
+  private FileLinesContext fileLinesContext;
+
+  @BeforeEach
+  void setUp() {
+    context = SensorContextTester.create(new File("src/test/resources"));
+    fileLinesContext = mock(FileLinesContext.class);
+    fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    when(fileLinesContextFactory.createFor(any(InputFile.class))).thenReturn(fileLinesContext);
+  }
+
+  @Test
+  void should_not_be_created_when_cache_is_disabled() {
+    context.setCacheEnabled(false);
+    assertThat(AnalysisCache.create(context)).isNull();
+
+    MapSensorCache.enable(context, Map.of());
+    assertThat(AnalysisCache.create(context)).isNotNull();
+  }
+
+  @Test
+  void plugin_version_should_be_filtered_at_build_time() {
+    assertThat(AnalysisCache.pluginVersion()).isNotEqualTo("unknown").doesNotContain("${");
+  }
+
+  @Test
+  void configuration_fingerprint_should_depend_on_plugin_version_and_active_rules() {
+    activateRule(Map.of("param", "a"));
+    String fingerprint = AnalysisCache.configurationFingerprint("1.0", context);
+
+    assertThat(AnalysisCache.configurationFingerprint("1.0", context)).isEqualTo(fingerprint);
+    assertThat(AnalysisCache.configurationFingerprint("2.0", context)).isNotEqualTo(fingerprint);
+
+    activateRule(Map.of("param", "b"));
+    assertThat(AnalysisCache.configurationFingerprint("1.0", context)).isNotEqualTo(fingerprint);
+
+    context.setActiveRules(new ActiveRulesBuilder().build());
+    assertThat(AnalysisCache.configurationFingerprint("1.0", context)).isNotEqualTo(fingerprint);
+  }
+
+  @Test
+  void configuration_fingerprint_should_depend_on_properties_changing_results() {
+    String fingerprint = AnalysisCache.configurationFingerprint("1.0", context);
+
+    context.settings().setProperty(AbstractAndroidManifestCheck.MIN_SDK_VERSION_KEY, 21);
+    String androidFingerprint = AnalysisCache.configurationFingerprint("1.0", context);
+    assertThat(androidFingerprint).isNotEqualTo(fingerprint);
+
+    context.settings().setProperty(XmlSensor.STREAMING_MIN_BYTES_KEY, 1024);
+    assertThat(AnalysisCache.configurationFingerprint("1.0", context)).isNotIn(fingerprint, androidFingerprint);
+
+    context.settings().setProperty(XmlSensor.ANALYSIS_THREADS_KEY, 4);
+    context.settings().removeProperty(XmlSensor.STREAMING_MIN_BYTES_KEY);
+    assertThat(AnalysisCache.configurationFingerprint("1.0", context)).isEqualTo(androidFingerprint);
+  }
+
+  @Test
+  void should_replay_stored_results() {
+    DefaultInputFile inputFile = inputFile("md5");
+    MapSensorCache firstCache = MapSensorCache.enable(context, Map.of());
+    AnalysisCache cache = new AnalysisCache(context, "fingerprint");
+    assertThat(cache.replay(inputFile, fileLinesContextFactory)).isFalse();
+    cache.store(inputFile, results(inputFile));
+
+    context = SensorContextTester.create(new File("src/test/resources"));
+    MapSensorCache secondCache = MapSensorCache.enable(context, firstCache.nextEntries());
+    cache = new AnalysisCache(context, "fingerprint");
+    assertThat(cache.replay(inputFile, fileLinesContextFactory)).isTrue();
+
+    assertThat(context.allIssues()).hasSize(1);
+    assertThat(context.allIssues().iterator().next().primaryLocation().message()).isEqualTo("message");
+    assertThat(context.allIssues().iterator().next().flows()).hasSize(1);
+    assertThat(context.measure(inputFile.key(), CoreMetrics.NCLOC).value()).isEqualTo(3);
+    assertThat(context.allAnalysisErrors()).hasSize(1);
+    verify(fileLinesContext).setIntValue(CoreMetrics.NCLOC_DATA_KEY, 2, 1);
+    verify(fileLinesContext).setStringValue("key", 1, "value");
+    verify(fileLinesContext).save();
+    assertThat(secondCache.nextEntries()).containsOnlyKeys(firstCache.nextEntries().keySet());
+    assertThat(cache.replayedFiles()).isEqualTo(1);
+  }
+
+  @Test
+  void should_replay_strings_longer_than_64k() {
+    DefaultInputFile inputFile = inputFile("md5");
+    String value = "é".repeat(70_000);
+    FileResults results = new FileResults();
+    results.addLinesData(List.of(new FileResults.LineValue("key", 1, value)));
+    MapSensorCache firstCache = MapSensorCache.enable(context, Map.of());
+    new AnalysisCache(context, "fingerprint").store(inputFile, results);
+
+    MapSensorCache.enable(context, firstCache.nextEntries());
+    assertThat(new AnalysisCache(context, "fingerprint").replay(inputFile, fileLinesContextFactory)).isTrue();
+    verify(fileLinesContext).setStringValue("key", 1, value);
+  }
+
+  @Test
+  void should_not_replay_results_of_another_content_or_configuration() {
+    MapSensorCache firstCache = MapSensorCache.enable(context, Map.of());
+    new AnalysisCache(context, "fingerprint").store(inputFile("md5"), results(inputFile("md5")));
+
+    MapSensorCache.enable(context, firstCache.nextEntries());
+    assertThat(new AnalysisCache(context, "fingerprint").replay(inputFile("other md5"), fileLinesContextFactory)).isFalse();
+    assertThat(new AnalysisCache(context, "other fingerprint").replay(inputFile("md5"), fileLinesContextFactory)).isFalse();
+    assertThat(context.allIssues()).isEmpty();
+  }
+
+  @Test
+  void should_ignore_corrupted_entries() {
+    DefaultInputFile inputFile = inputFile("md5");
+    MapSensorCache.enable(context, Map.of("xml:analysis:" + inputFile.key(), new byte[] {0, 0, 0, 1, 0}));
+
+    assertThat(new AnalysisCache(context, "fingerprint").replay(inputFile, fileLinesContextFactory)).isFalse();
+  }
+
+  @Test
+  void should_not_store_results_which_cannot_be_replayed() {
+    DefaultInputFile inputFile = inputFile("md5");
+    MapSensorCache cache = MapSensorCache.enable(context, Map.of());
+    FileResults results = new FileResults();
+    results.markNotReplayable();
+
+    new AnalysisCache(context, "fingerprint").store(inputFile, results);
+
+    assertThat(cache.nextEntries()).isEmpty();
+  }
+
+  private void activateRule(Map<String, String> params) {
+    NewActiveRule.Builder rule = new NewActiveRule.Builder().setRuleKey(RULE_KEY);
+    params.forEach(rule::setParam);
+    context.setActiveRules(new ActiveRulesBuilder().addRule(rule.build()).build());
+  }
+
+  private static DefaultInputFile inputFile(String md5) {
+    return TestInputFileBuilder.create("modulekey", "src/pom.xml")
+      .setModuleBaseDir(new File("src/test/resources").toPath())
+      .setCharset(StandardCharsets.UTF_8)
+      .setLines(10)
+      .setOriginalLineStartOffsets(new int[] {0, 10, 20, 30, 40, 50, 60, 70, 80, 90})
+      .setOriginalLineEndOffsets(new int[] {9, 19, 29, 39, 49, 59, 69, 79, 89, 99})
+      .setLastValidOffset(100)
+      .setHash(md5)
+      .build();
+  }
+
+  private static FileResults results(InputFile inputFile) {
+    FileResults results = new FileResults();
+    FileResults.Location secondary = new FileResults.Location(new FileResults.Range(2, 0, 2, 3), null);
+    results.addIssue(RULE_KEY, new FileResults.Location(FileResults.Range.of(inputFile.selectLine(1)), "message"), List.of(secondary));
+    results.addMeasure(CoreMetrics.NCLOC_KEY, 3);
+    results.addLinesData(List.of(
+      new FileResults.LineValue(CoreMetrics.NCLOC_DATA_KEY, 2, 1),
+      new FileResults.LineValue("key", 1, "value")));
+    results.addAnalysisError("parse error", inputFile.newPointer(1, 2));
+    return results;
+  }
+}
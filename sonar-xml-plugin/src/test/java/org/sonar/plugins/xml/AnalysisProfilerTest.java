@@ -0,0 +1,126 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.event.Level;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.testfixtures.log.LogTesterJUnit5;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalysisProfilerTest {
+
+  private static final RuleKey RULE = RuleKey.of(Xml.REPOSITORY_KEY, "S1");
+  private static final RuleKey OTHER_RULE = RuleKey.of(Xml.REPOSITORY_KEY, "S2");
+
+  @RegisterExtension
+  LogTesterJUnit5 logTester = new LogTesterJUnit5().setLevel(Level.DEBUG);
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void should_not_record_anything_when_disabled() {
+    AnalysisProfiler profiler = AnalysisProfiler.create(new MapSettings().asConfig());
+
+    assertThat(profiler.isEnabled()).isFalse();
+    assertThat(profiler.start()).isZero();
+    profiler.recordRuleNanos(RULE, inputFile("a.xml"), 1_000_000_000L);
+    profiler.report();
+    assertThat(logTester.logs()).isEmpty();
+  }
+
+  @Test
+  void should_aggregate_times_per_rule_and_per_file() throws IOException {
+    Path reportPath = tempDir.resolve("report.json");
+    AnalysisProfiler profiler = AnalysisProfiler.create(new MapSettings().setProperty(AnalysisProfiler.REPORT_PATH_KEY, reportPath.toString()).asConfig());
+    InputFile fastFile = inputFile("fast.xml");
+    InputFile slowFile = inputFile("dir/\"slow\".xml");
+    long now = System.nanoTime();
+
+    profiler.recordPhase(AnalysisProfiler.Phase.PARSE, fastFile, now);
+    profiler.recordRuleNanos(RULE, fastFile, 1_000L);
+    profiler.recordPhase(AnalysisProfiler.Phase.PARSE, slowFile, now - 3_000_000_000L);
+    profiler.recordRuleNanos(RULE, slowFile, 2_000_000_000L);
+    profiler.recordRuleNanos(OTHER_RULE, slowFile, 1_000_000_000L);
+    profiler.report();
+
+    JsonObject report = JsonParser.parseString(Files.readString(reportPath)).getAsJsonObject();
+    assertThat(report.get("files").getAsInt()).isEqualTo(2);
+    assertThat(report.getAsJsonObject("phases").get("parseMillis").getAsLong()).isGreaterThanOrEqualTo(3000);
+
+    JsonArray rules = report.getAsJsonArray("rules");
+    assertThat(rules).hasSize(2);
+    JsonObject slowestRule = rules.get(0).getAsJsonObject();
+    assertThat(slowestRule.get("rule").getAsString()).isEqualTo(RULE.toString());
+    assertThat(slowestRule.get("files").getAsInt()).isEqualTo(2);
+    assertThat(slowestRule.get("maxMillis").getAsLong()).isBetween(2000L, slowestRule.get("totalMillis").getAsLong());
+
+    JsonObject slowestFile = report.getAsJsonArray("slowestFiles").get(0).getAsJsonObject();
+    assertThat(slowestFile.get("file").getAsString()).isEqualTo("dir/\"slow\".xml");
+    assertThat(slowestFile.get("totalMillis").getAsLong()).isGreaterThanOrEqualTo(6000);
+    assertThat(slowestFile.getAsJsonObject("phases").get("checksMillis").getAsLong()).isGreaterThanOrEqualTo(3000);
+
+    assertThat(logTester.logs(Level.INFO))
+      .anyMatch(log -> log.startsWith("Slowest XML rules: S1 "))
+      .anyMatch(log -> log.startsWith("Slowest XML file: dir/\"slow\".xml "))
+      .contains("XML analysis profile written to " + reportPath);
+  }
+
+  @Test
+  void should_keep_only_the_slowest_files() throws IOException {
+    Path reportPath = tempDir.resolve("report.json");
+    AnalysisProfiler profiler = AnalysisProfiler.create(new MapSettings().setProperty(AnalysisProfiler.REPORT_PATH_KEY, reportPath.toString()).asConfig());
+    for (int i = 0; i < AnalysisProfiler.TOP_COUNT * 2; i++) {
+      profiler.recordPhase(AnalysisProfiler.Phase.PARSE, inputFile("file" + i + ".xml"), 0);
+    }
+    profiler.report();
+
+    JsonObject report = JsonParser.parseString(Files.readString(reportPath)).getAsJsonObject();
+    assertThat(report.get("files").getAsInt()).isEqualTo(AnalysisProfiler.TOP_COUNT * 2);
+    assertThat(report.getAsJsonArray("slowestFiles")).hasSize(AnalysisProfiler.TOP_COUNT);
+    assertThat(report.getAsJsonArray("rules")).isEmpty();
+    assertThat(report.has("prefetch")).isFalse();
+  }
+
+  @Test
+  void should_log_failure_to_write_report() throws IOException {
+    Path directory = Files.createDirectory(tempDir.resolve("directory"));
+    AnalysisProfiler profiler = AnalysisProfiler.create(new MapSettings().setProperty(AnalysisProfiler.REPORT_PATH_KEY, directory.toString()).asConfig());
+    profiler.recordPhase(AnalysisProfiler.Phase.PARSE, inputFile("a.xml"), 0);
+
+    profiler.report();
+
+    assertThat(logTester.logs(Level.WARN)).containsExactly("Unable to write XML analysis profile to " + directory);
+  }
+
+  private static InputFile inputFile(String path) {
+    return TestInputFileBuilder.create("modulekey", path).build();
+  }
+}
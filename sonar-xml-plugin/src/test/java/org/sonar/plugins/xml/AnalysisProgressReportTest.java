@@ -0,0 +1,114 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.event.Level;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.testfixtures.log.LogTesterJUnit5;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalysisProgressReportTest {
+
+  @RegisterExtension
+  LogTesterJUnit5 logTester = new LogTesterJUnit5().setLevel(Level.DEBUG);
+
+  @TempDir
+  Path baseDir;
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  void should_report_throughput_and_remaining_time() throws IOException {
+    List<InputFile> inputFiles = List.of(inputFile("a.xml", 1024 * 1024), inputFile("b.xml", 10), inputFile("c.xml", 10));
+    AnalysisProgressReport report = new AnalysisProgressReport(TimeUnit.HOURS.toMillis(1), TimeUnit.MINUTES.toMillis(1), clock::get);
+
+    report.start(inputFiles);
+    assertThat(logTester.logs(Level.INFO)).containsExactly("3 source files to be analyzed");
+
+    report.report();
+    assertThat(logTester.logs(Level.INFO)).contains("0/3 files analyzed, 0.0 files/s, 0.0 MB/s, ETA unknown, current file: a.xml");
+
+    advanceSeconds(2);
+    report.nextFile();
+    advanceSeconds(2);
+    report.report();
+    assertThat(logTester.logs(Level.INFO)).contains("1/3 files analyzed, 0.3 files/s, 0.3 MB/s, ETA 8s, current file: b.xml");
+    assertThat(logTester.logs(Level.WARN)).isEmpty();
+
+    report.nextFile();
+    report.nextFile();
+    report.stop();
+    assertThat(logTester.logs(Level.INFO)).contains("3/3 source files have been analyzed, in 4s (0.8 files/s, 0.3 MB/s)");
+  }
+
+  @Test
+  void should_warn_while_current_file_is_slow() throws IOException {
+    List<InputFile> inputFiles = List.of(inputFile("a.xml", 10), inputFile("b.xml", 10));
+    AnalysisProgressReport report = new AnalysisProgressReport(TimeUnit.HOURS.toMillis(1), TimeUnit.SECONDS.toMillis(30), clock::get);
+    report.start(inputFiles);
+
+    advanceSeconds(10);
+    report.nextFile();
+    advanceSeconds(20);
+    report.report();
+    assertThat(logTester.logs(Level.WARN)).isEmpty();
+
+    advanceSeconds(100);
+    report.report();
+    assertThat(logTester.logs(Level.WARN)).containsExactly("Analysis of b.xml has been in progress for 2m 00s");
+    report.cancel();
+  }
+
+  @Test
+  void should_report_periodically() throws Exception {
+    AnalysisProgressReport report = new AnalysisProgressReport(10, TimeUnit.MINUTES.toMillis(1));
+    report.start(List.of(inputFile("a.xml", 10)));
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (logTester.logs(Level.INFO).size() < 2 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    report.stop();
+    assertThat(logTester.logs(Level.INFO)).contains("0/1 files analyzed, 0.0 files/s, 0.0 MB/s, ETA unknown, current file: a.xml");
+  }
+
+  @Test
+  void should_format_durations() {
+    assertThat(AnalysisProgressReport.duration(TimeUnit.SECONDS.toNanos(59))).isEqualTo("59s");
+    assertThat(AnalysisProgressReport.duration(TimeUnit.SECONDS.toNanos(61))).isEqualTo("1m 01s");
+    assertThat(AnalysisProgressReport.duration(TimeUnit.SECONDS.toNanos(3 * 3600 + 62))).isEqualTo("3h 01m 02s");
+  }
+
+  private void advanceSeconds(long seconds) {
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+  }
+
+  private InputFile inputFile(String name, int bytes) throws IOException {
+    Files.write(baseDir.resolve(name), new byte[bytes]);
+    return TestInputFileBuilder.create("modulekey", name).setModuleBaseDir(baseDir).build();
+  }
+}
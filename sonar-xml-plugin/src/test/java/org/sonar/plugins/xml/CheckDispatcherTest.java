@@ -0,0 +1,189 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.batch.rule.CheckFactory;
+import org.sonar.api.batch.rule.Checks;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.batch.rule.internal.NewActiveRule;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.xml.checks.AppliesTo;
+import org.sonar.plugins.xml.checks.CheckList;
+import org.sonar.plugins.xml.checks.NewlineCheck;
+import org.sonar.plugins.xml.checks.Representation;
+import org.sonar.plugins.xml.checks.TabCharacterCheck;
+import org.sonar.plugins.xml.checks.maven.GroupIdNamingConventionCheck;
+import org.sonar.plugins.xml.checks.maven.PomElementOrderCheck;
+import org.sonar.plugins.xml.checks.security.HardcodedCredentialsCheck;
+import org.sonar.plugins.xml.checks.security.android.AndroidClearTextCheck;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CheckDispatcherTest {
+
+  private final SonarXmlCheck newlineCheck = new NewlineCheck();
+  private final SonarXmlCheck pomCheck = new PomElementOrderCheck();
+  private final SonarXmlCheck androidCheck = new AndroidClearTextCheck();
+  private final SonarXmlCheck beansCheck = new BeansCheck();
+  private final SonarXmlCheck namespacedCheck = new NamespacedCheck();
+  private final SonarXmlCheck pathCheck = new PathCheck();
+
+  private final CheckDispatcher dispatcher = new CheckDispatcher(List.of(
+    dispatched(pomCheck),
+    dispatched(newlineCheck),
+    dispatched(androidCheck),
+    dispatched(beansCheck),
+    dispatched(namespacedCheck),
+    dispatched(pathCheck)));
+
+  @Test
+  void unrestricted_checks_should_apply_to_all_files() {
+    assertThat(checksFor("dir/file.xml", "<root/>")).containsExactly(newlineCheck);
+  }
+
+  @Test
+  void should_resolve_checks_by_file_name_ignoring_case() {
+    assertThat(checksFor("dir/pom.xml", "<project/>")).containsExactly(pomCheck, newlineCheck);
+    assertThat(checksFor("dir/POM.XML", "<project/>")).containsExactly(pomCheck, newlineCheck);
+    assertThat(checksFor("dir/androidmanifest.xml", "<manifest/>")).containsExactly(newlineCheck, androidCheck);
+  }
+
+  @Test
+  void should_resolve_checks_by_root_element_and_namespace() {
+    assertThat(checksFor("dir/context.xml", "<beans/>")).containsExactly(newlineCheck, beansCheck);
+    assertThat(checksFor("dir/context.xml", "<b:beans xmlns:b='urn:beans'/>")).containsExactly(newlineCheck, beansCheck, namespacedCheck);
+    assertThat(checksFor("dir/context.xml", "<other xmlns='urn:beans'/>")).containsExactly(newlineCheck);
+  }
+
+  @Test
+  void should_resolve_checks_by_path_pattern() {
+    assertThat(checksFor("META-INF/file.xml", "<root/>")).containsExactly(newlineCheck, pathCheck);
+    assertThat(checksFor("META-INF/nested/file.xml", "<root/>")).containsExactly(newlineCheck);
+  }
+
+  @Test
+  void should_resolve_representations_before_parsing() {
+    CheckDispatcher textDispatcher = new CheckDispatcher(List.of(dispatched(new TabCharacterCheck()), dispatched(new GroupIdNamingConventionCheck())));
+    assertThat(textDispatcher.representationsFor(inputFile("dir/file.xml", "<root/>"))).containsExactly(Representation.TEXT);
+    assertThat(textDispatcher.representationsFor(inputFile("dir/pom.xml", "<project/>")))
+      .containsExactly(Representation.TEXT, Representation.NAMESPACE_UNAWARE_DOM);
+
+    CheckDispatcher pathDispatcher = new CheckDispatcher(List.of(dispatched(new TabCharacterCheck()), dispatched(pathCheck)));
+    assertThat(pathDispatcher.representationsFor(inputFile("dir/file.xml", "<root/>"))).containsExactly(Representation.TEXT);
+    assertThat(pathDispatcher.representationsFor(inputFile("META-INF/file.xml", "<root/>")))
+      .containsExactly(Representation.TEXT, Representation.NAMESPACE_AWARE_DOM);
+
+    // the root element of every file has to be known
+    CheckDispatcher rootDispatcher = new CheckDispatcher(List.of(dispatched(new TabCharacterCheck()), dispatched(beansCheck)));
+    assertThat(rootDispatcher.representationsFor(inputFile("dir/file.xml", "<root/>")))
+      .containsExactly(Representation.TEXT, Representation.NAMESPACE_AWARE_DOM);
+
+    // the special cases of credentials build the namespace-unaware document of the few files having their root element
+    CheckDispatcher credentialsDispatcher = new CheckDispatcher(List.of(dispatched(new HardcodedCredentialsCheck())));
+    assertThat(credentialsDispatcher.representationsFor(inputFile("dir/web.config", "<configuration/>")))
+      .doesNotContain(Representation.NAMESPACE_UNAWARE_DOM);
+  }
+
+  @Test
+  void should_resolve_streaming_checks_and_skipped_rules() {
+    assertThat(dispatcher.streamingChecksFor(inputFile("dir/pom.xml", "<project/>")))
+      .extracting(CheckDispatcher.DispatchedCheck::check)
+      .containsExactly(newlineCheck);
+    assertThat(dispatcher.nonStreamingRulesFor(inputFile("dir/pom.xml", "<project/>")))
+      .containsExactly(RuleKey.of(Xml.REPOSITORY_KEY, "PomElementOrderCheck"));
+    assertThat(dispatcher.nonStreamingRulesFor(inputFile("META-INF/file.xml", "<root/>")))
+      .containsExactly(RuleKey.of(Xml.REPOSITORY_KEY, "PathCheck"));
+    assertThat(dispatcher.nonStreamingRulesFor(inputFile("dir/file.xml", "<root/>"))).isEmpty();
+  }
+
+  @Test
+  void should_tell_when_files_need_their_document() {
+    CheckDispatcher textDispatcher = new CheckDispatcher(List.of(dispatched(new TabCharacterCheck()), dispatched(new GroupIdNamingConventionCheck())));
+    assertThat(textDispatcher.needsDocument(inputFile("dir/file.xml", "<root/>"))).isFalse();
+    assertThat(textDispatcher.needsDocument(inputFile("dir/pom.xml", "<project/>"))).isTrue();
+
+    CheckDispatcher pathDispatcher = new CheckDispatcher(List.of(dispatched(new TabCharacterCheck()), dispatched(pathCheck)));
+    assertThat(pathDispatcher.needsDocument(inputFile("dir/file.xml", "<root/>"))).isFalse();
+    assertThat(pathDispatcher.needsDocument(inputFile("META-INF/file.xml", "<root/>"))).isTrue();
+
+    CheckDispatcher rootDispatcher = new CheckDispatcher(List.of(dispatched(new TabCharacterCheck()), dispatched(beansCheck)));
+    assertThat(rootDispatcher.needsDocument(inputFile("dir/file.xml", "<root/>"))).isTrue();
+  }
+
+  @Test
+  void should_resolve_active_checks() {
+    ActiveRules activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder().setRuleKey(RuleKey.of(Xml.REPOSITORY_KEY, "S3423")).build())
+      .build();
+    Checks<Object> checks = new CheckFactory(activeRules).create(Xml.REPOSITORY_KEY).addAnnotatedChecks(CheckList.getCheckClasses());
+    CheckDispatcher sensorDispatcher = CheckDispatcher.create(checks);
+
+    assertThat(sensorDispatcher.checksFor(xmlFile("pom.xml", "<project/>")))
+      .extracting(CheckDispatcher.DispatchedCheck::ruleKey)
+      .containsExactly(RuleKey.of(Xml.REPOSITORY_KEY, "S3423"));
+    assertThat(sensorDispatcher.checksFor(xmlFile("file.xml", "<project/>"))).isEmpty();
+  }
+
+  private List<SonarXmlCheck> checksFor(String path, String content) {
+    return dispatcher.checksFor(xmlFile(path, content)).stream().map(CheckDispatcher.DispatchedCheck::check).toList();
+  }
+
+  private static InputFile inputFile(String path, String content) {
+    return TestInputFileBuilder.create("modulekey", path).setCharset(StandardCharsets.UTF_8).setContents(content).build();
+  }
+
+  private static XmlFile xmlFile(String path, String content) {
+    try {
+      return XmlFile.create(inputFile(path, content));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static CheckDispatcher.DispatchedCheck dispatched(SonarXmlCheck check) {
+    return new CheckDispatcher.DispatchedCheck(check, RuleKey.of(Xml.REPOSITORY_KEY, check.getClass().getSimpleName()));
+  }
+
+  private abstract static class NoOpCheck extends SonarXmlCheck {
+    @Override
+    public void scanFile(XmlFile file) {
+      // only dispatching is tested
+    }
+  }
+
+  @AppliesTo(rootElements = "beans")
+  private static class BeansCheck extends NoOpCheck {
+  }
+
+  @AppliesTo(rootElements = "beans", rootNamespaces = "urn:beans")
+  private static class NamespacedCheck extends NoOpCheck {
+  }
+
+  @AppliesTo(pathPatterns = "**/META-INF/*.xml")
+  private static class PathCheck extends NoOpCheck {
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.nio.charset.StandardCharsets;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Documents nested deeper than the parser accepts, for the code which only works on their text, tokens or tree. As
+ * {@link XmlFile} can only be created by parsing, their files are mocks without document.
+ */
+public final class DeepDocuments {
+
+  public static final int DEPTH = 100_000;
+
+  private DeepDocuments() {
+  }
+
+  /**
+   * @return {@link #DEPTH} nested elements, the innermost one containing the given content
+   */
+  public static String nest(String element, String innermostContent) {
+    return ("<" + element + ">").repeat(DEPTH) + innermostContent + ("</" + element + ">").repeat(DEPTH);
+  }
+
+  public static XmlFile unparsed(String content) {
+    InputFile inputFile = TestInputFileBuilder.create("modulekey", "deep.xml")
+      .setCharset(StandardCharsets.UTF_8)
+      .setContents(content)
+      .build();
+    XmlFile xmlFile = mock(XmlFile.class);
+    when(xmlFile.getInputFile()).thenReturn(inputFile);
+    when(xmlFile.getContents()).thenReturn(content);
+    when(xmlFile.getCharset()).thenReturn(StandardCharsets.UTF_8);
+    return xmlFile;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.io.File;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.rule.RuleKey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeferredSensorContextTest {
+
+  private final SensorContextTester context = SensorContextTester.create(new File("src/test/resources"));
+  private final InputFile inputFile = TestInputFileBuilder.create("modulekey", "file.xml").setContents("<a/>").build();
+
+  @Test
+  void should_save_issues_when_flushed() {
+    DeferredSensorContext fileContext = new DeferredSensorContext(context);
+    fileContext.newIssue()
+      .forRule(RuleKey.of("xml", "S1"))
+      .at(fileContext.newIssue().newLocation().on(inputFile).message("message"))
+      .save();
+
+    assertThat(context.allIssues()).isEmpty();
+    assertThat(fileContext.pending()).isEqualTo(1);
+    fileContext.flush();
+    assertThat(context.allIssues()).hasSize(1);
+  }
+
+  @Test
+  void should_delegate_other_results_and_caches() {
+    context.setCacheEnabled(true);
+    DeferredSensorContext fileContext = new DeferredSensorContext(context);
+
+    fileContext.addContextProperty("key", "value");
+    fileContext.markForPublishing(inputFile);
+
+    assertThat(context.getContextProperties()).containsEntry("key", "value");
+    assertThat(fileContext.isCacheEnabled()).isTrue();
+    assertThat(fileContext.nextCache()).isSameAs(context.nextCache());
+    assertThat(fileContext.previousCache()).isSameAs(context.previousCache());
+    assertThat(fileContext.newCpdTokens()).isNotNull();
+    assertThat(fileContext.pending()).isZero();
+  }
+}
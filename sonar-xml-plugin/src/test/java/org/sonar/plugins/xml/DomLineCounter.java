@@ -0,0 +1,101 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.util.Set;
+import java.util.TreeSet;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+import org.sonarsource.analyzer.commons.xml.XmlTextRange;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Former implementation of {@link LineCounter}, walking the document of the file, kept as the reference of the lines it
+ * counts.
+ */
+final class DomLineCounter {
+
+  private final Set<Integer> linesOfCode = new TreeSet<>();
+  private final Set<Integer> commentLines = new TreeSet<>();
+
+  private DomLineCounter() {
+  }
+
+  static DomLineCounter count(XmlFile xmlFile) {
+    DomLineCounter counter = new DomLineCounter();
+    counter.visitNode(xmlFile.getDocument());
+    xmlFile.getPrologElement().ifPresent(prologElement ->
+      addLinesRange(
+        counter.linesOfCode,
+        prologElement.getPrologStartLocation().getStartLine(),
+        prologElement.getPrologEndLocation().getEndLine()));
+    return counter;
+  }
+
+  Set<Integer> linesOfCode() {
+    return linesOfCode;
+  }
+
+  Set<Integer> commentLines() {
+    return commentLines;
+  }
+
+  private void visitNode(Node node) {
+    XmlTextRange range = XmlFile.nodeLocation(node);
+
+    switch (node.getNodeType()) {
+      case Node.ELEMENT_NODE:
+        // this will count attribute lines as well tag itself
+        addLinesRange(linesOfCode, XmlFile.startLocation((Element) node));
+        addLinesRange(linesOfCode, XmlFile.endLocation((Element) node));
+        break;
+      case Node.COMMENT_NODE:
+        addNotEmptyLines(commentLines, node.getTextContent(), range);
+        break;
+      case Node.TEXT_NODE, Node.CDATA_SECTION_NODE:
+        addNotEmptyLines(linesOfCode, node.getTextContent(), range);
+        break;
+      case Node.DOCUMENT_TYPE_NODE:
+        addLinesRange(linesOfCode, range);
+        break;
+      default:
+        break;
+    }
+
+    XmlFile.children(node).forEach(this::visitNode);
+  }
+
+  private static void addNotEmptyLines(Set<Integer> set, String text, XmlTextRange fullTextRange) {
+    int lineNumber = fullTextRange.getStartLine();
+    for (String line : text.split("(\r)?\n|\r", -1)) {
+      if (!line.trim().isEmpty()) {
+        set.add(lineNumber);
+      }
+      lineNumber++;
+    }
+  }
+
+  private static void addLinesRange(Set<Integer> set, int start, int end) {
+    for (int line = start; line <= end; line++) {
+      set.add(line);
+    }
+  }
+
+  private static void addLinesRange(Set<Integer> set, XmlTextRange range) {
+    addLinesRange(set, range.getStartLine(), range.getEndLine());
+  }
+}
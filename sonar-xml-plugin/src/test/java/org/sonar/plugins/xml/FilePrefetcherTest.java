@@ -0,0 +1,167 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.config.internal.MapSettings;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FilePrefetcherTest {
+
+  private static final Path BASE_DIR = Paths.get("src/test/resources");
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void should_read_all_files_ahead() {
+    List<InputFile> inputFiles = List.of(
+      inputFile("src/pom.xml"),
+      inputFile("src/tabsEverywhere.xml"),
+      inputFile("src/shouldNotFail.xml"));
+
+    try (FilePrefetcher prefetcher = new FilePrefetcher(inputFiles, 2, Long.MAX_VALUE)) {
+      for (int i = 0; i < inputFiles.size(); i++) {
+        prefetcher.awaitFile(i);
+      }
+      assertThat(prefetcher.stalledFiles()).isBetween(0, inputFiles.size());
+      assertThat(prefetcher.stalledMillis()).isNotNegative();
+    }
+  }
+
+  @Test
+  void should_ignore_files_which_cannot_be_read() {
+    List<InputFile> inputFiles = List.of(inputFile("does-not-exist.xml"), inputFile("src/pom.xml"));
+
+    try (FilePrefetcher prefetcher = new FilePrefetcher(inputFiles, 5, Long.MAX_VALUE)) {
+      prefetcher.awaitFile(0);
+      prefetcher.awaitFile(1);
+    }
+  }
+
+  @Test
+  void should_not_read_more_files_than_allowed_ahead() throws Exception {
+    CountDownLatch blockFirstRead = new CountDownLatch(1);
+    AtomicInteger startedReads = new AtomicInteger();
+    List<InputFile> inputFiles = new ArrayList<>();
+    inputFiles.add(blockingFile(blockFirstRead, startedReads));
+    for (int i = 0; i < 4; i++) {
+      inputFiles.add(blockingFile(new CountDownLatch(0), startedReads));
+    }
+
+    // the byte budget is lower than the size of a single file: only one file at a time is read ahead
+    try (FilePrefetcher prefetcher = new FilePrefetcher(inputFiles, 5, 1)) {
+      Thread.sleep(100);
+      assertThat(startedReads.get()).isEqualTo(1);
+
+      blockFirstRead.countDown();
+      prefetcher.awaitFile(0);
+      prefetcher.awaitFile(1);
+      assertThat(startedReads.get()).isBetween(2, 3);
+    }
+  }
+
+  @Test
+  void should_count_stalls() throws Exception {
+    CountDownLatch blockRead = new CountDownLatch(1);
+    List<InputFile> inputFiles = List.of(blockingFile(blockRead, new AtomicInteger()));
+
+    try (FilePrefetcher prefetcher = new FilePrefetcher(inputFiles, 1, Long.MAX_VALUE)) {
+      Thread releaser = new Thread(() -> {
+        sleep(50);
+        blockRead.countDown();
+      });
+      releaser.start();
+      prefetcher.awaitFile(0);
+      releaser.join();
+
+      assertThat(prefetcher.stalledFiles()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void should_publish_stalls_in_profile_report() throws Exception {
+    Path reportPath = tempDir.resolve("report.json");
+    AnalysisProfiler profiler = AnalysisProfiler.create(new MapSettings().setProperty(AnalysisProfiler.REPORT_PATH_KEY, reportPath.toString()).asConfig());
+    CountDownLatch blockRead = new CountDownLatch(1);
+    List<InputFile> inputFiles = List.of(blockingFile(blockRead, new AtomicInteger()), inputFile("src/pom.xml"));
+
+    try (FilePrefetcher prefetcher = new FilePrefetcher(inputFiles, 1, Long.MAX_VALUE)) {
+      Thread releaser = new Thread(() -> {
+        sleep(50);
+        blockRead.countDown();
+      });
+      releaser.start();
+      prefetcher.awaitFile(0);
+      releaser.join();
+      prefetcher.awaitFile(1);
+      prefetcher.report(profiler);
+    }
+    profiler.report();
+
+    JsonObject prefetch = JsonParser.parseString(Files.readString(reportPath)).getAsJsonObject().getAsJsonObject("prefetch");
+    assertThat(prefetch.get("files").getAsInt()).isEqualTo(2);
+    assertThat(prefetch.get("stalledFiles").getAsInt()).isBetween(1, 2);
+    assertThat(prefetch.get("stalledMillis").getAsLong()).isGreaterThanOrEqualTo(40);
+  }
+
+  private static InputFile inputFile(String relativePath) {
+    return TestInputFileBuilder.create("modulekey", relativePath)
+      .setModuleBaseDir(BASE_DIR)
+      .setCharset(StandardCharsets.UTF_8)
+      .build();
+  }
+
+  private static InputFile blockingFile(CountDownLatch latch, AtomicInteger startedReads) throws IOException {
+    InputFile inputFile = mock(InputFile.class);
+    when(inputFile.uri()).thenReturn(BASE_DIR.resolve("src/pom.xml").toUri());
+    when(inputFile.inputStream()).then(invocation -> {
+      startedReads.incrementAndGet();
+      latch.await(10, TimeUnit.SECONDS);
+      return (InputStream) new ByteArrayInputStream(new byte[10]);
+    });
+    return inputFile;
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileSnapshotTest {
+
+  private static final String CONTENT = "<a>\n  <b/>\n</a>\n";
+
+  @Test
+  void views_should_be_built_once_per_file() throws Exception {
+    XmlFile xmlFile = XmlFile.create(TestInputFileBuilder.create("modulekey", "file.xml")
+      .setCharset(StandardCharsets.UTF_8)
+      .setContents(CONTENT)
+      .build());
+    FileSnapshot snapshot = FileSnapshot.of(xmlFile);
+    XmlTree tree = snapshot.tree();
+
+    Object[] otherThreadViews = CompletableFuture.supplyAsync(() -> {
+      FileSnapshot sameSnapshot = FileSnapshot.of(xmlFile);
+      return new Object[] {sameSnapshot, sameSnapshot.lines(), sameSnapshot.tokens(), sameSnapshot.tree()};
+    }).join();
+
+    assertThat(otherThreadViews).containsExactly(snapshot, snapshot.lines(), snapshot.tokens(), tree);
+    assertThat(snapshot.content()).isSameAs(xmlFile.getContents());
+  }
+
+  @Test
+  void tokens_should_share_the_line_index() {
+    FileSnapshot snapshot = FileSnapshot.of(CONTENT);
+    assertThat(snapshot.tokens().lines()).isSameAs(snapshot.lines());
+  }
+
+  @Test
+  void snapshots_of_content_should_not_be_shared() {
+    assertThat(FileSnapshot.of(CONTENT)).isNotSameAs(FileSnapshot.of(CONTENT));
+  }
+}
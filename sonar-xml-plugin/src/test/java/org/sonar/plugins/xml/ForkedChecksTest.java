@@ -0,0 +1,187 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.batch.sensor.issue.Issue;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.xml.checks.Representation;
+import org.sonar.plugins.xml.checks.RequiresRepresentation;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ForkedChecksTest {
+
+  private static final String CONTENT = "<a>\n  <b/>\n</a>\n";
+
+  private final ForkJoinPool pool = new ForkJoinPool(2);
+  private final SensorContextTester context = SensorContextTester.create(new File("src/test/resources"));
+  private XmlFile xmlFile;
+
+  @BeforeEach
+  void createFile() throws Exception {
+    xmlFile = XmlFile.create(TestInputFileBuilder.create("modulekey", "file.xml")
+      .setCharset(StandardCharsets.UTF_8)
+      .setContents(CONTENT)
+      .build());
+  }
+
+  @AfterEach
+  void shutdownPool() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  void results_should_be_saved_in_the_order_of_the_checks() {
+    DocumentCheck walkingCheck = new DocumentCheck("first");
+    TokensCheck tokensCheck = new TokensCheck();
+    List<CheckDispatcher.DispatchedCheck> checks = List.of(
+      dispatched(walkingCheck, "S1"),
+      dispatched(tokensCheck, "S2"),
+      dispatched(new DocumentCheck("third"), "S3"),
+      dispatched(new TextCheck(), "S4"));
+    long[] scanNanos = new long[checks.size()];
+
+    try (ForkedChecks forkedChecks = ForkedChecks.fork(pool, context, checks, xmlFile, ForkedChecksTest::run, scanNanos)) {
+      assertThat(IntStream.range(0, checks.size()).filter(forkedChecks::isForked)).containsExactly(1, 3);
+      runDocumentChecks(forkedChecks, checks);
+      // reported during the walk of the document, once all the checks have scanned the file
+      walkingCheck.reportIssueOnFile("walk", List.of());
+      assertThat(context.allIssues()).isEmpty();
+
+      forkedChecks.saveResults();
+    }
+
+    assertThat(context.allIssues()).extracting(ForkedChecksTest::message).containsExactly("first", "tokens", "third", "text", "walk");
+    assertThat(scanNanos[1]).isEqualTo(1L);
+    assertThat(scanNanos[3]).isEqualTo(1L);
+    assertThat(tokensCheck.thread).isNotSameAs(Thread.currentThread());
+    assertThat(tokensCheck.tokens).isSameAs(FileSnapshot.of(xmlFile).tokens());
+  }
+
+  @Test
+  void checks_should_not_be_forked_when_they_all_need_the_document() {
+    List<CheckDispatcher.DispatchedCheck> checks = List.of(dispatched(new DocumentCheck("first"), "S1"));
+
+    try (ForkedChecks forkedChecks = ForkedChecks.fork(pool, context, checks, xmlFile, ForkedChecksTest::run, new long[1])) {
+      assertThat(forkedChecks.isForked(0)).isFalse();
+      assertThat(forkedChecks.documentContext()).isSameAs(context);
+      runDocumentChecks(forkedChecks, checks);
+      assertThat(context.allIssues()).extracting(ForkedChecksTest::message).containsExactly("first");
+      forkedChecks.saveResults();
+    }
+
+    assertThat(context.allIssues()).hasSize(1);
+  }
+
+  @Test
+  void no_check_should_be_forked_without_pool() {
+    try (ForkedChecks forkedChecks = ForkedChecks.none(context, 2)) {
+      assertThat(forkedChecks.isForked(0)).isFalse();
+      assertThat(forkedChecks.isForked(1)).isFalse();
+      assertThat(forkedChecks.documentContext()).isSameAs(context);
+    }
+  }
+
+  @Test
+  void failures_of_forked_checks_should_be_rethrown_when_saving_results() {
+    List<CheckDispatcher.DispatchedCheck> checks = List.of(dispatched(new TextCheck(), "S1"));
+    ForkedChecks.CheckRunner failingRunner = (checkContext, check, ruleKey, file) -> {
+      throw new IllegalStateException("boom");
+    };
+
+    try (ForkedChecks forkedChecks = ForkedChecks.fork(pool, context, checks, xmlFile, failingRunner, new long[1])) {
+      assertThatThrownBy(forkedChecks::saveResults)
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("boom");
+    }
+    assertThat(context.allIssues()).isEmpty();
+  }
+
+  private void runDocumentChecks(ForkedChecks forkedChecks, List<CheckDispatcher.DispatchedCheck> checks) {
+    for (int i = 0; i < checks.size(); i++) {
+      if (!forkedChecks.isForked(i)) {
+        CheckDispatcher.DispatchedCheck check = checks.get(i);
+        run(forkedChecks.documentContext(), check.check(), check.ruleKey(), xmlFile);
+        forkedChecks.scanned(i);
+      }
+    }
+  }
+
+  private static long run(SensorContext context, SonarXmlCheck check, RuleKey ruleKey, XmlFile xmlFile) {
+    check.scanFile(context, ruleKey, xmlFile);
+    return 1L;
+  }
+
+  private static CheckDispatcher.DispatchedCheck dispatched(SonarXmlCheck check, String rule) {
+    return new CheckDispatcher.DispatchedCheck(check, RuleKey.of(Xml.REPOSITORY_KEY, rule));
+  }
+
+  private static String message(Issue issue) {
+    return issue.primaryLocation().message();
+  }
+
+  private static class DocumentCheck extends SonarXmlCheck {
+
+    private final String message;
+
+    DocumentCheck(String message) {
+      this.message = message;
+    }
+
+    @Override
+    public void scanFile(XmlFile file) {
+      reportIssue(file.getDocument().getDocumentElement(), message);
+    }
+  }
+
+  @RequiresRepresentation(Representation.TOKENS)
+  private static class TokensCheck extends SonarXmlCheck {
+
+    private Thread thread;
+    private XmlTokens tokens;
+
+    @Override
+    public void scanFile(XmlFile file) {
+      thread = Thread.currentThread();
+      tokens = FileSnapshot.of(file).tokens();
+      reportIssue(tokens.textRange(0), "tokens", List.of());
+    }
+  }
+
+  @RequiresRepresentation(Representation.TEXT)
+  private static class TextCheck extends SonarXmlCheck {
+
+    @Override
+    public void scanFile(XmlFile file) {
+      reportIssueOnFile("text", List.of());
+    }
+  }
+}
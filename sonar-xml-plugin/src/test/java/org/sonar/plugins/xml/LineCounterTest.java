@@ -20,9 +20,17 @@ import com.google.gson.Gson;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
@@ -32,6 +40,7 @@ import org.sonarsource.analyzer.commons.xml.XmlFile;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class LineCounterTest {
 
@@ -58,6 +67,121 @@ class LineCounterTest {
       {"ncloc_data":{"3":1,"6":1,"7":1,"8":1,"9":1,"10":1,"11":1,"12":1,"13":1}}""");
   }
 
+  @Test
+  void lines_of_large_files_should_not_depend_on_their_split() throws IOException {
+    StringBuilder content = new StringBuilder("<?xml version=\"1.0\"?>\n<!-- header -->\n<root>");
+    for (int i = 0; i < 20_000; i++) {
+      content.append("\n  <item\n    id=\"").append(i).append("\">");
+      content.append(i % 3 == 0 ? "\n    text " + i + "\n\n  " : "");
+      content.append(i % 5 == 0 ? "<!--\n    comment\n  -->" : "");
+      content.append("</item>");
+    }
+    content.append("\n</root>\n<!-- footer -->\n");
+    InputFile inputFile = TestInputFileBuilder.create("modulekey", "large.xml")
+      .setCharset(StandardCharsets.UTF_8)
+      .setContents(content.toString())
+      .build();
+    XmlFile xmlFile = XmlFile.create(inputFile);
+
+    List<Object> sequentialMetrics = metrics(inputFile, xmlFile);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try (ParallelTraversal.Scope scope = ParallelTraversal.enter(pool)) {
+      assertThat(metrics(inputFile, xmlFile)).containsExactlyElementsOf(sequentialMetrics);
+    } finally {
+      pool.shutdownNow();
+    }
+    assertThat(sequentialMetrics.get(1)).isEqualTo(20_000 / 5 + 2);
+  }
+
+  @Test
+  void references_to_entities_which_are_not_expanded_should_not_be_code() throws IOException {
+    String content = """
+      <!DOCTYPE root [
+      <!ENTITY external SYSTEM "external.xml">
+      <!ENTITY internal "internal">
+      ]>
+      <root>
+        &external;
+        &internal;
+        &lt;
+        &#65;
+        <![CDATA[&external;]]>
+        &external; text
+      </root>
+      """;
+    InputFile inputFile = TestInputFileBuilder.create("modulekey", "entities.xml")
+      .setCharset(StandardCharsets.UTF_8)
+      .setContents(content)
+      .build();
+    XmlFile xmlFile = XmlFile.create(inputFile);
+
+    var fileLinesContext = new FileLinesContextTester();
+    LineCounter.analyse(SensorContextTester.create(new File("src/test/resources")), fileLinesContext, xmlFile);
+
+    assertThat(fileLinesContext.metrics(inputFile).get(CoreMetrics.NCLOC_DATA_KEY)).containsOnlyKeys(1, 2, 3, 4, 5, 7, 8, 9, 10, 11, 12);
+  }
+
+  @Test
+  void lines_of_deep_files() throws IOException {
+    XmlFile xmlFile = DeepDocuments.unparsed(DeepDocuments.nest("a", "\n<!-- comment -->\n"));
+    List<Object> metrics = metrics(xmlFile.getInputFile(), xmlFile);
+    assertThat(metrics.get(0)).isEqualTo(2);
+    assertThat(metrics.get(1)).isEqualTo(1);
+  }
+
+  /**
+   * The files of the tests and the ruling sources, when they are checked out.
+   */
+  static Stream<Path> corpus() throws IOException {
+    List<Path> files = new ArrayList<>();
+    for (Path root : List.of(Path.of("src/test/resources"), Path.of("../its/sources/projects"))) {
+      if (Files.isDirectory(root)) {
+        try (Stream<Path> walk = Files.walk(root)) {
+          walk.filter(path -> path.toString().endsWith(".xml") && Files.isRegularFile(path)).sorted().forEach(files::add);
+        }
+      }
+    }
+    return files.stream();
+  }
+
+  @ParameterizedTest
+  @MethodSource("corpus")
+  void lines_should_be_the_ones_counted_from_the_document(Path file) throws IOException {
+    InputFile inputFile = TestInputFileBuilder.create("modulekey", file.getFileName().toString())
+      .setCharset(StandardCharsets.UTF_8)
+      .setContents(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))
+      .build();
+    Optional<XmlFile> xmlFile = parse(inputFile);
+    assumeTrue(xmlFile.isPresent(), "the lines of malformed files are not counted");
+
+    var fileLinesContext = new FileLinesContextTester();
+    SensorContextTester context = SensorContextTester.create(new File("src/test/resources"));
+    LineCounter.analyse(context, fileLinesContext, xmlFile.get());
+
+    DomLineCounter reference = DomLineCounter.count(xmlFile.get());
+    assertThat(fileLinesContext.metrics(inputFile).getOrDefault(CoreMetrics.NCLOC_DATA_KEY, Map.of()).keySet())
+      .containsExactlyElementsOf(reference.linesOfCode());
+    assertThat(context.measure(inputFile.key(), CoreMetrics.COMMENT_LINES).value()).isEqualTo(reference.commentLines().size());
+  }
+
+  private static Optional<XmlFile> parse(InputFile inputFile) {
+    try {
+      return Optional.of(XmlFile.create(inputFile));
+    } catch (ParseException e) {
+      return Optional.empty();
+    }
+  }
+
+  private static List<Object> metrics(InputFile inputFile, XmlFile xmlFile) {
+    SensorContextTester context = SensorContextTester.create(new File("src/test/resources"));
+    var fileLinesContext = new FileLinesContextTester();
+    LineCounter.analyse(context, fileLinesContext, xmlFile);
+    return List.of(
+      context.measure(inputFile.key(), CoreMetrics.NCLOC).value(),
+      context.measure(inputFile.key(), CoreMetrics.COMMENT_LINES).value(),
+      fileLinesContext.metrics(inputFile));
+  }
+
   private void verifyMetrics(String filename, int commentLinesNumber, String linesMetrics) throws IOException {
     File moduleBaseDir = new File("src/test/resources/parsers/linecount");
     SensorContextTester context = SensorContextTester.create(moduleBaseDir);
@@ -0,0 +1,77 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LineIndexTest {
+
+  @Test
+  void should_index_lines_with_all_terminators() {
+    LineIndex index = LineIndex.of("<a>\r\n  <b/>  \n\t\n\r</a>");
+
+    assertThat(index.lineCount()).isEqualTo(5);
+    assertThat(lines(index)).containsExactly("<a>", "  <b/>  ", "\t", "", "</a>");
+    assertThat(index.lineStart(2)).isEqualTo(5);
+    assertThat(index.lineEnd(2)).isEqualTo(13);
+    assertThat(index.lineLength(2)).isEqualTo(8);
+    assertThat(index.firstNonBlank(2)).isEqualTo(7);
+    assertThat(index.trimmedEnd(2)).isEqualTo(11);
+    assertThat(index.isBlank(2)).isFalse();
+    assertThat(index.isBlank(3)).isTrue();
+    assertThat(index.firstNonBlank(3)).isEqualTo(index.lineEnd(3));
+    assertThat(index.trimmedEnd(3)).isEqualTo(index.lineStart(3));
+    assertThat(index.isBlank(4)).isTrue();
+  }
+
+  @Test
+  void should_have_one_line_per_terminator_plus_one() {
+    assertThat(LineIndex.of("").lineCount()).isEqualTo(1);
+    assertThat(LineIndex.of("a\n").lineCount()).isEqualTo(2);
+    assertThat(LineIndex.of("a\r\n\r\n").lineCount()).isEqualTo(3);
+    assertThat(LineIndex.of("x\n".repeat(1000)).lineCount()).isEqualTo(1001);
+  }
+
+  @Test
+  void should_find_characters_in_range() {
+    LineIndex index = LineIndex.of("\t\t<a>\t</a>");
+    assertThat(index.indexOf('<', 0, 10)).isEqualTo(2);
+    assertThat(index.indexOf('<', 3, 6)).isEqualTo(6);
+    assertThat(index.indexOfOther('\t', 0, 10)).isEqualTo(2);
+    assertThat(index.indexOfOther('\t', 0, 1)).isEqualTo(1);
+  }
+
+  @Test
+  void should_find_not_empty_lines() {
+    List<Integer> lines = new ArrayList<>();
+    LineIndex.forEachNotEmptyLine(" a \r\n\t\n\rb\r c", 10, lines::add);
+    assertThat(lines).containsExactly(10, 13, 14);
+  }
+
+  private static List<String> lines(LineIndex index) {
+    List<String> lines = new ArrayList<>();
+    LineIndex.LineText lineText = index.newLineText();
+    for (int line = 1; line <= index.lineCount(); line++) {
+      lines.add(lineText.moveTo(line).toString());
+    }
+    return lines;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.sonar.api.batch.sensor.cache.ReadCache;
+import org.sonar.api.batch.sensor.cache.WriteCache;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+
+/**
+ * In-memory sensor cache, holding the entries of the previous analysis and the ones written by the current analysis.
+ */
+class MapSensorCache implements ReadCache, WriteCache {
+
+  private final Map<String, byte[]> previousEntries;
+  private final Map<String, byte[]> nextEntries = new HashMap<>();
+
+  MapSensorCache(Map<String, byte[]> previousEntries) {
+    this.previousEntries = previousEntries;
+  }
+
+  static MapSensorCache enable(SensorContextTester context, Map<String, byte[]> previousEntries) {
+    MapSensorCache cache = new MapSensorCache(previousEntries);
+    context.setCacheEnabled(true);
+    context.setPreviousCache(cache);
+    context.setNextCache(cache);
+    return cache;
+  }
+
+  Map<String, byte[]> nextEntries() {
+    return nextEntries;
+  }
+
+  @Override
+  public InputStream read(String key) {
+    if (!contains(key)) {
+      throw new IllegalArgumentException("No cache entry for key " + key);
+    }
+    return new ByteArrayInputStream(previousEntries.get(key));
+  }
+
+  @Override
+  public boolean contains(String key) {
+    return previousEntries.containsKey(key);
+  }
+
+  @Override
+  public void write(String key, InputStream data) {
+    try {
+      write(key, data.readAllBytes());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void write(String key, byte[] data) {
+    if (nextEntries.containsKey(key)) {
+      throw new IllegalArgumentException("Cache entry already written for key " + key);
+    }
+    nextEntries.put(key, data);
+  }
+
+  @Override
+  public void copyFromPrevious(String key) {
+    write(key, previousEntries.get(key));
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.sonar.plugins.xml.checks.AnalysisDeadline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParallelTraversalTest {
+
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @AfterEach
+  void shutdownPool() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  void children_should_not_be_split_without_pool() {
+    XmlTree tree = XmlTree.of(items(3 * ParallelTraversal.MIN_TASK_SIZE));
+
+    assertThat(ParallelTraversal.isEnabled()).isFalse();
+    assertThat(ParallelTraversal.isWorthSplitting(tree, tree.root())).isFalse();
+    assertThat(ParallelTraversal.mapChildren(tree, tree.root(), child -> true, (start, end) -> start)).isNull();
+  }
+
+  @Test
+  void children_should_be_split_into_ranges_of_consecutive_subtrees() {
+    XmlTree tree = XmlTree.of(items(3 * ParallelTraversal.MIN_TASK_SIZE));
+    int root = tree.root();
+
+    List<int[]> ranges;
+    try (ParallelTraversal.Scope scope = ParallelTraversal.enter(pool)) {
+      ranges = ParallelTraversal.mapChildren(tree, root, child -> tree.type(child) == XmlNodeType.ELEMENT, (start, end) -> new int[] {start, end});
+    }
+
+    assertThat(ranges).hasSizeGreaterThan(1);
+    assertThat(ranges.get(0)[0]).isEqualTo(tree.firstChild(root));
+    assertThat(ranges.get(ranges.size() - 1)[1]).isEqualTo(tree.subtreeEnd(root));
+    for (int i = 0; i < ranges.size(); i++) {
+      assertThat(tree.parent(ranges.get(i)[0])).isEqualTo(root);
+      if (i > 0) {
+        // only the first range starts with a child which is not accepted
+        assertThat(tree.type(ranges.get(i)[0])).isEqualTo(XmlNodeType.ELEMENT);
+        assertThat(ranges.get(i)[0]).isEqualTo(ranges.get(i - 1)[1]);
+      }
+    }
+  }
+
+  @Test
+  void small_subtrees_should_not_be_split() {
+    XmlTree tree = XmlTree.of(items(10));
+
+    try (ParallelTraversal.Scope scope = ParallelTraversal.enter(pool)) {
+      assertThat(ParallelTraversal.isEnabled()).isTrue();
+      assertThat(ParallelTraversal.mapChildren(tree, tree.root(), child -> true, (start, end) -> start)).isNull();
+      assertThat(ParallelTraversal.mapNodes(tree, (start, end) -> end - start)).containsExactly(tree.size());
+    }
+    assertThat(ParallelTraversal.isEnabled()).isFalse();
+  }
+
+  @Test
+  void nodes_should_be_split_into_ranges_covering_the_tree() {
+    XmlTree tree = XmlTree.of(items(3 * ParallelTraversal.MIN_TASK_SIZE));
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    List<Integer> sizes;
+    try (ParallelTraversal.Scope scope = ParallelTraversal.enter(pool)) {
+      sizes = ParallelTraversal.mapNodes(tree, (start, end) -> {
+        threads.add(Thread.currentThread());
+        return end - start;
+      });
+    }
+
+    assertThat(sizes).hasSizeGreaterThan(1);
+    assertThat(sizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(tree.size());
+    assertThat(threads).isNotEmpty();
+  }
+
+  @Test
+  void results_should_be_returned_in_the_order_of_the_tasks() {
+    List<Supplier<Integer>> tasks = IntStream.range(0, 100).<Supplier<Integer>>mapToObj(i -> () -> i).toList();
+
+    try (ParallelTraversal.Scope scope = ParallelTraversal.enter(pool)) {
+      assertThat(ParallelTraversal.invokeAll(tasks)).containsExactlyElementsOf(IntStream.range(0, 100).boxed().toList());
+    }
+    assertThat(ParallelTraversal.invokeAll(tasks)).containsExactlyElementsOf(IntStream.range(0, 100).boxed().toList());
+  }
+
+  @Test
+  void tasks_should_share_the_deadline_of_the_file() {
+    List<Supplier<Integer>> tasks = List.of(() -> 1, () -> {
+      AnalysisDeadline.checkpoint();
+      return 2;
+    });
+
+    try (AnalysisDeadline.Scope deadlineScope = AnalysisDeadline.ofMillis(0).enter();
+      ParallelTraversal.Scope scope = ParallelTraversal.enter(pool)) {
+      assertThatThrownBy(() -> ParallelTraversal.invokeAll(tasks))
+        .isInstanceOf(AnalysisDeadline.ExceededException.class);
+    }
+  }
+
+  private static String items(int count) {
+    StringBuilder content = new StringBuilder("<root>");
+    for (int i = 0; i < count / 2; i++) {
+      content.append("\n  <item/>");
+    }
+    return content.append("\n</root>").toString();
+  }
+}
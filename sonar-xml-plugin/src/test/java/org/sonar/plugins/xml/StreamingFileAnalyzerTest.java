@@ -0,0 +1,180 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.TextRange;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.batch.rule.CheckFactory;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.batch.rule.internal.NewActiveRule;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.batch.sensor.issue.Issue;
+import org.sonar.api.batch.sensor.issue.IssueLocation;
+import org.sonar.api.testfixtures.log.LogTesterJUnit5;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.Version;
+import org.slf4j.event.Level;
+import org.sonar.api.internal.SonarRuntimeImpl;
+import org.sonar.api.SonarEdition;
+import org.sonar.api.SonarQubeSide;
+import org.sonar.plugins.xml.checks.CharBeforePrologCheck;
+import org.sonar.plugins.xml.checks.FixmeCommentCheck;
+import org.sonar.plugins.xml.checks.LineLengthCheck;
+import org.sonar.plugins.xml.checks.TabCharacterCheck;
+import org.sonar.plugins.xml.checks.TodoCommentCheck;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingFileAnalyzerTest {
+
+  private static final List<RuleKey> STREAMING_RULES = List.of(
+    RuleKey.of(Xml.REPOSITORY_KEY, LineLengthCheck.RULE_KEY),
+    RuleKey.of(Xml.REPOSITORY_KEY, TabCharacterCheck.RULE_KEY),
+    RuleKey.of(Xml.REPOSITORY_KEY, CharBeforePrologCheck.RULE_KEY),
+    RuleKey.of(Xml.REPOSITORY_KEY, TodoCommentCheck.RULE_KEY),
+    RuleKey.of(Xml.REPOSITORY_KEY, FixmeCommentCheck.RULE_KEY),
+    RuleKey.of(Xml.REPOSITORY_KEY, "S2321"));
+
+  @RegisterExtension
+  LogTesterJUnit5 logTester = new LogTesterJUnit5().setLevel(Level.DEBUG);
+
+  @TempDir
+  Path baseDir;
+
+  @Test
+  void streamed_files_should_have_same_results_as_parsed_files() throws IOException {
+    Path resources = Path.of("src/test/resources").toAbsolutePath();
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(resources)) {
+      files = paths.filter(path -> path.toString().endsWith(".xml")).sorted().toList();
+    }
+
+    Results parsed = analyze(resources, files, -1);
+    Results streamed = analyze(resources, files, 0);
+
+    assertThat(parsed.issues).isNotEmpty();
+    assertThat(streamed.issues).isEqualTo(parsed.issues);
+    assertThat(streamed.measures).isEqualTo(parsed.measures);
+    assertThat(streamed.linesOfCode).isEqualTo(parsed.linesOfCode);
+    assertThat(streamed.analysisErrors).isEqualTo(parsed.analysisErrors);
+  }
+
+  @Test
+  void should_only_stream_files_above_threshold() throws IOException {
+    Path small = Files.writeString(baseDir.resolve("small.xml"), "<a>\t</a>\n");
+    Path big = Files.writeString(baseDir.resolve("big.xml"), "<a>\n\t<b/>\n</a>\n");
+
+    Results results = analyze(baseDir, List.of(small, big), Files.size(big));
+
+    assertThat(results.issues).extracting(issue -> issue.substring(0, issue.indexOf(' '))).containsExactly("big.xml", "small.xml");
+    assertThat(logTester.logs(Level.INFO))
+      .contains("Analyzing 1 XML file(s) of at least " + Files.size(big) + " bytes as streams: only the rules supporting it are executed on them, "
+        + "and they are not highlighted");
+  }
+
+  @Test
+  void should_discard_results_of_malformed_streamed_files() throws IOException {
+    Path malformed = Files.writeString(baseDir.resolve("malformed.xml"), "<a>\t<b>\n</a>\n");
+
+    Results results = analyze(baseDir, List.of(malformed), 0);
+
+    assertThat(results.issues).isEmpty();
+    assertThat(results.measures).isEmpty();
+    assertThat(results.analysisErrors).containsExactly("malformed.xml");
+  }
+
+  private static Results analyze(Path baseDir, List<Path> files, long streamingMinBytes) throws IOException {
+    SensorContextTester context = SensorContextTester.create(baseDir);
+    context.setRuntime(SonarRuntimeImpl.forSonarQube(Version.create(9, 9), SonarQubeSide.SCANNER, SonarEdition.COMMUNITY));
+    context.settings().setProperty(XmlSensor.STREAMING_MIN_BYTES_KEY, streamingMinBytes);
+    DefaultFileSystem fileSystem = new DefaultFileSystem(baseDir);
+    context.setFileSystem(fileSystem);
+    List<DefaultInputFile> inputFiles = new ArrayList<>();
+    for (Path file : files) {
+      DefaultInputFile inputFile = TestInputFileBuilder.create("modulekey", baseDir.relativize(file).toString())
+        .setModuleBaseDir(baseDir)
+        .setType(InputFile.Type.MAIN)
+        .setLanguage(Xml.KEY)
+        .setCharset(StandardCharsets.UTF_8)
+        .initMetadata(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))
+        .build();
+      fileSystem.add(inputFile);
+      inputFiles.add(inputFile);
+    }
+    ActiveRulesBuilder activeRulesBuilder = new ActiveRulesBuilder();
+    STREAMING_RULES.forEach(ruleKey -> activeRulesBuilder.addRule(new NewActiveRule.Builder().setRuleKey(ruleKey).build()));
+    ActiveRules activeRules = activeRulesBuilder.build();
+    context.setActiveRules(activeRules);
+    FileLinesContextTester fileLinesContextTester = new FileLinesContextTester();
+
+    new XmlSensor(context.runtime(), fileSystem, new CheckFactory(activeRules), fileLinesContextTester).execute(context);
+
+    Results results = new Results();
+    context.allIssues().stream().map(StreamingFileAnalyzerTest::describe).sorted().forEach(results.issues::add);
+    context.allAnalysisErrors().forEach(error -> results.analysisErrors.add(error.inputFile().toString()));
+    for (DefaultInputFile inputFile : inputFiles) {
+      String key = inputFile.key();
+      if (context.measure(key, CoreMetrics.NCLOC) != null) {
+        results.measures.put(key, context.measure(key, CoreMetrics.NCLOC).value() + "/" + context.measure(key, CoreMetrics.COMMENT_LINES).value());
+      }
+      results.linesOfCode.put(key, fileLinesContextTester.metrics(inputFile).toString());
+    }
+    return results;
+  }
+
+  private static String describe(Issue issue) {
+    StringBuilder description = new StringBuilder()
+      .append(issue.primaryLocation().inputComponent()).append(' ')
+      .append(issue.ruleKey()).append(' ');
+    describe(description, issue.primaryLocation());
+    issue.flows().forEach(flow -> flow.locations().forEach(location -> describe(description.append(" / "), location)));
+    return description.toString();
+  }
+
+  private static void describe(StringBuilder description, IssueLocation location) {
+    TextRange range = location.textRange();
+    if (range != null) {
+      description.append(range.start().line()).append(':').append(range.start().lineOffset()).append('-')
+        .append(range.end().line()).append(':').append(range.end().lineOffset()).append(' ');
+    }
+    description.append(location.message());
+  }
+
+  private static class Results {
+    private final List<String> issues = new ArrayList<>();
+    private final List<String> analysisErrors = new ArrayList<>();
+    private final Map<String, String> measures = new TreeMap<>();
+    private final Map<String, String> linesOfCode = new TreeMap<>();
+  }
+}
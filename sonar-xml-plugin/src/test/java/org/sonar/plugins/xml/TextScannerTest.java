@@ -0,0 +1,100 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class TextScannerTest {
+
+  static Stream<TextScanner> scanners() {
+    // the module of the Vector API is only added to the JVM of a dedicated execution of the tests, with the vector profile
+    return Stream.of(TextScanner.scalar(), TextScanner.vectorized()).filter(Objects::nonNull);
+  }
+
+  private static boolean isVectorModuleAvailable() {
+    return ModuleLayer.boot().findModule(TextScanner.VECTOR_MODULE).isPresent();
+  }
+
+  @Test
+  void best_scanner_should_be_vectorized_when_module_is_available() {
+    assumeTrue(isVectorModuleAvailable());
+    assertThat(TextScanner.vectorized()).isNotNull();
+    assertThat(TextScanner.best().toString()).startsWith("vectorized");
+    assertThat(TextScanner.scalar()).hasToString("scalar");
+  }
+
+  @Test
+  void best_scanner_should_be_scalar_when_module_is_not_available() {
+    assumeFalse(isVectorModuleAvailable());
+    assertThat(TextScanner.vectorized()).isNull();
+    assertThat(TextScanner.best()).isSameAs(TextScanner.scalar());
+  }
+
+  @ParameterizedTest
+  @MethodSource("scanners")
+  void should_find_characters_before_and_after_vector_bounds(TextScanner scanner) {
+    for (int length = 0; length < 150; length++) {
+      for (int position = 0; position < length; position += 7) {
+        char[] chars = "a".repeat(length).toCharArray();
+        chars[position] = '\r';
+        assertThat(scanner.indexOfLineBreak(chars, 0, length)).isEqualTo(position);
+        assertThat(scanner.indexOf(chars, '\r', 0, length)).isEqualTo(position);
+        assertThat(scanner.indexOfOther(chars, 'a', 0, length)).isEqualTo(position);
+        assertThat(scanner.indexOfLineBreak(chars, position + 1, length)).isEqualTo(length);
+        assertThat(scanner.indexOf(chars, '\r', 0, position)).isEqualTo(position);
+      }
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("scanners")
+  void should_find_line_feeds_and_runs(TextScanner scanner) {
+    char[] chars = ("x".repeat(40) + "\n" + "\t".repeat(70) + "y").toCharArray();
+    assertThat(scanner.indexOfLineBreak(chars, 0, chars.length)).isEqualTo(40);
+    assertThat(scanner.indexOf(chars, '\t', 0, chars.length)).isEqualTo(41);
+    assertThat(scanner.indexOfOther(chars, '\t', 41, chars.length)).isEqualTo(111);
+    assertThat(scanner.indexOfOther(chars, '\t', 41, 100)).isEqualTo(100);
+  }
+
+  @ParameterizedTest
+  @MethodSource("scanners")
+  void line_index_should_not_depend_on_scanner(TextScanner scanner) {
+    String content = ("  <a>\t</a>  \r\n" + "x".repeat(100) + "\n\n\t \r").repeat(3);
+    LineIndex index = LineIndex.of(content, scanner);
+    LineIndex reference = LineIndex.of(content, TextScanner.scalar());
+    assertThat(index.lineCount()).isEqualTo(13);
+    assertThat(describe(index)).isEqualTo(describe(reference));
+  }
+
+  private static List<String> describe(LineIndex index) {
+    List<String> lines = new ArrayList<>();
+    for (int line = 1; line <= index.lineCount(); line++) {
+      lines.add(index.lineStart(line) + "-" + index.lineEnd(line) + ":" + index.firstNonBlank(line) + "-" + index.trimmedEnd(line));
+    }
+    return lines;
+  }
+}
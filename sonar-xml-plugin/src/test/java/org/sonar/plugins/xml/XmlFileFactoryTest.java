@@ -0,0 +1,69 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.plugins.xml.checks.Representation;
+import org.sonarsource.analyzer.commons.xml.ParseException;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class XmlFileFactoryTest {
+
+  private static final String MALFORMED = "<root>\n\t<unclosed>\n</root>";
+
+  @Test
+  void should_always_parse_namespace_aware_document() throws IOException {
+    XmlFile xmlFile = XmlFileFactory.create(inputFile("<root/>"), Set.of(Representation.TEXT));
+
+    assertThat(xmlFile.getContents()).isEqualTo("<root/>");
+    assertThat(xmlFile.getCharset()).isEqualTo(StandardCharsets.UTF_8);
+    assertThat(xmlFile.getDocument().getDocumentElement().getNodeName()).isEqualTo("root");
+    assertThatThrownBy(() -> XmlFileFactory.create(inputFile(MALFORMED), EnumSet.noneOf(Representation.class)))
+      .isInstanceOf(ParseException.class);
+  }
+
+  @Test
+  void should_build_namespace_unaware_document_when_needed() throws IOException {
+    XmlFile xmlFile = XmlFileFactory.create(inputFile("<a:root xmlns:a=\"urn:a\"/>"), Set.of(Representation.NAMESPACE_UNAWARE_DOM));
+
+    assertThat(xmlFile.getDocument().getDocumentElement().getLocalName()).isEqualTo("root");
+    assertThat(xmlFile.getNamespaceUnawareDocument().getDocumentElement().getLocalName()).isNull();
+  }
+
+  @Test
+  void should_parse_namespace_aware_document_when_needed() throws IOException {
+    XmlFile xmlFile = XmlFileFactory.create(inputFile("<?xml version=\"1.0\"?><root/>"), Set.of(Representation.NAMESPACE_AWARE_DOM));
+
+    assertThat(xmlFile.getDocument().getDocumentElement().getNodeName()).isEqualTo("root");
+    assertThat(xmlFile.getPrologElement()).isPresent();
+    assertThatThrownBy(() -> XmlFileFactory.create(inputFile(MALFORMED), Set.of(Representation.NAMESPACE_AWARE_DOM)))
+      .isInstanceOf(ParseException.class);
+  }
+
+  private static InputFile inputFile(String content) {
+    return TestInputFileBuilder.create("modulekey", "file.xml").setCharset(StandardCharsets.UTF_8).setContents(content).build();
+  }
+}
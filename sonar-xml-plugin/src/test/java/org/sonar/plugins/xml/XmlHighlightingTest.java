@@ -198,6 +198,17 @@ class XmlHighlightingTest {
     assertHighlighting(expectedCDataEndOffset, expectedCDataEndOffset + 3, TypeOfText.KEYWORD);
   }
 
+  @Test
+  void testDeepDocument() throws Exception {
+    xmlFile = DeepDocuments.unparsed(DeepDocuments.nest("a", "<!-- c -->"));
+    fileSystem.add(xmlFile.getInputFile());
+    XmlHighlighting.highlight(context, xmlFile);
+    int innermost = 3 * DeepDocuments.DEPTH;
+    assertHighlighting(innermost - 3, innermost, TypeOfText.KEYWORD);
+    assertHighlighting(innermost, innermost + 10, TypeOfText.STRUCTURED_COMMENT);
+    assertHighlighting(innermost + 10, innermost + 14, TypeOfText.KEYWORD);
+  }
+
   @Test
   void testHighlightTag() throws Exception {
     highlight("<tr></tr>");
@@ -361,6 +372,66 @@ class XmlHighlightingTest {
     assertHighlighting(14, 19, TypeOfText.STRING);
   }
 
+  @Test
+  void testEmptyCDATA() throws Exception {
+    highlight("<tag><![CDATA[]]></tag>");
+    assertHighlighting(5, 14, TypeOfText.KEYWORD);
+    assertHighlighting(14, 17, TypeOfText.KEYWORD);
+  }
+
+  @Test
+  void testEndOfTagAfterLastAttributeOfSource() throws Exception {
+    highlight("<tag zz='1' aa='2'/>");
+    assertHighlighting(12, 14, TypeOfText.CONSTANT);
+    assertHighlighting(15, 18, TypeOfText.STRING);
+    assertHighlighting(18, 20, TypeOfText.KEYWORD);
+    // blank between the attributes
+    assertNoHighlighting(1, 11);
+  }
+
+  @Test
+  void testCommentsAroundDoctype() throws Exception {
+    highlight("""
+      <!-- a --> <!-- b -->
+      <!DOCTYPE tag [ <!-- ] > --> <!ENTITY e "]>"> ]>
+      <tag/>""");
+    assertHighlighting(1, 0, 1, 10, TypeOfText.STRUCTURED_COMMENT);
+    assertNoHighlighting(1, 10);
+    assertHighlighting(1, 11, 1, 21, TypeOfText.STRUCTURED_COMMENT);
+    assertHighlighting(2, 0, 2, 48, TypeOfText.STRUCTURED_COMMENT);
+    assertHighlighting(3, 0, 3, 4, TypeOfText.KEYWORD);
+  }
+
+  @Test
+  void testProcessingInstructionIsNotHighlighted() throws Exception {
+    highlight("<?xml-stylesheet href='style.xsl'?><tag/>");
+    assertNoHighlighting(1, 0);
+    assertNoHighlighting(1, 16);
+    assertHighlighting(35, 39, TypeOfText.KEYWORD);
+  }
+
+  @Test
+  void testNotWellFormedFile() {
+    String content = """
+      <tag att='value'>
+        <!-- comment
+      <other></tag""";
+    DefaultInputFile inputFile = TestInputFileBuilder.create("module", "notWellFormed.xml")
+      .initMetadata(content)
+      .setContents(content)
+      .setLanguage(Xml.KEY)
+      .setCharset(UTF_8)
+      .build();
+    fileSystem.add(inputFile);
+    XmlHighlighting.highlight(context, inputFile, FileSnapshot.of(content));
+
+    assertHighlighting(inputFile, 1, 0, 1, 4, TypeOfText.KEYWORD);
+    assertHighlighting(inputFile, 1, 5, 1, 8, TypeOfText.CONSTANT);
+    assertHighlighting(inputFile, 1, 9, 1, 16, TypeOfText.STRING);
+    // unterminated comment
+    assertHighlighting(inputFile, 2, 2, 3, 12, TypeOfText.STRUCTURED_COMMENT);
+  }
+
   private void highlightFromFile(String filename, String content) throws Exception {
     File file = tmpFolder.newFile(filename);
     FileUtils.write(file, content, UTF_8);
@@ -407,9 +478,17 @@ class XmlHighlightingTest {
   }
 
   private void assertHighlighting(int startLine, int startColumn, int endLine, int endColumn, TypeOfText code) {
-    String componentKey = xmlFile.getInputFile().key();
+    assertHighlighting(xmlFile.getInputFile(), startLine, startColumn, endLine, endColumn, code);
+  }
+
+  private void assertHighlighting(InputFile inputFile, int startLine, int startColumn, int endLine, int endColumn, TypeOfText code) {
+    String componentKey = inputFile.key();
     assertThat(context.highlightingTypeAt(componentKey, startLine, startColumn)).contains(code);
     // last char is not included
     assertThat(context.highlightingTypeAt(componentKey, endLine, endColumn - 1)).contains(code);
   }
+
+  private void assertNoHighlighting(int line, int column) {
+    assertThat(context.highlightingTypeAt(xmlFile.getInputFile().key(), line, column)).isEmpty();
+  }
 }
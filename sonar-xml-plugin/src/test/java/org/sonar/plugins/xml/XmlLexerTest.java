@@ -0,0 +1,95 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class XmlLexerTest {
+
+  @Test
+  void should_tokenize_tags_and_attributes() {
+    assertThat(tokens("<a x = '1' y=\"2>\"><b/></a >")).containsExactly(
+      "START_TAG <a",
+      "ATTRIBUTE_NAME x",
+      "EQUALS =",
+      "ATTRIBUTE_VALUE '1'",
+      "ATTRIBUTE_NAME y",
+      "EQUALS =",
+      "ATTRIBUTE_VALUE \"2>\"",
+      "TAG_END >",
+      "START_TAG <b",
+      "EMPTY_TAG_END />",
+      "END_TAG </a >");
+  }
+
+  @Test
+  void should_tokenize_prolog_doctype_and_processing_instructions() {
+    assertThat(tokens("\uFEFF<?xml version='1.0'?>\n<?pi a?><!DOCTYPE a [<!ENTITY e '>'><!-- ]> -->]><a/>")).containsExactly(
+      "PROLOG_START <?xml",
+      "ATTRIBUTE_NAME version",
+      "EQUALS =",
+      "ATTRIBUTE_VALUE '1.0'",
+      "PROLOG_END ?>",
+      "TEXT \n",
+      "PROCESSING_INSTRUCTION <?pi a?>",
+      "DOCTYPE <!DOCTYPE a [<!ENTITY e '>'><!-- ]> -->]>",
+      "START_TAG <a",
+      "EMPTY_TAG_END />");
+  }
+
+  @Test
+  void should_tokenize_comments_cdata_and_text() {
+    assertThat(tokens("<a>x < y<!-- <b> --><![CDATA[<c>]]]></a>")).containsExactly(
+      "START_TAG <a",
+      "TAG_END >",
+      "TEXT x < y",
+      "COMMENT <!-- <b> -->",
+      "CDATA_START <![CDATA[",
+      "TEXT <c>]",
+      "CDATA_END ]]>",
+      "END_TAG </a>");
+  }
+
+  @Test
+  void should_tokenize_text_which_is_not_well_formed() {
+    assertThat(tokens("<a b c='1' <d e='2")).containsExactly(
+      "START_TAG <a",
+      "ATTRIBUTE_NAME b",
+      "ATTRIBUTE_NAME c",
+      "EQUALS =",
+      "ATTRIBUTE_VALUE '1'",
+      "START_TAG <d",
+      "ATTRIBUTE_NAME e",
+      "EQUALS =",
+      "ATTRIBUTE_VALUE '2");
+    assertThat(tokens("</a <!-- x")).containsExactly("END_TAG </a ", "COMMENT <!-- x");
+    assertThat(tokens("<![CDATA[x")).containsExactly("CDATA_START <![CDATA[", "TEXT x");
+    assertThat(tokens("<a = ! >a<!b><")).containsExactly("START_TAG <a", "ATTRIBUTE_NAME !", "TAG_END >", "TEXT a<!b><");
+    assertThat(tokens("<?xml")).containsExactly("PROLOG_START <?xml");
+    assertThat(tokens("")).isEmpty();
+  }
+
+  private static List<String> tokens(String content) {
+    List<String> tokens = new ArrayList<>();
+    XmlLexer.tokenize(content, (type, start, end) -> tokens.add(type + " " + content.substring(start, end)));
+    return tokens;
+  }
+}
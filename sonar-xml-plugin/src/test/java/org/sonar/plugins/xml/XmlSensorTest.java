@@ -16,6 +16,8 @@
  */
 package org.sonar.plugins.xml;
 
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
@@ -26,9 +28,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.assertj.core.api.Condition;
 import org.junit.Rule;
 import org.junit.jupiter.api.Test;
@@ -61,10 +65,13 @@ import org.sonar.api.internal.apachecommons.io.FileUtils;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.api.notifications.AnalysisWarnings;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.testfixtures.log.LogTesterJUnit5;
 import org.sonar.api.utils.Version;
+import org.sonar.plugins.xml.checks.CommentedOutCodeCheck;
 import org.sonar.plugins.xml.checks.TabCharacterCheck;
+import org.sonar.plugins.xml.checks.XPathCheck;
 import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheck;
 
@@ -72,6 +79,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @EnableRuleMigrationSupport
@@ -261,6 +269,284 @@ class XmlSensorTest {
     assertThat(context.allIssues()).extracting("ruleKey").containsOnly(TAB_CHARACTER_RULE_KEY);
   }
 
+  @Test
+  void parallel_analysis_should_produce_same_results_as_sequential_analysis() throws Exception {
+    assertSameResultsAsSequentialAnalysis(XmlSensor.ANALYSIS_THREADS_KEY, "3");
+  }
+
+  @Test
+  void pipelined_analysis_should_produce_same_results_as_sequential_analysis() throws Exception {
+    assertSameResultsAsSequentialAnalysis(AnalysisPipeline.PIPELINE_KEY, "true");
+    assertLog("XML analysis pipeline bottleneck: (read|parse|metrics|checks) stage", true);
+    assertLog("  checks: 1 thread\\(s\\), 6 files, .*", true);
+  }
+
+  @Test
+  void concurrent_checks_should_produce_same_results_as_sequential_analysis() throws Exception {
+    assertSameResultsAsSequentialAnalysis(XmlSensor.CONCURRENT_CHECKS_MIN_BYTES_KEY, "0");
+  }
+
+  @Test
+  void pipelined_analysis_should_use_configured_threads_per_stage() throws Exception {
+    init(SQ_LTS_RUNTIME, true);
+    fs.add(createInputFile("src/pom.xml"));
+    fs.add(createInputFile("src/tabsEverywhere.xml"));
+    context.settings().setProperty(AnalysisPipeline.PIPELINE_KEY, true);
+    context.settings().setProperty(AnalysisPipeline.STAGE_THREADS_KEY_PREFIX + "checks", 2);
+    context.settings().setProperty(AnalysisPipeline.QUEUE_SIZE_KEY, 1);
+
+    sensor.execute(context);
+
+    assertThat(context.allIssues()).extracting("ruleKey").containsOnly(NEW_LINE_RULE_KEY, TAB_CHARACTER_RULE_KEY);
+    assertLog("  checks: 2 thread\\(s\\), 2 files, .*", true);
+    assertLog("  metrics: 1 thread\\(s\\), 2 files, .*", true);
+  }
+
+  private void assertSameResultsAsSequentialAnalysis(String propertyKey, String propertyValue) throws Exception {
+    String[] files = {"src/pom.xml", "src/tabsEverywhere.xml", "src/shouldNotFail.xml", "src/wrong-ampersand.xhtml",
+      "src/pom_with_chars_before_prolog_and_missing_new_line.xml", "src/pom_with_chars_before_prolog.xml"};
+
+    init(SQ_LTS_RUNTIME, true);
+    for (String file : files) {
+      fs.add(createInputFile(file));
+    }
+    sensor.execute(context);
+    List<String> sequentialIssues = issuesAsStrings(context);
+    List<Integer> sequentialNcloc = nclocPerFile(files);
+
+    init(SQ_LTS_RUNTIME, true);
+    for (String file : files) {
+      fs.add(createInputFile(file));
+    }
+    context.settings().setProperty(propertyKey, propertyValue);
+    sensor.execute(context);
+
+    assertThat(sequentialIssues).isNotEmpty();
+    assertThat(issuesAsStrings(context)).containsExactlyElementsOf(sequentialIssues);
+    assertThat(nclocPerFile(files)).containsExactlyElementsOf(sequentialNcloc);
+    assertThat(context.highlightingTypeAt("modulekey:src/pom.xml", 4, 9)).containsOnly(TypeOfText.KEYWORD);
+    assertThat(context.allAnalysisErrors()).hasSize(1);
+  }
+
+  @Test
+  void should_prefetch_files_when_enabled() throws Exception {
+    init();
+    fs.add(createInputFile("src/pom.xml"));
+    fs.add(createInputFile("src/tabsEverywhere.xml"));
+    context.settings().setProperty(XmlSensor.PREFETCH_FILES_KEY, 4);
+
+    sensor.execute(context);
+
+    assertThat(context.allIssues()).extracting("ruleKey").containsOnly(NEW_LINE_RULE_KEY, TAB_CHARACTER_RULE_KEY);
+    assertLog("XML files prefetch: analysis waited on I/O for \\d/2 files, \\d+ ms in total", true);
+  }
+
+  @Test
+  void should_not_prefetch_files_of_pipelined_analysis() throws Exception {
+    init();
+    fs.add(createInputFile("src/pom.xml"));
+    fs.add(createInputFile("src/tabsEverywhere.xml"));
+    context.settings().setProperty(XmlSensor.PREFETCH_FILES_KEY, 4);
+    context.settings().setProperty(AnalysisPipeline.PIPELINE_KEY, true);
+
+    sensor.execute(context);
+
+    assertThat(context.allIssues()).extracting("ruleKey").containsOnly(NEW_LINE_RULE_KEY, TAB_CHARACTER_RULE_KEY);
+    assertThat(logTester.logs()).noneMatch(log -> log.startsWith("XML files prefetch"));
+  }
+
+  @Test
+  void should_write_profile_report_when_enabled() throws Exception {
+    init();
+    fs.add(createInputFile("src/pom.xml"));
+    fs.add(createInputFile("src/tabsEverywhere.xml"));
+    Path reportPath = temporaryFolder.getRoot().toPath().resolve("profile/report.json");
+    context.settings().setProperty(AnalysisProfiler.REPORT_PATH_KEY, reportPath.toString());
+
+    sensor.execute(context);
+
+    JsonObject report = JsonParser.parseString(Files.readString(reportPath)).getAsJsonObject();
+    assertThat(report.get("files").getAsInt()).isEqualTo(2);
+    assertThat(report.getAsJsonArray("rules")).extracting(rule -> rule.getAsJsonObject().get("rule").getAsString())
+      .containsExactlyInAnyOrder(NEW_LINE_RULE_KEY.toString(), TAB_CHARACTER_RULE_KEY.toString());
+    assertThat(report.getAsJsonArray("slowestFiles")).extracting(file -> file.getAsJsonObject().get("file").getAsString())
+      .containsExactlyInAnyOrder("src/pom.xml", "src/tabsEverywhere.xml");
+    assertLog("XML analysis profile of 2 file\\(s\\): parse \\d+ ms, metrics \\d+ ms, highlighting \\d+ ms, checks \\d+ ms, stream \\d+ ms", true);
+  }
+
+  @Test
+  void should_abandon_files_exceeding_their_time_budget() throws Exception {
+    File moduleBaseDir = temporaryFolder.newFolder();
+    context = SensorContextTester.create(moduleBaseDir);
+    fs = new DefaultFileSystem(moduleBaseDir);
+    RuleKey commentedOutCodeRuleKey = RuleKey.of(Xml.REPOSITORY_KEY, CommentedOutCodeCheck.RULE_KEY);
+    ActiveRules activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder().setRuleKey(NEW_LINE_RULE_KEY).build())
+      .addRule(new NewActiveRule.Builder().setRuleKey(commentedOutCodeRuleKey).build())
+      .build();
+    context.setActiveRules(activeRules);
+    context.settings().setProperty(XmlSensor.FILE_TIMEOUT_KEY, 1000);
+    FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    when(fileLinesContextFactory.createFor(any(InputFile.class))).thenReturn(mock(FileLinesContext.class));
+    AnalysisWarnings analysisWarnings = mock(AnalysisWarnings.class);
+    sensor = new XmlSensor(SQ_LTS_RUNTIME, fs, new CheckFactory(activeRules), fileLinesContextFactory, analysisWarnings);
+
+    Files.writeString(moduleBaseDir.toPath().resolve("slow.xml"), "<r>\n<a><b/></a>\n" + "<!-- <c> -->\n".repeat(3_000) + "</r>");
+    Files.writeString(moduleBaseDir.toPath().resolve("fast.xml"), "<r>\n<a><b/></a>\n</r>");
+    DefaultInputFile slowFile = createInputFile(moduleBaseDir.toPath(), "slow.xml", StandardCharsets.UTF_8);
+    DefaultInputFile fastFile = createInputFile(moduleBaseDir.toPath(), "fast.xml", StandardCharsets.UTF_8);
+    fs.add(slowFile);
+    fs.add(fastFile);
+
+    sensor.execute(context);
+
+    assertThat(context.allIssues()).extracting(issue -> issue.primaryLocation().inputComponent()).containsOnly(fastFile);
+    assertThat(context.measure(slowFile.key(), CoreMetrics.NCLOC)).isNull();
+    assertThat(context.measure(fastFile.key(), CoreMetrics.NCLOC)).isNotNull();
+    // adjacent comments which are not well-formed are parsed again and again by the rule
+    assertThat(logTester.logs(Level.WARN)).contains(
+      "Abandoning analysis of slow.xml: Analysis exceeded its time budget of 1000 ms, while executing rule xml:S125");
+    verify(analysisWarnings).addUnique("The analysis of 1 XML file(s) has been abandoned, as it exceeded the time budget of 1000 ms set by "
+      + "\"sonar.xml.analysis.fileTimeoutMillis\". See the analysis logs for the affected files and rules.");
+  }
+
+  @Test
+  void should_warn_about_xpath_rules_retired_after_exceeding_the_time_budget() throws Exception {
+    File moduleBaseDir = temporaryFolder.newFolder();
+    context = SensorContextTester.create(moduleBaseDir);
+    fs = new DefaultFileSystem(moduleBaseDir);
+    ActiveRules activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(Xml.REPOSITORY_KEY, "slowXPath"))
+        .setTemplateRuleKey(XPathCheck.RULE_KEY)
+        // quadratic in the number of elements
+        .setParam("expression", "//a[count(preceding::a) >= 0]")
+        .build())
+      .build();
+    context.setActiveRules(activeRules);
+    context.settings().setProperty(XmlSensor.FILE_TIMEOUT_KEY, 500);
+    FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    when(fileLinesContextFactory.createFor(any(InputFile.class))).thenReturn(mock(FileLinesContext.class));
+    AnalysisWarnings analysisWarnings = mock(AnalysisWarnings.class);
+    sensor = new XmlSensor(SQ_LTS_RUNTIME, fs, new CheckFactory(activeRules), fileLinesContextFactory, analysisWarnings);
+
+    Files.writeString(moduleBaseDir.toPath().resolve("slow.xml"), "<r>" + "<a/>".repeat(20_000) + "</r>");
+    DefaultInputFile slowFile = createInputFile(moduleBaseDir.toPath(), "slow.xml", StandardCharsets.UTF_8);
+    fs.add(slowFile);
+
+    sensor.execute(context);
+
+    assertThat(context.allIssues()).isEmpty();
+    verify(analysisWarnings).addUnique("The XPath rule(s) [xml:slowXPath] exceeded the time budget of 500 ms set by "
+      + "\"sonar.xml.analysis.fileTimeoutMillis\", and have not been executed on the files analyzed afterwards. "
+      + "See the analysis logs for the affected files.");
+  }
+
+  @Test
+  void should_replay_results_of_unchanged_files_from_cache() throws Exception {
+    String[] files = {"src/pom.xml", "src/tabsEverywhere.xml", "src/wrong-ampersand.xhtml"};
+
+    init(SQ_LTS_RUNTIME, true);
+    for (String file : files) {
+      fs.add(createInputFile(file));
+    }
+    MapSensorCache firstCache = MapSensorCache.enable(context, Map.of());
+    sensor.execute(context);
+    List<String> analyzedIssues = issuesAsStrings(context);
+    List<Integer> analyzedNcloc = nclocPerFile(files);
+    assertThat(firstCache.nextEntries()).hasSize(3);
+    assertLog("XML analysis cache: 0 file(s) replayed from cache, 3 file(s) stored in cache", false);
+
+    init(SQ_LTS_RUNTIME, true);
+    for (String file : files) {
+      fs.add(createInputFile(file));
+    }
+    MapSensorCache secondCache = MapSensorCache.enable(context, firstCache.nextEntries());
+    sensor.execute(context);
+
+    assertThat(analyzedIssues).isNotEmpty();
+    assertThat(issuesAsStrings(context)).containsExactlyInAnyOrderElementsOf(analyzedIssues);
+    assertThat(nclocPerFile(files)).containsExactlyElementsOf(analyzedNcloc);
+    assertThat(context.highlightingTypeAt("modulekey:src/pom.xml", 4, 9)).containsOnly(TypeOfText.KEYWORD);
+    assertThat(context.allAnalysisErrors()).hasSize(1);
+    assertThat(secondCache.nextEntries()).containsOnlyKeys(firstCache.nextEntries().keySet());
+    assertLog("XML analysis cache: 3 file(s) replayed from cache, 0 file(s) stored in cache", false);
+  }
+
+  @Test
+  void should_analyze_files_again_when_active_rules_changed() throws Exception {
+    init(SQ_LTS_RUNTIME, false);
+    fs.add(createInputFile("src/tabsEverywhere.xml"));
+    MapSensorCache firstCache = MapSensorCache.enable(context, Map.of());
+    sensor.execute(context);
+
+    init(SQ_LTS_RUNTIME, true);
+    fs.add(createInputFile("src/tabsEverywhere.xml"));
+    MapSensorCache.enable(context, firstCache.nextEntries());
+    sensor.execute(context);
+
+    assertThat(context.allIssues()).isNotEmpty();
+    assertLog("XML analysis cache: 0 file(s) replayed from cache, 1 file(s) stored in cache", false);
+  }
+
+  @Test
+  void should_only_analyze_changed_files_when_unchanged_files_can_be_skipped() throws Exception {
+    init();
+    fs.add(createInputFile("src/tabsEverywhere.xml").setStatus(InputFile.Status.SAME));
+    fs.add(createInputFile("src/pom.xml").setStatus(InputFile.Status.CHANGED));
+    context.setCanSkipUnchangedFiles(true);
+
+    sensor.execute(context);
+
+    assertThat(context.allIssues()).extracting(issue -> issue.primaryLocation().inputComponent().key()).containsOnly("modulekey:src/pom.xml");
+    assertThat(context.measure("modulekey:src/tabsEverywhere.xml", CoreMetrics.NCLOC)).isNull();
+    assertLog("Skipping 1 unchanged XML file(s) out of 2", false);
+  }
+
+  @Test
+  void should_analyze_unchanged_files_when_they_cannot_be_skipped() throws Exception {
+    init();
+    fs.add(createInputFile("src/tabsEverywhere.xml").setStatus(InputFile.Status.SAME));
+    fs.add(createInputFile("src/pom.xml").setStatus(InputFile.Status.CHANGED));
+    context.setCanSkipUnchangedFiles(false);
+
+    sensor.execute(context);
+
+    assertThat(context.allIssues()).extracting(issue -> issue.primaryLocation().inputComponent().key())
+      .contains("modulekey:src/tabsEverywhere.xml", "modulekey:src/pom.xml");
+  }
+
+  @Test
+  void should_keep_cache_entries_of_skipped_files() throws Exception {
+    init();
+    fs.add(createInputFile("src/tabsEverywhere.xml"));
+    MapSensorCache firstCache = MapSensorCache.enable(context, Map.of());
+    sensor.execute(context);
+
+    init();
+    fs.add(createInputFile("src/tabsEverywhere.xml").setStatus(InputFile.Status.SAME));
+    context.setCanSkipUnchangedFiles(true);
+    MapSensorCache secondCache = MapSensorCache.enable(context, firstCache.nextEntries());
+    sensor.execute(context);
+
+    assertThat(context.allIssues()).isEmpty();
+    assertThat(secondCache.nextEntries()).containsOnlyKeys(firstCache.nextEntries().keySet());
+  }
+
+  private static List<String> issuesAsStrings(SensorContextTester context) {
+    return context.allIssues().stream()
+      .map(issue -> issue.ruleKey() + " " + issue.primaryLocation().inputComponent() + " " + issue.primaryLocation().textRange() + " "
+        + issue.primaryLocation().message() + " " + issue.flows().size())
+      .toList();
+  }
+
+  private List<Integer> nclocPerFile(String... files) {
+    return Stream.of(files)
+      .map(file -> context.<Integer>measure("modulekey:" + file, CoreMetrics.NCLOC))
+      .map(measure -> measure == null ? -1 : measure.value())
+      .toList();
+  }
+
   @Test
   void failing_rules_should_not_report_parse_exception() throws Exception {
     init(SQ_LTS_RUNTIME, true);
@@ -365,7 +651,9 @@ class XmlSensorTest {
       activeRuleBuilder.addRule(new NewActiveRule.Builder().setRuleKey(PARSING_ERROR_RULE_KEY).build());
     }
 
-    CheckFactory checkFactory = new CheckFactory(activeRuleBuilder.build());
+    ActiveRules activeRules = activeRuleBuilder.build();
+    context.setActiveRules(activeRules);
+    CheckFactory checkFactory = new CheckFactory(activeRules);
 
     FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
     when(fileLinesContextFactory.createFor(any(InputFile.class))).thenReturn(mock(FileLinesContext.class));
@@ -406,6 +694,42 @@ class XmlSensorTest {
     assertThat(context.measure(componentKey, CoreMetrics.NCLOC).value()).isEqualTo(2);
   }
 
+  @Test
+  void should_not_parse_files_when_active_rules_only_need_text_in_sonarlint() throws Exception {
+    String content = "<root>\n\t<unclosed>\n</root>";
+
+    SensorContextTester sonarLintContext = analyzeWithTabCharacterRuleOnly(SonarRuntimeImpl.forSonarLint(Version.create(6, 5)), content);
+    assertThat(sonarLintContext.allIssues()).extracting("ruleKey").containsOnly(TAB_CHARACTER_RULE_KEY);
+    assertThat(sonarLintContext.allAnalysisErrors()).isEmpty();
+
+    // metrics need the document
+    SensorContextTester sonarQubeContext = analyzeWithTabCharacterRuleOnly(SQ_LTS_RUNTIME, content);
+    assertThat(sonarQubeContext.allIssues()).isEmpty();
+    assertThat(sonarQubeContext.allAnalysisErrors()).hasSize(1);
+    // while the highlighting only needs the text
+    assertThat(sonarQubeContext.highlightingTypeAt("modulekey:tabs.xml", 2, 1)).containsOnly(TypeOfText.KEYWORD);
+    assertThat(sonarLintContext.highlightingTypeAt("modulekey:tabs.xml", 2, 1)).isEmpty();
+  }
+
+  private SensorContextTester analyzeWithTabCharacterRuleOnly(SonarRuntime runtime, String content) throws Exception {
+    Path moduleBaseDir = temporaryFolder.newFolder().toPath();
+    SensorContextTester context = SensorContextTester.create(moduleBaseDir);
+    context.setRuntime(runtime);
+    DefaultFileSystem fileSystem = new DefaultFileSystem(moduleBaseDir);
+    context.setFileSystem(fileSystem);
+    Files.writeString(moduleBaseDir.resolve("tabs.xml"), content);
+    fileSystem.add(createInputFile(moduleBaseDir, "tabs.xml", StandardCharsets.UTF_8));
+
+    ActiveRules activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder().setRuleKey(TAB_CHARACTER_RULE_KEY).build())
+      .build();
+    context.setActiveRules(activeRules);
+    FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    when(fileLinesContextFactory.createFor(any(InputFile.class))).thenReturn(mock(FileLinesContext.class));
+    new XmlSensor(runtime, fileSystem, new CheckFactory(activeRules), fileLinesContextFactory).execute(context);
+    return context;
+  }
+
   private void assertLog(String expected, boolean isRegexp) {
     if (isRegexp) {
       Condition<String> regexpMatches = new Condition<String>(log -> Pattern.compile(expected).matcher(log).matches(), "");
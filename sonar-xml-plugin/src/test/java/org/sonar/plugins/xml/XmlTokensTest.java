@@ -0,0 +1,92 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import org.junit.jupiter.api.Test;
+import org.sonarsource.analyzer.commons.xml.XmlTextRange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class XmlTokensTest {
+
+  @Test
+  void should_keep_the_tokens_of_the_content() {
+    XmlTokens tokens = XmlTokens.of("<a x='1'>t</a>");
+    assertThat(tokens.size()).isEqualTo(7);
+    assertThat(tokens.type(0)).isEqualTo(XmlTokenType.START_TAG);
+    assertThat(tokens.text(3)).isEqualTo("'1'");
+    assertThat(tokens.start(5)).isEqualTo(9);
+    assertThat(tokens.end(5)).isEqualTo(10);
+    assertThat(tokens.indexOf(XmlTokenType.END_TAG, 0)).isEqualTo(6);
+    assertThat(tokens.indexOf(XmlTokenType.COMMENT, 0)).isEqualTo(-1);
+  }
+
+  @Test
+  void should_grow_with_the_tokens() {
+    String content = "<a/>".repeat(1000);
+    XmlTokens tokens = XmlTokens.of(content);
+    assertThat(tokens.size()).isEqualTo(2000);
+    assertThat(tokens.start(1999)).isEqualTo(content.length() - 2);
+  }
+
+  @Test
+  void should_find_the_end_of_tags() {
+    XmlTokens tokens = XmlTokens.of("<?xml version='1.0'?><a b='1'/><c d");
+    assertThat(tokens.type(tokens.tagEnd(0))).isEqualTo(XmlTokenType.PROLOG_END);
+    assertThat(tokens.type(tokens.tagEnd(5))).isEqualTo(XmlTokenType.EMPTY_TAG_END);
+    // not terminated
+    assertThat(tokens.tagEnd(10)).isEqualTo(11);
+    assertThat(tokens.text(11)).isEqualTo("d");
+  }
+
+  @Test
+  void should_start_the_document_at_its_xml_declaration() {
+    assertThat(XmlTokens.of("<!-- c -->\n<?xml version='1.0'?><a/>").documentStart()).isEqualTo(2);
+    assertThat(XmlTokens.of("<!-- <?xml version='1.0'?> --><a/>").documentStart()).isZero();
+  }
+
+  @Test
+  void should_give_the_value_of_comments() {
+    XmlTokens tokens = XmlTokens.of("<!-- a --><!---->\n<!-- b");
+    assertThat(tokens.commentValue(0)).isEqualTo(" a ");
+    assertThat(tokens.commentValue(1)).isEmpty();
+    assertThat(tokens.commentValue(3)).isEqualTo(" b");
+    assertThat(XmlTokens.of("<!--->").commentValue(0)).isEqualTo("->");
+  }
+
+  @Test
+  void should_locate_tokens() {
+    XmlTokens tokens = XmlTokens.of("<a>\r\n  <b\n/></a>");
+    assertRange(tokens.textRange(0), 1, 0, 1, 2);
+    assertRange(tokens.textRange(tokens.indexOf(XmlTokenType.EMPTY_TAG_END, 0)), 3, 0, 3, 2);
+    assertRange(tokens.textRange(tokens.start(3), tokens.end(4)), 2, 2, 3, 2);
+  }
+
+  @Test
+  void should_locate_tokens_without_byte_order_mark() {
+    XmlTokens tokens = XmlTokens.of("\uFEFF<a>\n<b/></a>");
+    assertRange(tokens.textRange(0), 1, 0, 1, 2);
+    assertRange(tokens.textRange(3), 2, 0, 2, 2);
+  }
+
+  private static void assertRange(XmlTextRange range, int startLine, int startColumn, int endLine, int endColumn) {
+    assertThat(range.getStartLine()).isEqualTo(startLine);
+    assertThat(range.getStartColumn()).isEqualTo(startColumn);
+    assertThat(range.getEndLine()).isEqualTo(endLine);
+    assertThat(range.getEndColumn()).isEqualTo(endColumn);
+  }
+}
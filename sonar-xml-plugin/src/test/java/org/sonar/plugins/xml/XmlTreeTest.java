@@ -0,0 +1,196 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+import org.sonarsource.analyzer.commons.xml.XmlTextRange;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class XmlTreeTest {
+
+  private static final String CONTENT = "<?xml version='1.0'?>\n"
+    + "<!DOCTYPE a>\n"
+    + "<!-- c -->\n"
+    + "<a x='1' y=\"2\" xmlns:p='p'>\n"
+    + "  <b>text<![CDATA[<data>]]></b>\n"
+    + "  <?pi d?>\n"
+    + "  <p:c/>\n"
+    + "</a>\n";
+
+  @Test
+  void should_link_nodes_in_document_order() {
+    XmlTree tree = XmlTree.of(CONTENT);
+    assertThat(types(tree)).containsExactly("DOCUMENT", "DOCTYPE", "COMMENT", "ELEMENT a", "TEXT", "ELEMENT b", "TEXT", "CDATA", "TEXT",
+      "PROCESSING_INSTRUCTION", "TEXT", "ELEMENT p:c", "TEXT");
+
+    int a = tree.root();
+    assertThat(a).isEqualTo(3);
+    assertThat(tree.parent(XmlTree.DOCUMENT)).isEqualTo(-1);
+    assertThat(tree.parent(a)).isEqualTo(XmlTree.DOCUMENT);
+    assertThat(tree.firstChild(a)).isEqualTo(4);
+    assertThat(tree.lastChild(a)).isEqualTo(12);
+    assertThat(tree.nextSibling(5)).isEqualTo(8);
+    assertThat(tree.previousSibling(8)).isEqualTo(5);
+    assertThat(tree.nextSibling(12)).isEqualTo(-1);
+    assertThat(tree.nextSibling(a)).isEqualTo(-1);
+    assertThat(tree.previousSibling(4)).isEqualTo(-1);
+    assertThat(tree.firstChild(11)).isEqualTo(-1);
+    assertThat(tree.lastChild(11)).isEqualTo(-1);
+    assertThat(tree.subtreeEnd(5)).isEqualTo(8);
+    assertThat(tree.subtreeEnd(XmlTree.DOCUMENT)).isEqualTo(tree.size());
+  }
+
+  @Test
+  void should_give_names_and_values() {
+    XmlTree tree = XmlTree.of(CONTENT);
+    int a = tree.root();
+    assertThat(tree.name(a)).isEqualTo("a");
+    assertThat(tree.name(11)).isEqualTo("p:c");
+    assertThat(tree.localName(11)).isEqualTo("c");
+    assertThat(tree.name(4)).isNull();
+    assertThat(tree.localName(4)).isNull();
+    assertThat(tree.text(2)).isEqualTo(" c ");
+    assertThat(tree.text(5)).isEqualTo("text<data>");
+    assertThat(tree.text(7)).isEqualTo("<data>");
+    assertThat(tree.text(9)).isEqualTo("<?pi d?>");
+
+    assertThat(tree.attributesEnd(a) - tree.firstAttribute(a)).isEqualTo(3);
+    int y = tree.attribute(a, "y");
+    assertThat(tree.attributeName(y)).isEqualTo("y");
+    assertThat(tree.attributeValue(y)).isEqualTo("2");
+    assertThat(tree.attribute(a, "z")).isEqualTo(-1);
+    assertThat(tree.firstAttribute(5)).isEqualTo(tree.attributesEnd(5));
+  }
+
+  @Test
+  void should_share_names() {
+    XmlTree tree = XmlTree.of("<a><b a='1'/><b/></a>");
+    assertThat(tree.name(2)).isSameAs(tree.name(3));
+    assertThat(tree.attributeName(0)).isSameAs(tree.name(1));
+  }
+
+  @Test
+  void should_replace_references_and_normalize_values() {
+    XmlTree tree = XmlTree.of("<a v='&lt;&#65;&#x42;&amp;&e;&#xZ;&\t\r\n&#10;'>&gt;\r\n&quot;&apos;&unknown;&#1114112; & x</a>");
+    int a = tree.root();
+    assertThat(tree.attributeValue(tree.firstAttribute(a))).isEqualTo("<AB&&e;&#xZ;&  \n");
+    assertThat(tree.text(a)).isEqualTo(">\n\"'&unknown;&#1114112; & x");
+    assertThat(XmlTree.of("<a><!-- a\r\nb --></a>").text(2)).isEqualTo(" a\nb ");
+    assertThat(XmlTree.of("<a v/>").attributeValue(0)).isEmpty();
+  }
+
+  @Test
+  void should_locate_nodes_as_documents() {
+    XmlFile file = XmlFile.create(CONTENT);
+    XmlTree tree = XmlTree.of(file.getContents());
+    Element a = file.getNamespaceUnawareDocument().getDocumentElement();
+    Element b = (Element) a.getElementsByTagName("b").item(0);
+    Element c = (Element) a.getElementsByTagName("p:c").item(0);
+    int treeA = tree.elementAt(XmlFile.startLocation(a));
+    int treeB = tree.elementAt(XmlFile.startLocation(b));
+    int treeC = tree.elementAt(XmlFile.startLocation(c));
+
+    assertThat(treeA).isEqualTo(tree.root());
+    assertThat(tree.name(treeB)).isEqualTo("b");
+    assertThat(tree.name(treeC)).isEqualTo("p:c");
+    assertSameLocations(tree, treeA, a);
+    assertSameLocations(tree, treeB, b);
+    assertSameLocations(tree, treeC, c);
+    Attr x = a.getAttributeNode("x");
+    assertSameRange(tree.attributeValueLocation(tree.attribute(treeA, "x")), XmlFile.attributeValueLocation(x));
+    assertSameRange(tree.attributeNameLocation(tree.attribute(treeA, "x")), new XmlTextRange(4, 3, 4, 4));
+    assertSameRange(tree.attributeLocation(tree.attribute(treeA, "x")), XmlFile.nodeLocation(x));
+    assertThat(tree.isSelfClosing(treeA)).isFalse();
+    assertThat(tree.isSelfClosing(treeB)).isEqualTo(Utils.isSelfClosing(b)).isFalse();
+    assertThat(tree.isSelfClosing(treeC)).isEqualTo(Utils.isSelfClosing(c)).isTrue();
+
+    assertSameRange(tree.startLocation(2), new XmlTextRange(3, 0, 3, 10));
+    assertSameRange(tree.endLocation(2), new XmlTextRange(3, 0, 3, 10));
+    assertThat(tree.elementAt(new XmlTextRange(3, 0, 3, 10))).isEqualTo(-1);
+    assertThat(tree.elementAt(new XmlTextRange(3, 1, 3, 10))).isEqualTo(-1);
+  }
+
+  @Test
+  void should_build_tree_of_content_which_is_not_well_formed() {
+    XmlTree tree = XmlTree.of("junk<?xml version='1.0'?><a><b><c></x></b>t<d");
+    assertThat(types(tree)).containsExactly("DOCUMENT", "ELEMENT a", "ELEMENT b", "ELEMENT c", "TEXT", "ELEMENT d");
+    // c is closed by the end tag of b
+    assertThat(tree.subtreeEnd(3)).isEqualTo(4);
+    assertSameRange(tree.endLocation(3), tree.startLocation(3));
+    assertSameRange(tree.endLocation(2), new XmlTextRange(1, 38, 1, 42));
+    // a and d end with the content
+    assertThat(tree.subtreeEnd(1)).isEqualTo(tree.size());
+    assertThat(tree.parent(5)).isEqualTo(1);
+    assertSameRange(tree.nodeLocation(XmlTree.DOCUMENT), new XmlTextRange(1, 4, 1, 45));
+  }
+
+  @Test
+  void should_build_empty_tree() {
+    XmlTree tree = XmlTree.of("");
+    assertThat(tree.size()).isEqualTo(1);
+    assertThat(tree.root()).isEqualTo(-1);
+    assertThat(tree.text(XmlTree.DOCUMENT)).isEmpty();
+  }
+
+  @Test
+  void should_grow_with_the_nodes() {
+    String content = "<a>" + "<b c='1' d='2' e='3' f='4' g='5' h='6'/>".repeat(1000) + "</a>";
+    XmlTree tree = XmlTree.of(content);
+    assertThat(tree.size()).isEqualTo(1002);
+    assertThat(tree.attributesEnd(tree.size() - 1)).isEqualTo(6000);
+    assertThat(tree.attributeValue(5999)).isEqualTo("6");
+  }
+
+  @Test
+  void should_build_tree_of_deep_content() {
+    XmlTree tree = XmlTree.of(DeepDocuments.nest("a", "text"));
+    int text = tree.size() - 1;
+    assertThat(tree.size()).isEqualTo(DeepDocuments.DEPTH + 2);
+    assertThat(tree.text(text)).isEqualTo("text");
+    assertThat(tree.parent(text)).isEqualTo(DeepDocuments.DEPTH);
+    assertThat(tree.parent(DeepDocuments.DEPTH)).isEqualTo(DeepDocuments.DEPTH - 1);
+    assertThat(tree.subtreeEnd(tree.root())).isEqualTo(tree.size());
+    int rootEnd = 3 * DeepDocuments.DEPTH + 4 + 4 * DeepDocuments.DEPTH;
+    assertSameRange(tree.endLocation(tree.root()), new XmlTextRange(1, rootEnd - 4, 1, rootEnd));
+  }
+
+  private static List<String> types(XmlTree tree) {
+    List<String> types = new ArrayList<>();
+    for (int node = 0; node < tree.size(); node++) {
+      String name = tree.name(node);
+      types.add(tree.type(node) + (name == null ? "" : (" " + name)));
+    }
+    return types;
+  }
+
+  private static void assertSameLocations(XmlTree tree, int node, Element element) {
+    assertSameRange(tree.startLocation(node), XmlFile.startLocation(element));
+    assertSameRange(tree.endLocation(node), XmlFile.endLocation(element));
+    assertSameRange(tree.nodeLocation(node), XmlFile.nodeLocation(element));
+    assertSameRange(tree.nameLocation(node), XmlFile.nameLocation(element));
+  }
+
+  private static void assertSameRange(XmlTextRange actual, XmlTextRange expected) {
+    assertThat(actual).hasToString(expected.toString());
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml.checks;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AnalysisDeadlineTest {
+
+  @Test
+  void checkpoint_should_pass_without_deadline() {
+    assertThatNoException().isThrownBy(AnalysisDeadline::checkpoint);
+    try (AnalysisDeadline.Scope scope = AnalysisDeadline.none().enter()) {
+      assertThatNoException().isThrownBy(AnalysisDeadline::checkpoint);
+    }
+  }
+
+  @Test
+  void checkpoint_should_fail_once_budget_is_exhausted() throws InterruptedException {
+    AnalysisDeadline deadline = AnalysisDeadline.ofMillis(10);
+    try (AnalysisDeadline.Scope scope = deadline.enter()) {
+      Thread.sleep(20);
+      assertThatThrownBy(AnalysisDeadline::checkpoint)
+        .isInstanceOf(AnalysisDeadline.ExceededException.class)
+        .hasMessage("Analysis exceeded its time budget of 10 ms");
+    }
+    // the deadline only applies while it is entered
+    assertThatNoException().isThrownBy(AnalysisDeadline::checkpoint);
+  }
+
+  @Test
+  void budget_should_only_be_consumed_while_entered() throws InterruptedException {
+    AnalysisDeadline deadline = AnalysisDeadline.ofMillis(1_000);
+    try (AnalysisDeadline.Scope scope = deadline.enter()) {
+      AnalysisDeadline.checkpoint();
+    }
+    Thread.sleep(1_100);
+    try (AnalysisDeadline.Scope scope = deadline.enter()) {
+      assertThatNoException().isThrownBy(AnalysisDeadline::checkpoint);
+    }
+  }
+
+  @Test
+  void exceeded_deadline_should_be_attributed_to_rule() {
+    AnalysisDeadline deadline = AnalysisDeadline.ofMillis(0);
+    try (AnalysisDeadline.Scope scope = deadline.enter()) {
+      assertThatThrownBy(AnalysisDeadline::checkpoint)
+        .isInstanceOfSatisfying(AnalysisDeadline.ExceededException.class, e -> assertThat(e.whileExecuting("xml:S125"))
+          .hasMessage("Analysis exceeded its time budget of 0 ms, while executing rule xml:S125"));
+    }
+  }
+
+  @Test
+  void call_should_return_result_or_rethrow_failure() throws IOException {
+    assertThat(AnalysisDeadline.call(() -> "result")).isEqualTo("result");
+    try (AnalysisDeadline.Scope scope = AnalysisDeadline.ofMillis(10_000).enter()) {
+      assertThat(AnalysisDeadline.call(() -> "result")).isEqualTo("result");
+      assertThatThrownBy(() -> AnalysisDeadline.call(() -> {
+        throw new IOException("failure");
+      })).isInstanceOf(IOException.class).hasMessage("failure");
+      assertThatThrownBy(() -> AnalysisDeadline.call(() -> {
+        throw new IllegalStateException("runtime failure");
+      })).isInstanceOf(IllegalStateException.class).hasMessage("runtime failure");
+    }
+  }
+
+  @Test
+  void call_should_abandon_computation_at_deadline() {
+    CountDownLatch never = new CountDownLatch(1);
+    try (AnalysisDeadline.Scope scope = AnalysisDeadline.ofMillis(50).enter()) {
+      assertThatThrownBy(() -> AnalysisDeadline.call(() -> {
+        never.await();
+        return "never";
+      })).isInstanceOf(AnalysisDeadline.ExceededException.class);
+    }
+    never.countDown();
+  }
+
+  @Test
+  void call_should_account_time_waiting_for_a_thread() throws InterruptedException {
+    CountDownLatch never = new CountDownLatch(1);
+    CountDownLatch busy = new CountDownLatch(AnalysisDeadline.UNINTERRUPTIBLE_THREADS);
+    try {
+      // the evaluations abandoned on the previous files keep all the threads of the pool busy
+      for (int i = 0; i < AnalysisDeadline.UNINTERRUPTIBLE_THREADS; i++) {
+        try (AnalysisDeadline.Scope scope = AnalysisDeadline.ofMillis(200).enter()) {
+          assertThatThrownBy(() -> AnalysisDeadline.call(() -> {
+            busy.countDown();
+            never.await();
+            return "never";
+          })).isInstanceOf(AnalysisDeadline.ExceededException.class);
+        }
+      }
+      assertThat(busy.await(10, TimeUnit.SECONDS)).isTrue();
+
+      long start = System.nanoTime();
+      try (AnalysisDeadline.Scope scope = AnalysisDeadline.ofMillis(100).enter()) {
+        assertThatThrownBy(() -> AnalysisDeadline.call(() -> "result")).isInstanceOf(AnalysisDeadline.ExceededException.class);
+      }
+      assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5_000);
+    } finally {
+      never.countDown();
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml.checks;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.junit.jupiter.api.Test;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DocumentWalkerTest {
+
+  private static final Document DOCUMENT = XmlFile.create("<a><!-- c --><b>text</b><d/></a>").getDocument();
+
+  @Test
+  void should_dispatch_visited_node_types_in_document_order() {
+    RecordingVisitor elements = new RecordingVisitor(DocumentVisitor.nodeTypes(Node.ELEMENT_NODE));
+    RecordingVisitor commentsAndTexts = new RecordingVisitor(DocumentVisitor.nodeTypes(Node.COMMENT_NODE, Node.TEXT_NODE));
+
+    new DocumentWalker(DOCUMENT).add(elements).add(commentsAndTexts).walk();
+
+    assertThat(elements.events).containsExactly("start", "<a", "<b", "b>", "<d", "d>", "a>", "end");
+    assertThat(commentsAndTexts.events).containsExactly("start", "<#comment", "#comment>", "<#text", "#text>", "end");
+  }
+
+  @Test
+  void should_walk_deep_documents_without_recursion() throws ParserConfigurationException {
+    // the parser limits the depth of the documents, which are built by hand
+    int depth = 100_000;
+    Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    // built from the innermost element, as appending to a deep element checks all its ancestors
+    Node element = document.createElement("e");
+    for (int i = 1; i < depth; i++) {
+      Node parent = document.createElement("e");
+      parent.appendChild(element);
+      element = parent;
+    }
+    document.appendChild(element);
+    RecordingVisitor visitor = new RecordingVisitor(DocumentVisitor.ALL_NODE_TYPES);
+
+    new DocumentWalker(document).add(visitor).walk();
+
+    assertThat(visitor.events).hasSize(2 * depth + 2);
+  }
+
+  @Test
+  void visit_should_register_to_collecting_walker_of_same_document() {
+    DocumentWalker walker = new DocumentWalker(DOCUMENT);
+    RecordingVisitor collected = new RecordingVisitor(DocumentVisitor.ALL_NODE_TYPES);
+    RecordingVisitor otherDocument = new RecordingVisitor(DocumentVisitor.ALL_NODE_TYPES);
+    try (DocumentWalker.Scope scope = walker.collect()) {
+      DocumentWalker.visit(DOCUMENT, collected);
+      DocumentWalker.visit(XmlFile.create("<other/>").getDocument(), otherDocument);
+    }
+    assertThat(collected.events).isEmpty();
+    assertThat(otherDocument.events).containsExactly("start", "<other", "other>", "end");
+
+    walker.walk();
+    assertThat(collected.events).hasSize(12);
+
+    RecordingVisitor notCollected = new RecordingVisitor(DocumentVisitor.ALL_NODE_TYPES);
+    DocumentWalker.visit(DOCUMENT, notCollected);
+    assertThat(notCollected.events).hasSize(12);
+  }
+
+  @Test
+  void failing_visitor_should_not_be_called_anymore() {
+    List<RuntimeException> failures = new ArrayList<>();
+    RecordingVisitor failing = new RecordingVisitor(DocumentVisitor.nodeTypes(Node.ELEMENT_NODE)) {
+      @Override
+      public void enterNode(Node node) {
+        super.enterNode(node);
+        throw new IllegalStateException("failure on " + node.getNodeName());
+      }
+    };
+    RecordingVisitor other = new RecordingVisitor(DocumentVisitor.nodeTypes(Node.ELEMENT_NODE));
+
+    new DocumentWalker(DOCUMENT).add(failing).add(other).onFailure((visitor, e) -> failures.add(e)).walk();
+
+    assertThat(failing.events).containsExactly("start", "<a");
+    assertThat(other.events).containsExactly("start", "<a", "<b", "b>", "<d", "d>", "a>", "end");
+    assertThat(failures).extracting(Throwable::getMessage).containsExactly("failure on a");
+
+    DocumentWalker walker = new DocumentWalker(DOCUMENT).add(failing);
+    assertThatThrownBy(walker::walk).isInstanceOf(IllegalStateException.class).hasMessage("failure on a");
+  }
+
+  @Test
+  void exceeded_deadline_should_be_attributed_to_last_called_visitor() {
+    List<DocumentVisitor> failingVisitors = new ArrayList<>();
+    RecordingVisitor visitor = new RecordingVisitor(DocumentVisitor.ALL_NODE_TYPES);
+    try (AnalysisDeadline.Scope scope = AnalysisDeadline.ofMillis(0).enter()) {
+      new DocumentWalker(DOCUMENT).add(visitor).onFailure((failingVisitor, e) -> {
+        assertThat(e).isInstanceOf(AnalysisDeadline.ExceededException.class);
+        failingVisitors.add(failingVisitor);
+      }).walk();
+    }
+    assertThat(failingVisitors).isNotEmpty().containsOnly(visitor);
+  }
+
+  @Test
+  void timed_walker_should_measure_visitors() {
+    RecordingVisitor visitor = new RecordingVisitor(DocumentVisitor.ALL_NODE_TYPES);
+    RecordingVisitor notRegistered = new RecordingVisitor(DocumentVisitor.ALL_NODE_TYPES);
+
+    DocumentWalker timed = new DocumentWalker(DOCUMENT, true).add(visitor);
+    timed.walk();
+    assertThat(timed.nanos(visitor)).isPositive();
+    assertThat(timed.nanos(notRegistered)).isZero();
+
+    DocumentWalker notTimed = new DocumentWalker(DOCUMENT).add(visitor);
+    notTimed.walk();
+    assertThat(notTimed.nanos(visitor)).isZero();
+  }
+
+  @Test
+  void should_not_walk_missing_document() {
+    RecordingVisitor visitor = new RecordingVisitor(DocumentVisitor.ALL_NODE_TYPES);
+    new DocumentWalker(null).add(visitor).walk();
+    assertThat(visitor.events).isEmpty();
+  }
+
+  private static class RecordingVisitor implements DocumentVisitor {
+
+    private final int nodeTypes;
+    private final List<String> events = new ArrayList<>();
+
+    private RecordingVisitor(int nodeTypes) {
+      this.nodeTypes = nodeTypes;
+    }
+
+    @Override
+    public int visitedNodeTypes() {
+      return nodeTypes;
+    }
+
+    @Override
+    public void startDocument(Document document) {
+      events.add("start");
+    }
+
+    @Override
+    public void enterNode(Node node) {
+      events.add("<" + node.getNodeName());
+    }
+
+    @Override
+    public void leaveNode(Node node) {
+      events.add(node.getNodeName() + ">");
+    }
+
+    @Override
+    public void endDocument(Document document) {
+      events.add("end");
+    }
+  }
+}
@@ -16,9 +16,21 @@
  */
 package org.sonar.plugins.xml.checks;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.xml.DeepDocuments;
+import org.sonar.plugins.xml.ParallelTraversal;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheckVerifier;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 class IndentationCheckTest {
 
   @Test
@@ -35,4 +47,53 @@ class IndentationCheckTest {
     SonarXmlCheckVerifier.verifyIssues("IndentationCheckCustom.xml", check);
   }
 
+  @Test
+  void issues_of_large_documents_should_not_depend_on_their_split() throws Exception {
+    StringBuilder content = new StringBuilder("<root>\n  <group>");
+    for (int i = 0; i < 10_000; i++) {
+      content.append(i % 7 == 0 ? "\n   " : "\n    ").append("<item>");
+      if (i % 11 == 0) {
+        content.append("<a/><b/>");
+      }
+      content.append("\n      <name>").append(i).append("</name>");
+      content.append(i % 13 == 0 ? "\n     </item>" : "\n    </item>");
+    }
+    content.append("\n  </group>\n</root>\n");
+    XmlFile xmlFile = XmlFile.create(TestInputFileBuilder.create("modulekey", "large.xml")
+      .setCharset(StandardCharsets.UTF_8)
+      .setContents(content.toString())
+      .build());
+
+    List<String> sequentialIssues = issues(new IndentationCheck(), xmlFile);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try (ParallelTraversal.Scope scope = ParallelTraversal.enter(pool)) {
+      assertThat(issues(new IndentationCheck(), xmlFile)).containsExactlyElementsOf(sequentialIssues);
+    } finally {
+      pool.shutdownNow();
+    }
+    assertThat(sequentialIssues).hasSizeGreaterThan(2000);
+  }
+
+  @Test
+  void should_check_deep_documents() throws Exception {
+    String nested = DeepDocuments.nest("a", "\n  <b/>\n");
+    assertThat(issues(new IndentationCheck(), DeepDocuments.unparsed(nested)))
+      .containsExactly("1: Make this line start after 2 spaces to indent the code consistently.");
+    // elements inside lines of text are not checked, down to the innermost one
+    assertThat(issues(new IndentationCheck(), DeepDocuments.unparsed("<root>text" + DeepDocuments.nest("a", "") + "</root>"))).isEmpty();
+
+    IndentationCheck check = new IndentationCheck();
+    check.setIndentSize(0);
+    assertThat(issues(check, DeepDocuments.unparsed(nested)))
+      .containsExactly("2: Make this line start after 0 spaces to indent the code consistently.");
+  }
+
+  private static List<String> issues(IndentationCheck check, XmlFile xmlFile) {
+    SensorContextTester context = SensorContextTester.create(new File("src/test/resources"));
+    check.scanFile(context, RuleKey.of("xml", "S1120"), xmlFile);
+    return context.allIssues().stream()
+      .map(issue -> issue.primaryLocation().textRange().start().line() + ": " + issue.primaryLocation().message())
+      .toList();
+  }
+
 }
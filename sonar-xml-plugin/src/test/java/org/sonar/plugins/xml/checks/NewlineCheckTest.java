@@ -16,13 +16,27 @@
  */
 package org.sonar.plugins.xml.checks;
 
+import java.io.File;
 import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.xml.DeepDocuments;
 import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheckVerifier;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 class NewlineCheckTest {
 
   @Test
   void test() {
     SonarXmlCheckVerifier.verifyIssues("test.xml", new NewlineCheck());
   }
+
+  @Test
+  void should_check_deep_documents() throws Exception {
+    SensorContextTester context = SensorContextTester.create(new File("src/test/resources"));
+    new NewlineCheck().scanFile(context, RuleKey.of("xml", "S2321"), DeepDocuments.unparsed(DeepDocuments.nest("a", "")));
+    // each element is on the line of its parent
+    assertThat(context.allIssues()).hasSize(DeepDocuments.DEPTH - 1);
+  }
 }
@@ -16,14 +16,21 @@
  */
 package org.sonar.plugins.xml.checks;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
 import org.slf4j.event.Level;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.rule.RuleKey;
 import org.sonar.api.testfixtures.log.LogTesterJUnit5;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheckVerifier;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @EnableRuleMigrationSupport
@@ -116,6 +123,32 @@ class XPathCheckTest {
     assertThat(logTester.getLogs()).isNotEmpty();
   }
 
+  @Test
+  void should_not_evaluate_expression_after_exceeding_deadline() throws Exception {
+    XPathCheck check = new XPathCheck();
+    // quadratic in the number of elements
+    check.setExpression("//a[count(preceding::a) < 0]");
+    SensorContextTester context = SensorContextTester.create(new File("src/test/resources"));
+    RuleKey ruleKey = RuleKey.of("xml", XPathCheck.RULE_KEY);
+
+    XmlFile slowFile = xmlFile("slow.xml", "<root>" + "<a/>".repeat(10_000) + "</root>");
+    slowFile.getNamespaceUnawareDocument();
+    try (AnalysisDeadline.Scope scope = AnalysisDeadline.ofMillis(100).enter()) {
+      assertThatThrownBy(() -> check.scanFile(context, ruleKey, slowFile)).isInstanceOf(AnalysisDeadline.ExceededException.class);
+    }
+    assertThat(logTester.logs(Level.WARN))
+      .containsExactly("[xml:XPathCheck] XPath expression '//a[count(preceding::a) < 0]' exceeded the time budget of the analysis of slow.xml, "
+        + "it is not evaluated on the following files");
+
+    check.setExpression("//a");
+    check.scanFile(context, ruleKey, xmlFile("fast.xml", "<root><a/></root>"));
+    assertThat(context.allIssues()).isEmpty();
+  }
+
+  private static XmlFile xmlFile(String path, String content) throws Exception {
+    return XmlFile.create(TestInputFileBuilder.create("modulekey", path).setCharset(StandardCharsets.UTF_8).setContents(content).build());
+  }
+
   private static XPathCheck getCheck(String expression) {
     XPathCheck check = new XPathCheck();
     check.setExpression(expression);
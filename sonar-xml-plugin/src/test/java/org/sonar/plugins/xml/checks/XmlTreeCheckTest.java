@@ -0,0 +1,63 @@
+/*
+ * SonarQube XML Plugin
+ * Copyright (C) 2010-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.plugins.xml.checks;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.sonar.plugins.xml.XmlTree;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
+import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheckVerifier;
+import org.w3c.dom.Element;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class XmlTreeCheckTest {
+
+  @Test
+  void should_scan_tree_of_file() {
+    SonarXmlCheckVerifier.verifyIssues("file.xml", new EmptyElementCheck());
+  }
+
+  @Test
+  void should_not_require_document() {
+    assertThat(EmptyElementCheck.class.getAnnotation(RequiresRepresentation.class).value()).containsExactly(Representation.TREE);
+  }
+
+  @Test
+  void should_find_tree_element_of_document_element() {
+    XmlFile file = XmlFile.create("<a>\n  <b/><b>\n</b></a>");
+    XmlTree tree = XmlTree.of(file.getContents());
+    List<Element> elements = List.of(file.getDocument().getDocumentElement(),
+      (Element) file.getDocument().getElementsByTagName("b").item(0),
+      (Element) file.getDocument().getElementsByTagName("b").item(1));
+
+    assertThat(elements).extracting(element -> XmlTreeCheck.treeElement(tree, element)).containsExactly(1, 3, 4);
+    assertThat(XmlTreeCheck.treeElement(XmlTree.of("<other/>"), elements.get(2))).isEqualTo(-1);
+  }
+
+  private static class EmptyElementCheck extends XmlTreeCheck {
+
+    @Override
+    public void scanTree(XmlTree tree) {
+      for (int node = tree.root(); node < tree.size(); node++) {
+        if (tree.name(node) != null && tree.firstChild(node) == -1) {
+          reportIssue(tree, node, "Empty element " + tree.name(node) + ".");
+        }
+      }
+    }
+  }
+}
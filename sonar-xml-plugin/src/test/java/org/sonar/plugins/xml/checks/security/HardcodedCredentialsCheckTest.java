@@ -16,12 +16,23 @@
  */
 package org.sonar.plugins.xml.checks.security;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.xml.ParallelTraversal;
+import org.sonarsource.analyzer.commons.xml.XmlFile;
 import org.sonarsource.analyzer.commons.xml.checks.SonarXmlCheckVerifier;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 class HardcodedCredentialsCheckTest {
 
   private static final HardcodedCredentialsCheck CHECK = new HardcodedCredentialsCheck();
@@ -75,4 +86,39 @@ class HardcodedCredentialsCheckTest {
     SonarXmlCheckVerifier.verifyIssues(Paths.get("web-application", "web.config").toString(), CHECK);
     SonarXmlCheckVerifier.verifyIssues(Paths.get("web-application", "Machine.config").toString(), CHECK);
   }
+
+  @Test
+  void issues_of_large_documents_should_not_depend_on_their_split() throws Exception {
+    StringBuilder content = new StringBuilder("<root>");
+    for (int i = 0; i < 20_000; i++) {
+      content.append("\n  <item id=\"").append(i).append('"');
+      if (i % 7 == 0) {
+        content.append(" password=\"secret").append(i).append('"');
+      }
+      content.append(i % 11 == 0 ? "><pwd>secret</pwd></item>" : "/>");
+    }
+    content.append("\n</root>\n");
+    XmlFile xmlFile = XmlFile.create(TestInputFileBuilder.create("modulekey", "large.xml")
+      .setCharset(StandardCharsets.UTF_8)
+      .setContents(content.toString())
+      .build());
+
+    List<String> sequentialIssues = issues(xmlFile);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try (ParallelTraversal.Scope scope = ParallelTraversal.enter(pool)) {
+      assertThat(issues(xmlFile)).containsExactlyElementsOf(sequentialIssues);
+    } finally {
+      pool.shutdownNow();
+    }
+    assertThat(sequentialIssues).hasSize(2858 + 1819);
+  }
+
+  private static List<String> issues(XmlFile xmlFile) {
+    SensorContextTester context = SensorContextTester.create(new File("src/test/resources"));
+    new HardcodedCredentialsCheck().scanFile(context, RuleKey.of("xml", "S2068"), xmlFile);
+    return context.allIssues().stream()
+      .map(issue -> issue.primaryLocation().textRange() + ": " + issue.primaryLocation().message())
+      .toList();
+  }
+
 }